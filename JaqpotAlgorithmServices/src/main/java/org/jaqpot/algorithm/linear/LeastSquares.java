@@ -0,0 +1,306 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.linear;
+
+import java.util.stream.IntStream;
+
+/**
+ * Least squares and ridge regression on column-major matrices. Columns are
+ * contiguous, so every kernel is a dot product or an axpy over a plain
+ * double array, which the JIT compiles to vectorized loops.
+ *
+ * The problem is centered first, so the intercept is not shrunk. The Gram
+ * matrix XᵀX is computed in blocks of columns, in parallel for large
+ * problems, and solved with a Cholesky factorization. When it is not
+ * positive definite (collinear columns without ridge) the centered problem
+ * is solved with a Householder QR factorization instead.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class LeastSquares {
+
+    private static final int BLOCK_SIZE = 64;
+
+    /**
+     * Problems with fewer multiply-adds in their Gram matrix are computed in
+     * the calling thread.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 22;
+
+    private final double[] coefficients;
+    private final double intercept;
+    private final double[] means;
+
+    private LeastSquares(double[] coefficients, double intercept, double[] means) {
+        this.coefficients = coefficients;
+        this.intercept = intercept;
+        this.means = means;
+    }
+
+    /**
+     * Fits y ≈ Xb + c. Missing values (NaN) of X are replaced by the mean of
+     * their column.
+     *
+     * @param x n×p matrix in column-major order; it is centered in place
+     * @param rows number of rows n
+     * @param columns number of columns p
+     * @param y the n targets
+     * @param ridge ridge, relative to the variance of each column
+     * @return the fit
+     */
+    public static LeastSquares fit(double[] x, int rows, int columns, double[] y, double ridge) {
+        double[] means = center(x, rows, columns);
+        double meanY = 0;
+        for (int i = 0; i < rows; i++) {
+            meanY += y[i];
+        }
+        meanY /= rows;
+        double[] centeredY = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            centeredY[i] = y[i] - meanY;
+        }
+
+        double[] gram = gram(x, rows, columns);
+        double[] xty = new double[columns];
+        for (int j = 0; j < columns; j++) {
+            xty[j] = dot(x, j * rows, centeredY, 0, rows);
+        }
+        for (int j = 0; j < columns; j++) {
+            int d = j * columns + j;
+            gram[d] += ridge * (gram[d] > 0 ? gram[d] : 1);
+        }
+
+        double[] b = cholesky(gram, columns) ? choleskySolve(gram, columns, xty) : qrSolve(x, rows, columns, centeredY);
+
+        double intercept = meanY;
+        for (int j = 0; j < columns; j++) {
+            intercept -= b[j] * means[j];
+        }
+        return new LeastSquares(b, intercept, means);
+    }
+
+    /**
+     * Centers the columns of x in place, replacing missing values by the
+     * column mean (i.e. zero after centering).
+     */
+    private static double[] center(double[] x, int rows, int columns) {
+        double[] means = new double[columns];
+        for (int j = 0; j < columns; j++) {
+            int offset = j * rows;
+            double sum = 0;
+            int count = 0;
+            for (int i = 0; i < rows; i++) {
+                double v = x[offset + i];
+                if (!Double.isNaN(v)) {
+                    sum += v;
+                    count++;
+                }
+            }
+            double mean = count > 0 ? sum / count : 0;
+            means[j] = mean;
+            for (int i = 0; i < rows; i++) {
+                double v = x[offset + i];
+                x[offset + i] = Double.isNaN(v) ? 0 : v - mean;
+            }
+        }
+        return means;
+    }
+
+    /**
+     * XᵀX as a dense p×p row-major matrix, computed over pairs of column
+     * blocks.
+     */
+    private static double[] gram(double[] x, int rows, int columns) {
+        double[] gram = new double[columns * columns];
+        int blocks = (columns + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream pairs = IntStream.range(0, blocks * blocks)
+                .filter(pair -> pair / blocks <= pair % blocks);
+        if ((long) rows * columns * columns >= PARALLEL_THRESHOLD) {
+            pairs = pairs.parallel();
+        }
+        pairs.forEach(pair -> {
+            int bi = pair / blocks;
+            int bj = pair % blocks;
+            int iEnd = Math.min((bi + 1) * BLOCK_SIZE, columns);
+            int jEnd = Math.min((bj + 1) * BLOCK_SIZE, columns);
+            for (int i = bi * BLOCK_SIZE; i < iEnd; i++) {
+                for (int j = Math.max(i, bj * BLOCK_SIZE); j < jEnd; j++) {
+                    double value = dot(x, i * rows, x, j * rows, rows);
+                    gram[i * columns + j] = value;
+                    gram[j * columns + i] = value;
+                }
+            }
+        });
+        return gram;
+    }
+
+    /**
+     * Dot product with four independent accumulators, so that the loop is
+     * not bound by the latency of a single chain of additions.
+     */
+    private static double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * In-place Cholesky factorization A = LLᵀ of a row-major matrix; L is
+     * left in the lower triangle.
+     *
+     * @return false if the matrix is not (numerically) positive definite
+     */
+    private static boolean cholesky(double[] a, int n) {
+        double tolerance = 0;
+        for (int j = 0; j < n; j++) {
+            tolerance = Math.max(tolerance, a[j * n + j]);
+        }
+        tolerance *= 1e-12;
+        for (int j = 0; j < n; j++) {
+            int rowJ = j * n;
+            double d = a[rowJ + j] - dot(a, rowJ, a, rowJ, j);
+            if (d <= tolerance) {
+                return false;
+            }
+            double l = Math.sqrt(d);
+            a[rowJ + j] = l;
+            for (int i = j + 1; i < n; i++) {
+                int rowI = i * n;
+                a[rowI + j] = (a[rowI + j] - dot(a, rowI, a, rowJ, j)) / l;
+            }
+        }
+        return true;
+    }
+
+    private static double[] choleskySolve(double[] l, int n, double[] b) {
+        double[] z = new double[n];
+        for (int i = 0; i < n; i++) {
+            z[i] = (b[i] - dot(l, i * n, z, 0, i)) / l[i * n + i];
+        }
+        double[] x = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = z[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= l[k * n + i] * x[k];
+            }
+            x[i] = sum / l[i * n + i];
+        }
+        return x;
+    }
+
+    /**
+     * Least squares through a Householder QR factorization of the centered
+     * column-major x (which is overwritten). Columns that are linearly
+     * dependent on the previous ones get a zero coefficient and no row of R,
+     * so the rows of R stay contiguous: row r of R belongs to column
+     * pivot[r].
+     */
+    static double[] qrSolve(double[] x, int rows, int columns, double[] y) {
+        double[] qty = y.clone();
+        double[] diagonal = new double[columns];
+        int[] pivot = new int[columns];
+        double tolerance = 0;
+        for (int j = 0; j < columns; j++) {
+            tolerance = Math.max(tolerance, Math.sqrt(dot(x, j * rows, x, j * rows, rows)));
+        }
+        tolerance *= 1e-10;
+
+        int rank = 0;
+        for (int k = 0; k < columns && rank < rows; k++) {
+            int colK = k * rows;
+            int r = rank;
+            double norm = Math.sqrt(dot(x, colK + r, x, colK + r, rows - r));
+            if (norm <= tolerance) {
+                continue;
+            }
+            if (x[colK + r] < 0) {
+                norm = -norm;
+            }
+            for (int i = r; i < rows; i++) {
+                x[colK + i] /= norm;
+            }
+            x[colK + r] += 1;
+            for (int j = k + 1; j < columns; j++) {
+                int colJ = j * rows;
+                double s = -dot(x, colK + r, x, colJ + r, rows - r) / x[colK + r];
+                for (int i = r; i < rows; i++) {
+                    x[colJ + i] += s * x[colK + i];
+                }
+            }
+            double s = -dot(x, colK + r, qty, r, rows - r) / x[colK + r];
+            for (int i = r; i < rows; i++) {
+                qty[i] += s * x[colK + i];
+            }
+            diagonal[r] = -norm;
+            pivot[r] = k;
+            rank++;
+        }
+
+        double[] b = new double[columns];
+        for (int r = rank - 1; r >= 0; r--) {
+            int k = pivot[r];
+            double sum = qty[r];
+            for (int t = r + 1; t < rank; t++) {
+                int j = pivot[t];
+                sum -= x[j * rows + r] * b[j];
+            }
+            b[k] = sum / diagonal[r];
+        }
+        return b;
+    }
+
+    public double[] getCoefficients() {
+        return coefficients;
+    }
+
+    public double getIntercept() {
+        return intercept;
+    }
+
+    public double[] getMeans() {
+        return means;
+    }
+
+}
@@ -38,7 +38,14 @@ import java.io.Serializable;
  */
 public class LeverageModel implements Serializable {
 
+    /**
+     * Pinned to the value computed for the original class, so that models
+     * stored before the inverse was added can still be read.
+     */
+    private static final long serialVersionUID = 3062353939686009442L;
+
     double[][] omega;
+    double[][] inverse;
     double gamma;
 
     public LeverageModel() {
@@ -52,6 +59,18 @@ public class LeverageModel implements Serializable {
         this.omega = omega;
     }
 
+    /**
+     * Pseudo-inverse of omega, computed at training time. Models trained
+     * before it was introduced only carry omega.
+     */
+    public double[][] getInverse() {
+        return inverse;
+    }
+
+    public void setInverse(double[][] inverse) {
+        this.inverse = inverse;
+    }
+
     public double getGamma() {
         return gamma;
     }
@@ -0,0 +1,371 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Versioned binary format of the raw models of the algorithm services.
+ *
+ * An envelope starts with the magic bytes "JQM", a format version, a flags
+ * byte and a type byte, followed by the body. Leverage, scaling, PMML and
+ * linear models have compact bodies of primitive fields; any other model is stored
+ * with Java serialization. Bodies larger than {@link #COMPRESSION_THRESHOLD}
+ * bytes are deflated when that makes them smaller, except for leverage and
+ * linear models whose bodies are mostly dense doubles that do not compress. Envelopes
+ * travel base64 encoded, as raw models are carried in JSON.
+ *
+ * Raw models written before the envelope was introduced (plain Java
+ * serialization) are still read.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ModelEnvelope {
+
+    private static final byte[] MAGIC = {'J', 'Q', 'M'};
+    private static final byte VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 1;
+
+    private static final byte TYPE_SERIALIZED = 0;
+    private static final byte TYPE_LEVERAGE = 1;
+    private static final byte TYPE_SCALING = 2;
+    private static final byte TYPE_PMML = 3;
+    private static final byte TYPE_LINEAR = 4;
+
+    private static final int HEADER_LENGTH = MAGIC.length + 3;
+
+    /**
+     * Bodies up to this size are not worth compressing.
+     */
+    private static final int COMPRESSION_THRESHOLD = 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Writes a model into a base64 encoded envelope.
+     *
+     * @param model the model
+     * @return the raw model
+     * @throws IOException if the model cannot be serialized
+     */
+    public static String write(Serializable model) throws IOException {
+        byte type;
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (model instanceof LeverageModel) {
+            type = TYPE_LEVERAGE;
+            writeLeverage((LeverageModel) model, new DataOutputStream(body));
+        } else if (model instanceof ScalingModel) {
+            type = TYPE_SCALING;
+            writeScaling((ScalingModel) model, new DataOutputStream(body));
+        } else if (model instanceof LinearModel) {
+            type = TYPE_LINEAR;
+            writeLinear((LinearModel) model, new DataOutputStream(body));
+        } else if (model instanceof PmmlModel) {
+            type = TYPE_PMML;
+            writeString(((PmmlModel) model).getPmmlString(), new DataOutputStream(body));
+        } else {
+            type = TYPE_SERIALIZED;
+            try (ObjectOutputStream out = new ObjectOutputStream(body)) {
+                out.writeObject(model);
+            }
+        }
+
+        byte flags = 0;
+        byte[] bodyBytes = body.toByteArray();
+        if (type != TYPE_LEVERAGE && type != TYPE_LINEAR && bodyBytes.length > COMPRESSION_THRESHOLD) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bodyBytes.length / 2);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE)) {
+                out.write(bodyBytes);
+            } finally {
+                deflater.end();
+            }
+            if (compressed.size() < bodyBytes.length) {
+                flags |= FLAG_DEFLATED;
+                bodyBytes = compressed.toByteArray();
+            }
+        }
+
+        byte[] envelope = new byte[HEADER_LENGTH + bodyBytes.length];
+        System.arraycopy(MAGIC, 0, envelope, 0, MAGIC.length);
+        envelope[MAGIC.length] = VERSION;
+        envelope[MAGIC.length + 1] = flags;
+        envelope[MAGIC.length + 2] = type;
+        System.arraycopy(bodyBytes, 0, envelope, HEADER_LENGTH, bodyBytes.length);
+        return Base64.getEncoder().encodeToString(envelope);
+    }
+
+    /**
+     * Reads a model from a raw model, either an envelope or a legacy Java
+     * serialized model.
+     *
+     * @param <T> type of the model
+     * @param rawModel the base64 encoded raw model
+     * @param modelType expected class of the model
+     * @return the model
+     * @throws IOException if the raw model is corrupt or of a newer version
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    public static <T> T read(Object rawModel, Class<T> modelType) throws IOException, ClassNotFoundException {
+        byte[] bytes = Base64.getDecoder().decode((String) rawModel);
+        if (!isEnvelope(bytes)) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return modelType.cast(in.readObject());
+            }
+        }
+
+        byte version = bytes[MAGIC.length];
+        if (version > VERSION) {
+            throw new IOException("Unsupported raw model format version " + version);
+        }
+        byte flags = bytes[MAGIC.length + 1];
+        byte type = bytes[MAGIC.length + 2];
+        InputStream body = new ByteArrayInputStream(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+        if ((flags & FLAG_DEFLATED) != 0) {
+            body = new ByteArrayInputStream(inflate(body));
+        }
+
+        Object model;
+        switch (type) {
+            case TYPE_LEVERAGE:
+                model = readLeverage(new DataInputStream(body));
+                break;
+            case TYPE_SCALING:
+                model = readScaling(new DataInputStream(body));
+                break;
+            case TYPE_LINEAR:
+                model = readLinear(new DataInputStream(body));
+                break;
+            case TYPE_PMML:
+                PmmlModel pmmlModel = new PmmlModel();
+                pmmlModel.setPmmlString(readString(new DataInputStream(body)));
+                model = pmmlModel;
+                break;
+            case TYPE_SERIALIZED:
+                try (ObjectInputStream in = new ObjectInputStream(body)) {
+                    model = in.readObject();
+                }
+                break;
+            default:
+                throw new IOException("Unknown raw model type " + type);
+        }
+        return modelType.cast(model);
+    }
+
+    /**
+     * Inflates a whole body at once; parsing small fields straight off an
+     * inflater stream costs an inflate call per field.
+     */
+    private static byte[] inflate(InputStream compressed) throws IOException {
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream(BUFFER_SIZE);
+        Inflater inflater = new Inflater();
+        try (InflaterInputStream in = new InflaterInputStream(compressed, inflater, BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                inflated.write(buffer, 0, read);
+            }
+        } finally {
+            inflater.end();
+        }
+        return inflated.toByteArray();
+    }
+
+    private static boolean isEnvelope(byte[] bytes) {
+        if (bytes.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeLeverage(LeverageModel model, DataOutputStream out) throws IOException {
+        out.writeDouble(model.getGamma());
+        writeMatrix(model.getOmega(), out);
+        writeMatrix(model.getInverse(), out);
+        out.flush();
+    }
+
+    private static LeverageModel readLeverage(DataInputStream in) throws IOException {
+        LeverageModel model = new LeverageModel();
+        model.setGamma(in.readDouble());
+        model.setOmega(readMatrix(in));
+        model.setInverse(readMatrix(in));
+        return model;
+    }
+
+    private static void writeScaling(ScalingModel model, DataOutputStream out) throws IOException {
+        writeMap(model.getMinValues(), out);
+        writeMap(model.getMaxValues(), out);
+        out.flush();
+    }
+
+    private static ScalingModel readScaling(DataInputStream in) throws IOException {
+        ScalingModel model = new ScalingModel();
+        model.setMinValues(readMap(in));
+        model.setMaxValues(readMap(in));
+        return model;
+    }
+
+    private static void writeLinear(LinearModel model, DataOutputStream out) throws IOException {
+        out.writeInt(model.getFeatures().size());
+        for (String feature : model.getFeatures()) {
+            writeString(feature, out);
+        }
+        out.writeDouble(model.getIntercept());
+        writeMatrix(new double[][]{model.getCoefficients(), model.getMeans()}, out);
+        out.flush();
+    }
+
+    private static LinearModel readLinear(DataInputStream in) throws IOException {
+        LinearModel model = new LinearModel();
+        int size = in.readInt();
+        List<String> features = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            features.add(readString(in));
+        }
+        model.setFeatures(features);
+        model.setIntercept(in.readDouble());
+        double[][] vectors = readMatrix(in);
+        model.setCoefficients(vectors[0]);
+        model.setMeans(vectors[1]);
+        return model;
+    }
+
+    private static void writeMatrix(double[][] matrix, DataOutputStream out) throws IOException {
+        if (matrix == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(matrix.length);
+        for (double[] row : matrix) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + row.length * Double.BYTES);
+            buffer.putInt(row.length);
+            buffer.asDoubleBuffer().put(row);
+            out.write(buffer.array());
+        }
+    }
+
+    private static double[][] readMatrix(DataInputStream in) throws IOException {
+        int rows = in.readInt();
+        if (rows < 0) {
+            return null;
+        }
+        double[][] matrix = new double[rows][];
+        for (int i = 0; i < rows; i++) {
+            double[] row = new double[in.readInt()];
+            byte[] bytes = new byte[row.length * Double.BYTES];
+            in.readFully(bytes);
+            ByteBuffer.wrap(bytes).asDoubleBuffer().get(row);
+            matrix[i] = row;
+        }
+        return matrix;
+    }
+
+    private static void writeMap(Map<String, Double> map, DataOutputStream out) throws IOException {
+        if (map == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(map.size());
+        for (Map.Entry<String, Double> entry : map.entrySet()) {
+            writeString(entry.getKey(), out);
+            out.writeBoolean(entry.getValue() != null);
+            if (entry.getValue() != null) {
+                out.writeDouble(entry.getValue());
+            }
+        }
+    }
+
+    private static LinkedHashMap<String, Double> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        LinkedHashMap<String, Double> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, in.readBoolean() ? in.readDouble() : null);
+        }
+        return map;
+    }
+
+    private static void writeString(String value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
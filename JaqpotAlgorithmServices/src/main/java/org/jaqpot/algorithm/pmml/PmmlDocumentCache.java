@@ -0,0 +1,132 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.pmml;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+
+/**
+ * Fetches PMML documents over HTTP through a shared, pooled client and keeps
+ * the most recently used ones in memory. Cached documents are revalidated
+ * with If-None-Match / If-Modified-Since, so an unchanged document costs a
+ * 304 instead of a full download.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class PmmlDocumentCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final ResteasyClient CLIENT = new ResteasyClientBuilder()
+            .disableTrustManager()
+            .connectionPoolSize(20)
+            .maxPooledPerRoute(10)
+            .build();
+
+    private static final Map<String, Document> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, Document>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    });
+
+    private static class Document {
+
+        private final String content;
+        private final EntityTag etag;
+        private final String lastModified;
+
+        private Document(String content, EntityTag etag, String lastModified) {
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Returns the PMML document at the given URI.
+     *
+     * @param uri URI of the document
+     * @return the document
+     * @throws WebApplicationException if the document cannot be retrieved
+     */
+    public static String get(String uri) {
+        Document cached = CACHE.get(uri);
+        Invocation.Builder request = CLIENT.target(uri)
+                .request()
+                .accept(MediaType.APPLICATION_XML);
+        if (cached != null) {
+            if (cached.etag != null) {
+                request.header(HttpHeaders.IF_NONE_MATCH, cached.etag.toString());
+            }
+            if (cached.lastModified != null) {
+                request.header(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+            }
+        }
+        Response response = request.get();
+        try {
+            if (cached != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                return cached.content;
+            }
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new WebApplicationException("PMML document at " + uri
+                        + " could not be retrieved (" + response.getStatus() + ")", response.getStatus());
+            }
+            String content = response.readEntity(String.class);
+            EntityTag etag = response.getEntityTag();
+            String lastModified = response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+            if (etag != null || lastModified != null) {
+                CACHE.put(uri, new Document(content, etag, lastModified));
+            } else {
+                CACHE.remove(uri);
+            }
+            return content;
+        } finally {
+            response.close();
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.pmml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.ws.rs.BadRequestException;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.sax.SAXSource;
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DerivedField;
+import org.dmg.pmml.PMML;
+import org.jaqpot.core.model.util.Fingerprint;
+import org.jpmml.evaluator.ExpressionUtil;
+import org.jpmml.evaluator.FieldValue;
+import org.jpmml.evaluator.PMMLEvaluationContext;
+import org.jpmml.manager.PMMLManager;
+import org.jpmml.model.ImportFilter;
+import org.jpmml.model.JAXBUtil;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * A parsed PMML transformation dictionary, ready to be applied on data
+ * entries. Parsed transformations are kept in a bounded cache keyed by the
+ * hash of the PMML document, so that repeated predictions with the same
+ * model skip XML parsing altogether.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class PmmlTransformation {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final Map<String, PmmlTransformation> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, PmmlTransformation>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PmmlTransformation> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    });
+
+    private final PMMLManager pmmlManager;
+    private final List<DataField> dataFields;
+    private final List<DerivedField> derivedFields;
+
+    private PmmlTransformation(PMMLManager pmmlManager, String excludedField) {
+        this.pmmlManager = pmmlManager;
+        this.dataFields = pmmlManager.getDataDictionary()
+                .getDataFields()
+                .stream()
+                .filter(field -> !field.getName().getValue().equals(excludedField))
+                .collect(Collectors.toList());
+        this.derivedFields = pmmlManager.getTransformationDictionary()
+                .getDerivedFields()
+                .stream()
+                .filter(field -> !field.getName().getValue().equals(excludedField))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the transformation defined by a PMML document, parsing it only
+     * if it has not been seen recently.
+     *
+     * @param pmmlString PMML document
+     * @param excludedField data and derived field to leave out (e.g. the
+     * prediction feature); may be null
+     * @return the parsed transformation
+     * @throws SAXException if the document is not well formed
+     * @throws JAXBException if the document is not valid PMML
+     */
+    public static PmmlTransformation of(String pmmlString, String excludedField) throws SAXException, JAXBException {
+        String key = Fingerprint.builder()
+                .add("pmml", pmmlString)
+                .add("excluded", excludedField)
+                .build();
+        PmmlTransformation transformation = CACHE.get(key);
+        if (transformation == null) {
+            transformation = new PmmlTransformation(new PMMLManager(parse(pmmlString)), excludedField);
+            CACHE.put(key, transformation);
+        }
+        return transformation;
+    }
+
+    public static PMML parse(String pmmlString) throws SAXException, JAXBException {
+        InputStream in = new ByteArrayInputStream(pmmlString.getBytes());
+        InputSource source = new InputSource(in);
+        SAXSource transformedSource = ImportFilter.apply(source);
+        return JAXBUtil.unmarshalPMML(transformedSource);
+    }
+
+    public PMMLManager getPmmlManager() {
+        return pmmlManager;
+    }
+
+    /**
+     * Evaluates every derived field on a single data entry.
+     *
+     * @param values values of the data entry by feature
+     * @return the values of the derived fields by name
+     * @throws BadRequestException if a data field of the PMML is missing from
+     * the data entry
+     */
+    public LinkedHashMap<String, Object> transform(Map<String, Object> values) {
+        PMMLEvaluationContext context = new PMMLEvaluationContext(pmmlManager);
+        for (DataField dataField : dataFields) {
+            String name = dataField.getName().getValue();
+            if (!values.containsKey(name)) {
+                throw new BadRequestException("DataField " + name
+                        + "specified in transformations PMML does not exist in dataset.");
+            }
+            context.declare(dataField.getName(), values.get(name));
+        }
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+        for (DerivedField derivedField : derivedFields) {
+            FieldValue value = ExpressionUtil.evaluate(derivedField, context);
+            result.put(derivedField.getName().getValue(), value.asNumber());
+        }
+        return result;
+    }
+
+}
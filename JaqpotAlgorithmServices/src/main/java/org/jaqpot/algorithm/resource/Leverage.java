@@ -31,16 +31,9 @@ package org.jaqpot.algorithm.resource;
 
 import Jama.Matrix;
 import Jama.SingularValueDecomposition;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -55,6 +48,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.jaqpot.algorithm.model.LeverageModel;
+import org.jaqpot.algorithm.model.ModelEnvelope;
 import org.jaqpot.core.model.dto.dataset.Dataset;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
@@ -72,6 +66,8 @@ import org.jaqpot.core.model.factory.ErrorReportFactory;
 @Produces(MediaType.APPLICATION_JSON)
 public class Leverage {
 
+    private static final int LEVERAGE_BLOCK = 64;
+
     @POST
     @Path("training")
     public Response training(TrainingRequest request) {
@@ -106,15 +102,11 @@ public class Leverage {
             double gamma = (3.0 * numOfFeatures) / numOfSubstances;
 
             LeverageModel model = new LeverageModel();
-            model.setOmega(omega);
+            model.setInverse(pseudoInverse(new Matrix(omega)).getArray());
             model.setGamma(gamma);
 
             TrainingResponse response = new TrainingResponse();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutput out = new ObjectOutputStream(baos);
-            out.writeObject(model);
-            String base64Model = Base64.getEncoder().encodeToString(baos.toByteArray());
-            response.setRawModel(base64Model);
+            response.setRawModel(ModelEnvelope.write(model));
             response.setIndependentFeatures(dataset.getDataEntry().get(0).getValues()
                     .keySet()
                     .stream()
@@ -132,49 +124,33 @@ public class Leverage {
     @Path("prediction")
     public Response prediction(PredictionRequest request) {
         try {
-            String base64Model = (String) request.getRawModel();
-            byte[] modelBytes = Base64.getDecoder().decode(base64Model);
-            ByteArrayInputStream bais = new ByteArrayInputStream(modelBytes);
-            ObjectInput in = new ObjectInputStream(bais);
-            LeverageModel model = (LeverageModel) in.readObject();
+            LeverageModel model = ModelEnvelope.read(request.getRawModel(), LeverageModel.class);
 
             Dataset dataset = request.getDataset();
 
             int numOfSubstances = dataset.getDataEntry().size();
             int numOfFeatures = dataset.getDataEntry().stream().findFirst().get().getValues().size();
 
-            double[][] dataArray = new double[numOfSubstances][numOfFeatures];
-
+            double[][] dataArray = new double[numOfSubstances][];
             for (int i = 0; i < numOfSubstances; i++) {
-                dataArray[i] = dataset.getDataEntry()
-                        .get(i)
-                        .getValues()
-                        .entrySet()
-                        .stream()
-                        .mapToDouble(entry -> {
-                            return Double.parseDouble(entry.getValue().toString());
-                        }).toArray();
-            }
-            Matrix dataMatrix = new Matrix(dataArray);
-            Matrix omega = new Matrix(model.getOmega());
-            double gamma = model.getGamma();
-            Matrix x = null;
-            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>();
-            SingularValueDecomposition svd = omega.svd();
-            Matrix S = svd.getS();
-            Matrix U = svd.getU();
-            Matrix V = svd.getV();
-
-            for (int i = 0; i < S.getRowDimension(); i++) {
-                if (Math.abs(S.get(i, i)) > 1e-6) {
-                    S.set(i, i, 1 / S.get(i, i));
+                double[] row = new double[numOfFeatures];
+                int j = 0;
+                for (Object value : dataset.getDataEntry().get(i).getValues().values()) {
+                    row[j++] = value instanceof Number
+                            ? ((Number) value).doubleValue()
+                            : Double.parseDouble(value.toString());
                 }
+                dataArray[i] = row;
             }
-            Matrix pseudoInverse = U.times(S).times(V.transpose());
-            for (int i = 0; i < numOfSubstances; i++) {
-                x = dataMatrix.getMatrix(i, i, 0, numOfFeatures - 1);
+            double[][] inverse = model.getInverse() != null
+                    ? model.getInverse()
+                    : pseudoInverse(new Matrix(model.getOmega())).getArray();
+            double gamma = model.getGamma();
 
-                double indicator = Math.max(0, (gamma - x.times(pseudoInverse.times(x.transpose())).get(0, 0)) / gamma);
+            double[] leverages = leverages(dataArray, inverse);
+            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>(numOfSubstances);
+            for (double leverage : leverages) {
+                double indicator = Math.max(0, (gamma - leverage) / gamma);
                 LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
                 predictionMap.put("Leverage DoA", indicator);
                 predictions.add(predictionMap);
@@ -190,4 +166,52 @@ public class Leverage {
         }
     }
 
+    /**
+     * Pseudo-inverse of a symmetric matrix through its SVD; singular values
+     * below 1e-6 are left as they are.
+     */
+    private static Matrix pseudoInverse(Matrix omega) {
+        SingularValueDecomposition svd = omega.svd();
+        Matrix S = svd.getS();
+        Matrix U = svd.getU();
+        Matrix V = svd.getV();
+
+        for (int i = 0; i < S.getRowDimension(); i++) {
+            if (Math.abs(S.get(i, i)) > 1e-6) {
+                S.set(i, i, 1 / S.get(i, i));
+            }
+        }
+        return U.times(S).times(V.transpose());
+    }
+
+    /**
+     * Computes x * inverse * x^T for every row x of the data. Rows are
+     * processed in blocks, so that each row of the inverse is read once per
+     * block rather than once per row.
+     */
+    private static double[] leverages(double[][] data, double[][] inverse) {
+        int n = data.length;
+        int p = inverse.length;
+        double[] leverages = new double[n];
+        for (int start = 0; start < n; start += LEVERAGE_BLOCK) {
+            int end = Math.min(start + LEVERAGE_BLOCK, n);
+            for (int k = 0; k < p; k++) {
+                double[] inverseRow = inverse[k];
+                for (int r = start; r < end; r++) {
+                    double[] x = data[r];
+                    double xk = x[k];
+                    if (xk == 0) {
+                        continue;
+                    }
+                    double dot = 0;
+                    for (int j = 0; j < p; j++) {
+                        dot += inverseRow[j] * x[j];
+                    }
+                    leverages[r] += xk * dot;
+                }
+            }
+        }
+        return leverages;
+    }
+
 }
@@ -39,12 +39,22 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Base64;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
@@ -55,6 +65,7 @@ import org.jaqpot.core.model.dto.ambit.AmbitTask;
 import org.jaqpot.core.model.dto.ambit.AmbitTaskArray;
 import org.jaqpot.core.model.dto.dataset.Dataset;
 import org.jaqpot.core.model.factory.ErrorReportFactory;
+import org.jaqpot.core.model.util.RemoteTaskPoller;
 import org.jboss.resteasy.client.jaxrs.ResteasyClient;
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
@@ -69,14 +80,24 @@ import org.jboss.resteasy.plugins.providers.multipart.MultipartFormDataOutput;
 @Produces(MediaType.APPLICATION_JSON)
 public class Mopac {
 
+    private static final Logger LOG = Logger.getLogger(Mopac.class.getName());
+
+    /**
+     * Maximum time in minutes to wait for each ambit task; matches the T=30M
+     * limit of the MOPAC commands.
+     */
+    private static final long TASK_TIMEOUT = 30;
+
     @POST
     @Path("calculate")
-    public Response calculate(
+    public void calculate(
+            @Suspended final AsyncResponse asyncResponse,
             @FormParam("pdbfile") String pdbFile,
             @HeaderParam("subjectid") String subjectId) {
 
+        byte[] file;
+        RemoteTaskPoller poller;
         try {
-            byte[] file;
             if (pdbFile.startsWith("data:")) {
                 String base64pdb = pdbFile.split(",")[1];
                 file = Base64.getDecoder().decode(base64pdb.getBytes());
@@ -84,11 +105,26 @@ public class Mopac {
                 URL pdbURL = new URL(pdbFile);
                 file = IOUtils.toByteArray(pdbURL.openStream());
             }
-            ResteasyClient client = new ResteasyClientBuilder().disableTrustManager().build();
+            poller = new RemoteTaskPoller(InitialContext.<ScheduledExecutorService>doLookup("java:comp/DefaultManagedScheduledExecutorService"));
+        } catch (MalformedURLException ex) {
+            asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(ErrorReportFactory.badRequest(ex.getMessage(), "Bad pdb file:" + pdbFile))
+                    .build());
+            return;
+        } catch (IOException | NamingException ex) {
+            asyncResponse.resume(Response
+                    .status(Response.Status.BAD_GATEWAY)
+                    .entity(ErrorReportFactory.remoteError(ex.getMessage(), ErrorReportFactory.internalServerError(), ex))
+                    .build());
+            return;
+        }
+
+        ResteasyClient client = new ResteasyClientBuilder().disableTrustManager().build();
+        CompletableFuture.completedFuture(file).thenApply(pdb -> {
             ResteasyWebTarget target = client.target("https://apps.ideaconsult.net/enmtest/dataset");
             String fileName = UUID.randomUUID().toString() + ".pdb";
             MultipartFormDataOutput mdo = new MultipartFormDataOutput();
-            mdo.addFormData("file", file, MediaType.APPLICATION_OCTET_STREAM_TYPE, fileName);
+            mdo.addFormData("file", pdb, MediaType.APPLICATION_OCTET_STREAM_TYPE, fileName);
             GenericEntity<MultipartFormDataOutput> entity = new GenericEntity<MultipartFormDataOutput>(
                     mdo) {
             };
@@ -98,94 +134,85 @@ public class Mopac {
                     .header("subjectid", subjectId)
                     .accept(MediaType.APPLICATION_JSON)
                     .post(Entity.entity(entity, MediaType.MULTIPART_FORM_DATA_TYPE));
+            return response.readEntity(AmbitTaskArray.class).getTask().get(0);
+        })
+                .thenCompose(ambitTask -> poll(poller, client, ambitTask, subjectId))
+                .thenCompose(ambitTask -> {
+                    String datasetUri = result(ambitTask);
+                    LOG.log(Level.FINE, "New Dataset:{0}", datasetUri);
+
+                    MultivaluedMap algorithmFormData = new MultivaluedHashMap();
+                    algorithmFormData.add("dataset_uri", datasetUri);
+                    algorithmFormData.add("mopac_commands", "PM3 NOINTER MMOK BONDS MULLIK GNORM=1.0 T=30.00M");
+
+                    Response response = client.target("https://apps.ideaconsult.net/enmtest/algorithm/ambit2.mopac.MopacOriginalStructure")
+                            .request()
+                            .header("subjectid", subjectId)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .post(Entity.form(algorithmFormData));
+                    return poll(poller, client, response.readEntity(AmbitTaskArray.class).getTask().get(0), subjectId);
+                })
+                .thenApply(ambitTask -> {
+                    String datasetUri = result(ambitTask);
+                    Response response = client.target(datasetUri)
+                            .request()
+                            .header("subjectid", subjectId)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .get();
+
+                    Dataset dataset = response.readEntity(Dataset.class);
+                    return Response.ok(dataset.getDataEntry().get(0).getValues()).build();
+                })
+                .whenComplete((response, ex) -> {
+                    client.close();
+                    if (ex == null) {
+                        asyncResponse.resume(response);
+                        return;
+                    }
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof RemoteTaskFailure) {
+                        asyncResponse.resume(Response
+                                .status(Response.Status.BAD_GATEWAY)
+                                .entity(ErrorReportFactory.remoteError(cause.getMessage(), ErrorReportFactory.internalServerError(), null))
+                                .build());
+                    } else {
+                        asyncResponse.resume(Response
+                                .status(cause instanceof TimeoutException ? Response.Status.GATEWAY_TIMEOUT : Response.Status.BAD_GATEWAY)
+                                .entity(ErrorReportFactory.remoteError(cause.getMessage(), ErrorReportFactory.internalServerError(), cause))
+                                .build());
+                    }
+                });
+    }
 
-            AmbitTaskArray ambitTaskArray = response.readEntity(AmbitTaskArray.class);
-
-            AmbitTask ambitTask = ambitTaskArray.getTask().get(0);
-            String ambitTaskUri = ambitTask.getUri();
-            System.out.println("Task POST Dataset:" + ambitTaskUri);
-            while (ambitTask.getStatus().equals("Running") || ambitTask.getStatus().equals("Queued")) {
-                ambitTaskArray = client.target(ambitTaskUri)
-                        .request()
-                        .accept(MediaType.APPLICATION_JSON)
-                        .header("subjectid", subjectId)
-                        .get(AmbitTaskArray.class);
-                ambitTask = ambitTaskArray.getTask().get(0);
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException ex) {
-                    continue;
-                }
-            }
-            String datasetUri;
-            if (ambitTask.getStatus().equals("Completed")) {
-                datasetUri = ambitTask.getResult();
-            } else {
-                return Response
-                        .status(Response.Status.BAD_GATEWAY)
-                        .entity(ErrorReportFactory.remoteError(ambitTaskUri, ErrorReportFactory.internalServerError(), null))
-                        .build();
-            }
-
-            System.out.println("New Dataset:" + datasetUri);
-
-            MultivaluedMap algorithmFormData = new MultivaluedHashMap();
-            algorithmFormData.add("dataset_uri", datasetUri);
-            algorithmFormData.add("mopac_commands", "PM3 NOINTER MMOK BONDS MULLIK GNORM=1.0 T=30.00M");
-
-            response = client.target("https://apps.ideaconsult.net/enmtest/algorithm/ambit2.mopac.MopacOriginalStructure")
-                    .request()
-                    .header("subjectid", subjectId)
-                    .accept(MediaType.APPLICATION_JSON)
-                    .post(Entity.form(algorithmFormData));
-
-            ambitTaskArray = response.readEntity(AmbitTaskArray.class);
-
-            ambitTask = ambitTaskArray.getTask().get(0);
-            ambitTaskUri = ambitTask.getUri();
-            System.out.println("Task POST Dataset:" + ambitTaskUri);
-            while (ambitTask.getStatus().equals("Running") || ambitTask.getStatus().equals("Queued")) {
-                ambitTaskArray = client.target(ambitTaskUri)
+    private CompletableFuture<AmbitTask> poll(RemoteTaskPoller poller, ResteasyClient client, AmbitTask ambitTask, String subjectId) {
+        String ambitTaskUri = ambitTask.getUri();
+        LOG.log(Level.FINE, "Polling ambit task:{0}", ambitTaskUri);
+        return poller.poll(ambitTask,
+                t -> t.getStatus().equals("Running") || t.getStatus().equals("Queued"),
+                t -> client.target(ambitTaskUri)
                         .request()
                         .accept(MediaType.APPLICATION_JSON)
                         .header("subjectid", subjectId)
-                        .get(AmbitTaskArray.class);
-                ambitTask = ambitTaskArray.getTask().get(0);
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException ex) {
-                    continue;
-                }
-            }
-            if (ambitTask.getStatus().equals("Completed")) {
-                datasetUri = ambitTask.getResult();
-            } else {
-                return Response
-                        .status(Response.Status.BAD_GATEWAY)
-                        .entity(ErrorReportFactory.remoteError(ambitTaskUri, ErrorReportFactory.internalServerError(), null))
-                        .build();
-            }
-
-            System.out.println(datasetUri);
+                        .get(AmbitTaskArray.class)
+                        .getTask()
+                        .get(0),
+                TASK_TIMEOUT, TimeUnit.MINUTES);
+    }
 
-            response = client.target(datasetUri)
-                    .request()
-                    .header("subjectid", subjectId)
-                    .accept(MediaType.APPLICATION_JSON)
-                    .get();
+    private String result(AmbitTask ambitTask) {
+        if (!ambitTask.getStatus().equals("Completed")) {
+            throw new RemoteTaskFailure(ambitTask.getUri());
+        }
+        return ambitTask.getResult();
+    }
 
-            Dataset dataset = response.readEntity(Dataset.class);
+    /**
+     * Thrown when an ambit task finishes without completing.
+     */
+    private static class RemoteTaskFailure extends RuntimeException {
 
-            return Response.ok(dataset.getDataEntry().get(0).getValues()).build();
-        } catch (MalformedURLException ex) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(ErrorReportFactory.badRequest(ex.getMessage(), "Bad pdb file:" + pdbFile))
-                    .build();
-        } catch (IOException ex) {
-            return Response
-                    .status(Response.Status.BAD_GATEWAY)
-                    .entity(ErrorReportFactory.remoteError(ex.getMessage(), ErrorReportFactory.internalServerError(), ex))
-                    .build();
+        RemoteTaskFailure(String ambitTaskUri) {
+            super(ambitTaskUri);
         }
     }
 
@@ -0,0 +1,214 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.jaqpot.algorithm.linear.LeastSquares;
+import org.jaqpot.algorithm.model.LinearModel;
+import org.jaqpot.algorithm.model.ModelEnvelope;
+import org.jaqpot.algorithm.pmml.PmmlUtils;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
+import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
+import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
+import org.jaqpot.core.model.factory.ErrorReportFactory;
+
+/**
+ * Multiple linear and ridge regression without Weka. The dataset is read
+ * straight into a column-major matrix and fitted with {@link LeastSquares};
+ * requests, responses and the PMML are the same as those of
+ * {@link WekaMLR}.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@Path("ridge")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class RidgeRegression {
+
+    private static final Logger LOG = Logger.getLogger(RidgeRegression.class.getName());
+
+    private final double _ridge = 1.0e-8;
+
+    @POST
+    @Path("training")
+    public Response training(TrainingRequest request) {
+        try {
+            if (request.getDataset().getDataEntry().isEmpty() || request.getDataset().getDataEntry().get(0).getValues().isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Dataset is empty", "Cannot train model on empty dataset"))
+                        .build();
+            }
+            String predictionFeature = request.getPredictionFeature();
+            List<String> features = request.getDataset()
+                    .getDataEntry()
+                    .stream()
+                    .findFirst()
+                    .get()
+                    .getValues()
+                    .keySet()
+                    .stream()
+                    .collect(Collectors.toList());
+            List<String> independentFeatures = features
+                    .stream()
+                    .filter(feature -> !feature.equals(predictionFeature))
+                    .collect(Collectors.toList());
+
+            Map<String, Object> parameters = request.getParameters() != null ? request.getParameters() : new HashMap<>();
+            double ridge = Double.parseDouble(parameters.getOrDefault("ridge", _ridge).toString());
+            if (ridge < 0) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Invalid ridge", "The ridge cannot be negative"))
+                        .build();
+            }
+
+            List<DataEntry> dataEntries = request.getDataset().getDataEntry()
+                    .stream()
+                    .filter(dataEntry -> !Double.isNaN(toDouble(dataEntry.getValues().get(predictionFeature))))
+                    .collect(Collectors.toList());
+            int rows = dataEntries.size();
+            int columns = independentFeatures.size();
+            if (rows < 2) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Not enough rows", "At least 2 rows with a value for the prediction feature are needed"))
+                        .build();
+            }
+
+            double[] x = new double[rows * columns];
+            double[] y = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                Map<String, Object> values = dataEntries.get(i).getValues();
+                y[i] = toDouble(values.get(predictionFeature));
+                for (int j = 0; j < columns; j++) {
+                    x[j * rows + i] = toDouble(values.get(independentFeatures.get(j)));
+                }
+            }
+            LeastSquares fit = LeastSquares.fit(x, rows, columns, y, ridge);
+
+            LinearModel model = new LinearModel();
+            model.setFeatures(independentFeatures);
+            model.setCoefficients(fit.getCoefficients());
+            model.setIntercept(fit.getIntercept());
+            model.setMeans(fit.getMeans());
+
+            double[] coefficients = new double[features.size() + 1];
+            for (int j = 0; j < columns; j++) {
+                coefficients[features.indexOf(independentFeatures.get(j))] = fit.getCoefficients()[j];
+            }
+            coefficients[features.size()] = fit.getIntercept();
+            String pmml = PmmlUtils.createRegressionModel(features, predictionFeature, coefficients, "MLR");
+
+            TrainingResponse response = new TrainingResponse();
+            response.setRawModel(ModelEnvelope.write(model));
+            response.setIndependentFeatures(independentFeatures);
+            response.setPmmlModel(pmml);
+            String predictionFeatureName = request.getDataset().getFeatures().stream()
+                    .filter(f -> f.getURI().equals(predictionFeature))
+                    .findFirst()
+                    .get()
+                    .getName();
+            response.setAdditionalInfo(Arrays.asList(predictionFeature, predictionFeatureName));
+            response.setPredictedFeatures(Arrays.asList("Ridge prediction of " + predictionFeatureName));
+
+            return Response.ok(response).build();
+        } catch (Exception ex) {
+            LOG.log(Level.SEVERE, null, ex);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
+        }
+    }
+
+    @POST
+    @Path("prediction")
+    public Response prediction(PredictionRequest request) {
+        try {
+            if (request.getDataset().getDataEntry().isEmpty() || request.getDataset().getDataEntry().get(0).getValues().isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Dataset is empty", "Cannot make predictions on empty dataset"))
+                        .build();
+            }
+
+            LinearModel model = ModelEnvelope.read(request.getRawModel(), LinearModel.class);
+            List<String> additionalInfo = (List) request.getAdditionalInfo();
+            String predictionKey = "Ridge prediction of " + additionalInfo.get(1);
+
+            String[] features = model.getFeatures().toArray(new String[0]);
+            double[] coefficients = model.getCoefficients();
+            double[] means = model.getMeans();
+            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>(request.getDataset().getDataEntry().size());
+            for (DataEntry dataEntry : request.getDataset().getDataEntry()) {
+                Map<String, Object> values = dataEntry.getValues();
+                double value = model.getIntercept();
+                for (int j = 0; j < features.length; j++) {
+                    double x = toDouble(values.get(features[j]));
+                    value += coefficients[j] * (Double.isNaN(x) ? means[j] : x);
+                }
+                LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
+                predictionMap.put(predictionKey, value);
+                predictions.add(predictionMap);
+            }
+
+            PredictionResponse response = new PredictionResponse();
+            response.setPredictions(predictions);
+            return Response.ok(response).build();
+        } catch (Exception ex) {
+            LOG.log(Level.SEVERE, null, ex);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(ex.getMessage())
+                    .build();
+        }
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(value.toString());
+    }
+
+}
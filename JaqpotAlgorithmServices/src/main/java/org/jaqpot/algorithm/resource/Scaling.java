@@ -34,14 +34,7 @@
  */
 package org.jaqpot.algorithm.resource;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -55,7 +48,9 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.jaqpot.algorithm.model.ModelEnvelope;
 import org.jaqpot.algorithm.model.ScalingModel;
+import org.jaqpot.algorithm.stats.ColumnStatistics;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
 import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
@@ -97,26 +92,17 @@ public class Scaling {
             LinkedHashMap<String, Double> maxValues = new LinkedHashMap<>();
             LinkedHashMap<String, Double> minValues = new LinkedHashMap<>();
 
-            features.stream().forEach(feature -> {
-                Double max = request.getDataset().getDataEntry().stream().map(dataEntry -> {
-                    return Double.parseDouble(dataEntry.getValues().get(feature).toString());
-                }).max(Double::compare).orElse(0.0);
-                Double min = request.getDataset().getDataEntry().stream().map(dataEntry -> {
-                    return Double.parseDouble(dataEntry.getValues().get(feature).toString());
-                }).min(Double::compare).orElse(0.0);
-                maxValues.put(feature, max);
-                minValues.put(feature, min);
-            });
+            ColumnStatistics stats = ColumnStatistics.of(request.getDataset().getDataEntry(), features);
+            for (int j = 0; j < features.size(); j++) {
+                maxValues.put(features.get(j), stats.getMax(j));
+                minValues.put(features.get(j), stats.getMin(j));
+            }
             ScalingModel model = new ScalingModel();
             model.setMaxValues(maxValues);
             model.setMinValues(minValues);
 
             TrainingResponse response = new TrainingResponse();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutput out = new ObjectOutputStream(baos);
-            out.writeObject(model);
-            String base64Model = Base64.getEncoder().encodeToString(baos.toByteArray());
-            response.setRawModel(base64Model);
+            response.setRawModel(ModelEnvelope.write(model));
             response.setIndependentFeatures(features);
             response.setPredictedFeatures(features.stream().map(feature -> {
                 return "Scaled " + feature;
@@ -146,11 +132,7 @@ public class Scaling {
                     .keySet()
                     .stream()
                     .collect(Collectors.toList());
-            String base64Model = (String) request.getRawModel();
-            byte[] modelBytes = Base64.getDecoder().decode(base64Model);
-            ByteArrayInputStream bais = new ByteArrayInputStream(modelBytes);
-            ObjectInput in = new ObjectInputStream(bais);
-            ScalingModel model = (ScalingModel) in.readObject();
+            ScalingModel model = ModelEnvelope.read(request.getRawModel(), ScalingModel.class);
 
             List<LinkedHashMap<String, Object>> predictions = new ArrayList<>();
 
@@ -34,14 +34,7 @@
  */
 package org.jaqpot.algorithm.resource;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -55,8 +48,9 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import org.apache.commons.math3.stat.StatUtils;
+import org.jaqpot.algorithm.model.ModelEnvelope;
 import org.jaqpot.algorithm.model.ScalingModel;
+import org.jaqpot.algorithm.stats.ColumnStatistics;
 import org.jaqpot.core.model.dto.dataset.DataEntry;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
@@ -99,28 +93,17 @@ public class Standarization {
             LinkedHashMap<String, Double> maxValues = new LinkedHashMap<>();
             LinkedHashMap<String, Double> minValues = new LinkedHashMap<>();
 
-            features.stream().forEach(feature -> {
-                List<Double> values = request.getDataset().getDataEntry().stream().map(dataEntry -> {
-                    return Double.parseDouble(dataEntry.getValues().get(feature).toString());
-                }).collect(Collectors.toList());
-                double[] doubleValues = values.stream().mapToDouble(Double::doubleValue).toArray();
-
-                Double mean = StatUtils.mean(doubleValues);
-                Double stddev = Math.sqrt(StatUtils.variance(doubleValues));
-
-                maxValues.put(feature, stddev);
-                minValues.put(feature, mean);
-            });
+            ColumnStatistics stats = ColumnStatistics.of(request.getDataset().getDataEntry(), features);
+            for (int j = 0; j < features.size(); j++) {
+                maxValues.put(features.get(j), stats.getStandardDeviation(j));
+                minValues.put(features.get(j), stats.getMean(j));
+            }
             ScalingModel model = new ScalingModel();
             model.setMaxValues(maxValues);
             model.setMinValues(minValues);
 
             TrainingResponse response = new TrainingResponse();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutput out = new ObjectOutputStream(baos);
-            out.writeObject(model);
-            String base64Model = Base64.getEncoder().encodeToString(baos.toByteArray());
-            response.setRawModel(base64Model);
+            response.setRawModel(ModelEnvelope.write(model));
             response.setIndependentFeatures(features);
             response.setPredictedFeatures(features.stream().map(feature -> {
                 return "Standarized " + feature;
@@ -150,13 +133,7 @@ public class Standarization {
                     .keySet()
                     .stream()
                     .collect(Collectors.toList());
-            String base64Model = (String) request.getRawModel();
-            byte[] modelBytes = Base64.getDecoder().decode(base64Model);
-            ByteArrayInputStream bais = new ByteArrayInputStream(modelBytes);
-            ObjectInput in = new ObjectInputStream(bais);
-            ScalingModel model = (ScalingModel) in.readObject();
-            in.close();
-            bais.close();
+            ScalingModel model = ModelEnvelope.read(request.getRawModel(), ScalingModel.class);
 
             List<LinkedHashMap<String, Object>> predictions = new ArrayList<>();
 
@@ -29,15 +29,9 @@
  */
 package org.jaqpot.algorithm.resource;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -51,9 +45,12 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.jaqpot.algorithm.model.ModelEnvelope;
 import org.jaqpot.algorithm.model.WekaModel;
 import org.jaqpot.algorithm.pmml.PmmlUtils;
+import org.jaqpot.algorithm.weka.IncrementalRegression;
 import org.jaqpot.algorithm.weka.InstanceUtils;
+import org.jaqpot.algorithm.weka.WekaPredictor;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
 import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
@@ -62,7 +59,6 @@ import org.jaqpot.core.model.factory.ErrorReportFactory;
 import weka.classifiers.Classifier;
 import weka.classifiers.functions.LinearRegression;
 import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -75,6 +71,8 @@ import weka.core.Instances;
 @Produces(MediaType.APPLICATION_JSON)
 public class WekaMLR {
 
+    private final double _ridge = 1.0e-8;
+
     @POST
     @Path("training")
     public Response training(TrainingRequest request) {
@@ -96,45 +94,114 @@ public class WekaMLR {
                     .collect(Collectors.toList());
 
             Instances data = InstanceUtils.createFromDataset(request.getDataset(), request.getPredictionFeature());
+            Map<String, Object> parameters = request.getParameters() != null ? request.getParameters() : new HashMap<>();
+            Boolean incremental = Boolean.parseBoolean(parameters.getOrDefault("incremental", false).toString());
+
+            Classifier classifier;
+            double[] coefficients;
+            if (incremental) {
+                IncrementalRegression regression = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, _ridge);
+                regression.buildClassifier(data);
+                classifier = regression;
+                coefficients = regression.coefficients(features);
+            } else {
+                LinearRegression linreg = new LinearRegression();
+                String[] linRegOptions = {"-S", "1", "-C"};
+                linreg.setOptions(linRegOptions);
+                linreg.buildClassifier(data);
+                classifier = linreg;
+                coefficients = linreg.coefficients();
+            }
 
-            LinearRegression linreg = new LinearRegression();
-            String[] linRegOptions = {"-S", "1", "-C"};
-            linreg.setOptions(linRegOptions);
-            linreg.buildClassifier(data);
+            return Response.ok(trainingResponse(classifier, coefficients, features, request)).build();
+        } catch (Exception ex) {
+            Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
+        }
+    }
 
-            WekaModel model = new WekaModel();
-            model.setClassifier(linreg);
+    /**
+     * Updates a model that was trained with the incremental parameter. The
+     * dataset of the request carries only the new rows and the raw model
+     * carries the statistics of all previous rows.
+     *
+     * @param request new rows and the raw model to update
+     * @return the updated model
+     */
+    @POST
+    @Path("update")
+    public Response update(TrainingRequest request) {
 
-            String pmml = PmmlUtils.createRegressionModel(features, request.getPredictionFeature(), linreg.coefficients(), "MLR");
+        try {
+            if (request.getDataset().getDataEntry().isEmpty() || request.getDataset().getDataEntry().get(0).getValues().isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Dataset is empty", "Cannot update model with empty dataset"))
+                        .build();
+            }
+            if (request.getRawModel() == null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Model is missing", "A raw model is needed to update a model"))
+                        .build();
+            }
 
-            TrainingResponse response = new TrainingResponse();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutput out = new ObjectOutputStream(baos);
-            out.writeObject(model);
-            String base64Model = Base64.getEncoder().encodeToString(baos.toByteArray());
-            response.setRawModel(base64Model);
-            List<String> independentFeatures = features
-                    .stream()
-                    .filter(feature -> !feature.equals(request.getPredictionFeature()))
-                    .collect(Collectors.toList());
-            response.setIndependentFeatures(independentFeatures);
-            response.setPmmlModel(pmml);
-            String predictionFeatureName = request.getDataset().getFeatures().stream()
-                    .filter(f -> f.getURI().equals(request.getPredictionFeature()))
-                    .findFirst()
-                    .get()
-                    .getName();
-            response.setAdditionalInfo(Arrays.asList(request.getPredictionFeature(), predictionFeatureName));
+            WekaModel model = ModelEnvelope.read(request.getRawModel(), WekaModel.class);
 
-            response.setPredictedFeatures(Arrays.asList("Weka MLR prediction of " + predictionFeatureName));
+            if (!(model.getClassifier() instanceof IncrementalRegression)) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Model cannot be updated", "Only models trained with the incremental parameter can be updated"))
+                        .build();
+            }
+            IncrementalRegression regression = (IncrementalRegression) model.getClassifier();
+            if (!regression.getClassName().equals(request.getPredictionFeature())) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Prediction feature mismatch", "The model predicts " + regression.getClassName()))
+                        .build();
+            }
 
-            return Response.ok(response).build();
+            Instances data = InstanceUtils.createFromDataset(request.getDataset(), request.getPredictionFeature());
+            try {
+                regression.update(data);
+            } catch (IllegalArgumentException ex) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Dataset does not match the model", ex.getMessage()))
+                        .build();
+            }
+
+            List<String> features = new ArrayList<>(regression.getAttributeNames());
+            features.add(request.getPredictionFeature());
+            return Response.ok(trainingResponse(regression, regression.coefficients(features), features, request)).build();
         } catch (Exception ex) {
             Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
         }
     }
 
+    private TrainingResponse trainingResponse(Classifier classifier, double[] coefficients, List<String> features, TrainingRequest request) throws IOException {
+        WekaModel model = new WekaModel();
+        model.setClassifier(classifier);
+
+        String pmml = PmmlUtils.createRegressionModel(features, request.getPredictionFeature(), coefficients, "MLR");
+
+        TrainingResponse response = new TrainingResponse();
+        response.setRawModel(ModelEnvelope.write(model));
+        List<String> independentFeatures = features
+                .stream()
+                .filter(feature -> !feature.equals(request.getPredictionFeature()))
+                .collect(Collectors.toList());
+        response.setIndependentFeatures(independentFeatures);
+        response.setPmmlModel(pmml);
+        String predictionFeatureName = request.getDataset().getFeatures().stream()
+                .filter(f -> f.getURI().equals(request.getPredictionFeature()))
+                .findFirst()
+                .get()
+                .getName();
+        response.setAdditionalInfo(Arrays.asList(request.getPredictionFeature(), predictionFeatureName));
+
+        response.setPredictedFeatures(Arrays.asList("Weka MLR prediction of " + predictionFeatureName));
+
+        return response;
+    }
+
     @POST
     @Path("prediction")
     public Response prediction(PredictionRequest request) {
@@ -146,11 +213,7 @@ public class WekaMLR {
                         .build();
             }
 
-            String base64Model = (String) request.getRawModel();
-            byte[] modelBytes = Base64.getDecoder().decode(base64Model);
-            ByteArrayInputStream bais = new ByteArrayInputStream(modelBytes);
-            ObjectInput in = new ObjectInputStream(bais);
-            WekaModel model = (WekaModel) in.readObject();
+            WekaModel model = ModelEnvelope.read(request.getRawModel(), WekaModel.class);
 
             Classifier classifier = model.getClassifier();
             Instances data = InstanceUtils.createFromDataset(request.getDataset());
@@ -158,29 +221,19 @@ public class WekaMLR {
             String dependentFeature = additionalInfo.get(0);
             String dependentFeatureName = additionalInfo.get(1);
             data.insertAttributeAt(new Attribute(dependentFeature), data.numAttributes());
-            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>();
-//            data.stream().forEach(instance -> {
-//                try {
-//                    double prediction = classifier.classifyInstance(instance);
-//                    Map<String, Object> predictionMap = new HashMap<>();
-//                    predictionMap.put("Weka MLR prediction of " + dependentFeature, prediction);
-//                    predictions.add(predictionMap);
-//                } catch (Exception ex) {
-//                    Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
-//                }
-//            });
-
-            for (int i = 0; i < data.numInstances(); i++) {
-                Instance instance = data.instance(i);
-                try {
-                    double prediction = classifier.classifyInstance(instance);
-                    LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
-                    predictionMap.put("Weka MLR prediction of " + dependentFeatureName, prediction);
-                    predictions.add(predictionMap);
-                } catch (Exception ex) {
-                    Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
-                    return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
-                }
+            double[] values;
+            try {
+                values = WekaPredictor.classify(classifier, data);
+            } catch (Exception ex) {
+                Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
+                return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
+            }
+            String predictionKey = "Weka MLR prediction of " + dependentFeatureName;
+            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>(values.length);
+            for (double value : values) {
+                LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
+                predictionMap.put(predictionKey, value);
+                predictions.add(predictionMap);
             }
 
             PredictionResponse response = new PredictionResponse();
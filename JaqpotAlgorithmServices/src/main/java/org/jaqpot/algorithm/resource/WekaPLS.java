@@ -34,16 +34,9 @@
  */
 package org.jaqpot.algorithm.resource;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -57,8 +50,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.jaqpot.algorithm.model.ModelEnvelope;
 import org.jaqpot.algorithm.model.WekaModel;
+import org.jaqpot.algorithm.weka.IncrementalRegression;
 import org.jaqpot.algorithm.weka.InstanceUtils;
+import org.jaqpot.algorithm.weka.WekaPredictor;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
 import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
@@ -67,7 +63,6 @@ import org.jaqpot.core.model.factory.ErrorReportFactory;
 import weka.classifiers.Classifier;
 import weka.classifiers.functions.PLSClassifier;
 import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -110,35 +105,100 @@ public class WekaPLS {
             Integer components = Integer.parseInt(parameters.getOrDefault("components", _components).toString());
             String algorithm = parameters.getOrDefault("algorithm", _algorithm).toString();
 
-            PLSClassifier classifier = new PLSClassifier();
-            classifier.setOptions(new String[]{"-C", components.toString(), "-A", algorithm});
-            classifier.buildClassifier(data);
+            Boolean incremental = Boolean.parseBoolean(parameters.getOrDefault("incremental", false).toString());
+
+            Classifier classifier;
+            if (incremental) {
+                IncrementalRegression regression = new IncrementalRegression(IncrementalRegression.Method.PLS, components, 0);
+                regression.buildClassifier(data);
+                classifier = regression;
+            } else {
+                PLSClassifier plsClassifier = new PLSClassifier();
+                plsClassifier.setOptions(new String[]{"-C", components.toString(), "-A", algorithm});
+                plsClassifier.buildClassifier(data);
+                classifier = plsClassifier;
+            }
 
-            WekaModel model = new WekaModel();
-            model.setClassifier(classifier);
+            return Response.ok(trainingResponse(classifier, features, request)).build();
+        } catch (Exception ex) {
+            LOG.log(Level.SEVERE, null, ex);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
+        }
+    }
 
-            TrainingResponse response = new TrainingResponse();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutput out = new ObjectOutputStream(baos);
-            out.writeObject(model);
-            String base64Model = Base64.getEncoder().encodeToString(baos.toByteArray());
-            response.setRawModel(base64Model);
-            List<String> independentFeatures = features
-                    .stream()
-                    .filter(feature -> !feature.equals(request.getPredictionFeature()))
-                    .collect(Collectors.toList());
-            response.setIndependentFeatures(independentFeatures);
-//            response.setPmmlModel(pmml);
-            response.setAdditionalInfo(request.getPredictionFeature());
-            response.setPredictedFeatures(Arrays.asList("Weka PLS prediction of " + request.getPredictionFeature()));
+    /**
+     * Updates a model that was trained with the incremental parameter. The
+     * dataset of the request carries only the new rows and the raw model
+     * carries the statistics of all previous rows.
+     *
+     * @param request new rows and the raw model to update
+     * @return the updated model
+     */
+    @POST
+    @Path("update")
+    public Response update(TrainingRequest request) {
+        try {
+            if (request.getDataset().getDataEntry().isEmpty() || request.getDataset().getDataEntry().get(0).getValues().isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Dataset is empty", "Cannot update model with empty dataset"))
+                        .build();
+            }
+            if (request.getRawModel() == null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Model is missing", "A raw model is needed to update a model"))
+                        .build();
+            }
 
-            return Response.ok(response).build();
+            WekaModel model = ModelEnvelope.read(request.getRawModel(), WekaModel.class);
+
+            if (!(model.getClassifier() instanceof IncrementalRegression)) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Model cannot be updated", "Only models trained with the incremental parameter can be updated"))
+                        .build();
+            }
+            IncrementalRegression regression = (IncrementalRegression) model.getClassifier();
+            if (!regression.getClassName().equals(request.getPredictionFeature())) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Prediction feature mismatch", "The model predicts " + regression.getClassName()))
+                        .build();
+            }
+
+            Instances data = InstanceUtils.createFromDataset(request.getDataset(), request.getPredictionFeature());
+            try {
+                regression.update(data);
+            } catch (IllegalArgumentException ex) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Dataset does not match the model", ex.getMessage()))
+                        .build();
+            }
+
+            List<String> features = new ArrayList<>(regression.getAttributeNames());
+            features.add(request.getPredictionFeature());
+            return Response.ok(trainingResponse(regression, features, request)).build();
         } catch (Exception ex) {
             LOG.log(Level.SEVERE, null, ex);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
         }
     }
 
+    private TrainingResponse trainingResponse(Classifier classifier, List<String> features, TrainingRequest request) throws IOException {
+        WekaModel model = new WekaModel();
+        model.setClassifier(classifier);
+
+        TrainingResponse response = new TrainingResponse();
+        response.setRawModel(ModelEnvelope.write(model));
+        List<String> independentFeatures = features
+                .stream()
+                .filter(feature -> !feature.equals(request.getPredictionFeature()))
+                .collect(Collectors.toList());
+        response.setIndependentFeatures(independentFeatures);
+//        response.setPmmlModel(pmml);
+        response.setAdditionalInfo(request.getPredictionFeature());
+        response.setPredictedFeatures(Arrays.asList("Weka PLS prediction of " + request.getPredictionFeature()));
+
+        return response;
+    }
+
     @POST
     @Path("prediction")
     public Response prediction(PredictionRequest request) {
@@ -149,40 +209,26 @@ public class WekaPLS {
                         .build();
             }
 
-            String base64Model = (String) request.getRawModel();
-            byte[] modelBytes = Base64.getDecoder().decode(base64Model);
-            ByteArrayInputStream bais = new ByteArrayInputStream(modelBytes);
-            ObjectInput in = new ObjectInputStream(bais);
-            WekaModel model = (WekaModel) in.readObject();
+            WekaModel model = ModelEnvelope.read(request.getRawModel(), WekaModel.class);
 
             Classifier classifier = model.getClassifier();
             Instances data = InstanceUtils.createFromDataset(request.getDataset());
             String dependentFeature = (String) request.getAdditionalInfo();
             data.insertAttributeAt(new Attribute(dependentFeature), data.numAttributes());
             data.setClass(data.attribute(dependentFeature));
-            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>();
-//            data.stream().forEach(instance -> {
-//                try {
-//                    double prediction = classifier.classifyInstance(instance);
-//                    Map<String, Object> predictionMap = new HashMap<>();
-//                    predictionMap.put("Weka PLS prediction of " + dependentFeature, prediction);
-//                    predictions.add(predictionMap);
-//                } catch (Exception ex) {
-//                    Logger.getLogger(WekaSVM.class.getName()).log(Level.SEVERE, null, ex);
-//                }
-//            });
-
-            for (int i = 0; i < data.numInstances(); i++) {
-                Instance instance = data.instance(i);
-                try {
-                    double prediction = classifier.classifyInstance(instance);
-                    LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
-                    predictionMap.put("Weka PLS prediction of " + dependentFeature, prediction);
-                    predictions.add(predictionMap);
-                } catch (Exception ex) {
-                    Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
-                    return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
-                }
+            double[] values;
+            try {
+                values = WekaPredictor.classify(classifier, data);
+            } catch (Exception ex) {
+                Logger.getLogger(WekaPLS.class.getName()).log(Level.SEVERE, null, ex);
+                return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
+            }
+            String predictionKey = "Weka PLS prediction of " + dependentFeature;
+            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>(values.length);
+            for (double value : values) {
+                LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
+                predictionMap.put(predictionKey, value);
+                predictions.add(predictionMap);
             }
 
             PredictionResponse response = new PredictionResponse();
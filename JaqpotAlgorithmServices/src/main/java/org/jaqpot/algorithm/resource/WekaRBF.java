@@ -34,16 +34,9 @@
  */
 package org.jaqpot.algorithm.resource;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -57,8 +50,11 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.jaqpot.algorithm.model.ModelEnvelope;
 import org.jaqpot.algorithm.model.WekaModel;
 import org.jaqpot.algorithm.weka.InstanceUtils;
+import org.jaqpot.algorithm.weka.ParameterSearch;
+import org.jaqpot.algorithm.weka.WekaPredictor;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
 import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
@@ -67,7 +63,6 @@ import org.jaqpot.core.model.factory.ErrorReportFactory;
 import weka.classifiers.Classifier;
 import weka.classifiers.functions.RBFNetwork;
 import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 
 /**
@@ -109,19 +104,7 @@ public class WekaRBF {
 
             Map<String, Object> parameters = request.getParameters() != null ? request.getParameters() : new HashMap<>();
 
-            Double minStdDev = Double.parseDouble(parameters.getOrDefault("minStdDev", _minStdDev).toString());
-            Double ridge = Double.parseDouble(parameters.getOrDefault("ridge", _ridge).toString());
-            Integer seed = Integer.parseInt(parameters.getOrDefault("seed", _seed).toString());
-            Integer maxIts = Integer.parseInt(parameters.getOrDefault("maxIts", _maxIts).toString());
-            Integer numClusters = Integer.parseInt(parameters.getOrDefault("numClusters", _numClusters).toString());
-
-            RBFNetwork rbf = new RBFNetwork();
-
-            rbf.setMinStdDev(minStdDev);
-            rbf.setRidge(ridge);
-            rbf.setClusteringSeed(seed);
-            rbf.setMaxIts(maxIts);
-            rbf.setNumClusters(numClusters);
+            RBFNetwork rbf = createClassifier(parameters);
 
             rbf.buildClassifier(data);
 
@@ -129,11 +112,7 @@ public class WekaRBF {
             model.setClassifier(rbf);
 
             TrainingResponse response = new TrainingResponse();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutput out = new ObjectOutputStream(baos);
-            out.writeObject(model);
-            String base64Model = Base64.getEncoder().encodeToString(baos.toByteArray());
-            response.setRawModel(base64Model);
+            response.setRawModel(ModelEnvelope.write(model));
             List<String> independentFeatures = features
                     .stream()
                     .filter(feature -> !feature.equals(request.getPredictionFeature()))
@@ -150,6 +129,29 @@ public class WekaRBF {
         }
     }
 
+    @POST
+    @Path("search")
+    public Response search(TrainingRequest request) {
+        return ParameterSearch.run(request, this::createClassifier, this::training);
+    }
+
+    private RBFNetwork createClassifier(Map<String, Object> parameters) {
+        Double minStdDev = Double.parseDouble(parameters.getOrDefault("minStdDev", _minStdDev).toString());
+        Double ridge = Double.parseDouble(parameters.getOrDefault("ridge", _ridge).toString());
+        Integer seed = Integer.parseInt(parameters.getOrDefault("seed", _seed).toString());
+        Integer maxIts = Integer.parseInt(parameters.getOrDefault("maxIts", _maxIts).toString());
+        Integer numClusters = Integer.parseInt(parameters.getOrDefault("numClusters", _numClusters).toString());
+
+        RBFNetwork rbf = new RBFNetwork();
+
+        rbf.setMinStdDev(minStdDev);
+        rbf.setRidge(ridge);
+        rbf.setClusteringSeed(seed);
+        rbf.setMaxIts(maxIts);
+        rbf.setNumClusters(numClusters);
+        return rbf;
+    }
+
     @POST
     @Path("prediction")
     public Response prediction(PredictionRequest request) {
@@ -161,11 +163,7 @@ public class WekaRBF {
                         .build();
             }
 
-            String base64Model = (String) request.getRawModel();
-            byte[] modelBytes = Base64.getDecoder().decode(base64Model);
-            ByteArrayInputStream bais = new ByteArrayInputStream(modelBytes);
-            ObjectInput in = new ObjectInputStream(bais);
-            WekaModel model = (WekaModel) in.readObject();
+            WekaModel model = ModelEnvelope.read(request.getRawModel(), WekaModel.class);
 
             Classifier classifier = model.getClassifier();
             Instances data = InstanceUtils.createFromDataset(request.getDataset());
@@ -173,29 +171,19 @@ public class WekaRBF {
             data.insertAttributeAt(new Attribute(dependentFeature), data.numAttributes());
             data.setClass(data.attribute(dependentFeature));
 
-            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>();
-//            data.stream().forEach(instance -> {
-//                try {
-//                    double prediction = classifier.classifyInstance(instance);
-//                    Map<String, Object> predictionMap = new HashMap<>();
-//                    predictionMap.put("Weka MLR prediction of " + dependentFeature, prediction);
-//                    predictions.add(predictionMap);
-//                } catch (Exception ex) {
-//                    Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
-//                }
-//            });
-
-            for (int i = 0; i < data.numInstances(); i++) {
-                Instance instance = data.instance(i);
-                try {
-                    double prediction = classifier.classifyInstance(instance);
-                    LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
-                    predictionMap.put("Weka RBF prediction of " + dependentFeature, prediction);
-                    predictions.add(predictionMap);
-                } catch (Exception ex) {
-                    Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
-                    return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
-                }
+            double[] values;
+            try {
+                values = WekaPredictor.classify(classifier, data);
+            } catch (Exception ex) {
+                Logger.getLogger(WekaRBF.class.getName()).log(Level.SEVERE, null, ex);
+                return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
+            }
+            String predictionKey = "Weka RBF prediction of " + dependentFeature;
+            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>(values.length);
+            for (double value : values) {
+                LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
+                predictionMap.put(predictionKey, value);
+                predictions.add(predictionMap);
             }
 
             PredictionResponse response = new PredictionResponse();
@@ -34,16 +34,9 @@
  */
 package org.jaqpot.algorithm.resource;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -62,9 +55,12 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import libsvm.svm_model;
 import libsvm.svm_node;
+import org.jaqpot.algorithm.model.ModelEnvelope;
 import org.jaqpot.algorithm.model.WekaModel;
 import org.jaqpot.algorithm.pmml.PmmlUtils;
 import org.jaqpot.algorithm.weka.InstanceUtils;
+import org.jaqpot.algorithm.weka.ParameterSearch;
+import org.jaqpot.algorithm.weka.WekaPredictor;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
 import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
@@ -73,7 +69,6 @@ import org.jaqpot.core.model.factory.ErrorReportFactory;
 import weka.classifiers.Classifier;
 import weka.classifiers.functions.LibSVM;
 import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.SelectedTag;
 
@@ -120,52 +115,12 @@ public class WekaSVM {
             Instances data = InstanceUtils.createFromDataset(request.getDataset(), request.getPredictionFeature());
             Map<String, Object> parameters = request.getParameters() != null ? request.getParameters() : new HashMap<>();
 
-            LibSVM regressor = new LibSVM();
-            Double epsilon = Double.parseDouble(parameters.getOrDefault("epsilon", _epsilon).toString());
-            Double cacheSize = Double.parseDouble(parameters.getOrDefault("cacheSize", _cacheSize).toString());
-            Double gamma = Double.parseDouble(parameters.getOrDefault("gamma", _gamma).toString());
-            Double coeff0 = Double.parseDouble(parameters.getOrDefault("coeff0", _coeff0).toString());
-            Double cost = Double.parseDouble(parameters.getOrDefault("cost", _cost).toString());
-            Double nu = Double.parseDouble(parameters.getOrDefault("nu", _nu).toString());
-            Double loss = Double.parseDouble(parameters.getOrDefault("loss", _loss).toString());
-            Integer degree = Integer.parseInt(parameters.getOrDefault("degree", _degree).toString());
-
-            regressor.setEps(epsilon);
-            regressor.setCacheSize(cacheSize);
-            regressor.setDegree(degree);
-            regressor.setCost(cost);
-            regressor.setGamma(gamma);
-            regressor.setCoef0(coeff0);
-            regressor.setNu(nu);
-            regressor.setLoss(loss);
-
-            Integer svm_kernel = null;
+            LibSVM regressor = createClassifier(parameters);
             String kernel = parameters.getOrDefault("kernel", _kernel).toString();
-            if (kernel.equalsIgnoreCase("rbf")) {
-                svm_kernel = LibSVM.KERNELTYPE_RBF;
-            } else if (kernel.equalsIgnoreCase("polynomial")) {
-                svm_kernel = LibSVM.KERNELTYPE_POLYNOMIAL;
-            } else if (kernel.equalsIgnoreCase("linear")) {
-                svm_kernel = LibSVM.KERNELTYPE_LINEAR;
-            } else if (kernel.equalsIgnoreCase("sigmoid")) {
-                svm_kernel = LibSVM.KERNELTYPE_SIGMOID;
-            }
-            regressor.setKernelType(new SelectedTag(svm_kernel, LibSVM.TAGS_KERNELTYPE));
-
-            Integer svm_type = null;
-            String type = parameters.getOrDefault("type", _type).toString();
-            if (type.equalsIgnoreCase("NU_SVR")) {
-                svm_type = LibSVM.SVMTYPE_NU_SVR;
-            } else if (type.equalsIgnoreCase("NU_SVC")) {
-                svm_type = LibSVM.SVMTYPE_NU_SVC;
-            } else if (type.equalsIgnoreCase("C_SVC")) {
-                svm_type = LibSVM.SVMTYPE_C_SVC;
-            } else if (type.equalsIgnoreCase("EPSILON_SVR")) {
-                svm_type = LibSVM.SVMTYPE_EPSILON_SVR;
-            } else if (type.equalsIgnoreCase("ONE_CLASS_SVM")) {
-                svm_type = LibSVM.SVMTYPE_ONE_CLASS_SVM;
-            }
-            regressor.setSVMType(new SelectedTag(svm_type, LibSVM.TAGS_SVMTYPE));
+            Integer svm_type = regressor.getSVMType().getSelectedTag().getID();
+            Double gamma = regressor.getGamma();
+            Double coeff0 = regressor.getCoef0();
+            Integer degree = regressor.getDegree();
 
             regressor.buildClassifier(data);
 
@@ -198,11 +153,7 @@ public class WekaSVM {
 
             String pmml = PmmlUtils.createSVMModel(features, request.getPredictionFeature(), "SVM", kernel, svm_type, options, coefsList, vectors);
             TrainingResponse response = new TrainingResponse();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutput out = new ObjectOutputStream(baos);
-            out.writeObject(model);
-            String base64Model = Base64.getEncoder().encodeToString(baos.toByteArray());
-            response.setRawModel(base64Model);
+            response.setRawModel(ModelEnvelope.write(model));
             List<String> independentFeatures = features
                     .stream()
                     .filter(feature -> !feature.equals(request.getPredictionFeature()))
@@ -219,6 +170,62 @@ public class WekaSVM {
         }
     }
 
+    @POST
+    @Path("search")
+    public Response search(TrainingRequest request) {
+        return ParameterSearch.run(request, this::createClassifier, this::training);
+    }
+
+    private LibSVM createClassifier(Map<String, Object> parameters) {
+        LibSVM regressor = new LibSVM();
+        Double epsilon = Double.parseDouble(parameters.getOrDefault("epsilon", _epsilon).toString());
+        Double cacheSize = Double.parseDouble(parameters.getOrDefault("cacheSize", _cacheSize).toString());
+        Double gamma = Double.parseDouble(parameters.getOrDefault("gamma", _gamma).toString());
+        Double coeff0 = Double.parseDouble(parameters.getOrDefault("coeff0", _coeff0).toString());
+        Double cost = Double.parseDouble(parameters.getOrDefault("cost", _cost).toString());
+        Double nu = Double.parseDouble(parameters.getOrDefault("nu", _nu).toString());
+        Double loss = Double.parseDouble(parameters.getOrDefault("loss", _loss).toString());
+        Integer degree = Integer.parseInt(parameters.getOrDefault("degree", _degree).toString());
+
+        regressor.setEps(epsilon);
+        regressor.setCacheSize(cacheSize);
+        regressor.setDegree(degree);
+        regressor.setCost(cost);
+        regressor.setGamma(gamma);
+        regressor.setCoef0(coeff0);
+        regressor.setNu(nu);
+        regressor.setLoss(loss);
+
+        Integer svm_kernel = null;
+        String kernel = parameters.getOrDefault("kernel", _kernel).toString();
+        if (kernel.equalsIgnoreCase("rbf")) {
+            svm_kernel = LibSVM.KERNELTYPE_RBF;
+        } else if (kernel.equalsIgnoreCase("polynomial")) {
+            svm_kernel = LibSVM.KERNELTYPE_POLYNOMIAL;
+        } else if (kernel.equalsIgnoreCase("linear")) {
+            svm_kernel = LibSVM.KERNELTYPE_LINEAR;
+        } else if (kernel.equalsIgnoreCase("sigmoid")) {
+            svm_kernel = LibSVM.KERNELTYPE_SIGMOID;
+        }
+        regressor.setKernelType(new SelectedTag(svm_kernel, LibSVM.TAGS_KERNELTYPE));
+
+        Integer svm_type = null;
+        String type = parameters.getOrDefault("type", _type).toString();
+        if (type.equalsIgnoreCase("NU_SVR")) {
+            svm_type = LibSVM.SVMTYPE_NU_SVR;
+        } else if (type.equalsIgnoreCase("NU_SVC")) {
+            svm_type = LibSVM.SVMTYPE_NU_SVC;
+        } else if (type.equalsIgnoreCase("C_SVC")) {
+            svm_type = LibSVM.SVMTYPE_C_SVC;
+        } else if (type.equalsIgnoreCase("EPSILON_SVR")) {
+            svm_type = LibSVM.SVMTYPE_EPSILON_SVR;
+        } else if (type.equalsIgnoreCase("ONE_CLASS_SVM")) {
+            svm_type = LibSVM.SVMTYPE_ONE_CLASS_SVM;
+        }
+        regressor.setSVMType(new SelectedTag(svm_type, LibSVM.TAGS_SVMTYPE));
+        return regressor;
+    }
+
     @POST
     @Path("prediction")
     public Response prediction(PredictionRequest request) {
@@ -229,40 +236,26 @@ public class WekaSVM {
                         .build();
             }
 
-            String base64Model = (String) request.getRawModel();
-            byte[] modelBytes = Base64.getDecoder().decode(base64Model);
-            ByteArrayInputStream bais = new ByteArrayInputStream(modelBytes);
-            ObjectInput in = new ObjectInputStream(bais);
-            WekaModel model = (WekaModel) in.readObject();
+            WekaModel model = ModelEnvelope.read(request.getRawModel(), WekaModel.class);
 
             Classifier classifier = model.getClassifier();
             Instances data = InstanceUtils.createFromDataset(request.getDataset());
             String dependentFeature = (String) request.getAdditionalInfo();
             data.insertAttributeAt(new Attribute(dependentFeature), data.numAttributes());
             data.setClass(data.attribute(dependentFeature));
-            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>();
-//            data.stream().forEach(instance -> {
-//                try {
-//                    double prediction = classifier.classifyInstance(instance);
-//                    Map<String, Object> predictionMap = new HashMap<>();
-//                    predictionMap.put("Weka SVM prediction of " + dependentFeature, prediction);
-//                    predictions.add(predictionMap);
-//                } catch (Exception ex) {
-//                    Logger.getLogger(WekaSVM.class.getName()).log(Level.SEVERE, null, ex);
-//                }
-//            });
-
-            for (int i = 0; i < data.numInstances(); i++) {
-                Instance instance = data.instance(i);
-                try {
-                    double prediction = classifier.classifyInstance(instance);
-                    LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
-                    predictionMap.put("Weka SVM prediction of " + dependentFeature, prediction);
-                    predictions.add(predictionMap);
-                } catch (Exception ex) {
-                    Logger.getLogger(WekaMLR.class.getName()).log(Level.SEVERE, null, ex);
-                    return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
-                }
+            double[] values;
+            try {
+                values = WekaPredictor.classify(classifier, data);
+            } catch (Exception ex) {
+                Logger.getLogger(WekaSVM.class.getName()).log(Level.SEVERE, null, ex);
+                return Response.status(Response.Status.BAD_REQUEST).entity(ErrorReportFactory.badRequest("Error while gettting predictions.", ex.getMessage())).build();
+            }
+            String predictionKey = "Weka SVM prediction of " + dependentFeature;
+            List<LinkedHashMap<String, Object>> predictions = new ArrayList<>(values.length);
+            for (double value : values) {
+                LinkedHashMap<String, Object> predictionMap = new LinkedHashMap<>();
+                predictionMap.put(predictionKey, value);
+                predictions.add(predictionMap);
             }
 
             PredictionResponse response = new PredictionResponse();
@@ -0,0 +1,189 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.stats;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+
+/**
+ * Minimum, maximum, mean and variance of a set of dataset columns, computed
+ * in one row-major pass. The mean and variance are accumulated with
+ * Welford's algorithm; large datasets are split in row blocks that are
+ * accumulated in parallel and merged pairwise. As in {@code StatUtils}, a NaN
+ * value turns the mean and variance of its column into NaN but is skipped by
+ * the minimum and maximum, which are NaN only if the whole column is.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ColumnStatistics {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    private final long count;
+    private final double[] min;
+    private final double[] max;
+    private final double[] mean;
+    private final double[] m2;
+
+    private ColumnStatistics(int columns) {
+        this(0, new double[columns], new double[columns], new double[columns], new double[columns]);
+        Arrays.fill(min, Double.NaN);
+        Arrays.fill(max, Double.NaN);
+    }
+
+    private ColumnStatistics(long count, double[] min, double[] max, double[] mean, double[] m2) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    /**
+     * Computes the statistics of the given features over all data entries.
+     *
+     * @param dataEntries rows of the dataset
+     * @param features features to compute statistics for; column j of the
+     * result corresponds to features.get(j)
+     * @return the statistics of every feature
+     * @throws IllegalArgumentException if a data entry has no value for one
+     * of the features
+     */
+    public static ColumnStatistics of(List<DataEntry> dataEntries, List<String> features) {
+        String[] columns = features.toArray(new String[features.size()]);
+        int rows = dataEntries.size();
+        int blocks = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (blocks <= 1) {
+            return accumulate(dataEntries, columns, 0, rows);
+        }
+        return IntStream.range(0, blocks)
+                .parallel()
+                .mapToObj(b -> accumulate(dataEntries, columns, b * BLOCK_SIZE, Math.min((b + 1) * BLOCK_SIZE, rows)))
+                .reduce(ColumnStatistics::merge)
+                .get();
+    }
+
+    private static ColumnStatistics accumulate(List<DataEntry> dataEntries, String[] columns, int from, int to) {
+        ColumnStatistics stats = new ColumnStatistics(columns.length);
+        double[] row = new double[columns.length];
+        long n = 0;
+        for (int i = from; i < to; i++) {
+            Map<String, Object> values = dataEntries.get(i).getValues();
+            for (int j = 0; j < columns.length; j++) {
+                row[j] = toDouble(columns[j], values.get(columns[j]));
+            }
+            n++;
+            for (int j = 0; j < columns.length; j++) {
+                double x = row[j];
+                if (x < stats.min[j] || Double.isNaN(stats.min[j])) {
+                    stats.min[j] = x;
+                }
+                if (x > stats.max[j] || Double.isNaN(stats.max[j])) {
+                    stats.max[j] = x;
+                }
+                double delta = x - stats.mean[j];
+                stats.mean[j] += delta / n;
+                stats.m2[j] += delta * (x - stats.mean[j]);
+            }
+        }
+        return new ColumnStatistics(n, stats.min, stats.max, stats.mean, stats.m2);
+    }
+
+    private static ColumnStatistics merge(ColumnStatistics a, ColumnStatistics b) {
+        if (a.count == 0) {
+            return b;
+        }
+        if (b.count == 0) {
+            return a;
+        }
+        int columns = a.mean.length;
+        long n = a.count + b.count;
+        double[] min = new double[columns];
+        double[] max = new double[columns];
+        double[] mean = new double[columns];
+        double[] m2 = new double[columns];
+        for (int j = 0; j < columns; j++) {
+            double delta = b.mean[j] - a.mean[j];
+            min[j] = b.min[j] < a.min[j] || Double.isNaN(a.min[j]) ? b.min[j] : a.min[j];
+            max[j] = b.max[j] > a.max[j] || Double.isNaN(a.max[j]) ? b.max[j] : a.max[j];
+            mean[j] = a.mean[j] + delta * b.count / n;
+            m2[j] = a.m2[j] + b.m2[j] + delta * delta * a.count * b.count / n;
+        }
+        return new ColumnStatistics(n, min, max, mean, m2);
+    }
+
+    private static double toDouble(String feature, Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value for feature " + feature);
+        }
+        return Double.parseDouble(value.toString());
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin(int column) {
+        return min[column];
+    }
+
+    public double getMax(int column) {
+        return max[column];
+    }
+
+    public double getMean(int column) {
+        return mean[column];
+    }
+
+    /**
+     * Bias-corrected (sample) variance of a column, as computed by
+     * {@code StatUtils.variance}.
+     */
+    public double getVariance(int column) {
+        return count > 1 ? m2[column] / (count - 1) : 0.0;
+    }
+
+    public double getStandardDeviation(int column) {
+        return Math.sqrt(getVariance(column));
+    }
+
+}
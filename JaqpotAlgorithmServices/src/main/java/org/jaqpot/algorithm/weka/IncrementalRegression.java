@@ -0,0 +1,386 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.weka;
+
+import Jama.CholeskyDecomposition;
+import Jama.Matrix;
+import java.util.ArrayList;
+import java.util.List;
+import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Linear regression (MLR or PLS1) that keeps the sufficient statistics of
+ * its training rows, i.e. their means and the centered cross products XᵀX
+ * and Xᵀy. A trained model can therefore be updated with new rows only, at
+ * a cost that depends on the number of new rows and not on the size of the
+ * whole training history.
+ *
+ * Rows with missing values are left out of the statistics; missing values
+ * are replaced by the training means at prediction time.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class IncrementalRegression extends Classifier implements UpdateableClassifier {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Method {
+        MLR, PLS
+    }
+
+    private final Method method;
+    private final int components;
+    private final double ridge;
+
+    private String className;
+    private String[] attributeNames;
+
+    private long count;
+    private double[] meanX;
+    private double meanY;
+    private double[][] xx;
+    private double[] xy;
+
+    private double[] coefficients;
+    private double intercept;
+
+    private transient volatile Binding binding;
+
+    /**
+     * Attribute indices of a dataset, resolved once per dataset.
+     */
+    private static final class Binding {
+
+        private final Instances dataset;
+        private final int[] indices;
+
+        private Binding(Instances dataset, int[] indices) {
+            this.dataset = dataset;
+            this.indices = indices;
+        }
+    }
+
+    /**
+     * @param method regression method
+     * @param components number of latent components (PLS only)
+     * @param ridge ridge, relative to the variance of each attribute (MLR
+     * only)
+     */
+    public IncrementalRegression(Method method, int components, double ridge) {
+        this.method = method;
+        this.components = components;
+        this.ridge = ridge;
+    }
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        className = data.classAttribute().name();
+        List<String> names = new ArrayList<>(data.numAttributes());
+        for (int j = 0; j < data.numAttributes(); j++) {
+            if (j != data.classIndex()) {
+                names.add(data.attribute(j).name());
+            }
+        }
+        attributeNames = names.toArray(new String[names.size()]);
+        int p = attributeNames.length;
+        count = 0;
+        meanX = new double[p];
+        meanY = 0;
+        xx = new double[p][p];
+        xy = new double[p];
+        update(data);
+    }
+
+    /**
+     * Adds the rows of a dataset to the statistics and recomputes the
+     * coefficients. The dataset must contain all attributes of the model,
+     * in any order.
+     *
+     * @param data new rows
+     */
+    public void update(Instances data) {
+        int[] indices = resolve(data, true);
+        int classIndex = data.attribute(className).index();
+        int p = attributeNames.length;
+
+        List<double[]> rows = new ArrayList<>(data.numInstances());
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance instance = data.instance(i);
+            if (instance.isMissing(classIndex)) {
+                continue;
+            }
+            double[] row = new double[p + 1];
+            boolean complete = true;
+            for (int j = 0; j < p && complete; j++) {
+                complete = !instance.isMissing(indices[j]);
+                row[j] = instance.value(indices[j]);
+            }
+            if (complete) {
+                row[p] = instance.value(classIndex);
+                rows.add(row);
+            }
+        }
+        merge(rows);
+        solve();
+    }
+
+    @Override
+    public void updateClassifier(Instance instance) throws Exception {
+        Instances data = new Instances(instance.dataset(), 1);
+        data.add(instance);
+        update(data);
+    }
+
+    /**
+     * Merges a batch of rows (attributes followed by the class value) into
+     * the statistics, using the pairwise update of means and co-moments so
+     * that no precision is lost to large means.
+     */
+    private void merge(List<double[]> rows) {
+        int n = rows.size();
+        if (n == 0) {
+            return;
+        }
+        int p = attributeNames.length;
+        double[] batchMean = new double[p + 1];
+        for (double[] row : rows) {
+            for (int j = 0; j <= p; j++) {
+                batchMean[j] += row[j];
+            }
+        }
+        for (int j = 0; j <= p; j++) {
+            batchMean[j] /= n;
+        }
+
+        double[][] batchXX = new double[p][p];
+        double[] batchXY = new double[p];
+        double[] centered = new double[p + 1];
+        for (double[] row : rows) {
+            for (int j = 0; j <= p; j++) {
+                centered[j] = row[j] - batchMean[j];
+            }
+            for (int j = 0; j < p; j++) {
+                double cj = centered[j];
+                batchXY[j] += cj * centered[p];
+                double[] batchRow = batchXX[j];
+                for (int k = j; k < p; k++) {
+                    batchRow[k] += cj * centered[k];
+                }
+            }
+        }
+
+        double total = count + n;
+        double weight = count * (double) n / total;
+        double[] delta = new double[p + 1];
+        for (int j = 0; j < p; j++) {
+            delta[j] = batchMean[j] - meanX[j];
+        }
+        delta[p] = batchMean[p] - meanY;
+        for (int j = 0; j < p; j++) {
+            xy[j] += batchXY[j] + weight * delta[j] * delta[p];
+            for (int k = j; k < p; k++) {
+                xx[j][k] += batchXX[j][k] + weight * delta[j] * delta[k];
+                xx[k][j] = xx[j][k];
+            }
+            meanX[j] += delta[j] * n / total;
+        }
+        meanY += delta[p] * n / total;
+        count += n;
+    }
+
+    private void solve() {
+        int p = attributeNames.length;
+        coefficients = new double[p];
+        if (count > 1 && p > 0) {
+            coefficients = method == Method.PLS ? solvePls() : solveMlr();
+        }
+        intercept = meanY;
+        for (int j = 0; j < p; j++) {
+            intercept -= coefficients[j] * meanX[j];
+        }
+    }
+
+    private double[] solveMlr() {
+        int p = attributeNames.length;
+        double[][] a = new double[p][];
+        for (int j = 0; j < p; j++) {
+            a[j] = xx[j].clone();
+            a[j][j] += ridge * (xx[j][j] > 0 ? xx[j][j] : 1);
+        }
+        Matrix b = new Matrix(xy, p);
+        CholeskyDecomposition cholesky = new CholeskyDecomposition(new Matrix(a));
+        Matrix solution = cholesky.isSPD() ? cholesky.solve(b) : new Matrix(a).solve(b);
+        return solution.getColumnPackedCopy();
+    }
+
+    /**
+     * PLS1 on the cross products (kernel algorithm), which needs neither the
+     * rows nor the scores.
+     */
+    private double[] solvePls() {
+        int p = attributeNames.length;
+        int a = (int) Math.min(components, Math.min(p, count - 1));
+        double[] b = new double[p];
+        double[] covariance = xy.clone();
+        double[][] loadings = new double[a][];
+        double[][] weights = new double[a][];
+        double scale = Math.sqrt(dot(xy, xy));
+        for (int c = 0; c < a; c++) {
+            double norm = Math.sqrt(dot(covariance, covariance));
+            if (norm <= 1e-12 * scale || norm == 0) {
+                break;
+            }
+            double[] r = new double[p];
+            for (int j = 0; j < p; j++) {
+                r[j] = covariance[j] / norm;
+            }
+            double[] w = r.clone();
+            for (int d = 0; d < c; d++) {
+                double projection = dot(loadings[d], w);
+                for (int j = 0; j < p; j++) {
+                    r[j] -= projection * weights[d][j];
+                }
+            }
+            double[] xxr = new double[p];
+            for (int j = 0; j < p; j++) {
+                xxr[j] = dot(xx[j], r);
+            }
+            double tt = dot(r, xxr);
+            if (tt <= 0) {
+                break;
+            }
+            double q = dot(r, covariance) / tt;
+            double[] loading = new double[p];
+            for (int j = 0; j < p; j++) {
+                loading[j] = xxr[j] / tt;
+                covariance[j] -= loading[j] * q * tt;
+                b[j] += r[j] * q;
+            }
+            loadings[c] = loading;
+            weights[c] = r;
+        }
+        return b;
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double sum = 0;
+        for (int j = 0; j < x.length; j++) {
+            sum += x[j] * y[j];
+        }
+        return sum;
+    }
+
+    @Override
+    public double classifyInstance(Instance instance) throws Exception {
+        int[] indices = indices(instance.dataset());
+        double value = intercept;
+        for (int j = 0; j < indices.length; j++) {
+            double x = indices[j] < 0 || instance.isMissing(indices[j]) ? meanX[j] : instance.value(indices[j]);
+            value += coefficients[j] * x;
+        }
+        return value;
+    }
+
+    private int[] indices(Instances dataset) {
+        Binding current = binding;
+        if (current == null || current.dataset != dataset) {
+            current = new Binding(dataset, resolve(dataset, false));
+            binding = current;
+        }
+        return current.indices;
+    }
+
+    private int[] resolve(Instances dataset, boolean required) {
+        int[] indices = new int[attributeNames.length];
+        for (int j = 0; j < attributeNames.length; j++) {
+            Attribute attribute = dataset.attribute(attributeNames[j]);
+            if (attribute == null && required) {
+                throw new IllegalArgumentException("Feature " + attributeNames[j] + " of the model is missing from the dataset.");
+            }
+            indices[j] = attribute != null ? attribute.index() : -1;
+        }
+        if (required && dataset.attribute(className) == null) {
+            throw new IllegalArgumentException("Prediction feature " + className + " is missing from the dataset.");
+        }
+        return indices;
+    }
+
+    /**
+     * Coefficients in the layout of {@link weka.classifiers.functions.LinearRegression#coefficients()}:
+     * one per feature, in the given order, followed by the intercept.
+     * Features that are not attributes of the model (e.g. the prediction
+     * feature) get a zero coefficient.
+     *
+     * @param features feature order
+     * @return the coefficients and the intercept
+     */
+    public double[] coefficients(List<String> features) {
+        double[] result = new double[features.size() + 1];
+        for (int j = 0; j < attributeNames.length; j++) {
+            int index = features.indexOf(attributeNames[j]);
+            if (index >= 0) {
+                result[index] = coefficients[j];
+            }
+        }
+        result[features.size()] = intercept;
+        return result;
+    }
+
+    public List<String> getAttributeNames() {
+        List<String> names = new ArrayList<>(attributeNames.length);
+        for (String name : attributeNames) {
+            names.add(name);
+        }
+        return names;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+}
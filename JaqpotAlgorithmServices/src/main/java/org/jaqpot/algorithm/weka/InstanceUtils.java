@@ -34,6 +34,9 @@
  */
 package org.jaqpot.algorithm.weka;
 
+import java.util.List;
+import java.util.Map;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
 import org.jaqpot.core.model.dto.dataset.Dataset;
 import weka.core.Attribute;
 import weka.core.FastVector;
@@ -48,64 +51,50 @@ import weka.core.Instances;
 public class InstanceUtils {
 
     public static Instances createFromDataset(Dataset dataset, String predictionFeature) {
-
-        FastVector attrInfo = new FastVector();
-        dataset.getDataEntry()
-                .stream()
-                .findFirst()
-                .get()
-                .getValues()
-                .keySet()
-                .stream()
-                .map(feature -> {
-                    return new Attribute(feature);
-                }).forEach(a -> {
-                    attrInfo.addElement(a);
-                });
-
-        Instances data = new Instances(dataset.getDatasetURI(), attrInfo, dataset.getDataEntry().size());
-
+        Instances data = build(dataset);
         data.setClass(data.attribute(predictionFeature));
-        dataset.getDataEntry().stream().map((dataEntry) -> {
-            Instance instance = new Instance(dataEntry.getValues().size());
-            dataEntry.getValues().entrySet().stream().forEach(entry -> {
-                instance.setValue(data.attribute(entry.getKey()), Double.parseDouble(entry.getValue().toString()));
-            });
-            return instance;
-        }).forEach((instance) -> {
-            data.add(instance);
-        });
         return data;
     }
 
     public static Instances createFromDataset(Dataset dataset) {
+        return build(dataset);
+    }
 
-        FastVector attrInfo = new FastVector();
-        dataset.getDataEntry()
-                .stream()
-                .findFirst()
-                .get()
-                .getValues()
-                .keySet()
-                .stream()
-                .map(feature -> {
-                    return new Attribute(feature);
-                }).forEach(a -> {
-                    attrInfo.addElement(a);
-                });
+    /**
+     * Builds the instances of a dataset. The attributes are taken from the
+     * first data entry and their order is resolved once; every data entry is
+     * then read into a primitive row in that order. Values that are absent
+     * or null are stored as missing.
+     */
+    private static Instances build(Dataset dataset) {
+        List<DataEntry> dataEntries = dataset.getDataEntry();
+        String[] features = dataEntries.get(0).getValues().keySet().toArray(new String[0]);
 
-        Instances data = new Instances(dataset.getDatasetURI(), attrInfo, dataset.getDataEntry().size());
+        FastVector attrInfo = new FastVector(features.length);
+        for (String feature : features) {
+            attrInfo.addElement(new Attribute(feature));
+        }
+        Instances data = new Instances(dataset.getDatasetURI(), attrInfo, dataEntries.size());
 
-        dataset.getDataEntry().stream().map((dataEntry) -> {
-            Instance instance = new Instance(dataEntry.getValues().size());
-            dataEntry.getValues().entrySet().stream().forEach(entry -> {
-                instance.setValue(data.attribute(entry.getKey()), Double.parseDouble(entry.getValue().toString()));
-            });
-            return instance;
-        }).forEach((instance) -> {
-            data.add(instance);
-        });
+        for (DataEntry dataEntry : dataEntries) {
+            Map<String, Object> values = dataEntry.getValues();
+            double[] row = new double[features.length];
+            for (int j = 0; j < features.length; j++) {
+                row[j] = toDouble(values.get(features[j]));
+            }
+            data.add(new Instance(1.0, row));
+        }
         return data;
     }
 
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            return Instance.missingValue();
+        }
+        return Double.parseDouble(value.toString());
+    }
+
 }
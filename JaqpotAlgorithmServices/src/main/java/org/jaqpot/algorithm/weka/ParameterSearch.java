@@ -0,0 +1,410 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.weka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.core.Response;
+import org.jaqpot.core.model.ArrayCalculation;
+import org.jaqpot.core.model.Report;
+import org.jaqpot.core.model.dto.jpdi.SearchResponse;
+import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
+import org.jaqpot.core.model.factory.ErrorReportFactory;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * Grid or random search over the parameters of a Weka algorithm. The
+ * dataset is converted once and split in folds that are shared by all
+ * candidates; candidates are cross-validated in parallel and ranked by their
+ * root mean squared error. With successive halving, candidates are first
+ * scored on a few folds and only the best third of them moves on to the next
+ * rung, until the survivors are scored on all folds.
+ *
+ * <p>
+ * The search is controlled by the following training parameters; all other
+ * parameters are passed to every candidate unchanged:
+ * <ul>
+ * <li>{@code space}: map of parameter names to the list of values to try</li>
+ * <li>{@code folds}: number of cross-validation folds (default 5)</li>
+ * <li>{@code samples}: number of candidates drawn at random from the grid;
+ * the whole grid is evaluated if absent</li>
+ * <li>{@code shuffleSeed}: seed of the fold split and sampling (default 1)</li>
+ * <li>{@code halving}: whether to use successive halving (default false)</li>
+ * </ul>
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ParameterSearch {
+
+    private static final Logger LOG = Logger.getLogger(ParameterSearch.class.getName());
+
+    static final int MAX_CANDIDATES = 1000;
+
+    private static final int ETA = 3;
+
+    public interface ClassifierFactory {
+
+        Classifier create(Map<String, Object> parameters) throws Exception;
+    }
+
+    private static class Candidate {
+
+        private final Map<String, Object> parameters;
+        private double squaredError = 0;
+        private long count = 0;
+        private int folds = 0;
+
+        private Candidate(Map<String, Object> parameters) {
+            this.parameters = parameters;
+        }
+
+        private double rmse() {
+            return count > 0 ? Math.sqrt(squaredError / count) : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private final Instances[] trainingSets;
+    private final Instances[] testSets;
+    private final ClassifierFactory factory;
+
+    private ParameterSearch(Instances data, int folds, long seed, ClassifierFactory factory) {
+        Instances shuffled = new Instances(data);
+        shuffled.randomize(new Random(seed));
+        this.trainingSets = new Instances[folds];
+        this.testSets = new Instances[folds];
+        for (int i = 0; i < folds; i++) {
+            trainingSets[i] = shuffled.trainCV(folds, i);
+            testSets[i] = shuffled.testCV(folds, i);
+        }
+        this.factory = factory;
+    }
+
+    /**
+     * Runs the search described by the parameters of a training request and
+     * trains the best candidate on the whole dataset.
+     *
+     * @param request training request with the search parameters
+     * @param factory creates an untrained classifier for a set of parameters
+     * @param trainer the training endpoint of the algorithm
+     * @return a response with a {@link SearchResponse} or an error report
+     */
+    public static Response run(TrainingRequest request, ClassifierFactory factory,
+            Function<TrainingRequest, Response> trainer) {
+        try {
+            if (request.getDataset().getDataEntry().isEmpty() || request.getDataset().getDataEntry().get(0).getValues().isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Dataset is empty", "Cannot train model on empty dataset"))
+                        .build();
+            }
+            Map<String, Object> parameters = request.getParameters() != null ? new HashMap<>(request.getParameters()) : new HashMap<>();
+            Map<String, List<Object>> space = space(parameters.getOrDefault("space", new HashMap<>()));
+            if (space == null) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Invalid search space",
+                                "The search space must map parameter names to non-empty lists of values"))
+                        .build();
+            }
+            int folds;
+            Integer samples;
+            long seed;
+            try {
+                folds = Integer.parseInt(parameters.getOrDefault("folds", 5).toString());
+                samples = parameters.get("samples") != null ? Integer.parseInt(parameters.get("samples").toString()) : null;
+                seed = Long.parseLong(parameters.getOrDefault("shuffleSeed", 1).toString());
+            } catch (NumberFormatException ex) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Invalid search parameters", ex.getMessage()))
+                        .build();
+            }
+            if (samples != null && samples < 1) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Invalid number of samples", "At least one sample is needed"))
+                        .build();
+            }
+            boolean halving = Boolean.parseBoolean(parameters.getOrDefault("halving", false).toString());
+            Arrays.asList("space", "folds", "samples", "shuffleSeed", "halving").forEach(parameters::remove);
+
+            long gridSize = gridSize(space);
+            long size = samples != null ? Math.min(samples, gridSize) : gridSize;
+            if (size > MAX_CANDIDATES) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Search space is too large",
+                                size + " candidates requested; at most " + MAX_CANDIDATES + " are allowed"))
+                        .build();
+            }
+
+            Instances data = InstanceUtils.createFromDataset(request.getDataset(), request.getPredictionFeature());
+            if (folds < 2 || folds > data.numInstances()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(ErrorReportFactory.badRequest("Invalid number of folds",
+                                "The number of folds must be between 2 and the number of rows (" + data.numInstances() + ")"))
+                        .build();
+            }
+
+            List<Candidate> candidates = candidates(space, parameters, gridSize, (int) size, new Random(seed));
+            List<Candidate> ranking = new ParameterSearch(data, folds, seed, factory).rank(candidates, halving);
+
+            Map<String, Object> bestParameters = ranking.get(0).parameters;
+            TrainingRequest bestRequest = new TrainingRequest();
+            bestRequest.setDataset(request.getDataset());
+            bestRequest.setPredictionFeature(request.getPredictionFeature());
+            bestRequest.setParameters(bestParameters);
+            Response trained = trainer.apply(bestRequest);
+            if (trained.getStatus() != Response.Status.OK.getStatusCode()) {
+                return trained;
+            }
+
+            SearchResponse response = new SearchResponse();
+            response.setModel((TrainingResponse) trained.getEntity());
+            response.setParameters(bestParameters);
+            response.setReport(report(ranking, space.keySet(), folds, halving));
+            return Response.ok(response).build();
+        } catch (Exception ex) {
+            LOG.log(Level.SEVERE, null, ex);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * Checks the type of the search space.
+     *
+     * @return the space sorted by parameter name, or null if it is not a map
+     * of names to non-empty lists
+     */
+    private static Map<String, List<Object>> space(Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Map<String, List<Object>> space = new TreeMap<>();
+        for (Map.Entry<?, ?> dimension : ((Map<?, ?>) value).entrySet()) {
+            if (!(dimension.getKey() instanceof String) || !(dimension.getValue() instanceof List)
+                    || ((List<?>) dimension.getValue()).isEmpty()) {
+                return null;
+            }
+            space.put((String) dimension.getKey(), new ArrayList<>((List<?>) dimension.getValue()));
+        }
+        return space;
+    }
+
+    /**
+     * Number of points of the grid, or Long.MAX_VALUE if it overflows.
+     */
+    private static long gridSize(Map<String, List<Object>> space) {
+        long size = 1;
+        for (List<Object> values : space.values()) {
+            try {
+                size = Math.multiplyExact(size, values.size());
+            } catch (ArithmeticException ex) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The candidates of the search: the whole grid if it has at most
+     * {@code samples} points, otherwise {@code samples} distinct points
+     * drawn at random. Points are decoded from their index in the grid, so
+     * the grid itself is never built.
+     */
+    private static List<Candidate> candidates(Map<String, List<Object>> space, Map<String, Object> fixed,
+            long gridSize, int samples, Random random) {
+        List<Candidate> candidates = new ArrayList<>(samples);
+        if (samples >= gridSize) {
+            for (long index = 0; index < gridSize; index++) {
+                candidates.add(new Candidate(point(space, fixed, index)));
+            }
+            return candidates;
+        }
+        // Floyd's algorithm: distinct indices without materializing the range
+        Set<Long> indices = new LinkedHashSet<>();
+        for (long bound = gridSize - samples; bound < gridSize; bound++) {
+            long index = nextLong(random, bound + 1);
+            indices.add(indices.contains(index) ? bound : index);
+        }
+        indices.forEach(index -> candidates.add(new Candidate(point(space, fixed, index))));
+        return candidates;
+    }
+
+    /**
+     * The point of the grid with the given index; the last parameter varies
+     * fastest.
+     */
+    private static Map<String, Object> point(Map<String, List<Object>> space, Map<String, Object> fixed, long index) {
+        Map<String, Object> point = new HashMap<>(fixed);
+        List<Map.Entry<String, List<Object>>> dimensions = new ArrayList<>(space.entrySet());
+        for (int d = dimensions.size() - 1; d >= 0; d--) {
+            List<Object> values = dimensions.get(d).getValue();
+            point.put(dimensions.get(d).getKey(), values.get((int) (index % values.size())));
+            index /= values.size();
+        }
+        return point;
+    }
+
+    /**
+     * Uniform long in [0, bound).
+     */
+    static long nextLong(Random random, long bound) {
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    /**
+     * Scores the candidates and returns them best first. Candidates dropped
+     * by successive halving follow the survivors, ranked by the score they
+     * had when they were dropped.
+     */
+    private List<Candidate> rank(List<Candidate> candidates, boolean halving) throws Exception {
+        int folds = trainingSets.length;
+        int rungs = halving ? (int) Math.floor(Math.log(candidates.size()) / Math.log(ETA)) : 0;
+        List<Candidate> survivors = new ArrayList<>(candidates);
+        List<Candidate> dropped = new ArrayList<>();
+        int evaluated = 0;
+        for (int rung = rungs; rung >= 0; rung--) {
+            int budget = Math.max(1, (int) Math.ceil(folds / Math.pow(ETA, rung)));
+            evaluate(survivors, evaluated, Math.max(budget, evaluated + 1));
+            evaluated = Math.max(budget, evaluated + 1);
+            survivors.sort(Comparator.comparingDouble(Candidate::rmse));
+            if (rung > 0) {
+                int keep = Math.max(1, (int) Math.ceil(survivors.size() / (double) ETA));
+                List<Candidate> out = new ArrayList<>(survivors.subList(keep, survivors.size()));
+                out.addAll(dropped);
+                dropped = out;
+                survivors = new ArrayList<>(survivors.subList(0, keep));
+            }
+            if (evaluated >= folds) {
+                break;
+            }
+        }
+        if (evaluated < folds) {
+            evaluate(survivors, evaluated, folds);
+            survivors.sort(Comparator.comparingDouble(Candidate::rmse));
+        }
+        survivors.addAll(dropped);
+        return survivors;
+    }
+
+    /**
+     * Adds folds [from, to) to the score of every candidate, evaluating the
+     * candidates in parallel.
+     */
+    private void evaluate(List<Candidate> candidates, int from, int to) throws Exception {
+        List<Future<Void>> futures = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            futures.add(WekaPredictor.POOL.submit(() -> {
+                for (int fold = from; fold < to; fold++) {
+                    Classifier classifier = factory.create(candidate.parameters);
+                    classifier.buildClassifier(trainingSets[fold]);
+                    Instances test = testSets[fold];
+                    for (int i = 0; i < test.numInstances(); i++) {
+                        double error = classifier.classifyInstance(test.instance(i)) - test.instance(i).classValue();
+                        candidate.squaredError += error * error;
+                    }
+                    candidate.count += test.numInstances();
+                    candidate.folds++;
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static Report report(List<Candidate> ranking, Iterable<String> searched, int folds, boolean halving) {
+        List<String> colNames = new ArrayList<>();
+        colNames.add("RMSE");
+        colNames.add("Folds evaluated");
+        searched.forEach(colNames::add);
+
+        LinkedHashMap<String, List<Object>> values = new LinkedHashMap<>();
+        for (int i = 0; i < ranking.size(); i++) {
+            Candidate candidate = ranking.get(i);
+            List<Object> row = new ArrayList<>();
+            row.add(candidate.rmse());
+            row.add(candidate.folds);
+            searched.forEach(name -> row.add(candidate.parameters.get(name)));
+            values.put(Integer.toString(i + 1), row);
+        }
+        ArrayCalculation table = new ArrayCalculation();
+        table.setColNames(colNames);
+        table.setValues(values);
+
+        LinkedHashMap<String, Object> singleCalculations = new LinkedHashMap<>();
+        singleCalculations.put("Candidates", ranking.size());
+        singleCalculations.put("Folds", folds);
+        singleCalculations.put("Successive halving", halving);
+        singleCalculations.put("Best RMSE", ranking.get(0).rmse());
+
+        LinkedHashMap<String, ArrayCalculation> arrayCalculations = new LinkedHashMap<>();
+        arrayCalculations.put("Ranking", table);
+
+        Report report = new Report();
+        report.setSingleCalculations(singleCalculations);
+        report.setArrayCalculations(arrayCalculations);
+        return report;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.weka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * Classifies the instances of a dataset in row chunks on a bounded pool.
+ * Weka classifiers keep per-call state (filters, buffers), so every chunk
+ * works on its own copy of the classifier.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class WekaPredictor {
+
+    /**
+     * Datasets with fewer rows per worker are classified in the calling
+     * thread, where copying the classifier would cost more than it saves.
+     */
+    static final int MIN_CHUNK_SIZE = 256;
+
+    /**
+     * Bounded pool of the Weka computations of this service; also used by
+     * {@link ParameterSearch}.
+     */
+    static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Classifies every instance of the given data.
+     *
+     * @param classifier trained classifier, which is not modified
+     * @param data instances to classify
+     * @return the predictions in the order of the instances
+     * @throws Exception if any instance cannot be classified
+     */
+    public static double[] classify(Classifier classifier, Instances data) throws Exception {
+        return classify(classifier, data, POOL.getParallelism());
+    }
+
+    /**
+     * Classifies every instance of the given data in at most
+     * {@code parallelism} chunks of at least {@link #MIN_CHUNK_SIZE} rows.
+     */
+    static double[] classify(Classifier classifier, Instances data, int parallelism) throws Exception {
+        int rows = data.numInstances();
+        double[] predictions = new double[rows];
+        int chunks = Math.min(parallelism, rows / MIN_CHUNK_SIZE);
+        if (chunks <= 1) {
+            classify(classifier, data, predictions, 0, rows);
+            return predictions;
+        }
+
+        int chunkSize = (rows + chunks - 1) / chunks;
+        List<Future<Void>> futures = new ArrayList<>(chunks);
+        for (int start = 0; start < rows; start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, rows);
+            Classifier copy = Classifier.makeCopy(classifier);
+            futures.add(POOL.submit(() -> {
+                classify(copy, data, predictions, from, to);
+                return null;
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw ex;
+        }
+        return predictions;
+    }
+
+    private static void classify(Classifier classifier, Instances data, double[] predictions, int from, int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            predictions[i] = classifier.classifyInstance(data.instance(i));
+        }
+    }
+
+}
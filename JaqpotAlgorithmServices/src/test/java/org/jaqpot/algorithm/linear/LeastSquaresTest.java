@@ -0,0 +1,199 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.linear;
+
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import weka.classifiers.functions.LinearRegression;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class LeastSquaresTest {
+
+    private static final int ROWS = 50;
+
+    @Test
+    public void testDuplicateColumn() {
+        Random random = new Random(1);
+        double[] a = gaussian(random, 1);
+        double[] c = gaussian(random, 1);
+        double[] y = target(random, a, c, 2, 3, 50);
+
+        LeastSquares reduced = LeastSquares.fit(columns(a, c), ROWS, 2, y, 0);
+        LeastSquares fit = LeastSquares.fit(columns(a, a, c), ROWS, 3, y, 0);
+
+        double[] b = fit.getCoefficients();
+        assertEquals(reduced.getCoefficients()[0], b[0] + b[1], 1e-9);
+        assertEquals(reduced.getCoefficients()[1], b[2], 1e-9);
+        assertEquals(reduced.getIntercept(), fit.getIntercept(), 1e-9);
+        assertEquals(sse(reduced, columns(a, c), 2, y), sse(fit, columns(a, a, c), 3, y), 1e-6);
+    }
+
+    /**
+     * A constant column with the default ridge next to columns with a large
+     * sum of squares is not positive definite within the tolerance of the
+     * Cholesky factorization, so it is solved by QR.
+     */
+    @Test
+    public void testConstantColumn() {
+        Random random = new Random(2);
+        double[] a = gaussian(random, 100);
+        double[] constant = new double[ROWS];
+        Arrays.fill(constant, 7);
+        double[] c = gaussian(random, 100);
+        double[] y = target(random, a, c, 2, 3, 1000);
+
+        LeastSquares reduced = LeastSquares.fit(columns(a, c), ROWS, 2, y, 0);
+        LeastSquares fit = LeastSquares.fit(columns(a, constant, c), ROWS, 3, y, 1e-8);
+
+        double[] b = fit.getCoefficients();
+        assertEquals(0, b[1], 0);
+        assertEquals(reduced.getCoefficients()[0], b[0], 1e-6);
+        assertEquals(reduced.getCoefficients()[1], b[2], 1e-6);
+        assertEquals(reduced.getIntercept(), fit.getIntercept(), 1e-4);
+    }
+
+    @Test
+    public void testQrAgreesWithNormalEquations() {
+        Random random = new Random(3);
+        int columns = 5;
+        double[] x = new double[ROWS * columns];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian() * (1 + i / ROWS);
+        }
+        double[] y = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            y[i] = random.nextGaussian() * 10;
+            for (int j = 0; j < columns; j++) {
+                y[i] += (j + 1) * x[j * ROWS + i];
+            }
+        }
+
+        // fit centers x in place, which is the input of qrSolve
+        LeastSquares fit = LeastSquares.fit(x, ROWS, columns, y, 0);
+        double meanY = 0;
+        for (double v : y) {
+            meanY += v / ROWS;
+        }
+        double[] centeredY = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            centeredY[i] = y[i] - meanY;
+        }
+        assertArrayEquals(fit.getCoefficients(), LeastSquares.qrSolve(x, ROWS, columns, centeredY), 1e-9);
+    }
+
+    @Test
+    public void testAgreesWithWeka() throws Exception {
+        Random random = new Random(4);
+        int columns = 10;
+        FastVector attributes = new FastVector();
+        for (int j = 0; j <= columns; j++) {
+            attributes.addElement(new Attribute("x" + j));
+        }
+        Instances instances = new Instances("data", attributes, ROWS);
+        instances.setClassIndex(columns);
+        double[] x = new double[ROWS * columns];
+        double[] y = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            double[] row = new double[columns + 1];
+            for (int j = 0; j < columns; j++) {
+                row[j] = random.nextGaussian();
+                row[columns] += j * row[j];
+                x[j * ROWS + i] = row[j];
+            }
+            row[columns] += random.nextGaussian();
+            y[i] = row[columns];
+            instances.add(new Instance(1, row));
+        }
+
+        LinearRegression weka = new LinearRegression();
+        weka.setAttributeSelectionMethod(new SelectedTag(LinearRegression.SELECTION_NONE, LinearRegression.TAGS_SELECTION));
+        weka.setEliminateColinearAttributes(false);
+        weka.setRidge(1e-8);
+        weka.buildClassifier(instances);
+        LeastSquares fit = LeastSquares.fit(x.clone(), ROWS, columns, y, 1e-8);
+
+        for (int i = 0; i < ROWS; i++) {
+            double prediction = fit.getIntercept();
+            for (int j = 0; j < columns; j++) {
+                prediction += fit.getCoefficients()[j] * x[j * ROWS + i];
+            }
+            assertEquals(weka.classifyInstance(instances.instance(i)), prediction, 2e-6);
+        }
+    }
+
+    private static double[] gaussian(Random random, double scale) {
+        double[] values = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            values[i] = random.nextGaussian() * scale;
+        }
+        return values;
+    }
+
+    private static double[] target(Random random, double[] a, double[] c, double ba, double bc, double noise) {
+        double[] y = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            y[i] = ba * a[i] + bc * c[i] + random.nextGaussian() * noise;
+        }
+        return y;
+    }
+
+    private static double[] columns(double[]... columns) {
+        double[] x = new double[ROWS * columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            System.arraycopy(columns[j], 0, x, j * ROWS, ROWS);
+        }
+        return x;
+    }
+
+    private static double sse(LeastSquares fit, double[] x, int columns, double[] y) {
+        double sse = 0;
+        for (int i = 0; i < ROWS; i++) {
+            double prediction = fit.getIntercept();
+            for (int j = 0; j < columns; j++) {
+                prediction += fit.getCoefficients()[j] * x[j * ROWS + i];
+            }
+            sse += (y[i] - prediction) * (y[i] - prediction);
+        }
+        return sse;
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import weka.classifiers.functions.LinearRegression;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ModelEnvelopeTest {
+
+    @Test
+    public void testLeverageRoundTrip() throws Exception {
+        LeverageModel model = new LeverageModel();
+        model.setGamma(0.75);
+        model.setInverse(new double[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, Double.NaN}});
+
+        LeverageModel read = ModelEnvelope.read(ModelEnvelope.write(model), LeverageModel.class);
+
+        assertEquals(0.75, read.getGamma(), 0);
+        assertNull(read.getOmega());
+        assertEquals(3, read.getInverse().length);
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(model.getInverse()[i], read.getInverse()[i], 0);
+        }
+    }
+
+    @Test
+    public void testScalingRoundTrip() throws Exception {
+        ScalingModel model = new ScalingModel();
+        LinkedHashMap<String, Double> min = new LinkedHashMap<>();
+        LinkedHashMap<String, Double> max = new LinkedHashMap<>();
+        // large enough to be deflated
+        for (int i = 200; i > 0; i--) {
+            min.put("http://localhost:8080/jaqpot/services/feature/" + i, -i / 3.0);
+            max.put("http://localhost:8080/jaqpot/services/feature/" + i, i / 3.0);
+        }
+        model.setMinValues(min);
+        model.setMaxValues(max);
+
+        String raw = ModelEnvelope.write(model);
+        ScalingModel read = ModelEnvelope.read(raw, ScalingModel.class);
+
+        assertTrue(Base64.getDecoder().decode(raw).length < serialize(model).length);
+        assertEquals(new ArrayList<>(min.entrySet()), new ArrayList<>(read.getMinValues().entrySet()));
+        assertEquals(new ArrayList<>(max.entrySet()), new ArrayList<>(read.getMaxValues().entrySet()));
+    }
+
+    @Test
+    public void testPmmlRoundTrip() throws Exception {
+        for (String pmml : Arrays.asList("<PMML/>", String.join("", Collections.nCopies(500, "<DerivedField name=\"x\"/>")))) {
+            PmmlModel model = new PmmlModel();
+            model.setPmmlString(pmml);
+            assertEquals(pmml, ModelEnvelope.read(ModelEnvelope.write(model), PmmlModel.class).getPmmlString());
+        }
+    }
+
+    @Test
+    public void testLinearRoundTrip() throws Exception {
+        LinearModel model = new LinearModel();
+        model.setFeatures(Arrays.asList("a", "b"));
+        model.setCoefficients(new double[]{1.5, -2});
+        model.setMeans(new double[]{0.25, 3});
+        model.setIntercept(4);
+
+        LinearModel read = ModelEnvelope.read(ModelEnvelope.write(model), LinearModel.class);
+
+        assertEquals(model.getFeatures(), read.getFeatures());
+        assertArrayEquals(model.getCoefficients(), read.getCoefficients(), 0);
+        assertArrayEquals(model.getMeans(), read.getMeans(), 0);
+        assertEquals(4, read.getIntercept(), 0);
+    }
+
+    @Test
+    public void testWekaRoundTrip() throws Exception {
+        WekaModel model = wekaModel();
+        Instances data = data();
+
+        WekaModel read = ModelEnvelope.read(ModelEnvelope.write(model), WekaModel.class);
+
+        for (int i = 0; i < data.numInstances(); i++) {
+            assertEquals(model.getClassifier().classifyInstance(data.instance(i)),
+                    read.getClassifier().classifyInstance(data.instance(i)), 0);
+        }
+    }
+
+    @Test
+    public void testLegacyModelsAreRead() throws Exception {
+        ScalingModel scaling = new ScalingModel();
+        scaling.setMinValues(new LinkedHashMap<>());
+        scaling.getMinValues().put("a", 1.0);
+        scaling.setMaxValues(new LinkedHashMap<>());
+        scaling.getMaxValues().put("a", 2.0);
+        String legacy = Base64.getEncoder().encodeToString(serialize(scaling));
+
+        ScalingModel read = ModelEnvelope.read(legacy, ScalingModel.class);
+        assertEquals(scaling.getMinValues(), read.getMinValues());
+        assertEquals(scaling.getMaxValues(), read.getMaxValues());
+
+        WekaModel weka = wekaModel();
+        Instances data = data();
+        WekaModel readWeka = ModelEnvelope.read(Base64.getEncoder().encodeToString(serialize(weka)), WekaModel.class);
+        assertEquals(weka.getClassifier().classifyInstance(data.instance(0)),
+                readWeka.getClassifier().classifyInstance(data.instance(0)), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNewerVersionIsRejected() throws Exception {
+        PmmlModel model = new PmmlModel();
+        model.setPmmlString("<PMML/>");
+        byte[] envelope = Base64.getDecoder().decode(ModelEnvelope.write(model));
+        envelope[3]++;
+        ModelEnvelope.read(Base64.getEncoder().encodeToString(envelope), PmmlModel.class);
+    }
+
+    private static byte[] serialize(Serializable model) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(model);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Instances data() {
+        FastVector attributes = new FastVector();
+        attributes.addElement(new Attribute("x"));
+        attributes.addElement(new Attribute("y"));
+        Instances data = new Instances("data", attributes, 10);
+        data.setClassIndex(1);
+        for (int i = 0; i < 10; i++) {
+            data.add(new Instance(1, new double[]{i, 2 * i + (i % 3)}));
+        }
+        return data;
+    }
+
+    private static WekaModel wekaModel() throws Exception {
+        LinearRegression classifier = new LinearRegression();
+        classifier.buildClassifier(data());
+        WekaModel model = new WekaModel();
+        model.setClassifier(classifier);
+        return model;
+    }
+
+}
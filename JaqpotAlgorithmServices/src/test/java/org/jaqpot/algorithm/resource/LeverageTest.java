@@ -0,0 +1,225 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.resource;
+
+import Jama.Matrix;
+import Jama.SingularValueDecomposition;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import javax.ws.rs.core.Response;
+import org.jaqpot.algorithm.model.LeverageModel;
+import org.jaqpot.algorithm.model.ModelEnvelope;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
+import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
+import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Compares the leverage service with the computation it replaced, which
+ * inverted omega = X^T X on every prediction and scored each row x as
+ * x (X^T X)^+ x^T with JAMA matrices.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class LeverageTest {
+
+    private static final double[][] TRAINING = {
+        {1.0, 2.0, 0.5},
+        {2.0, 0.0, 1.5},
+        {0.5, 1.0, 3.0},
+        {3.0, 2.5, 0.0},
+        {1.5, 1.5, 1.5},
+        {0.0, 3.0, 2.0},
+        {2.5, 0.5, 1.0},
+        {1.0, 1.0, 0.0}
+    };
+
+    private static final double[][] QUERIES = {
+        {1.0, 1.0, 1.0},
+        {0.0, 0.0, 0.0},
+        {10.0, -4.0, 2.0},
+        {2.0, 0.0, 1.5},
+        {0.0, 5.0, 0.0}
+    };
+
+    @Test
+    public void testFixedDataset() throws Exception {
+        assertAgreesWithOldComputation(TRAINING, QUERIES);
+    }
+
+    @Test
+    public void testRankDeficientDataset() throws Exception {
+        // the last column is the sum of the first two
+        double[][] training = new double[TRAINING.length][];
+        for (int i = 0; i < TRAINING.length; i++) {
+            double[] row = TRAINING[i];
+            training[i] = new double[]{row[0], row[1], row[2], row[0] + row[1]};
+        }
+        double[][] queries = new double[QUERIES.length + 1][];
+        for (int i = 0; i < QUERIES.length; i++) {
+            double[] row = QUERIES[i];
+            queries[i] = new double[]{row[0], row[1], row[2], row[0] + row[1]};
+        }
+        queries[QUERIES.length] = new double[]{1.0, 1.0, 1.0, 5.0};
+        assertAgreesWithOldComputation(training, queries);
+    }
+
+    @Test
+    public void testManyBlocks() throws Exception {
+        Random random = new Random(17);
+        double[][] training = random(random, 200, 6);
+        double[][] queries = random(random, 333, 6);
+        for (int i = 0; i < queries.length; i += 5) {
+            queries[i][i % 6] = 0.0;
+        }
+        assertAgreesWithOldComputation(training, queries);
+    }
+
+    @Test
+    public void testModelWithoutInverse() throws Exception {
+        Matrix data = new Matrix(TRAINING);
+        LeverageModel model = new LeverageModel();
+        model.setOmega(data.transpose().times(data).getArray());
+        model.setGamma(3.0 * 3 / TRAINING.length);
+
+        double[] actual = predict(ModelEnvelope.write(model), QUERIES);
+        double[] expected = oldComputation(TRAINING, QUERIES);
+        for (int i = 0; i < QUERIES.length; i++) {
+            assertEquals(expected[i], actual[i], 1e-12);
+        }
+    }
+
+    private static void assertAgreesWithOldComputation(double[][] training, double[][] queries) throws Exception {
+        TrainingRequest request = new TrainingRequest();
+        request.setDataset(dataset(training, true));
+        request.setPredictionFeature("y");
+        Response response = new Leverage().training(request);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        Object rawModel = ((TrainingResponse) response.getEntity()).getRawModel();
+
+        LeverageModel model = ModelEnvelope.read(rawModel, LeverageModel.class);
+        assertEquals(3.0 * training[0].length / training.length, model.getGamma(), 0.0);
+
+        double[] actual = predict(rawModel, queries);
+        double[] expected = oldComputation(training, queries);
+        boolean inside = false;
+        for (int i = 0; i < queries.length; i++) {
+            assertEquals(expected[i], actual[i], 1e-9);
+            inside |= expected[i] > 0 && expected[i] < 1;
+        }
+        // at least one indicator is not clipped, so leverages are compared
+        assertTrue(inside);
+    }
+
+    private static double[] predict(Object rawModel, double[][] queries) {
+        PredictionRequest request = new PredictionRequest();
+        request.setDataset(dataset(queries, false));
+        request.setRawModel(rawModel);
+        Response response = new Leverage().prediction(request);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        List<LinkedHashMap<String, Object>> predictions = ((PredictionResponse) response.getEntity()).getPredictions();
+        assertEquals(queries.length, predictions.size());
+        double[] indicators = new double[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            indicators[i] = (Double) predictions.get(i).get("Leverage DoA");
+        }
+        return indicators;
+    }
+
+    /**
+     * The indicators as they were computed before the pseudo-inverse was
+     * stored in the model.
+     */
+    private static double[] oldComputation(double[][] training, double[][] queries) {
+        Matrix dataMatrix = new Matrix(training);
+        Matrix omega = dataMatrix.transpose().times(dataMatrix);
+        double gamma = (3.0 * training[0].length) / training.length;
+
+        SingularValueDecomposition svd = omega.svd();
+        Matrix S = svd.getS();
+        Matrix U = svd.getU();
+        Matrix V = svd.getV();
+        for (int i = 0; i < S.getRowDimension(); i++) {
+            if (Math.abs(S.get(i, i)) > 1e-6) {
+                S.set(i, i, 1 / S.get(i, i));
+            }
+        }
+        Matrix pseudoInverse = U.times(S).times(V.transpose());
+
+        Matrix queryMatrix = new Matrix(queries);
+        double[] indicators = new double[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            Matrix x = queryMatrix.getMatrix(i, i, 0, queries[0].length - 1);
+            indicators[i] = Math.max(0, (gamma - x.times(pseudoInverse.times(x.transpose())).get(0, 0)) / gamma);
+        }
+        return indicators;
+    }
+
+    private static double[][] random(Random random, int rows, int columns) {
+        double[][] data = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                data[i][j] = random.nextGaussian();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Features are named so that their order in the data entries is the
+     * order of the columns.
+     */
+    private static Dataset dataset(double[][] data, boolean withPredictionFeature) {
+        List<DataEntry> entries = new ArrayList<>();
+        for (double[] row : data) {
+            TreeMap<String, Object> values = new TreeMap<>();
+            for (int j = 0; j < row.length; j++) {
+                values.put("x" + j, row[j]);
+            }
+            if (withPredictionFeature) {
+                values.put("y", 1.0);
+            }
+            DataEntry entry = new DataEntry();
+            entry.setValues(values);
+            entries.add(entry);
+        }
+        Dataset dataset = new Dataset();
+        dataset.setDataEntry(entries);
+        return dataset;
+    }
+}
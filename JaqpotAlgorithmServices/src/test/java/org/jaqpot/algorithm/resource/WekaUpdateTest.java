@@ -0,0 +1,191 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import javax.ws.rs.core.Response;
+import org.jaqpot.algorithm.model.ModelEnvelope;
+import org.jaqpot.algorithm.model.WekaModel;
+import org.jaqpot.algorithm.weka.IncrementalRegression;
+import org.jaqpot.algorithm.weka.InstanceUtils;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
+import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import weka.classifiers.functions.LinearRegression;
+
+/**
+ * Round trips of the incremental training and update endpoints. The MLR
+ * requests that are rejected never reach the PMML export, so their raw models
+ * are built here directly.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class WekaUpdateTest {
+
+    private static final String Y = "y";
+
+    @Test
+    public void testPlsUpdateEqualsTrainingOnTheUnion() throws Exception {
+        WekaPLS pls = new WekaPLS();
+        Random random = new Random(11);
+        List<DataEntry> first = entries(random, 20);
+        List<DataEntry> second = entries(random, 15);
+
+        TrainingRequest request = request(first, null, true);
+        request.getParameters().put("components", 2);
+        TrainingResponse trained = ok(pls.training(request));
+        TrainingResponse updated = ok(pls.update(request(second, trained.getRawModel(), false)));
+        TrainingRequest unionRequest = request(union(first, second), null, true);
+        unionRequest.getParameters().put("components", 2);
+        TrainingResponse union = ok(pls.training(unionRequest));
+
+        assertEquals(IncrementalRegression.Method.PLS, regression(updated).getMethod());
+        assertCoefficients(regression(union), regression(updated));
+    }
+
+    @Test
+    public void testModelThatIsNotIncrementalIsRejected() throws Exception {
+        WekaMLR mlr = new WekaMLR();
+        Random random = new Random(3);
+        LinearRegression linreg = new LinearRegression();
+        linreg.buildClassifier(InstanceUtils.createFromDataset(request(entries(random, 10), null, false).getDataset(), Y));
+        WekaModel model = new WekaModel();
+        model.setClassifier(linreg);
+
+        Response response = mlr.update(request(entries(random, 5), ModelEnvelope.write(model), false));
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testMissingModelAndEmptyDatasetAreRejected() throws Exception {
+        WekaMLR mlr = new WekaMLR();
+        Random random = new Random(5);
+        String rawModel = incremental(entries(random, 10));
+
+        Response response = mlr.update(request(entries(random, 5), null, false));
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+        response = mlr.update(request(new ArrayList<>(), rawModel, false));
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    public void testMissingFeatureIsRejected() throws Exception {
+        WekaMLR mlr = new WekaMLR();
+        Random random = new Random(9);
+        String rawModel = incremental(entries(random, 10));
+
+        List<DataEntry> other = entries(random, 5);
+        other.forEach(entry -> entry.getValues().remove("x2"));
+        Response response = mlr.update(request(other, rawModel, false));
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
+
+    private static List<DataEntry> entries(Random random, int rows) {
+        List<DataEntry> entries = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            double x1 = random.nextGaussian();
+            double x2 = random.nextGaussian();
+            TreeMap<String, Object> values = new TreeMap<>();
+            values.put("x1", x1);
+            values.put("x2", x2);
+            values.put(Y, 1.5 + 2 * x1 - 0.5 * x2 + 0.1 * random.nextGaussian());
+            DataEntry entry = new DataEntry();
+            entry.setValues(values);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static List<DataEntry> union(List<DataEntry> first, List<DataEntry> second) {
+        List<DataEntry> union = new ArrayList<>(first);
+        union.addAll(second);
+        return union;
+    }
+
+    private static TrainingRequest request(List<DataEntry> entries, Object rawModel, boolean incremental) {
+        Dataset dataset = new Dataset();
+        dataset.setDatasetURI("dataset");
+        dataset.setDataEntry(entries);
+        dataset.setFeatures(new HashSet<>(Arrays.asList(
+                new FeatureInfo("x1", "x1"),
+                new FeatureInfo("x2", "x2"),
+                new FeatureInfo(Y, "Y"))));
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("incremental", incremental);
+
+        TrainingRequest request = new TrainingRequest();
+        request.setDataset(dataset);
+        request.setPredictionFeature(Y);
+        request.setParameters(parameters);
+        request.setRawModel(rawModel);
+        return request;
+    }
+
+    private static String incremental(List<DataEntry> entries) throws Exception {
+        IncrementalRegression regression = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, 1e-8);
+        regression.buildClassifier(InstanceUtils.createFromDataset(request(entries, null, true).getDataset(), Y));
+        WekaModel model = new WekaModel();
+        model.setClassifier(regression);
+        return ModelEnvelope.write(model);
+    }
+
+    private static TrainingResponse ok(Response response) {
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        return (TrainingResponse) response.getEntity();
+    }
+
+    private static IncrementalRegression regression(TrainingResponse response) throws Exception {
+        WekaModel model = ModelEnvelope.read(response.getRawModel(), WekaModel.class);
+        return (IncrementalRegression) model.getClassifier();
+    }
+
+    private static void assertCoefficients(IncrementalRegression expected, IncrementalRegression actual) {
+        List<String> features = Arrays.asList("x1", "x2", Y);
+        double[] a = expected.coefficients(features);
+        double[] b = actual.coefficients(features);
+        assertEquals(a.length, b.length);
+        for (int i = 0; i < a.length; i++) {
+            assertEquals(a[i], b[i], 1e-9 * Math.max(1, Math.abs(a[i])));
+        }
+    }
+}
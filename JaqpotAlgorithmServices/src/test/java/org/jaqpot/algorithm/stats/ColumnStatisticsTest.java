@@ -0,0 +1,173 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.apache.commons.math3.stat.StatUtils;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ColumnStatisticsTest {
+
+    private static final List<String> FEATURES = Arrays.asList("gaussian", "shifted", "integer", "text", "constant");
+
+    @Test
+    public void testSmallDataset() {
+        assertAgreesWithStatUtils(columns(new Random(1), 100));
+    }
+
+    @Test
+    public void testDatasetOfManyBlocks() {
+        assertAgreesWithStatUtils(columns(new Random(2), 10001));
+    }
+
+    @Test
+    public void testSingleRow() {
+        double[][] columns = columns(new Random(3), 1);
+        ColumnStatistics stats = assertAgreesWithStatUtils(columns);
+        for (int j = 0; j < FEATURES.size(); j++) {
+            assertEquals(0.0, stats.getVariance(j), 0.0);
+            assertEquals(stats.getMin(j), stats.getMax(j), 0.0);
+        }
+    }
+
+    @Test
+    public void testConstantColumn() {
+        for (int rows : new int[]{5, 10001}) {
+            ColumnStatistics stats = assertAgreesWithStatUtils(columns(new Random(4), rows));
+            int constant = FEATURES.indexOf("constant");
+            assertEquals(0.0, stats.getVariance(constant), 0.0);
+            assertEquals(0.0, stats.getStandardDeviation(constant), 0.0);
+            assertEquals(0.1, stats.getMean(constant), 0.0);
+        }
+    }
+
+    @Test
+    public void testNaNValues() {
+        for (int rows : new int[]{50, 10001}) {
+            Random random = new Random(5);
+            double[][] columns = columns(random, rows);
+            for (int i = 0; i < rows; i += 7) {
+                columns[0][i] = Double.NaN;
+            }
+            columns[1][0] = Double.NaN;
+            columns[2][rows - 1] = Double.NaN;
+            Arrays.fill(columns[3], Double.NaN);
+
+            ColumnStatistics stats = assertAgreesWithStatUtils(columns);
+            assertTrue(Double.isNaN(stats.getMean(0)));
+            assertFalse(Double.isNaN(stats.getMin(0)));
+            assertFalse(Double.isNaN(stats.getMax(1)));
+            assertTrue(Double.isNaN(stats.getMin(3)));
+            assertTrue(Double.isNaN(stats.getMax(3)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAbsentValueIsRejected() {
+        List<DataEntry> entries = entries(columns(new Random(6), 20));
+        entries.get(10).getValues().remove("shifted");
+        ColumnStatistics.of(entries, FEATURES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValueIsRejected() {
+        List<DataEntry> entries = entries(columns(new Random(7), 10001));
+        entries.get(9000).getValues().put("integer", null);
+        ColumnStatistics.of(entries, FEATURES);
+    }
+
+    /**
+     * Random columns in the order of {@link #FEATURES}: standard normal,
+     * normal far from zero, small integers, normal values that are stored as
+     * strings and a constant.
+     */
+    private static double[][] columns(Random random, int rows) {
+        double[][] columns = new double[FEATURES.size()][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = random.nextGaussian();
+            columns[1][i] = 1e6 + 3 * random.nextGaussian();
+            columns[2][i] = random.nextInt(10);
+            columns[3][i] = random.nextGaussian();
+            columns[4][i] = 0.1;
+        }
+        return columns;
+    }
+
+    private static List<DataEntry> entries(double[][] columns) {
+        List<DataEntry> entries = new ArrayList<>();
+        for (int i = 0; i < columns[0].length; i++) {
+            TreeMap<String, Object> values = new TreeMap<>();
+            values.put("gaussian", columns[0][i]);
+            values.put("shifted", columns[1][i]);
+            values.put("integer", (int) columns[2][i]);
+            values.put("text", Double.toString(columns[3][i]));
+            values.put("constant", columns[4][i]);
+            if (Double.isNaN(columns[2][i])) {
+                values.put("integer", Double.NaN);
+            }
+            DataEntry entry = new DataEntry();
+            entry.setValues(values);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static ColumnStatistics assertAgreesWithStatUtils(double[][] columns) {
+        ColumnStatistics stats = ColumnStatistics.of(entries(columns), FEATURES);
+        assertEquals(columns[0].length, stats.getCount());
+        for (int j = 0; j < columns.length; j++) {
+            double[] column = columns[j];
+            assertEquals(StatUtils.min(column), stats.getMin(j), 0.0);
+            assertEquals(StatUtils.max(column), stats.getMax(j), 0.0);
+            assertClose(StatUtils.mean(column), stats.getMean(j), 1e-12);
+            assertClose(StatUtils.variance(column), stats.getVariance(j), 1e-9);
+        }
+        return stats;
+    }
+
+    private static void assertClose(double expected, double actual, double relative) {
+        if (Double.isNaN(expected)) {
+            assertTrue(Double.isNaN(actual));
+            return;
+        }
+        assertEquals(expected, actual, relative * Math.max(1, Math.abs(expected)));
+    }
+}
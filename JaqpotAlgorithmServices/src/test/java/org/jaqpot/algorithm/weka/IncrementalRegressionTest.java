@@ -0,0 +1,265 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.weka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.LinearRegression;
+import weka.classifiers.functions.PLSClassifier;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.filters.supervised.attribute.PLSFilter;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class IncrementalRegressionTest {
+
+    private static final int ROWS = 60;
+
+    private static final int COLUMNS = 5;
+
+    @Test
+    public void testMlrAgreesWithWeka() throws Exception {
+        Instances data = data(new Random(1), ROWS, COLUMNS, 1000);
+
+        LinearRegression weka = new LinearRegression();
+        weka.setAttributeSelectionMethod(new SelectedTag(LinearRegression.SELECTION_NONE, LinearRegression.TAGS_SELECTION));
+        weka.setEliminateColinearAttributes(false);
+        weka.setRidge(1e-8);
+        weka.buildClassifier(data);
+        IncrementalRegression regression = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, 1e-8);
+        regression.buildClassifier(data);
+
+        assertClose(weka.coefficients(), regression.coefficients(names(data)), 1e-6);
+        assertPredictions(weka, regression, data, 1e-6);
+    }
+
+    /**
+     * The filter is configured directly, since the options of PLSClassifier
+     * do not reach its filter.
+     */
+    @Test
+    public void testPlsAgreesWithWeka() throws Exception {
+        Instances data = data(new Random(2), ROWS, COLUMNS, 1000);
+
+        for (int components = 1; components <= COLUMNS; components++) {
+            PLSFilter filter = new PLSFilter();
+            filter.setNumComponents(components);
+            filter.setAlgorithm(new SelectedTag(PLSFilter.ALGORITHM_PLS1, PLSFilter.TAGS_ALGORITHM));
+            filter.setPreprocessing(new SelectedTag(PLSFilter.PREPROCESSING_CENTER, PLSFilter.TAGS_PREPROCESSING));
+            PLSClassifier weka = new PLSClassifier();
+            weka.setFilter(filter);
+            weka.buildClassifier(data);
+            IncrementalRegression regression = new IncrementalRegression(IncrementalRegression.Method.PLS, components, 0);
+            regression.buildClassifier(data);
+
+            assertPredictions(weka, regression, data, 1e-9);
+        }
+    }
+
+    @Test
+    public void testPlsWithAllComponentsIsMlr() throws Exception {
+        Instances data = data(new Random(3), ROWS, COLUMNS, 1);
+
+        IncrementalRegression pls = new IncrementalRegression(IncrementalRegression.Method.PLS, COLUMNS, 0);
+        pls.buildClassifier(data);
+        IncrementalRegression mlr = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, 0);
+        mlr.buildClassifier(data);
+
+        assertArrayEquals(mlr.coefficients(names(data)), pls.coefficients(names(data)), 1e-8);
+    }
+
+    @Test
+    public void testUpdateEqualsTrainingOnTheUnion() throws Exception {
+        Random random = new Random(4);
+        Instances first = data(random, 35, COLUMNS, 1e6);
+        Instances second = data(random, 25, COLUMNS, 1e6);
+        Instances union = new Instances(first);
+        for (int i = 0; i < second.numInstances(); i++) {
+            union.add(second.instance(i));
+        }
+
+        for (IncrementalRegression.Method method : IncrementalRegression.Method.values()) {
+            IncrementalRegression updated = new IncrementalRegression(method, 3, 1e-8);
+            updated.buildClassifier(first);
+            updated.update(second);
+            IncrementalRegression trained = new IncrementalRegression(method, 3, 1e-8);
+            trained.buildClassifier(union);
+
+            assertEquals(ROWS, updated.getCount());
+            assertClose(trained.coefficients(names(union)), updated.coefficients(names(union)), 1e-9);
+        }
+    }
+
+    @Test
+    public void testUpdateRowByRow() throws Exception {
+        Instances data = data(new Random(5), ROWS, COLUMNS, 10);
+        Instances first = new Instances(data, 0, 2);
+
+        IncrementalRegression updated = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, 1e-8);
+        updated.buildClassifier(first);
+        for (int i = 2; i < ROWS; i++) {
+            updated.updateClassifier(data.instance(i));
+        }
+        IncrementalRegression trained = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, 1e-8);
+        trained.buildClassifier(data);
+
+        assertArrayEquals(trained.coefficients(names(data)), updated.coefficients(names(data)), 1e-8);
+    }
+
+    @Test
+    public void testSingleRow() throws Exception {
+        Instances data = data(new Random(6), 1, COLUMNS, 1);
+        double y = data.instance(0).classValue();
+
+        for (IncrementalRegression.Method method : IncrementalRegression.Method.values()) {
+            IncrementalRegression regression = new IncrementalRegression(method, 2, 1e-8);
+            regression.buildClassifier(data);
+
+            assertEquals(y, regression.classifyInstance(data.instance(0)), 0);
+            double[] coefficients = regression.coefficients(names(data));
+            assertArrayEquals(new double[COLUMNS + 1], Arrays.copyOf(coefficients, COLUMNS + 1), 0);
+        }
+    }
+
+    @Test
+    public void testComponentsAreCappedByRowsAndColumns() throws Exception {
+        Instances data = data(new Random(7), 4, COLUMNS, 1);
+
+        IncrementalRegression capped = new IncrementalRegression(IncrementalRegression.Method.PLS, 20, 0);
+        capped.buildClassifier(data);
+        IncrementalRegression three = new IncrementalRegression(IncrementalRegression.Method.PLS, 3, 0);
+        three.buildClassifier(data);
+
+        // four centered rows have rank three
+        assertArrayEquals(three.coefficients(names(data)), capped.coefficients(names(data)), 1e-9);
+        for (int i = 0; i < data.numInstances(); i++) {
+            assertEquals(data.instance(i).classValue(), capped.classifyInstance(data.instance(i)), 1e-8);
+        }
+    }
+
+    @Test
+    public void testConstantColumn() throws Exception {
+        Instances data = data(new Random(8), ROWS, COLUMNS, 1);
+        for (int i = 0; i < ROWS; i++) {
+            data.instance(i).setValue(1, 7);
+        }
+        Instances reduced = new Instances(data);
+        reduced.deleteAttributeAt(1);
+
+        for (IncrementalRegression.Method method : IncrementalRegression.Method.values()) {
+            IncrementalRegression regression = new IncrementalRegression(method, 2, 1e-8);
+            regression.buildClassifier(data);
+            IncrementalRegression expected = new IncrementalRegression(method, 2, 1e-8);
+            expected.buildClassifier(reduced);
+
+            double[] coefficients = regression.coefficients(names(data));
+            assertEquals(0, coefficients[1], 1e-12);
+            for (int i = 0; i < ROWS; i++) {
+                assertEquals(expected.classifyInstance(reduced.instance(i)), regression.classifyInstance(data.instance(i)), 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void testRowsWithMissingValuesAreSkipped() throws Exception {
+        Instances data = data(new Random(9), ROWS, COLUMNS, 1);
+        Instances complete = new Instances(data);
+        data.instance(3).setMissing(2);
+        data.instance(7).setClassMissing();
+        complete.delete(7);
+        complete.delete(3);
+
+        IncrementalRegression regression = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, 1e-8);
+        regression.buildClassifier(data);
+        IncrementalRegression expected = new IncrementalRegression(IncrementalRegression.Method.MLR, 0, 1e-8);
+        expected.buildClassifier(complete);
+
+        assertEquals(ROWS - 2, regression.getCount());
+        assertArrayEquals(expected.coefficients(names(data)), regression.coefficients(names(data)), 1e-12);
+    }
+
+    /**
+     * Rows of the given number of features around the given mean, with the
+     * class last and a linear function of the features plus noise.
+     */
+    private static Instances data(Random random, int rows, int columns, double mean) {
+        FastVector attributes = new FastVector();
+        for (int j = 0; j <= columns; j++) {
+            attributes.addElement(new Attribute(j < columns ? "x" + j : "y"));
+        }
+        Instances instances = new Instances("data", attributes, rows);
+        instances.setClassIndex(columns);
+        for (int i = 0; i < rows; i++) {
+            double[] row = new double[columns + 1];
+            for (int j = 0; j < columns; j++) {
+                row[j] = mean + random.nextGaussian() * (j + 1);
+                row[columns] += (j - 2) * row[j];
+            }
+            row[columns] += random.nextGaussian();
+            instances.add(new Instance(1, row));
+        }
+        return instances;
+    }
+
+    private static List<String> names(Instances data) {
+        List<String> names = new ArrayList<>();
+        for (int j = 0; j < data.numAttributes(); j++) {
+            names.add(data.attribute(j).name());
+        }
+        return names;
+    }
+
+    private static void assertClose(double[] expected, double[] actual, double relative) {
+        assertEquals(expected.length, actual.length);
+        for (int j = 0; j < expected.length; j++) {
+            assertEquals(expected[j], actual[j], relative * Math.max(1, Math.abs(expected[j])));
+        }
+    }
+
+    private static void assertPredictions(Classifier expected, Classifier actual, Instances data, double delta) throws Exception {
+        for (int i = 0; i < data.numInstances(); i++) {
+            assertEquals(expected.classifyInstance(data.instance(i)), actual.classifyInstance(data.instance(i)), delta);
+        }
+    }
+
+}
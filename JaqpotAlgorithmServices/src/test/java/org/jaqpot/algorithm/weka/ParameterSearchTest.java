@@ -0,0 +1,323 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.weka;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.Response;
+import org.jaqpot.core.model.ArrayCalculation;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
+import org.jaqpot.core.model.dto.jpdi.SearchResponse;
+import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * The candidates of the search are recorded by a factory of classifiers that
+ * predict the value of parameter {@code a}. The prediction feature is zero,
+ * so the RMSE of a candidate is the absolute value of its {@code a}.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ParameterSearchTest {
+
+    private static final int ROWS = 18;
+
+    private static class ConstantClassifier extends Classifier {
+
+        private final double value;
+
+        private ConstantClassifier(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public void buildClassifier(Instances data) {
+        }
+
+        @Override
+        public double classifyInstance(Instance instance) {
+            return value;
+        }
+    }
+
+    private static class RecordingFactory implements ParameterSearch.ClassifierFactory {
+
+        private final Map<Map<String, Object>, AtomicInteger> created = new ConcurrentHashMap<>();
+
+        @Override
+        public Classifier create(Map<String, Object> parameters) {
+            created.computeIfAbsent(new HashMap<>(parameters), p -> new AtomicInteger()).incrementAndGet();
+            return new ConstantClassifier(((Number) parameters.get("a")).doubleValue());
+        }
+    }
+
+    @Test
+    public void testGridIsEnumeratedOnce() {
+        Map<String, Object> space = new HashMap<>();
+        space.put("a", Arrays.asList(3, 1, 2));
+        space.put("b", Arrays.asList("x", "y"));
+        RecordingFactory factory = new RecordingFactory();
+
+        SearchResponse response = ok(run(parameters(space, 3), factory));
+
+        assertEquals(6, factory.created.size());
+        for (Object a : Arrays.asList(1, 2, 3)) {
+            for (Object b : Arrays.asList("x", "y")) {
+                Map<String, Object> point = new HashMap<>();
+                point.put("a", a);
+                point.put("b", b);
+                point.put("fixed", "kept");
+                assertEquals(3, factory.created.get(point).get());
+            }
+        }
+        assertEquals(6, ranking(response).size());
+        assertEquals(1, response.getParameters().get("a"));
+        assertEquals("kept", response.getParameters().get("fixed"));
+    }
+
+    @Test
+    public void testSamplesAreDistinctAndDeterministic() {
+        Map<String, Object> space = new HashMap<>();
+        space.put("a", range(10));
+        space.put("b", range(10));
+        space.put("c", range(10));
+
+        Map<String, Object> parameters = parameters(space, 2);
+        parameters.put("samples", 50);
+        parameters.put("shuffleSeed", 42);
+        RecordingFactory first = new RecordingFactory();
+        SearchResponse response = ok(run(parameters, first));
+        RecordingFactory second = new RecordingFactory();
+        ok(run(new HashMap<>(parameters), second));
+        parameters.put("shuffleSeed", 43);
+        RecordingFactory other = new RecordingFactory();
+        ok(run(parameters, other));
+
+        assertEquals(50, first.created.size());
+        assertEquals(50, ranking(response).size());
+        first.created.values().forEach(count -> assertEquals(2, count.get()));
+        assertEquals(first.created.keySet(), second.created.keySet());
+        assertFalse(first.created.keySet().equals(other.created.keySet()));
+    }
+
+    @Test
+    public void testSamplesCoveringTheGridEnumerateIt() {
+        Map<String, Object> space = new HashMap<>();
+        space.put("a", range(4));
+        Map<String, Object> parameters = parameters(space, 2);
+        parameters.put("samples", 10);
+        RecordingFactory factory = new RecordingFactory();
+
+        ok(run(parameters, factory));
+
+        assertEquals(4, factory.created.size());
+    }
+
+    @Test
+    public void testNextLong() {
+        Random random = new Random(1);
+        long[] bounds = {1, 2, 3, 1000, Long.MAX_VALUE / 3 * 2, Long.MAX_VALUE};
+        for (long bound : bounds) {
+            for (int i = 0; i < 1000; i++) {
+                long value = ParameterSearch.nextLong(random, bound);
+                assertTrue(value >= 0 && value < bound);
+            }
+        }
+        int[] counts = new int[3];
+        for (int i = 0; i < 30000; i++) {
+            counts[(int) ParameterSearch.nextLong(random, 3)]++;
+        }
+        for (int count : counts) {
+            assertEquals(10000, count, 500);
+        }
+    }
+
+    @Test
+    public void testHalvingKeepsAThirdPerRung() {
+        Map<String, Object> space = new HashMap<>();
+        space.put("a", range(10));
+        Map<String, Object> parameters = parameters(space, 9);
+        parameters.put("halving", true);
+        RecordingFactory factory = new RecordingFactory();
+
+        SearchResponse response = ok(run(parameters, factory));
+
+        // 10 candidates on 1 fold, ceil(10/3) = 4 on 3 folds, ceil(4/3) = 2 on all 9
+        List<List<Object>> ranking = ranking(response);
+        assertEquals(10, ranking.size());
+        int[] expectedFolds = {9, 9, 3, 3, 1, 1, 1, 1, 1, 1};
+        for (int i = 0; i < ranking.size(); i++) {
+            assertEquals(expectedFolds[i], ranking.get(i).get(1));
+        }
+        assertEquals(0, ranking.get(0).get(2));
+        assertEquals(1, ranking.get(1).get(2));
+        assertEquals(Arrays.asList(2, 3), Arrays.asList(ranking.get(2).get(2), ranking.get(3).get(2)));
+        for (int a = 0; a < 10; a++) {
+            assertEquals(expectedFolds[a], factory.created.get(point(a)).get());
+        }
+        assertEquals(0, response.getParameters().get("a"));
+    }
+
+    @Test
+    public void testHalvingWithFewCandidates() {
+        Map<String, Object> space = new HashMap<>();
+        space.put("a", range(2));
+        Map<String, Object> parameters = parameters(space, 4);
+        parameters.put("halving", true);
+        RecordingFactory factory = new RecordingFactory();
+
+        SearchResponse response = ok(run(parameters, factory));
+
+        List<List<Object>> ranking = ranking(response);
+        assertEquals(4, ranking.get(0).get(1));
+        assertEquals(4, ranking.get(1).get(1));
+    }
+
+    @Test
+    public void testTooManyCandidatesAreRejected() {
+        Map<String, Object> space = new HashMap<>();
+        space.put("a", range(ParameterSearch.MAX_CANDIDATES + 1));
+        assertBadRequest(parameters(space, 2));
+
+        Map<String, Object> parameters = parameters(space, 2);
+        parameters.put("samples", ParameterSearch.MAX_CANDIDATES + 1);
+        assertBadRequest(parameters);
+
+        Map<String, Object> huge = new HashMap<>();
+        for (int d = 0; d < 8; d++) {
+            huge.put("p" + d, range(1000));
+        }
+        huge.put("a", range(1));
+        assertBadRequest(parameters(huge, 2));
+
+        parameters = parameters(space, 2);
+        parameters.put("samples", ParameterSearch.MAX_CANDIDATES);
+        RecordingFactory factory = new RecordingFactory();
+        ok(run(parameters, factory));
+        assertEquals(ParameterSearch.MAX_CANDIDATES, factory.created.size());
+    }
+
+    @Test
+    public void testInvalidParametersAreRejected() {
+        Map<String, Object> space = new HashMap<>();
+        space.put("a", range(3));
+        for (Object folds : Arrays.asList(1, 0, -2, ROWS + 1, "five")) {
+            assertBadRequest(parameters(space, folds));
+        }
+        Map<String, Object> parameters = parameters(space, 2);
+        parameters.put("samples", 0);
+        assertBadRequest(parameters);
+
+        Map<String, Object> empty = new HashMap<>();
+        empty.put("a", new ArrayList<>());
+        assertBadRequest(parameters(empty, 2));
+        parameters = parameters(space, 2);
+        parameters.put("space", "a");
+        assertBadRequest(parameters);
+    }
+
+    private static List<Object> range(int n) {
+        List<Object> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private static Map<String, Object> point(int a) {
+        Map<String, Object> point = new HashMap<>();
+        point.put("a", a);
+        point.put("fixed", "kept");
+        return point;
+    }
+
+    private static Map<String, Object> parameters(Map<String, Object> space, Object folds) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("space", space);
+        parameters.put("folds", folds);
+        parameters.put("fixed", "kept");
+        return parameters;
+    }
+
+    private static Response run(Map<String, Object> parameters, RecordingFactory factory) {
+        List<DataEntry> entries = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            TreeMap<String, Object> values = new TreeMap<>();
+            values.put("x", i);
+            values.put("y", 0);
+            DataEntry entry = new DataEntry();
+            entry.setValues(values);
+            entries.add(entry);
+        }
+        Dataset dataset = new Dataset();
+        dataset.setDatasetURI("dataset");
+        dataset.setDataEntry(entries);
+        dataset.setFeatures(new HashSet<>(Arrays.asList(new FeatureInfo("x", "x"), new FeatureInfo("y", "y"))));
+
+        TrainingRequest request = new TrainingRequest();
+        request.setDataset(dataset);
+        request.setPredictionFeature("y");
+        request.setParameters(parameters);
+        return ParameterSearch.run(request, factory, best -> Response.ok(new TrainingResponse()).build());
+    }
+
+    private static SearchResponse ok(Response response) {
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        return (SearchResponse) response.getEntity();
+    }
+
+    private static void assertBadRequest(Map<String, Object> parameters) {
+        RecordingFactory factory = new RecordingFactory();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), run(parameters, factory).getStatus());
+        assertTrue(factory.created.isEmpty());
+    }
+
+    private static List<List<Object>> ranking(SearchResponse response) {
+        ArrayCalculation table = response.getReport().getArrayCalculations().get("Ranking");
+        assertEquals("Folds evaluated", table.getColNames().get(1));
+        return new ArrayList<>(table.getValues().values());
+    }
+}
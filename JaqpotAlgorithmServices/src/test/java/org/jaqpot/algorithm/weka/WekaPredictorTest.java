@@ -0,0 +1,182 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.algorithm.weka;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.LinearRegression;
+import weka.classifiers.functions.PLSClassifier;
+import weka.classifiers.functions.RBFNetwork;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.filters.supervised.attribute.PLSFilter;
+
+/**
+ * The parallel predictions are compared with {@code classifyInstance} called
+ * row by row on the original classifier. The number of chunks is given
+ * explicitly, so that the chunked path runs whatever the number of
+ * processors.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class WekaPredictorTest {
+
+    private static final int CHUNKS = 4;
+
+    /**
+     * Predicts the first attribute, which holds the index of the row, and
+     * fails on the row given to the constructor.
+     */
+    private static class RowClassifier extends Classifier {
+
+        private final int failingRow;
+
+        private RowClassifier(int failingRow) {
+            this.failingRow = failingRow;
+        }
+
+        @Override
+        public void buildClassifier(Instances data) {
+        }
+
+        @Override
+        public double classifyInstance(Instance instance) throws Exception {
+            if ((int) instance.value(0) == failingRow) {
+                throw new IllegalStateException("row " + failingRow);
+            }
+            return instance.value(0);
+        }
+    }
+
+    @Test
+    public void testOrderIsKept() throws Exception {
+        int[] sizes = {0, 1, WekaPredictor.MIN_CHUNK_SIZE - 1, 2 * WekaPredictor.MIN_CHUNK_SIZE - 1,
+            2 * WekaPredictor.MIN_CHUNK_SIZE, CHUNKS * WekaPredictor.MIN_CHUNK_SIZE * 3 + 7};
+        for (int rows : sizes) {
+            Instances data = data(new Random(rows), rows);
+            double[] predictions = WekaPredictor.classify(new RowClassifier(-1), data, CHUNKS);
+            assertEquals(rows, predictions.length);
+            for (int i = 0; i < rows; i++) {
+                assertEquals(i, predictions[i], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testLinearRegression() throws Exception {
+        LinearRegression classifier = new LinearRegression();
+        classifier.buildClassifier(data(new Random(1), 100));
+        assertAgreesWithSequential(classifier);
+    }
+
+    @Test
+    public void testRadialBasisFunctionNetwork() throws Exception {
+        RBFNetwork classifier = new RBFNetwork();
+        classifier.buildClassifier(data(new Random(2), 100));
+        assertAgreesWithSequential(classifier);
+    }
+
+    @Test
+    public void testClassifierWithFilter() throws Exception {
+        PLSFilter filter = new PLSFilter();
+        filter.setNumComponents(2);
+        filter.setAlgorithm(new SelectedTag(PLSFilter.ALGORITHM_PLS1, PLSFilter.TAGS_ALGORITHM));
+        filter.setPreprocessing(new SelectedTag(PLSFilter.PREPROCESSING_CENTER, PLSFilter.TAGS_PREPROCESSING));
+        PLSClassifier classifier = new PLSClassifier();
+        classifier.setFilter(filter);
+        classifier.buildClassifier(data(new Random(3), 100));
+        assertAgreesWithSequential(classifier);
+    }
+
+    @Test
+    public void testFailureInAChunkIsThrown() throws Exception {
+        Instances data = data(new Random(4), CHUNKS * WekaPredictor.MIN_CHUNK_SIZE);
+        int failingRow = 3 * WekaPredictor.MIN_CHUNK_SIZE + 5;
+        try {
+            WekaPredictor.classify(new RowClassifier(failingRow), data, CHUNKS);
+            fail("The failure of a chunk must be thrown");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage().endsWith("row " + failingRow));
+        }
+    }
+
+    @Test
+    public void testDefaultParallelism() throws Exception {
+        Instances data = data(new Random(5), CHUNKS * WekaPredictor.MIN_CHUNK_SIZE + 1);
+        double[] predictions = WekaPredictor.classify(new RowClassifier(-1), data);
+        for (int i = 0; i < predictions.length; i++) {
+            assertEquals(i, predictions[i], 0.0);
+        }
+    }
+
+    private static void assertAgreesWithSequential(Classifier classifier) throws Exception {
+        int[] sizes = {WekaPredictor.MIN_CHUNK_SIZE - 1, 2 * WekaPredictor.MIN_CHUNK_SIZE,
+            CHUNKS * WekaPredictor.MIN_CHUNK_SIZE * 2 + 13};
+        for (int rows : sizes) {
+            Instances data = data(new Random(rows), rows);
+            double[] expected = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                expected[i] = classifier.classifyInstance(data.instance(i));
+            }
+            assertArrayEquals(expected, WekaPredictor.classify(classifier, data, CHUNKS), 0.0);
+        }
+    }
+
+    /**
+     * Random rows whose first attribute is the index of the row.
+     */
+    private static Instances data(Random random, int rows) {
+        FastVector attributes = new FastVector();
+        attributes.addElement(new Attribute("index"));
+        for (int j = 0; j < 3; j++) {
+            attributes.addElement(new Attribute("x" + j));
+        }
+        attributes.addElement(new Attribute("y"));
+        Instances instances = new Instances("data", attributes, rows);
+        instances.setClassIndex(4);
+        for (int i = 0; i < rows; i++) {
+            double[] row = new double[5];
+            row[0] = i;
+            for (int j = 1; j < 4; j++) {
+                row[j] = random.nextGaussian();
+                row[4] += j * row[j];
+            }
+            row[4] += 0.1 * random.nextGaussian();
+            instances.add(new Instance(1, row));
+        }
+        return instances;
+    }
+}
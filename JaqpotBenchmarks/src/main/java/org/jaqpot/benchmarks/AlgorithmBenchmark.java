@@ -0,0 +1,94 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.jaqpot.algorithm.resource.Leverage;
+import org.jaqpot.algorithm.weka.InstanceUtils;
+import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instances;
+
+/**
+ * Hot paths of the algorithm services: building Weka instances from a
+ * dataset and leverage (domain of applicability) predictions.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlgorithmBenchmark extends DatasetState {
+
+    private final Leverage leverage = new Leverage();
+
+    private PredictionRequest predictionRequest;
+
+    @Override
+    protected void prepare() {
+        TrainingRequest trainingRequest = new TrainingRequest();
+        trainingRequest.setDataset(dataset);
+        TrainingResponse trainingResponse = (TrainingResponse) leverage.training(trainingRequest).getEntity();
+
+        predictionRequest = new PredictionRequest();
+        predictionRequest.setDataset(dataset);
+        predictionRequest.setRawModel(trainingResponse.getRawModel());
+    }
+
+    @Benchmark
+    public Instances createInstances() {
+        return InstanceUtils.createFromDataset(dataset, SyntheticDatasets.feature(0));
+    }
+
+    @Benchmark
+    public Object leveragePrediction() {
+        return leverage.prediction(predictionRequest).getEntity();
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.factory.DatasetFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Copying, merging and stratifying datasets. Operations that modify their
+ * input work on a fresh shallow copy of the dataset, which is included in the
+ * measurement.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatasetFactoryBenchmark extends DatasetState {
+
+    private static final int FOLDS = 10;
+
+    private Dataset other;
+
+    @Override
+    protected void prepare() {
+        other = SyntheticDatasets.generate(rows, features, sparsity, SEED + 1);
+    }
+
+    @Benchmark
+    public Dataset copy() {
+        return DatasetFactory.copy(dataset);
+    }
+
+    @Benchmark
+    public Dataset copyRows() {
+        return DatasetFactory.copy(dataset, 0, rows / 2);
+    }
+
+    @Benchmark
+    public Dataset mergeRows() {
+        Dataset target = new Dataset();
+        target.setDataEntry(new ArrayList<>(dataset.getDataEntry()));
+        target.setFeatures(new HashSet<>(dataset.getFeatures()));
+        return DatasetFactory.mergeRows(target, other);
+    }
+
+    @Benchmark
+    public Dataset stratify() {
+        Dataset target = new Dataset();
+        target.setDataEntry(dataset.getDataEntry());
+        return DatasetFactory.stratify(target, FOLDS, SyntheticDatasets.feature(0));
+    }
+
+}
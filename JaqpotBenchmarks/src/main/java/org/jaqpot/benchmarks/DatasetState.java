@@ -0,0 +1,82 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.benchmarks;
+
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark state holding a synthetic dataset of the shape given by the
+ * parameters. The defaults cover the shapes we usually run; other shapes can
+ * be given on the command line, e.g. {@code -p rows=5000 -p features=50}.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@State(Scope.Benchmark)
+public abstract class DatasetState {
+
+    protected static final long SEED = 42L;
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    @Param({"10", "200"})
+    public int features;
+
+    @Param({"0.0", "0.9"})
+    public double sparsity;
+
+    protected Dataset dataset;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataset = SyntheticDatasets.generate(rows, features, sparsity, SEED);
+        prepare();
+    }
+
+    /**
+     * Prepares the inputs of the benchmarks once the dataset is generated.
+     *
+     * @throws Exception if the inputs cannot be prepared
+     */
+    protected void prepare() throws Exception {
+    }
+
+}
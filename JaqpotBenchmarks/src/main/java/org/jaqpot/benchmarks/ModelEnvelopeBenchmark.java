@@ -0,0 +1,150 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.jaqpot.algorithm.model.LeverageModel;
+import org.jaqpot.algorithm.model.ModelEnvelope;
+import org.jaqpot.algorithm.model.ScalingModel;
+import org.jaqpot.algorithm.model.WekaModel;
+import org.jaqpot.algorithm.resource.Leverage;
+import org.jaqpot.algorithm.resource.Scaling;
+import org.jaqpot.algorithm.weka.InstanceUtils;
+import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
+import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.classifiers.functions.LinearRegression;
+
+/**
+ * Writing and reading raw models in the {@link ModelEnvelope} format against
+ * the legacy format, which is base64 encoded Java serialization. The models
+ * are trained on the benchmark dataset.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelEnvelopeBenchmark extends DatasetState {
+
+    @Param({"leverage", "scaling", "weka"})
+    public String model;
+
+    private Serializable rawModel;
+
+    private String envelope;
+
+    private String legacy;
+
+    @Override
+    protected void prepare() throws Exception {
+        TrainingRequest request = new TrainingRequest();
+        request.setDataset(dataset);
+        switch (model) {
+            case "leverage":
+                rawModel = ModelEnvelope.read(train(new Leverage().training(request).getEntity()), LeverageModel.class);
+                break;
+            case "scaling":
+                rawModel = ModelEnvelope.read(train(new Scaling().training(request).getEntity()), ScalingModel.class);
+                break;
+            case "weka":
+                LinearRegression classifier = new LinearRegression();
+                classifier.buildClassifier(InstanceUtils.createFromDataset(dataset, SyntheticDatasets.feature(0)));
+                WekaModel wekaModel = new WekaModel();
+                wekaModel.setClassifier(classifier);
+                rawModel = wekaModel;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown model " + model);
+        }
+        envelope = ModelEnvelope.write(rawModel);
+        legacy = writeLegacy();
+    }
+
+    private static String train(Object response) {
+        if (!(response instanceof TrainingResponse)) {
+            throw new IllegalStateException("Training failed: " + response);
+        }
+        return (String) ((TrainingResponse) response).getRawModel();
+    }
+
+    @Benchmark
+    public String writeEnvelope() throws IOException {
+        return ModelEnvelope.write(rawModel);
+    }
+
+    @Benchmark
+    public Object readEnvelope() throws IOException, ClassNotFoundException {
+        return ModelEnvelope.read(envelope, rawModel.getClass());
+    }
+
+    @Benchmark
+    public String writeLegacy() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(rawModel);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    @Benchmark
+    public Object readLegacy() throws IOException, ClassNotFoundException {
+        byte[] bytes = Base64.getDecoder().decode(legacy);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
+import org.jaqpot.core.model.dto.dataset.Substance;
+
+/**
+ * Generates datasets of a given shape: rows x features, with a given fraction
+ * of the values (the sparsity) being zero, as in fingerprint and
+ * substructure descriptors. Generation is seeded, so that runs on different
+ * commits measure the same data.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class SyntheticDatasets {
+
+    public static final String FEATURE_BASE = "http://localhost:8080/jaqpot/services/feature/";
+
+    private SyntheticDatasets() {
+    }
+
+    /**
+     * URI of the j-th feature of the generated datasets.
+     *
+     * @param j index of the feature
+     * @return the feature URI
+     */
+    public static String feature(int j) {
+        return FEATURE_BASE + String.format("%05d", j);
+    }
+
+    /**
+     * Generates a dataset.
+     *
+     * @param rows number of data entries
+     * @param features number of features
+     * @param sparsity fraction of zero values, in [0, 1]
+     * @param seed random seed
+     * @return the dataset
+     */
+    public static Dataset generate(int rows, int features, double sparsity, long seed) {
+        Random random = new Random(seed);
+
+        Set<FeatureInfo> featureInfo = new LinkedHashSet<>();
+        for (int j = 0; j < features; j++) {
+            featureInfo.add(new FeatureInfo(feature(j), "Feature " + j));
+        }
+
+        List<DataEntry> dataEntry = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Substance substance = new Substance();
+            substance.setURI("http://localhost:8080/ambit2/substance/" + i);
+            substance.setName("Substance " + i);
+            TreeMap<String, Object> values = new TreeMap<>();
+            for (int j = 0; j < features; j++) {
+                values.put(feature(j), random.nextDouble() < sparsity ? 0.0 : random.nextGaussian());
+            }
+            DataEntry entry = new DataEntry();
+            entry.setCompound(substance);
+            entry.setValues(values);
+            dataEntry.add(entry);
+        }
+
+        Dataset dataset = new Dataset();
+        dataset.setId("benchmark-" + rows + "x" + features);
+        dataset.setDatasetURI("http://localhost:8080/jaqpot/services/dataset/" + dataset.getId());
+        dataset.setFeatures(featureInfo);
+        dataset.setDataEntry(dataEntry);
+        dataset.setTotalRows(rows);
+        dataset.setTotalColumns(features);
+        return dataset;
+    }
+
+}
@@ -52,6 +52,10 @@ public interface JPDIClient extends Closeable {
 
     public Future<Model> train(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo modelMeta, String taskId);
 
+    public Future<SearchResult> search(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo modelMeta, String taskId);
+
+    public Future<Model> update(Dataset dataset, Model model, MetaInfo modelMeta, String taskId);
+
     public Future<Dataset> predict(Dataset dataset, Model model, MetaInfo datasetMeta, String taskId);
 
     public Future<Dataset> transform(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo datasetMeta, String taskId);
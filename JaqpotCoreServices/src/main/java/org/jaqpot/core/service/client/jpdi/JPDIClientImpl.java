@@ -46,6 +46,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -76,6 +77,7 @@ import org.jaqpot.core.model.dto.dataset.Dataset;
 import org.jaqpot.core.model.dto.dataset.FeatureInfo;
 import org.jaqpot.core.model.dto.jpdi.PredictionRequest;
 import org.jaqpot.core.model.dto.jpdi.PredictionResponse;
+import org.jaqpot.core.model.dto.jpdi.SearchResponse;
 import org.jaqpot.core.model.dto.jpdi.TrainingRequest;
 import org.jaqpot.core.model.dto.jpdi.TrainingResponse;
 import org.jaqpot.core.model.factory.DatasetFactory;
@@ -98,6 +100,8 @@ public class JPDIClientImpl implements JPDIClient {
     private final ROG randomStringGenerator;
     
     private final Map<String, Future> futureMap;
+
+    private static final List<String> SEARCH_PARAMETERS = Arrays.asList("space", "folds", "samples", "shuffleSeed", "halving");
     
     public JPDIClientImpl(CloseableHttpAsyncClient client, JSONSerializer serializer, FeatureHandler featureHandler, String baseURI) {
         this.client = client;
@@ -149,54 +153,7 @@ public class JPDIClientImpl implements JPDIClient {
                         case 200:
                         case 201:
                             TrainingResponse trainingResponse = serializer.parse(responseStream, TrainingResponse.class);
-                            Model model = new Model();
-                            model.setId(randomStringGenerator.nextString(20));
-                            model.setActualModel(trainingResponse.getRawModel());
-                            model.setPmmlModel(trainingResponse.getPmmlModel());
-                            model.setAdditionalInfo(trainingResponse.getAdditionalInfo());
-                            model.setAlgorithm(algorithm);
-                            model.setParameters(parameters);
-                            model.setDatasetUri(dataset != null ? dataset.getDatasetURI() : null);
-
-                            //Check if independedFeatures of model exist in dataset
-                            List<String> filteredIndependedFeatures= new ArrayList<String>();
-
-                            if (dataset!=null && dataset.getFeatures()!=null && trainingResponse.getIndependentFeatures()!=null)
-                            for (String feature:trainingResponse.getIndependentFeatures()){
-                                for (FeatureInfo featureInfo: dataset.getFeatures()){
-                                    if (feature.equals(featureInfo.getURI()))
-                                        filteredIndependedFeatures.add(feature);
-                                }
-                            }
-
-                            model.setIndependentFeatures(filteredIndependedFeatures);
-                            model.setDependentFeatures(Arrays.asList(predictionFeature));
-                            model.setMeta(modelMeta);
-                            
-                            List<String> predictedFeatures = new ArrayList<>();
-                            for (String featureTitle : trainingResponse.getPredictedFeatures()) {
-                                Feature predictionFeatureResource = featureHandler.findByTitleAndSource(featureTitle, "algorithm/" + algorithm.getId());
-                                if (predictionFeatureResource == null) {
-                                    // Create the prediction features (POST /feature)
-                                    String predFeatID = randomStringGenerator.nextString(12);
-                                    predictionFeatureResource = new Feature();
-                                    predictionFeatureResource.setId(predFeatID);
-                                    predictionFeatureResource
-                                            .setPredictorFor(predictionFeature);
-                                    predictionFeatureResource.setMeta(MetaInfoBuilder
-                                            .builder()
-                                            .addSources(/*messageBody.get("base_uri") + */"algorithm/" + algorithm.getId())
-                                            .addComments("Feature created to hold predictions by algorithm with ID " + algorithm.getId())
-                                            .addTitles(featureTitle)
-                                            .addSeeAlso(predictionFeature)
-                                            .addCreators(algorithm.getMeta().getCreators())
-                                            .build());
-                                    /* Create feature */
-                                    featureHandler.create(predictionFeatureResource);
-                                }
-                                predictedFeatures.add(baseURI + "feature/" + predictionFeatureResource.getId());
-                            }
-                            model.setPredictedFeatures(predictedFeatures);
+                            Model model = toModel(trainingResponse, dataset, algorithm, parameters, predictionFeature, modelMeta);
                             futureModel.complete(model);
                             break;
                         case 400:
@@ -244,6 +201,215 @@ public class JPDIClientImpl implements JPDIClient {
         return futureModel;
     }
     
+    @Override
+    public Future<SearchResult> search(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo modelMeta, String taskId) {
+
+        TrainingRequest trainingRequest = new TrainingRequest();
+        trainingRequest.setDataset(dataset);
+        trainingRequest.setParameters(parameters);
+        trainingRequest.setPredictionFeature(predictionFeature);
+
+        CompletableFuture<SearchResult> futureResult = new CompletableFuture<>();
+        post(algorithm, "search", trainingRequest, SearchResponse.class, taskId).whenComplete((searchResponse, ex) -> {
+            if (ex != null) {
+                fail(futureResult, ex);
+                return;
+            }
+            try {
+                Map<String, Object> bestParameters = new LinkedHashMap<>();
+                if (parameters != null) {
+                    bestParameters.putAll(parameters);
+                }
+                bestParameters.keySet().removeAll(SEARCH_PARAMETERS);
+                if (searchResponse.getParameters() != null) {
+                    bestParameters.putAll(searchResponse.getParameters());
+                }
+                Model model = toModel(searchResponse.getModel(), dataset, algorithm, bestParameters, predictionFeature, modelMeta);
+                futureResult.complete(new SearchResult(model, searchResponse.getReport()));
+            } catch (RuntimeException e) {
+                futureResult.completeExceptionally(e);
+            }
+        });
+        return futureResult;
+    }
+
+    @Override
+    public Future<Model> update(Dataset dataset, Model model, MetaInfo modelMeta, String taskId) {
+
+        Algorithm algorithm = model.getAlgorithm();
+        String predictionFeature = model.getDependentFeatures().get(0);
+
+        TrainingRequest trainingRequest = new TrainingRequest();
+        trainingRequest.setDataset(dataset);
+        trainingRequest.setParameters(model.getParameters());
+        trainingRequest.setPredictionFeature(predictionFeature);
+        trainingRequest.setRawModel(model.getActualModel());
+
+        CompletableFuture<Model> futureModel = new CompletableFuture<>();
+        post(algorithm, "update", trainingRequest, TrainingResponse.class, taskId).whenComplete((trainingResponse, ex) -> {
+            if (ex != null) {
+                fail(futureModel, ex);
+                return;
+            }
+            try {
+                futureModel.complete(toModel(trainingResponse, dataset, algorithm, model.getParameters(), predictionFeature, modelMeta));
+            } catch (RuntimeException e) {
+                futureModel.completeExceptionally(e);
+            }
+        });
+        return futureModel;
+    }
+
+    private static void fail(CompletableFuture<?> future, Throwable ex) {
+        if (ex instanceof CancellationException) {
+            future.cancel(true);
+        } else {
+            future.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Posts a training request to a service that sits next to the training
+     * service of an algorithm (e.g. .../training becomes .../search).
+     */
+    private <T> CompletableFuture<T> post(Algorithm algorithm, String service, TrainingRequest trainingRequest, Class<T> responseType, String taskId) {
+
+        CompletableFuture<T> futureResult = new CompletableFuture<>();
+
+        String trainingService = algorithm.getTrainingService();
+        if (trainingService == null || !trainingService.endsWith("training")) {
+            futureResult.completeExceptionally(new BadRequestException("Algorithm " + algorithm.getId() + " does not support " + service + "."));
+            return futureResult;
+        }
+        String serviceURI = trainingService.substring(0, trainingService.length() - "training".length()) + service;
+
+        final HttpPost request = new HttpPost(serviceURI);
+
+        PipedOutputStream out = new PipedOutputStream();
+        PipedInputStream in;
+        try {
+            in = new PipedInputStream(out);
+        } catch (IOException ex) {
+            futureResult.completeExceptionally(ex);
+            return futureResult;
+        }
+        InputStreamEntity entity = new InputStreamEntity(in, ContentType.APPLICATION_JSON);
+        entity.setChunked(true);
+
+        request.setEntity(entity);
+        request.addHeader("Accept", "application/json");
+
+        Future futureResponse = client.execute(request, new FutureCallback<HttpResponse>() {
+
+            @Override
+            public void completed(final HttpResponse response) {
+                futureMap.remove(taskId);
+                int status = response.getStatusLine().getStatusCode();
+                try {
+                    InputStream responseStream = response.getEntity().getContent();
+
+                    switch (status) {
+                        case 200:
+                        case 201:
+                            futureResult.complete(serializer.parse(responseStream, responseType));
+                            break;
+                        case 400:
+                            String message = new BufferedReader(new InputStreamReader(responseStream))
+                                    .lines().collect(Collectors.joining("\n"));
+                            futureResult.completeExceptionally(new BadRequestException(message));
+                            break;
+                        case 404:
+                            message = new BufferedReader(new InputStreamReader(responseStream))
+                                    .lines().collect(Collectors.joining("\n"));
+                            futureResult.completeExceptionally(new NotFoundException("Algorithm " + algorithm.getId() + " does not support " + service + ". " + message));
+                            break;
+                        default:
+                            message = new BufferedReader(new InputStreamReader(responseStream))
+                                    .lines().collect(Collectors.joining("\n"));
+                            futureResult.completeExceptionally(new InternalServerErrorException(message));
+                    }
+                } catch (IOException | UnsupportedOperationException ex) {
+                    futureResult.completeExceptionally(ex);
+                }
+            }
+
+            @Override
+            public void failed(final Exception ex) {
+                futureMap.remove(taskId);
+                futureResult.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                futureMap.remove(taskId);
+                futureResult.cancel(true);
+            }
+
+        });
+
+        serializer.write(trainingRequest, out);
+        try {
+            out.close();
+        } catch (IOException ex) {
+            futureResult.completeExceptionally(ex);
+        }
+
+        futureMap.put(taskId, futureResponse);
+        return futureResult;
+    }
+
+    private Model toModel(TrainingResponse trainingResponse, Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo modelMeta) {
+        Model model = new Model();
+        model.setId(randomStringGenerator.nextString(20));
+        model.setActualModel(trainingResponse.getRawModel());
+        model.setPmmlModel(trainingResponse.getPmmlModel());
+        model.setAdditionalInfo(trainingResponse.getAdditionalInfo());
+        model.setAlgorithm(algorithm);
+        model.setParameters(parameters);
+        model.setDatasetUri(dataset != null ? dataset.getDatasetURI() : null);
+
+        //Check if independedFeatures of model exist in dataset
+        List<String> filteredIndependedFeatures= new ArrayList<String>();
+
+        if (dataset!=null && dataset.getFeatures()!=null && trainingResponse.getIndependentFeatures()!=null)
+        for (String feature:trainingResponse.getIndependentFeatures()){
+            for (FeatureInfo featureInfo: dataset.getFeatures()){
+                if (feature.equals(featureInfo.getURI()))
+                    filteredIndependedFeatures.add(feature);
+            }
+        }
+
+        model.setIndependentFeatures(filteredIndependedFeatures);
+        model.setDependentFeatures(Arrays.asList(predictionFeature));
+        model.setMeta(modelMeta);
+        
+        List<String> predictedFeatures = new ArrayList<>();
+        for (String featureTitle : trainingResponse.getPredictedFeatures()) {
+            Feature predictionFeatureResource = featureHandler.findByTitleAndSource(featureTitle, "algorithm/" + algorithm.getId());
+            if (predictionFeatureResource == null) {
+                // Create the prediction features (POST /feature)
+                String predFeatID = randomStringGenerator.nextString(12);
+                predictionFeatureResource = new Feature();
+                predictionFeatureResource.setId(predFeatID);
+                predictionFeatureResource
+                        .setPredictorFor(predictionFeature);
+                predictionFeatureResource.setMeta(MetaInfoBuilder
+                        .builder()
+                        .addSources(/*messageBody.get("base_uri") + */"algorithm/" + algorithm.getId())
+                        .addComments("Feature created to hold predictions by algorithm with ID " + algorithm.getId())
+                        .addTitles(featureTitle)
+                        .addSeeAlso(predictionFeature)
+                        .addCreators(algorithm.getMeta().getCreators())
+                        .build());
+                /* Create feature */
+                featureHandler.create(predictionFeatureResource);
+            }
+            predictedFeatures.add(baseURI + "feature/" + predictionFeatureResource.getId());
+        }
+        model.setPredictedFeatures(predictedFeatures);
+        return model;
+    }
+
     @Override
     public Future<Dataset> predict(Dataset inputDataset, Model model, MetaInfo datasetMeta, String taskId) {
         
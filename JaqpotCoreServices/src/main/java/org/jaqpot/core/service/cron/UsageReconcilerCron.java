@@ -0,0 +1,112 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.cron;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Stateless;
+import org.jaqpot.core.data.AbstractHandler;
+import org.jaqpot.core.data.AlgorithmHandler;
+import org.jaqpot.core.data.BibTeXHandler;
+import org.jaqpot.core.data.DatasetHandler;
+import org.jaqpot.core.data.ModelHandler;
+import org.jaqpot.core.data.ReportHandler;
+import org.jaqpot.core.data.TaskHandler;
+import org.jaqpot.core.data.UserHandler;
+import org.jaqpot.core.model.User;
+
+/**
+ * Recounts the usage counters of all users every night, repairing any drift
+ * left by failed or concurrent updates.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ *
+ */
+@Stateless
+public class UsageReconcilerCron {
+
+    private static final Logger LOG = Logger.getLogger(UsageReconcilerCron.class.getName());
+
+    private static final int PAGE_SIZE = 100;
+
+    @EJB
+    UserHandler userHandler;
+
+    @EJB
+    TaskHandler taskHandler;
+
+    @EJB
+    AlgorithmHandler algorithmHandler;
+
+    @EJB
+    ModelHandler modelHandler;
+
+    @EJB
+    BibTeXHandler bibtexHandler;
+
+    @EJB
+    DatasetHandler datasetHandler;
+
+    @EJB
+    ReportHandler reportHandler;
+
+    @Schedule(hour = "3", minute = "0", second = "0", info = "UsageReconciler", persistent = false)
+    public void reconcile() {
+        List<AbstractHandler<?>> handlers = Arrays.asList(taskHandler, algorithmHandler,
+                modelHandler, bibtexHandler, datasetHandler, reportHandler);
+        int reconciled = 0;
+        List<User> users;
+        do {
+            users = userHandler.findAll(reconciled, PAGE_SIZE);
+            for (User user : users) {
+                for (AbstractHandler<?> handler : handlers) {
+                    try {
+                        handler.reconcileUsage(user.getId());
+                    } catch (RuntimeException ex) {
+                        LOG.log(Level.WARNING, "Usage of user " + user.getId() + " could not be reconciled", ex);
+                    }
+                }
+            }
+            reconciled += users.size();
+        } while (users.size() == PAGE_SIZE);
+        LOG.log(Level.INFO, "Reconciled usage counters of {0} users", reconciled);
+    }
+
+}
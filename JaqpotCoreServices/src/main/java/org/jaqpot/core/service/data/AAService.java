@@ -29,16 +29,21 @@
  */
 package org.jaqpot.core.service.data;
 
-import java.util.HashMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ResourceBundle;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
-import javax.ejb.Lock;
-import javax.ejb.LockType;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 import javax.inject.Inject;
 import javax.ws.rs.client.Client;
@@ -52,6 +57,7 @@ import org.jaqpot.core.model.dto.aa.AuthToken;
 import org.jaqpot.core.model.factory.UserFactory;
 import org.jaqpot.core.service.annotations.UnSecure;
 import org.jaqpot.core.service.exceptions.JaqpotNotAuthorizedException;
+import org.jaqpot.core.service.security.TokenValidationCache;
 
 /**
  *
@@ -60,6 +66,7 @@ import org.jaqpot.core.service.exceptions.JaqpotNotAuthorizedException;
  *
  */
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class AAService {
 
     private static final Logger LOG = Logger.getLogger(AAService.class.getName());
@@ -71,24 +78,56 @@ public class AAService {
     @UnSecure
     Client client;
 
-    Map<String, User> tokenMap;
+    /**
+     * Users of recently seen tokens. Bounded and expiring after a period of
+     * inactivity; safe for concurrent use, so the bean needs no container
+     * locks.
+     */
+    Cache<String, User> tokenMap;
+
+    TokenValidationCache validationCache;
 
     @PostConstruct
     private void init() {
-        tokenMap = new HashMap<>();
+        ResourceBundle configResourceBundle = ResourceBundle.getBundle("config");
+        tokenMap = CacheBuilder.newBuilder()
+                .maximumSize(Long.parseLong(configResourceBundle.getString("jaqpot.aa.tokens.max")))
+                .expireAfterAccess(Long.parseLong(configResourceBundle.getString("jaqpot.aa.tokens.idle")), TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        validationCache = new TokenValidationCache(
+                Long.parseLong(configResourceBundle.getString("jaqpot.aa.validation.ttl")),
+                Long.parseLong(configResourceBundle.getString("jaqpot.aa.validation.negativettl")),
+                TimeUnit.SECONDS);
     }
 
-    @Lock(LockType.READ)
     public User getUserFromToken(String token) {
-        return tokenMap.get(token);
+        return tokenMap.getIfPresent(token);
     }
 
     public void removeToken(String token) {
-        tokenMap.remove(token);
+        validationCache.invalidate(token);
+        tokenMap.invalidate(token);
     }
 
     public void registerUserToken(String token, User user) {
-        tokenMap.putIfAbsent(token, user);
+        tokenMap.asMap().putIfAbsent(token, user);
+    }
+
+    /**
+     * Statistics of the token-to-user cache.
+     *
+     * @return size, hits, misses, hit rate and evictions of the cache
+     */
+    public Map<String, Object> getTokenCacheStats() {
+        CacheStats stats = tokenMap.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", tokenMap.size());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
     }
     public static final String SSO_HOST = "openam.in-silico.ch",
             SSO_IDENTITY = "https://" + SSO_HOST + "/auth/%s",
@@ -147,11 +186,23 @@ public class AAService {
         }
     }
 
+    /**
+     * Checks whether a token is valid. Answers of the SSO server are cached
+     * for a short time and concurrent checks of the same token share a single
+     * call to the SSO server.
+     *
+     * @param token an authentication token
+     * @return whether the token is valid
+     */
+    public boolean validate(String token) {
+        return validationCache.validate(token, this::validateWithSSO);
+    }
+
     /*
      CURL example:
      curl  -XPOST -d "tokenid=..." https://opensso.in-silico.ch/auth/isTokenValid -k
      */
-    public boolean validate(String token) {
+    private boolean validateWithSSO(String token) {
         MultivaluedMap<String, String> formData = new MultivaluedHashMap<>();
         formData.putSingle("tokenid", token);
         Response response = client.target(SSOvalidate)
@@ -176,12 +227,15 @@ public class AAService {
         Response response = client.target(SSOlogout)
                 .request()
                 .post(Entity.form(formData));
+        // Forget the token only after the SSO server has answered; a request
+        // validating it before that would otherwise cache it as valid again.
+        validationCache.invalidate(token);
         if (200 != response.getStatus()) {
             response.close();
             throw new JaqpotNotAuthorizedException("It seems your token is not valid");
         }
         response.close();
-        tokenMap.remove(token);
+        tokenMap.invalidate(token);
         int status = response.getStatus();
         return status == 200;
     }
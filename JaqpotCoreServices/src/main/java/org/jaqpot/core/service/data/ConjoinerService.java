@@ -44,8 +44,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -54,6 +59,9 @@ import java.util.Set;
 import java.util.StringJoiner;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -65,6 +73,7 @@ import javax.jms.Topic;
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
+import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Form;
@@ -100,6 +109,11 @@ import org.jaqpot.core.service.annotations.UnSecure;
 @Stateless
 public class ConjoinerService {
 
+    /**
+     * Maximum number of substance study requests in flight.
+     */
+    private static final int STUDY_WINDOW = 8;
+
     @Inject
     @Jackson
     JSONSerializer serializer;
@@ -114,18 +128,20 @@ public class ConjoinerService {
     @EJB
     FeatureHandler featureHandler;
 
+    @Inject
+    DescriptorCache descriptorCache;
+
     @Resource(lookup = "java:jboss/exported/jms/topic/preparation")
     private Topic preparationQueue;
 
+    @Resource(lookup = "java:jboss/exported/jms/topic/bundle")
+    private Topic bundleQueue;
+
     @Inject
     private JMSContext jmsContext;
 
     private ResourceBundle configResourceBundle;
 
-    private Set<org.jaqpot.core.model.dto.dataset.FeatureInfo> featureMap;
-
-    private Set<Dataset.DescriptorCategory> usedDescriptors;
-
     @PostConstruct
     private void init() {
         configResourceBundle = ResourceBundle.getBundle("config");
@@ -145,6 +161,20 @@ public class ConjoinerService {
         return task;
     }
 
+    public Task initiateBundleCreation(Map<String, Object> options, String userName) {
+
+        Task task = TaskFactory.queuedTask("Bundle creation from substance owner: " + options.get("substance_owner"),
+                "A bundle creation procedure will return the URI of the new Bundle if completed successfully.",
+                userName);
+        task.setType(Task.Type.PREPARATION);
+        options.put("taskId", task.getId());
+        options.put("creator", userName);
+        task.setVisible(Boolean.TRUE);
+        taskHandler.create(task);
+        jmsContext.createProducer().setDeliveryDelay(1000).send(bundleQueue, options);
+        return task;
+    }
+
     public Dataset prepareDataset(String bundleURI, String subjectId, Set<String> descriptors, Boolean intersectColumns, Boolean retainNullValues) {
 
         String remoteServerBase = bundleURI.split("bundle")[0];
@@ -163,16 +193,30 @@ public class ConjoinerService {
         Dataset dataset = new Dataset();
         List<DataEntry> dataEntries = new ArrayList<>();
 
-        featureMap = new HashSet<>();
-        usedDescriptors = new HashSet<>();
+        Set<FeatureInfo> featureMap = new HashSet<>();
+        Set<Dataset.DescriptorCategory> usedDescriptors = EnumSet.noneOf(Dataset.DescriptorCategory.class);
 
-        for (Substance substance : substances.getSubstance()) {
-            Studies studies = client.target(substance.getURI() + "/study")
-                    .request()
-                    .accept(MediaType.APPLICATION_JSON)
-                    .header("subjectid", subjectId)
-                    .get(Studies.class);
-            DataEntry dataEntry = createDataEntry(substance, studies, properties.getFeature().keySet(), remoteServerBase, subjectId, descriptors, retainNullValues);
+        // Keeps up to STUDY_WINDOW study requests in flight and starts the
+        // descriptor calculations of each substance as soon as its studies
+        // arrive. The entries are then built in bundle order on this thread.
+        List<Substance> substanceList = substances.getSubstance();
+        List<Studies> allStudies = new ArrayList<>(substanceList.size());
+        Deque<Future<Studies>> window = new ArrayDeque<>(STUDY_WINDOW);
+        int next = 0;
+        try {
+            while (allStudies.size() < substanceList.size()) {
+                while (next < substanceList.size() && window.size() < STUDY_WINDOW) {
+                    window.add(fetchStudies(substanceList.get(next++), subjectId));
+                }
+                Studies studies = await(window.poll());
+                prefetchDescriptors(studies, properties.getFeature().keySet(), subjectId, descriptors);
+                allStudies.add(studies);
+            }
+        } finally {
+            window.forEach(f -> f.cancel(true));
+        }
+        for (int i = 0; i < substanceList.size(); i++) {
+            DataEntry dataEntry = createDataEntry(substanceList.get(i), allStudies.get(i), properties.getFeature().keySet(), remoteServerBase, subjectId, descriptors, retainNullValues, featureMap, usedDescriptors);
             dataEntries.add(dataEntry);
         }
 
@@ -181,40 +225,7 @@ public class ConjoinerService {
         ROG rog = new ROG(true);
         dataset.setId(rog.nextString(12));
         dataset.setDataEntry(dataEntries);
-
-        if (intersectColumns) {
-            //Takes the intersection of properties of all substances
-            dataset.getDataEntry().stream().forEach(de -> {
-                dataset.getDataEntry().stream()
-                        .filter(e -> !e.equals(de))
-                        .forEach(e -> {
-                            de.getValues().keySet().retainAll(e.getValues().keySet());
-                        });
-                if (!dataset.getDataEntry().isEmpty()) {
-                    dataset.setFeatures(dataset.getFeatures()
-                            .stream()
-                            .filter(f -> dataset.getDataEntry()
-                                    .get(0)
-                                    .getValues()
-                                    .keySet()
-                                    .contains(f.getURI())
-                            )
-                            .collect(Collectors.toSet()));
-                }
-            });
-        } else {
-            dataset.getDataEntry().stream().forEach(de -> {
-                dataset.getDataEntry().stream()
-                        .filter(e -> !e.equals(de))
-                        .forEach(e -> {
-                            e.getValues().keySet().forEach(key -> {
-                                if (!de.getValues().containsKey(key)) {
-                                    de.getValues().put(key, null);
-                                }
-                            });
-                        });
-            });
-        }
+        reshapeColumns(dataset, intersectColumns);
 
 //        dataset.setTotalRows(dataset.getDataEntry().size());
 //        dataset.setTotalColumns(dataset.getDataEntry().stream().findFirst().get().getValues().size());
@@ -224,8 +235,192 @@ public class ConjoinerService {
 
     }
 
+    /**
+     * Gives every data entry of the dataset the same columns.
+     *
+     * @param dataset the dataset, whose entries and features are modified
+     * @param intersectColumns whether to keep only the properties present in
+     * every entry, together with their features, instead of filling the
+     * properties missing from an entry with null values
+     */
+    static void reshapeColumns(Dataset dataset, boolean intersectColumns) {
+        List<DataEntry> dataEntries = dataset.getDataEntry();
+        if (intersectColumns) {
+            //Takes the intersection of properties of all substances
+            Set<String> common = columns(dataEntries, true);
+            dataEntries.forEach(de -> de.getValues().keySet().retainAll(common));
+            if (!dataEntries.isEmpty()) {
+                dataset.setFeatures(dataset.getFeatures()
+                        .stream()
+                        .filter(f -> common.contains(f.getURI()))
+                        .collect(Collectors.toSet()));
+            }
+        } else {
+            //Fills the properties missing from a substance with null values
+            Set<String> all = columns(dataEntries, false);
+            dataEntries.forEach(de -> all.forEach(key -> de.getValues().putIfAbsent(key, null)));
+        }
+    }
+
+    /**
+     * Counts in a single pass the data entries in which each property key
+     * appears.
+     *
+     * @param dataEntries the data entries of the dataset
+     * @param intersection whether to return the keys present in every entry
+     * instead of the keys present in any entry
+     * @return the intersection or the union of the property keys
+     */
+    private static Set<String> columns(List<DataEntry> dataEntries, boolean intersection) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (DataEntry dataEntry : dataEntries) {
+            for (String key : dataEntry.getValues().keySet()) {
+                counts.merge(key, 1, Integer::sum);
+            }
+        }
+        if (!intersection) {
+            return counts.keySet();
+        }
+        int rows = dataEntries.size();
+        return counts.entrySet()
+                .stream()
+                .filter(e -> e.getValue() == rows)
+                .map(Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Starts, through the descriptor cache, the image analyses and MOPAC
+     * calculations that {@link #createDataEntry} will need for these studies.
+     */
+    private void prefetchDescriptors(Studies studies, Set<String> propertyCategories, String subjectId, Set<String> descriptors) {
+        boolean image = descriptors.contains(Dataset.DescriptorCategory.IMAGE.name());
+        boolean mopac = descriptors.contains(Dataset.DescriptorCategory.MOPAC.name());
+        if (!image && !mopac) {
+            return;
+        }
+        for (Study study : studies.getStudy()) {
+            String code = study.getProtocol().getCategory().getCode();
+            if (code.equals("PROTEOMICS_SECTION")
+                    || !propertyCategories.stream().filter(c -> c.contains(code)).findAny().isPresent()) {
+                continue;
+            }
+            for (Effect effect : study.getEffects()) {
+                if (image && effect.getEndpoint().equals("IMAGE")) {
+                    analyzeImage(effect.getResult().getTextValue());
+                } else if (mopac && effect.getEndpoint().equals("PDB_CRYSTAL_STRUCTURE")) {
+                    try {
+                        new URI(effect.getResult().getTextValue());
+                    } catch (URISyntaxException ex) {
+                        continue;
+                    }
+                    calculateMopac(effect.getResult().getTextValue(), subjectId);
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<List<Map<String, Object>>> analyzeImage(String image) {
+        return descriptorCache.get("IMAGE", image, () -> {
+            Response response = client.target(configResourceBundle.getString("ImageBasePath") + "analyze")
+                    .request()
+                    .accept(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(new Form("image", image), "application/x-www-form-urlencoded"));
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                response.close();
+                throw new InternalServerErrorException("Image analysis failed with status " + response.getStatus());
+            }
+            GenericType<List<Map<String, Object>>> type = new GenericType<List<Map<String, Object>>>() {
+            };
+            List<Map<String, Object>> allParticles = response.readEntity(type);
+            response.close();
+            return allParticles;
+        });
+    }
+
+    /**
+     * MOPAC descriptors of a PDB file. The calculation is keyed by the hash
+     * of the content of the file, fetched with the token of the caller, so a
+     * cached result is only served to callers that can read the same file.
+     */
+    private CompletableFuture<Map<String, Object>> calculateMopac(String pdbFile, String subjectId) {
+        return descriptorCache.get("PDB", subjectId + " " + pdbFile, () -> contentHash(pdbFile, subjectId))
+                .thenCompose(hash -> descriptorCache.get("MOPAC", hash, () -> {
+                    Response response = client.target(configResourceBundle.getString("AlgorithmsBasePath") + "mopac/calculate")
+                            .request()
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("subjectid", subjectId)
+                            .post(Entity.form(new Form("pdbfile", pdbFile)));
+                    if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                        response.close();
+                        throw new InternalServerErrorException("MOPAC calculation failed with status " + response.getStatus());
+                    }
+                    GenericType<Map<String, Object>> type = new GenericType<Map<String, Object>>() {
+                    };
+                    Map<String, Object> mopacDescriptors = response.readEntity(type);
+                    response.close();
+                    return mopacDescriptors;
+                }));
+    }
+
+    /**
+     * SHA-1 of a PDB file given as a URL or as a data URI.
+     */
+    private String contentHash(String pdbFile, String subjectId) {
+        if (pdbFile.startsWith("data:")) {
+            return Hashing.sha1().hashString(pdbFile, Charsets.UTF_8).toString();
+        }
+        byte[] content = client.target(pdbFile)
+                .request()
+                .header("subjectid", subjectId)
+                .get(byte[].class);
+        return Hashing.sha1().hashBytes(content).toString();
+    }
+
+    private CompletableFuture<String> featureTitle(String featureURI, String subjectId) {
+        // fetched with the token of the caller, so cached per caller
+        return descriptorCache.get("TITLE", subjectId + " " + featureURI, () -> {
+            Response featureResponse = client.target(featureURI)
+                    .request()
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header("subjectid", subjectId)
+                    .get();
+            String featureTitle = Json.createReader(featureResponse.readEntity(InputStream.class))
+                    .readObject()
+                    .getJsonObject("feature")
+                    .getJsonObject(featureURI)
+                    .getString("title");
+            featureResponse.close();
+            return featureTitle;
+        });
+    }
+
+    private Future<Studies> fetchStudies(Substance substance, String subjectId) {
+        return client.target(substance.getURI() + "/study")
+                .request()
+                .accept(MediaType.APPLICATION_JSON)
+                .header("subjectid", subjectId)
+                .async()
+                .get(Studies.class);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching substance studies", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
     //TODO: Handle multiple effects that map to the same property
-    public DataEntry createDataEntry(Substance substance, Studies studies, Set<String> propertyCategories, String remoteServerBase, String subjectId, Set<String> descriptors, Boolean retainNullValues) {
+    public DataEntry createDataEntry(Substance substance, Studies studies, Set<String> propertyCategories, String remoteServerBase, String subjectId, Set<String> descriptors, Boolean retainNullValues, Set<FeatureInfo> featureMap, Set<Dataset.DescriptorCategory> usedDescriptors) {
         DataEntry dataEntry = new DataEntry();
         TreeMap<String, Object> values = new TreeMap<>();
         for (Study study : studies.getStudy()) {
@@ -240,7 +435,7 @@ public class ConjoinerService {
                 if (!descriptors.contains(Dataset.DescriptorCategory.EXPERIMENTAL.name())) {
                     continue;
                 }
-                values.putAll(parseProteomics(study, remoteServerBase));
+                values.putAll(parseProteomics(study, remoteServerBase, featureMap));
                 usedDescriptors.add(Dataset.DescriptorCategory.EXPERIMENTAL);
                 continue;
             }
@@ -251,14 +446,7 @@ public class ConjoinerService {
                     if (!descriptors.contains(Dataset.DescriptorCategory.IMAGE.name())) {
                         continue;
                     }
-                    Response response = client.target(configResourceBundle.getString("ImageBasePath") + "analyze")
-                            .request()
-                            .accept(MediaType.APPLICATION_JSON)
-                            .post(Entity.entity(new Form("image", effect.getResult().getTextValue()), "application/x-www-form-urlencoded"));
-                    GenericType<List<Map<String, Object>>> type = new GenericType<List<Map<String, Object>>>() {
-                    };
-                    List<Map<String, Object>> allParticles = response.readEntity(type);
-                    response.close();
+                    List<Map<String, Object>> allParticles = descriptorCache.await(analyzeImage(effect.getResult().getTextValue()));
                     for (Map<String, Object> particle : allParticles) {
                         if (!particle.get("id").equals("Average Particle")) {
                             continue;
@@ -297,29 +485,12 @@ public class ConjoinerService {
                     } catch (URISyntaxException ex) {
                         continue;
                     }
-                    Response response = client.target(configResourceBundle.getString("AlgorithmsBasePath") + "mopac/calculate")
-                            .request()
-                            .accept(MediaType.APPLICATION_JSON)
-                            .header("subjectid", subjectId)
-                            .post(Entity.form(new Form("pdbfile", effect.getResult().getTextValue())));
-                    GenericType<Map<String, Object>> type = new GenericType<Map<String, Object>>() {
-                    };
-                    Map<String, Object> mopacDescriptors = response.readEntity(type);
-                    response.close();
+                    Map<String, Object> mopacDescriptors = descriptorCache.await(calculateMopac(effect.getResult().getTextValue(), subjectId));
                     values.putAll(mopacDescriptors);
-                    mopacDescriptors.keySet().forEach((key) -> {
-                        Response featureResponse = client.target(key)
-                                .request()
-                                .accept(MediaType.APPLICATION_JSON)
-                                .header("subjectid", subjectId)
-                                .get();
-                        String featureTitle = Json.createReader(featureResponse.readEntity(InputStream.class))
-                                .readObject()
-                                .getJsonObject("feature")
-                                .getJsonObject(key)
-                                .getString("title");
-                        featureResponse.close();
-                        FeatureInfo featureInfo = new org.jaqpot.core.model.dto.dataset.FeatureInfo(key, featureTitle);
+                    Map<String, CompletableFuture<String>> featureTitles = new LinkedHashMap<>();
+                    mopacDescriptors.keySet().forEach(key -> featureTitles.put(key, featureTitle(key, subjectId)));
+                    featureTitles.forEach((key, featureTitle) -> {
+                        FeatureInfo featureInfo = new org.jaqpot.core.model.dto.dataset.FeatureInfo(key, descriptorCache.await(featureTitle));
                         featureInfo.setCategory(Dataset.DescriptorCategory.MOPAC);
                         featureMap.add(featureInfo);
                     });
@@ -417,7 +588,7 @@ public class ConjoinerService {
         return currentValue;
     }
 
-    public Map<String, Object> parseProteomics(Study study, String remoteServerBase) {
+    public Map<String, Object> parseProteomics(Study study, String remoteServerBase, Set<FeatureInfo> featureMap) {
         Map<String, Object> values = new TreeMap<>();
         study.getEffects().stream().findFirst().ifPresent(effect -> {
             String textValue = effect.getResult().getTextValue();
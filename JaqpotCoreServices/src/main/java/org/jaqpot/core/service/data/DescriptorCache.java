@@ -0,0 +1,166 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.data;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * In-process, size bounded (LRU) cache of calculated descriptors (MOPAC,
+ * image analysis) and of remote feature titles. Calculations are keyed by the
+ * hash of their input, run on the managed executor and are shared by all
+ * concurrent callers. Failed calculations are not cached. Inputs that were
+ * fetched with a caller's token must identify the content or the caller, so
+ * that a result is never served to someone who could not read the input.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@ApplicationScoped
+public class DescriptorCache {
+
+    private static final Logger LOG = Logger.getLogger(DescriptorCache.class.getName());
+
+    private static final int MAX_ENTRIES = 2000;
+
+    /**
+     * Maximum time in minutes to wait for a calculation; a little above the
+     * socket timeout of the clients that run them.
+     */
+    private static final long TIMEOUT = 35;
+
+    @Resource
+    ManagedExecutorService executor;
+
+    private final Map<String, CompletableFuture<?>> entries = new LinkedHashMap<String, CompletableFuture<?>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<?>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns the cached result of a calculation, starting it on a miss.
+     *
+     * @param <T> type of the result
+     * @param kind kind of the calculation, e.g. MOPAC
+     * @param input the input of the calculation, hashed to form the key
+     * @param calculation the calculation to run on a miss
+     * @return the pending or completed result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(String kind, String input, Supplier<T> calculation) {
+        String key = kind + ":" + Hashing.sha1().hashString(input, Charsets.UTF_8).toString();
+        CompletableFuture<T> future;
+        synchronized (this) {
+            CompletableFuture<?> cached = entries.get(key);
+            if (cached != null) {
+                return (CompletableFuture<T>) cached;
+            }
+            future = new CompletableFuture<>();
+            entries.put(key, future);
+        }
+        CompletableFuture<T> result = future;
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(calculation.get());
+                } catch (RuntimeException | Error ex) {
+                    LOG.log(Level.FINE, "Calculation " + key + " failed", ex);
+                    fail(key, result, ex);
+                    if (ex instanceof Error) {
+                        throw (Error) ex;
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, "Calculation " + key + " could not be started", ex);
+            fail(key, result, ex);
+        }
+        return result;
+    }
+
+    /**
+     * Waits, at most {@link #TIMEOUT} minutes, for a result returned by
+     * {@link #get}. A calculation that does not finish in time is evicted, so
+     * that the next caller starts it again.
+     *
+     * @param <T> type of the result
+     * @param future a result of this cache
+     * @return the result
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(TIMEOUT, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a descriptor calculation", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException ex) {
+            synchronized (this) {
+                entries.values().remove(future);
+            }
+            future.completeExceptionally(ex);
+            throw new IllegalStateException("Descriptor calculation did not finish in " + TIMEOUT + " minutes", ex);
+        }
+    }
+
+    private synchronized void fail(String key, CompletableFuture<?> result, Throwable cause) {
+        entries.remove(key, result);
+        result.completeExceptionally(cause);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+}
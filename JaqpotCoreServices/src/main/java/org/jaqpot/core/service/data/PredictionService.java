@@ -29,17 +29,33 @@
  */
 package org.jaqpot.core.service.data;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.jms.JMSContext;
 import javax.jms.Topic;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import org.jaqpot.core.data.ModelChain;
 import org.jaqpot.core.data.TaskHandler;
+import org.jaqpot.core.model.MetaInfo;
+import org.jaqpot.core.model.Model;
 import org.jaqpot.core.model.Task;
 import org.jaqpot.core.model.builder.MetaInfoBuilder;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.factory.DatasetFactory;
 import org.jaqpot.core.model.factory.TaskFactory;
+import org.jaqpot.core.service.client.jpdi.JPDIClient;
 
 /**
  *
@@ -49,15 +65,23 @@ import org.jaqpot.core.model.factory.TaskFactory;
 @Stateless
 public class PredictionService {
 
+    private static final long SYNC_TIMEOUT_SECONDS = 30;
+
     @Resource(lookup = "java:jboss/exported/jms/topic/prediction")
     private Topic predictionQueue;
 
+    @Resource(lookup = "java:jboss/exported/jms/topic/batchPrediction")
+    private Topic batchPredictionQueue;
+
     @Inject
     private JMSContext jmsContext;
 
     @EJB
     TaskHandler taskHandler;
 
+    @Inject
+    JPDIClient jpdiClient;
+
     public Task initiatePrediction(Map<String, Object> options) {
 
         Task task = TaskFactory.queuedTask("Prediction by model " + options.get("modelId"),
@@ -71,4 +95,78 @@ public class PredictionService {
         jmsContext.createProducer().setDeliveryDelay(1000).send(predictionQueue, options);
         return task;
     }
+
+    public Task initiateBatchPrediction(Map<String, Object> options) {
+
+        Task task = TaskFactory.queuedTask("Batch prediction",
+                "A batch prediction procedure will return one new Dataset per model and dataset pair. "
+                + "The status and result of each pair are reported as sub-tasks.",
+                (String) options.get("creator"));
+        task.setType(Task.Type.PREDICTION);
+        options.put("taskId", task.getId());
+        task.setVisible(Boolean.TRUE);
+
+        taskHandler.create(task);
+        jmsContext.createProducer().setDeliveryDelay(1000).send(batchPredictionQueue, options);
+        return task;
+    }
+
+    /**
+     * Applies a model chain on a dataset in the calling thread. Neither a task
+     * nor the resulting dataset are persisted.
+     *
+     * @param chain resolved model chain
+     * @param dataset input dataset
+     * @param creator user on whose behalf the prediction is made
+     * @return the predicted dataset
+     */
+    public Dataset predict(ModelChain chain, Dataset dataset, String creator) {
+        String callId = "sync-" + UUID.randomUUID().toString();
+        try {
+            if (dataset.getMeta() == null) {
+                dataset.setMeta(MetaInfoBuilder.builder().build());
+            }
+            for (Model transModel : chain.getTransformationModels()) {
+                dataset = await(jpdiClient.predict(dataset, transModel, dataset.getMeta(), callId));
+            }
+
+            MetaInfo datasetMeta = dataset.getMeta();
+            datasetMeta.setCreators(new HashSet<>(Arrays.asList(creator)));
+            dataset = await(jpdiClient.predict(dataset, chain.getModel(), datasetMeta, callId));
+
+            if (!chain.getLinkedModels().isEmpty()) {
+                Dataset copyDataset = DatasetFactory.copy(dataset);
+                for (Model linkedModel : chain.getLinkedModels()) {
+                    Dataset linkedDataset = await(jpdiClient.predict(copyDataset, linkedModel, dataset.getMeta(), callId));
+                    dataset = DatasetFactory.mergeColumns(dataset, linkedDataset);
+                }
+            }
+            dataset.setByModel(chain.getModel().getId());
+            return dataset;
+        } catch (InterruptedException ex) {
+            jpdiClient.cancel(callId);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Prediction was interrupted.");
+        } catch (TimeoutException ex) {
+            jpdiClient.cancel(callId);
+            throw new ServiceUnavailableException("Prediction did not complete within "
+                    + SYNC_TIMEOUT_SECONDS + " seconds; use POST /model/{id} instead.");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex;
+            while (cause instanceof ExecutionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof WebApplicationException) {
+                throw (WebApplicationException) cause;
+            }
+            if (cause instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) cause;
+            }
+            throw new InternalServerErrorException(cause.getMessage(), cause);
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
 }
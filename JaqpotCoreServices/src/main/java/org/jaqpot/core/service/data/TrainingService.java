@@ -38,10 +38,14 @@ import javax.jms.JMSContext;
 import javax.jms.Topic;
 import javax.ws.rs.NotFoundException;
 import org.jaqpot.core.data.AlgorithmHandler;
+import org.jaqpot.core.data.DatasetHandler;
+import org.jaqpot.core.data.ModelHandler;
 import org.jaqpot.core.data.TaskHandler;
 import org.jaqpot.core.model.Algorithm;
+import org.jaqpot.core.model.Model;
 import org.jaqpot.core.model.Task;
 import org.jaqpot.core.model.builder.MetaInfoBuilder;
+import org.jaqpot.core.model.util.Fingerprint;
 import org.jaqpot.core.model.util.ROG;
 
 /**
@@ -59,9 +63,18 @@ public class TrainingService {
     @EJB
     TaskHandler taskHandler;
 
+    @EJB
+    ModelHandler modelHandler;
+
+    @EJB
+    DatasetHandler datasetHandler;
+
     @Resource(lookup = "java:jboss/exported/jms/topic/training")
     private Topic trainingQueue;
 
+    @Resource(lookup = "java:jboss/exported/jms/topic/search")
+    private Topic searchQueue;
+
     @Inject
     private JMSContext jmsContext;
 
@@ -87,14 +100,119 @@ public class TrainingService {
                 .build());
         task.setType(Task.Type.TRAINING);
 
+        task.setVisible(Boolean.TRUE);
+
+        String fingerprint = fingerprint(options);
+        if (fingerprint != null) {
+            Model cached = modelHandler.findByFingerprint(fingerprint, userName);
+            if (cached != null) {
+                task.getMeta().getComments().add("Equivalent model " + cached.getId() + " already exists; training was skipped.");
+                task.setResult("model/" + cached.getId());
+                task.setHttpStatus(201);
+                task.setPercentageCompleted(100.f);
+                task.setDuration(0L);
+                task.setStatus(Task.Status.COMPLETED);
+                taskHandler.create(task);
+                return task;
+            }
+            options.put("fingerprint", fingerprint);
+        }
+
         task.setHttpStatus(202);
         task.setStatus(Task.Status.QUEUED);
         options.put("taskId", task.getId());
+
+        taskHandler.create(task);
+        jmsContext.createProducer().setDeliveryDelay(1000).send(trainingQueue, options);
+        return task;
+    }
+
+    public Task initiateUpdate(Map<String, Object> options, String userName) {
+
+        String modelId = (String) options.get("modelId");
+        Task task = new Task(new ROG(true).nextString(12));
+        task.setMeta(
+                MetaInfoBuilder.builder()
+                .setCurrentDate()
+                .addTitles("Update of model: " + modelId)
+                .addSources("model/" + modelId)
+                .addComments("Update task created")
+                .addDescriptions("Task that updates model " + modelId + " with new rows")
+                .addCreators(userName)
+                .build());
+        task.setType(Task.Type.TRAINING);
+        task.setHttpStatus(202);
+        task.setStatus(Task.Status.QUEUED);
         task.setVisible(Boolean.TRUE);
+        options.put("taskId", task.getId());
 
         taskHandler.create(task);
         jmsContext.createProducer().setDeliveryDelay(1000).send(trainingQueue, options);
         return task;
     }
 
+    public Task initiateSearch(Map<String, Object> options, String userName) {
+
+        String algorithmId = (String) options.get("algorithmId");
+        Algorithm algorithm = algorithmHandler.find(algorithmId);
+        if (algorithm == null) {
+            throw new NotFoundException("Could not find algorithm with id:" + algorithmId);
+        }
+
+        Task task = new Task(new ROG(true).nextString(12));
+        task.setMeta(
+                MetaInfoBuilder.builder()
+                .setCurrentDate()
+                .addTitles("Parameter search on algorithm: " + algorithm.getId())
+                .addSources("algorithm/" + algorithmId)
+                .addComments("Parameter search task created")
+                .addDescriptions("Parameter search task using algorithm " + algorithmId)
+                .addCreators(userName)
+                .build());
+        task.setType(Task.Type.TRAINING);
+        task.setHttpStatus(202);
+        task.setStatus(Task.Status.QUEUED);
+        task.setVisible(Boolean.TRUE);
+        options.put("taskId", task.getId());
+
+        taskHandler.create(task);
+        jmsContext.createProducer().setDeliveryDelay(1000).send(searchQueue, options);
+        return task;
+    }
+
+    /**
+     * Fingerprint of the inputs of a training. Trainings are only fingerprinted
+     * when their dataset (if any) is stored in this Jaqpot instance, as the
+     * contents of remote datasets cannot be hashed without downloading them.
+     *
+     * @param options training options
+     * @return the fingerprint or null if the training cannot be fingerprinted
+     */
+    private String fingerprint(Map<String, Object> options) {
+        String datasetURI = (String) options.get("dataset_uri");
+        String datasetHash = null;
+        if (datasetURI != null && !datasetURI.isEmpty()) {
+            String localPrefix = options.get("base_uri") + "dataset/";
+            if (!datasetURI.startsWith(localPrefix)) {
+                return null;
+            }
+            datasetHash = datasetHandler.fingerprint(datasetURI.substring(localPrefix.length()));
+            if (datasetHash == null) {
+                return null;
+            }
+        }
+        try {
+            return Fingerprint.builder()
+                    .add("type", Task.Type.TRAINING)
+                    .add("algorithm", options.get("algorithmId"))
+                    .add("dataset", datasetHash)
+                    .add("prediction_feature", options.get("prediction_feature"))
+                    .addJson("parameters", (String) options.get("parameters"))
+                    .add("transformations", options.get("transformations"))
+                    .build();
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
 }
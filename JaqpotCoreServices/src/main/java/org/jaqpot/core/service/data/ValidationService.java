@@ -29,20 +29,26 @@
  */
 package org.jaqpot.core.service.data;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.jms.JMSContext;
+import javax.jms.Topic;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import org.jaqpot.core.data.DatasetHandler;
 import org.jaqpot.core.data.ModelHandler;
+import org.jaqpot.core.data.ReportHandler;
 import org.jaqpot.core.data.TaskHandler;
 import org.jaqpot.core.model.Model;
+import org.jaqpot.core.model.Report;
 import org.jaqpot.core.model.Task;
+import org.jaqpot.core.model.util.Fingerprint;
 import org.jaqpot.core.service.annotations.UnSecure;
 import org.jaqpot.core.service.exceptions.JaqpotWebException;
 
@@ -61,10 +67,94 @@ public class ValidationService {
     @EJB
     ModelHandler modelHandler;
 
+    @EJB
+    ReportHandler reportHandler;
+
+    @EJB
+    DatasetHandler datasetHandler;
+
     @Inject
     @UnSecure
     Client client;
 
+    @Resource(lookup = "java:jboss/exported/jms/topic/validationCross")
+    private Topic crossValidationQueue;
+
+    @Resource(lookup = "java:jboss/exported/jms/topic/validationSplit")
+    private Topic splitValidationQueue;
+
+    @Inject
+    private JMSContext jmsContext;
+
+    public Task initiateCrossValidation(Task task, Map<String, Object> options, String userName) {
+        return initiateValidation(task, options, userName, crossValidationQueue);
+    }
+
+    public Task initiateSplitValidation(Task task, Map<String, Object> options, String userName) {
+        return initiateValidation(task, options, userName, splitValidationQueue);
+    }
+
+    private Task initiateValidation(Task task, Map<String, Object> options, String userName, Topic queue) {
+        String fingerprint = fingerprint(options);
+        if (fingerprint != null) {
+            Report cached = reportHandler.findByFingerprint(fingerprint, userName);
+            if (cached != null) {
+                task.getMeta().getComments().add("Equivalent report " + cached.getId() + " already exists; validation was skipped.");
+                task.setResult("report/" + cached.getId());
+                task.setHttpStatus(201);
+                task.setPercentageCompleted(100.f);
+                task.setDuration(0L);
+                task.setStatus(Task.Status.COMPLETED);
+                taskHandler.create(task);
+                return task;
+            }
+            options.put("fingerprint", fingerprint);
+        }
+        taskHandler.create(task);
+        jmsContext.createProducer().setDeliveryDelay(1000).send(queue, options);
+        return task;
+    }
+
+    /**
+     * Fingerprint of the inputs of a validation. Validations are only
+     * fingerprinted when their dataset is stored in this Jaqpot instance and
+     * the row order is reproducible (i.e. random stratification is seeded).
+     *
+     * @param options validation options
+     * @return the fingerprint or null if the validation cannot be
+     * fingerprinted
+     */
+    private String fingerprint(Map<String, Object> options) {
+        String datasetURI = (String) options.get("dataset_uri");
+        String localPrefix = options.get("base_uri") + "dataset/";
+        if (datasetURI == null || !datasetURI.startsWith(localPrefix)) {
+            return null;
+        }
+        if ("random".equals(options.get("stratify")) && options.get("seed") == null) {
+            return null;
+        }
+        String datasetHash = datasetHandler.fingerprint(datasetURI.substring(localPrefix.length()));
+        if (datasetHash == null) {
+            return null;
+        }
+        try {
+            return Fingerprint.builder()
+                    .add("type", options.containsKey("split_ratio") ? "SPLIT" : "CROSS")
+                    .add("algorithm", options.get("algorithm_uri"))
+                    .add("dataset", datasetHash)
+                    .add("prediction_feature", options.get("prediction_feature"))
+                    .addJson("parameters", (String) options.get("algorithm_params"))
+                    .add("transformations", options.get("transformations"))
+                    .add("folds", options.get("folds"))
+                    .add("split_ratio", options.get("split_ratio"))
+                    .add("stratify", options.get("stratify"))
+                    .add("seed", options.get("seed"))
+                    .build();
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
     public Object[] trainAndTest(String algorithmURI, String trainingDataset, String testingDataset, String predictionFeature, String algorithmParameters, String transformations, String scaling, String subjectId) throws JaqpotWebException {
         MultivaluedMap<String, String> params = new MultivaluedHashMap<>();
         params.add("dataset_uri", trainingDataset);
@@ -83,9 +83,6 @@ public class AuthorizationRequestFilter implements ContainerRequestFilter {
 
     private void _handleAnonymous(ContainerRequestContext requestContext) {
         // When operating without AA, all users are anonymous
-        Principal userPrincipal = new UserPrincipal("anonymous");
-        SecurityContext securityContext = new SecurityContextImpl(userPrincipal);
-        requestContext.setSecurityContext(securityContext);
         User anonymousUser = userHandler.find("anonymous");
         if (anonymousUser == null) { // The anonymous user is a DB entry
             // create an anonymous user if it doesn't exist!
@@ -94,14 +91,26 @@ public class AuthorizationRequestFilter implements ContainerRequestFilter {
             anonymousUser.setMail("anonymous@jaqpot.org");
             userHandler.create(anonymousUser);
         }
+        _handleSecurityContext(anonymousUser, requestContext);
     }
 
     private void _handleSecurityContext(User user, ContainerRequestContext requestContext) {
-        Principal userPrincipal = new UserPrincipal(user.getId());
+        Principal userPrincipal = new UserPrincipal(user);
         SecurityContext securityContext = new SecurityContextImpl(userPrincipal);
         requestContext.setSecurityContext(securityContext);
     }
 
+    private User _resolveUser(User user) {
+        // is the user in the DB? (users are cached by the user handler)
+        User userInDB = userHandler.find(user.getId());
+        if (userInDB == null) { // user not in DB - create...
+            LOG.log(Level.INFO, "New user registered in DB with ID {0}", user.getId());
+            userHandler.create(user);
+            return user;
+        }
+        return userInDB;
+    }
+
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
 
@@ -120,6 +129,7 @@ public class AuthorizationRequestFilter implements ContainerRequestFilter {
                         .ok(ErrorReportFactory.unauthorized("Please provide an authorization token in a subjectid header."))
                         .status(Response.Status.UNAUTHORIZED)
                         .build());
+                return; // no token
             }
         }
 
@@ -135,7 +145,7 @@ public class AuthorizationRequestFilter implements ContainerRequestFilter {
         // who is this user? is the user cached?
         User user = aaService.getUserFromToken(token);
         if (user != null) {
-            _handleSecurityContext(user, requestContext); // update the security context
+            _handleSecurityContext(_resolveUser(user), requestContext); // update the security context
             return; // user is cached!
         }
 
@@ -147,18 +157,12 @@ public class AuthorizationRequestFilter implements ContainerRequestFilter {
                     ok(ErrorReportFactory.unauthorized("User attributes could not be retrived!"))
                     .status(Response.Status.FORBIDDEN)
                     .build());
+            return; // unknown user
         }
         aaService.registerUserToken(token, user); // cache the user (by token)
 
-        // is the user in the DB?
-        User userInDB = userHandler.find(user.getId());
-        if (userInDB == null) { // user not in DB - create...
-            LOG.log(Level.INFO, "New user registered in DB with ID {0}", user.getId());
-            userHandler.create(user);
-        }
-
         // update the security context
-        _handleSecurityContext(user, requestContext);
+        _handleSecurityContext(_resolveUser(user), requestContext);
 
     }
 
@@ -0,0 +1,129 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.filter;
+
+import java.io.IOException;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import org.jaqpot.core.model.User;
+import org.jaqpot.core.model.facades.UserFacade;
+import org.jaqpot.core.model.factory.ErrorReportFactory;
+import org.jaqpot.core.service.annotations.RateLimit;
+import org.jaqpot.core.service.security.RateLimiter;
+import org.jaqpot.core.service.security.UserPrincipal;
+
+/**
+ * Rejects requests of users that exceed the rate allowed for the route class
+ * of a {@link RateLimit} annotated method with 429 (Too Many Requests). The
+ * rate is the user's "&lt;route class&gt;PerMinute" capability or, if the user
+ * has no such capability, jaqpot.ratelimit.&lt;route class&gt; of the
+ * configuration.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ *
+ */
+@Provider
+@RateLimit
+@Priority(Priorities.AUTHORIZATION)
+public class RateLimitRequestFilter implements ContainerRequestFilter {
+
+    private static final Logger LOG = Logger.getLogger(RateLimitRequestFilter.class.getName());
+
+    @Inject
+    RateLimiter rateLimiter;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    private ResourceBundle configResourceBundle;
+
+    public RateLimitRequestFilter() {
+    }
+
+    @PostConstruct
+    private void init() {
+        configResourceBundle = ResourceBundle.getBundle("config");
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        RateLimit rateLimit = resourceInfo.getResourceMethod().getAnnotation(RateLimit.class);
+        if (rateLimit == null) {
+            rateLimit = resourceInfo.getResourceClass().getAnnotation(RateLimit.class);
+        }
+        String route = rateLimit.value();
+        User user = UserPrincipal.userOf(requestContext.getSecurityContext());
+        String userName = user != null ? user.getId() : requestContext.getSecurityContext().getUserPrincipal().getName();
+
+        int perMinute = user != null ? new UserFacade(user).getMaxRequestsPerMinute(route) : -1;
+        if (perMinute < 0) {
+            perMinute = defaultPerMinute(route);
+        }
+
+        long wait = rateLimiter.acquire(userName, route, perMinute);
+        if (wait > 0) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            LOG.log(Level.FINE, "User {0} exceeded the rate limit of {1}", new Object[]{userName, route});
+            requestContext.abortWith(Response
+                    .status(429)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(ErrorReportFactory.tooManyRequests("Dear " + userName + ", you may not make more than "
+                            + perMinute + " requests of this kind (" + route + ") per minute. "
+                            + "Please retry after " + retryAfter + " seconds."))
+                    .build());
+        }
+    }
+
+    private int defaultPerMinute(String route) {
+        try {
+            return Integer.parseInt(configResourceBundle.getString("jaqpot.ratelimit." + route));
+        } catch (MissingResourceException ex) {
+            return Integer.parseInt(configResourceBundle.getString("jaqpot.ratelimit.default"));
+        }
+    }
+
+}
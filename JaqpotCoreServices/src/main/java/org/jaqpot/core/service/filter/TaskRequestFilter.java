@@ -42,11 +42,11 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.Provider;
 import org.jaqpot.core.data.TaskHandler;
-import org.jaqpot.core.data.UserHandler;
 import org.jaqpot.core.model.ErrorReport;
 import org.jaqpot.core.model.User;
 import org.jaqpot.core.model.factory.ErrorReportFactory;
 import org.jaqpot.core.service.annotations.Task;
+import org.jaqpot.core.service.security.UserPrincipal;
 
 /**
  *
@@ -59,9 +59,6 @@ import org.jaqpot.core.service.annotations.Task;
 @Priority(Priorities.USER)
 public class TaskRequestFilter implements ContainerRequestFilter {
 
-    @EJB
-    UserHandler userHandler;
-
     @EJB
     TaskHandler taskHandler;
 
@@ -78,7 +75,7 @@ public class TaskRequestFilter implements ContainerRequestFilter {
         Long runningTasks = taskHandler.countByUserAndStatus(userName, org.jaqpot.core.model.Task.Status.RUNNING);
         Long parallelTasks = queuedTasks + runningTasks;
 
-        User user = userHandler.find(userName);
+        User user = UserPrincipal.userOf(requestContext.getSecurityContext());
 
         Integer maxParallelTasks = user.getCapabilities().get("tasksParallel");
 
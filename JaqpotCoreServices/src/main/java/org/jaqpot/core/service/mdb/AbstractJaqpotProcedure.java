@@ -35,6 +35,7 @@
 package org.jaqpot.core.service.mdb;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -106,6 +107,11 @@ public abstract class AbstractJaqpotProcedure implements MessageListener {
         taskHandler.edit(task);
     }
 
+    protected void progress(Float percentage, List<Task> subTasks, String... messages) {
+        task.setSubTasks(subTasks);
+        progress(percentage, messages);
+    }
+
     protected void cancel() {
         task.setStatus(Task.Status.CANCELLED);
         task.getMeta().getComments().add("Task was cancelled by the user.");
@@ -0,0 +1,371 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.mdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.Resource;
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.MediaType;
+import org.jaqpot.core.annotations.Jackson;
+import org.jaqpot.core.data.DatasetHandler;
+import org.jaqpot.core.data.ModelChain;
+import org.jaqpot.core.data.ModelHandler;
+import org.jaqpot.core.data.TaskHandler;
+import org.jaqpot.core.data.serialize.JSONSerializer;
+import org.jaqpot.core.model.MetaInfo;
+import org.jaqpot.core.model.Model;
+import org.jaqpot.core.model.Task;
+import org.jaqpot.core.model.builder.MetaInfoBuilder;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.factory.DatasetFactory;
+import org.jaqpot.core.model.factory.ErrorReportFactory;
+import org.jaqpot.core.service.annotations.Secure;
+import org.jaqpot.core.service.client.jpdi.JPDIClient;
+
+/**
+ * Runs the predictions of many models on many datasets under a single task.
+ * Every model chain (transformations, main and linked models) is resolved
+ * once, a bounded number of (model, dataset) pairs is predicted concurrently
+ * and the resulting datasets of each window are stored with one bulk write.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "destinationLookup",
+            propertyValue = "java:jboss/exported/jms/topic/batchPrediction"),
+    @ActivationConfigProperty(propertyName = "destinationType",
+            propertyValue = "javax.jms.Topic")
+})
+public class BatchPredictionProcedure extends AbstractJaqpotProcedure implements MessageListener {
+
+    private static final Logger LOG = Logger.getLogger(BatchPredictionProcedure.class.getName());
+
+    /**
+     * Maximum number of (model, dataset) pairs in flight.
+     */
+    private static final int WINDOW = 8;
+
+    @EJB
+    ModelHandler modelHandler;
+
+    @EJB
+    DatasetHandler datasetHandler;
+
+    @Inject
+    @Jackson
+    JSONSerializer serializer;
+
+    @Inject
+    JPDIClient jpdiClient;
+
+    @Inject
+    @Secure
+    Client client;
+
+    @Resource
+    ManagedExecutorService executor;
+
+    public BatchPredictionProcedure() {
+        super(null);
+    }
+
+    @Inject
+    public BatchPredictionProcedure(TaskHandler taskHandler) {
+        super(taskHandler);
+    }
+
+    @Override
+    public void onMessage(Message msg) {
+        Map<String, Object> messageBody;
+        try {
+            messageBody = msg.getBody(Map.class);
+        } catch (JMSException ex) {
+            LOG.log(Level.SEVERE, "JMS message could not be read", ex);
+            return;
+        }
+
+        String taskId = (String) messageBody.get("taskId");
+        String subjectId = (String) messageBody.get("subjectid");
+        String creator = (String) messageBody.get("creator");
+
+        List<Item> items = new ArrayList<>();
+        List<Future<Dataset>> futures = new ArrayList<>();
+        try {
+            init(taskId);
+            checkCancelled();
+            start(Task.Type.PREDICTION);
+
+            List<String> modelIds = serializer.parse((String) messageBody.get("model_ids"), ArrayList.class);
+            List<String> datasetURIs = serializer.parse((String) messageBody.get("dataset_uris"), ArrayList.class);
+
+            Map<String, ModelChain> chains = new LinkedHashMap<>();
+            for (String modelId : modelIds) {
+                chains.put(modelId, resolve(modelId));
+            }
+            progress(10f, "Resolved " + chains.size() + " model(s).");
+            checkCancelled();
+
+            List<Task> subTasks = new ArrayList<>();
+            for (String datasetURI : datasetURIs) {
+                for (String modelId : modelIds) {
+                    Item item = new Item(taskId + "-" + items.size(), datasetURI, chains.get(modelId));
+                    items.add(item);
+                    subTasks.add(item.subTask);
+                }
+            }
+            progress(15f, subTasks, "Created " + items.size() + " prediction(s).");
+
+            Map<String, CompletableFuture<Dataset>> downloads = new ConcurrentHashMap<>();
+            int failed = 0;
+            for (int start = 0; start < items.size(); start += WINDOW) {
+                checkCancelled();
+                List<Item> window = items.subList(start, Math.min(start + WINDOW, items.size()));
+                futures = new ArrayList<>(window.size());
+                for (Item item : window) {
+                    item.subTask.setStatus(Task.Status.RUNNING);
+                    futures.add(executor.submit(() -> predict(item, download(downloads, item.datasetURI, subjectId), creator)));
+                }
+
+                List<Dataset> results = new ArrayList<>(window.size());
+                List<Item> succeeded = new ArrayList<>(window.size());
+                for (int i = 0; i < window.size(); i++) {
+                    Item item = window.get(i);
+                    try {
+                        results.add(futures.get(i).get());
+                        succeeded.add(item);
+                    } catch (ExecutionException ex) {
+                        Throwable cause = ex.getCause();
+                        while (cause instanceof ExecutionException && cause.getCause() != null) {
+                            cause = cause.getCause();
+                        }
+                        if (cause instanceof CancellationException) {
+                            // a JPDI call of the batch was cancelled with the parent task
+                            throw new CancellationException("Task with id:" + taskId + " was cancelled");
+                        }
+                        LOG.log(Level.WARNING, "Batch prediction item " + item.subTask.getId() + " failed", cause);
+                        fail(item.subTask, cause);
+                        failed++;
+                    }
+                }
+                datasetHandler.createAll(results);
+                for (int i = 0; i < succeeded.size(); i++) {
+                    Task subTask = succeeded.get(i).subTask;
+                    subTask.setResult("dataset/" + results.get(i).getId());
+                    subTask.setHttpStatus(201);
+                    subTask.setPercentageCompleted(100.f);
+                    subTask.setStatus(Task.Status.COMPLETED);
+                }
+
+                int next = start + window.size();
+                downloads.keySet().retainAll(items.subList(next, items.size()).stream()
+                        .map(item -> item.datasetURI)
+                        .collect(Collectors.toSet()));
+                progress(15f + 80f * next / items.size(), subTasks,
+                        "Completed " + next + " of " + items.size() + " prediction(s).");
+            }
+
+            if (failed == items.size()) {
+                errInternalServerError("All " + failed + " prediction(s) of the batch failed.");
+                return;
+            }
+            complete(null);
+        } catch (InterruptedException ex) {
+            LOG.log(Level.SEVERE, "Batch prediction procedure interupted", ex);
+            abort(items, futures, ex);
+            errInternalServerError(ex, "Batch prediction procedure interupted");
+        } catch (CancellationException ex) {
+            LOG.log(Level.INFO, "Task with id:{0} was cancelled", taskId);
+            abort(items, futures, ex);
+            cancel();
+        } catch (NotFoundException ex) {
+            abort(items, futures, ex);
+            errNotFound(ex);
+        } catch (BadRequestException | IllegalArgumentException ex) {
+            abort(items, futures, ex);
+            errBadRequest(ex, null);
+        } catch (Exception ex) {
+            LOG.log(Level.SEVERE, "Batch prediction procedure unknown error", ex);
+            abort(items, futures, ex);
+            errInternalServerError(ex, "Batch prediction procedure unknown error");
+        }
+    }
+
+    /**
+     * Stops the predictions of the current window, including their JPDI
+     * calls, and marks every sub-task that did not complete as cancelled or
+     * failed, so that none of them is left running or queued when the parent
+     * task ends.
+     */
+    private void abort(List<Item> items, List<Future<Dataset>> futures, Throwable cause) {
+        futures.forEach(future -> future.cancel(true));
+        for (Item item : items) {
+            Task.Status status = item.subTask.getStatus();
+            if (status == Task.Status.RUNNING) {
+                jpdiClient.cancel(item.subTask.getId());
+            }
+            if (status == Task.Status.RUNNING || status == Task.Status.QUEUED) {
+                if (cause instanceof CancellationException) {
+                    item.subTask.setStatus(Task.Status.CANCELLED);
+                } else {
+                    fail(item.subTask, cause);
+                }
+            }
+        }
+    }
+
+    private ModelChain resolve(String modelId) {
+        ModelChain chain = modelHandler.findChain(modelId);
+        if (chain == null) {
+            throw new NotFoundException("Model with id:" + modelId + " was not found.");
+        }
+        return chain;
+    }
+
+    private Dataset download(Map<String, CompletableFuture<Dataset>> downloads, String datasetURI, String subjectId) throws InterruptedException, ExecutionException {
+        CompletableFuture<Dataset> future = new CompletableFuture<>();
+        CompletableFuture<Dataset> existing = downloads.putIfAbsent(datasetURI, future);
+        if (existing != null) {
+            return existing.get();
+        }
+        try {
+            future.complete(fetch(datasetURI, subjectId));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future.get();
+    }
+
+    Dataset fetch(String datasetURI, String subjectId) {
+        Dataset dataset = client.target(datasetURI)
+                .request()
+                .header("subjectid", subjectId)
+                .accept(MediaType.APPLICATION_JSON)
+                .get(Dataset.class);
+        dataset.setDatasetURI(datasetURI);
+        return dataset;
+    }
+
+    private Dataset predict(Item item, Dataset downloaded, String creator) throws InterruptedException, ExecutionException {
+        // The downloaded dataset is shared between the items of the batch,
+        // so each item works on its own features and meta.
+        Dataset dataset = DatasetFactory.copy(downloaded);
+        dataset.setFeatures(new HashSet<>(downloaded.getFeatures()));
+        dataset.setMeta(downloaded.getMeta() != null ? new MetaInfo(downloaded.getMeta()) : MetaInfoBuilder.builder().build());
+
+        ModelChain chain = item.chain;
+        for (Model transModel : chain.getTransformationModels()) {
+            dataset = jpdiClient.predict(dataset, transModel, dataset.getMeta(), item.subTask.getId()).get();
+        }
+
+        MetaInfo datasetMeta = dataset.getMeta();
+        datasetMeta.setCreators(new HashSet<>(Arrays.asList(creator)));
+        dataset = jpdiClient.predict(dataset, chain.getModel(), datasetMeta, item.subTask.getId()).get();
+
+        if (!chain.getLinkedModels().isEmpty()) {
+            Dataset copyDataset = DatasetFactory.copy(dataset);
+            for (Model linkedModel : chain.getLinkedModels()) {
+                Dataset linkedDataset = jpdiClient.predict(copyDataset, linkedModel, dataset.getMeta(), item.subTask.getId()).get();
+                dataset = DatasetFactory.mergeColumns(dataset, linkedDataset);
+            }
+        }
+        dataset.setVisible(Boolean.TRUE);
+        dataset.setFeatured(Boolean.FALSE);
+        dataset.setByModel(chain.getModel().getId());
+        // checked here, so that an invalid result fails only its own item
+        datasetHandler.validate(dataset);
+        return dataset;
+    }
+
+    private static void fail(Task subTask, Throwable cause) {
+        subTask.setStatus(Task.Status.ERROR);
+        if (cause instanceof NotFoundException) {
+            subTask.setHttpStatus(404);
+            subTask.setErrorReport(ErrorReportFactory.notFoundError(cause, null));
+        } else if (cause instanceof BadRequestException || cause instanceof IllegalArgumentException) {
+            subTask.setHttpStatus(400);
+            subTask.setErrorReport(ErrorReportFactory.badRequest(cause, null));
+        } else {
+            subTask.setHttpStatus(500);
+            subTask.setErrorReport(ErrorReportFactory.internalServerError(cause, null));
+        }
+    }
+
+    /**
+     * One (model, dataset) pair of the batch and its sub-task.
+     */
+    private static class Item {
+
+        private final String datasetURI;
+        private final ModelChain chain;
+        private final Task subTask;
+
+        private Item(String id, String datasetURI, ModelChain chain) {
+            this.datasetURI = datasetURI;
+            this.chain = chain;
+            this.subTask = new Task(id);
+            this.subTask.setMeta(MetaInfoBuilder.builder()
+                    .addTitles("Prediction by model " + chain.getModel().getId())
+                    .addSources(datasetURI)
+                    .build());
+            this.subTask.setType(Task.Type.PREDICTION);
+            this.subTask.setHttpStatus(202);
+            this.subTask.setStatus(Task.Status.QUEUED);
+        }
+    }
+}
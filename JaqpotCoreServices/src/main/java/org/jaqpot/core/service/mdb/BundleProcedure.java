@@ -0,0 +1,359 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.mdb;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.Resource;
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.MessageDriven;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import org.jaqpot.core.annotations.Jackson;
+import org.jaqpot.core.data.TaskHandler;
+import org.jaqpot.core.data.serialize.JSONSerializer;
+import org.jaqpot.core.model.Task;
+import org.jaqpot.core.model.dto.ambit.AmbitTask;
+import org.jaqpot.core.model.dto.ambit.AmbitTaskArray;
+import org.jaqpot.core.model.dto.ambit.ProtocolCategory;
+import org.jaqpot.core.model.dto.bundle.BundleSubstances;
+import org.jaqpot.core.model.util.RemoteTaskPoller;
+import org.jaqpot.core.service.annotations.UnSecure;
+
+/**
+ * Creates an ambit bundle from a substance owner and populates it with
+ * substances and property categories. The population requests are issued
+ * concurrently, at most {@link #WINDOW} at a time, and transient failures are
+ * retried with backoff.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "destinationLookup",
+            propertyValue = "java:jboss/exported/jms/topic/bundle"),
+    @ActivationConfigProperty(propertyName = "destinationType",
+            propertyValue = "javax.jms.Topic")
+})
+public class BundleProcedure extends AbstractJaqpotProcedure implements MessageListener {
+
+    private static final Logger LOG = Logger.getLogger(BundleProcedure.class.getName());
+
+    /**
+     * Maximum number of population requests in flight; stays below the
+     * connection pool of the unsecure client.
+     */
+    private static final int WINDOW = 16;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final long RETRY_DELAY = 500;
+
+    /**
+     * Maximum time in minutes to wait for ambit to create the bundle.
+     */
+    private static final long BUNDLE_TIMEOUT = 5;
+
+    @Inject
+    @UnSecure
+    Client client;
+
+    @Inject
+    @Jackson
+    JSONSerializer serializer;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    public BundleProcedure() {
+        super(null);
+    }
+
+    @Inject
+    public BundleProcedure(TaskHandler taskHandler) {
+        super(taskHandler);
+    }
+
+    @Override
+    public void onMessage(Message msg) {
+        Map<String, Object> messageBody;
+        try {
+            messageBody = msg.getBody(Map.class);
+        } catch (JMSException ex) {
+            LOG.log(Level.SEVERE, "JMS message could not be read", ex);
+            return;
+        }
+
+        String taskId = (String) messageBody.get("taskId");
+        String substanceOwner = (String) messageBody.get("substance_owner");
+        String description = (String) messageBody.get("description");
+        String substancesString = (String) messageBody.get("substances");
+        String propertiesString = (String) messageBody.get("properties");
+        String subjectId = (String) messageBody.get("subjectid");
+        String creator = (String) messageBody.get("creator");
+
+        try {
+            init(taskId);
+            checkCancelled();
+            start(Task.Type.PREPARATION);
+
+            MultivaluedMap<String, String> formParameters = new MultivaluedHashMap<>();
+            formParameters.add("title", "owner-bundle");
+            formParameters.add("description", description);
+            formParameters.add("source", creator);
+            formParameters.add("seeAlso", substanceOwner);
+            formParameters.add("license", "Copyright of " + creator);
+            formParameters.add("rightsHolder", creator);
+            formParameters.add("maintainer", creator);
+            formParameters.add("stars", "1");
+
+            String bundleBaseUri = substanceOwner.split("substanceowner")[0] + "bundle";
+            AmbitTask ambitTask = client.target(bundleBaseUri)
+                    .request()
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header("subjectid", subjectId)
+                    .post(Entity.form(formParameters), AmbitTaskArray.class)
+                    .getTask()
+                    .get(0);
+            String ambitTaskUri = ambitTask.getUri();
+            progress(10f, "Waiting for ambit task " + ambitTaskUri + " to create the bundle...");
+
+            ambitTask = new RemoteTaskPoller(scheduler)
+                    .poll(ambitTask,
+                            t -> "Running".equals(t.getStatus()) || "Queued".equals(t.getStatus()),
+                            t -> client.target(ambitTaskUri)
+                                    .request()
+                                    .accept(MediaType.APPLICATION_JSON)
+                                    .header("subjectid", subjectId)
+                                    .get(AmbitTaskArray.class)
+                                    .getTask()
+                                    .get(0),
+                            BUNDLE_TIMEOUT, TimeUnit.MINUTES)
+                    .get();
+            if (!"Completed".equals(ambitTask.getStatus())) {
+                errInternalServerError("Ambit task " + ambitTaskUri + " did not complete: " + ambitTask.getError());
+                return;
+            }
+            String bundleUri = ambitTask.getResult();
+            progress(20f, "Bundle " + bundleUri + " created.");
+            checkCancelled();
+
+            List<String> substances = substancesString == null ? null : serializer.parse(substancesString, ArrayList.class);
+            if (substances == null || substances.isEmpty()) {
+                BundleSubstances ownerSubstances = client.target(substanceOwner + "/substance")
+                        .request()
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("subjectid", subjectId)
+                        .get(BundleSubstances.class);
+                substances = ownerSubstances.getSubstance()
+                        .stream()
+                        .map(s -> s.getURI())
+                        .collect(Collectors.toList());
+            }
+
+            Map<String, List<String>> properties = propertiesString == null ? null : serializer.parse(propertiesString, LinkedHashMap.class);
+            if (properties == null || properties.isEmpty()) {
+                properties = new HashMap<>();
+                for (ProtocolCategory category : ProtocolCategory.values()) {
+                    properties.computeIfAbsent(category.getTopCategory(), k -> new ArrayList<>()).add(category.name());
+                }
+            }
+
+            List<Request> requests = new ArrayList<>();
+            for (String substance : substances) {
+                Form form = new Form()
+                        .param("substance_uri", substance)
+                        .param("command", "add");
+                requests.add(new Request(bundleUri + "/substance", form));
+            }
+            for (Map.Entry<String, List<String>> entry : properties.entrySet()) {
+                for (String subCategory : entry.getValue()) {
+                    Form form = new Form()
+                            .param("topcategory", entry.getKey())
+                            .param("endpointcategory", subCategory)
+                            .param("command", "add");
+                    requests.add(new Request(bundleUri + "/property", form));
+                }
+            }
+            progress(25f, "Adding " + substances.size() + " substance(s) and "
+                    + (requests.size() - substances.size()) + " property categories...");
+
+            int failed = populate(requests, subjectId);
+            if (failed > 0) {
+                progress(failed + " of " + requests.size() + " bundle update(s) failed.");
+            }
+            complete(bundleUri);
+        } catch (InterruptedException ex) {
+            LOG.log(Level.SEVERE, "Bundle procedure interupted", ex);
+            errInternalServerError(ex, "Bundle procedure interupted");
+        } catch (CancellationException ex) {
+            LOG.log(Level.INFO, "Task with id:{0} was cancelled", taskId);
+            cancel();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                errInternalServerError("Ambit did not create the bundle within " + BUNDLE_TIMEOUT + " minutes.");
+            } else {
+                LOG.log(Level.SEVERE, "Bundle procedure remote error", ex.getCause());
+                errInternalServerError(ex.getCause(), "Bundle procedure remote error");
+            }
+        } catch (BadRequestException ex) {
+            errBadRequest(ex, null);
+        } catch (Exception ex) {
+            LOG.log(Level.SEVERE, "Bundle procedure unknown error", ex);
+            errInternalServerError(ex, "Bundle procedure unknown error");
+        }
+    }
+
+    /**
+     * Issues the bundle updates keeping up to {@link #WINDOW} of them in
+     * flight and reports progress after every window.
+     *
+     * @return the number of updates that failed after all attempts
+     */
+    private int populate(List<Request> requests, String subjectId) throws InterruptedException {
+        Deque<CompletableFuture<Boolean>> window = new ArrayDeque<>(WINDOW);
+        int next = 0;
+        int done = 0;
+        int failed = 0;
+        try {
+            while (done < requests.size()) {
+                while (next < requests.size() && window.size() < WINDOW) {
+                    window.add(put(requests.get(next++), subjectId, 1));
+                }
+                try {
+                    if (!window.poll().get()) {
+                        failed++;
+                    }
+                } catch (ExecutionException ex) {
+                    failed++;
+                }
+                done++;
+                if (done % WINDOW == 0 || done == requests.size()) {
+                    checkCancelled();
+                    progress(25f + 70f * done / requests.size(), "Completed " + done + " of " + requests.size() + " bundle update(s).");
+                }
+            }
+        } finally {
+            window.forEach(f -> f.cancel(true));
+        }
+        return failed;
+    }
+
+    /**
+     * Sends a bundle update, retrying connection failures and server errors.
+     *
+     * @return a future that completes with whether the update succeeded
+     */
+    private CompletableFuture<Boolean> put(Request request, String subjectId, int attempt) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        client.target(request.target)
+                .request()
+                .accept(MediaType.APPLICATION_JSON)
+                .header("subjectid", subjectId)
+                .async()
+                .put(Entity.form(request.form), new InvocationCallback<Response>() {
+                    @Override
+                    public void completed(Response response) {
+                        int status = response.getStatus();
+                        response.close();
+                        if (status >= 500 && attempt < MAX_ATTEMPTS) {
+                            retry(result, request, subjectId, attempt);
+                        } else {
+                            if (status >= 400) {
+                                LOG.log(Level.WARNING, "Bundle update {0} failed with status {1}", new Object[]{request.target, status});
+                            }
+                            result.complete(status < 400);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Throwable throwable) {
+                        if (throwable instanceof ProcessingException && attempt < MAX_ATTEMPTS) {
+                            retry(result, request, subjectId, attempt);
+                        } else {
+                            LOG.log(Level.WARNING, "Bundle update " + request.target + " failed", throwable);
+                            result.complete(false);
+                        }
+                    }
+                });
+        return result;
+    }
+
+    private void retry(CompletableFuture<Boolean> result, Request request, String subjectId, int attempt) {
+        scheduler.schedule(() -> {
+            if (!result.isDone()) {
+                put(request, subjectId, attempt + 1).thenAccept(result::complete);
+            }
+        }, RETRY_DELAY << (attempt - 1), TimeUnit.MILLISECONDS);
+    }
+
+    private static class Request {
+
+        private final String target;
+        private final Form form;
+
+        Request(String target, Form form) {
+            this.target = target;
+            this.form = form;
+        }
+    }
+
+}
@@ -141,6 +141,7 @@ public class CrossValidationProcedure extends AbstractJaqpotProcedure {
         String algorithmParams = (String) messageBody.get("algorithm_params");
         String trans = (String) messageBody.get("transformations");
         String creator = (String) messageBody.get("creator");
+        String fingerprint = (String) messageBody.get("fingerprint");
 
         Integer folds = (Integer) messageBody.get("folds");
         String stratify = (String) messageBody.get("stratify");
@@ -299,6 +300,7 @@ public class CrossValidationProcedure extends AbstractJaqpotProcedure {
                     .addDescriptions(folds + " Fold cross validation on algorithm:" + algorithmURI + " with dataset:" + datasetURI)
                     .build());
             report.setVisible(Boolean.TRUE);
+            report.setFingerprint(fingerprint);
             reportHandler.create(report);
             complete("report/" + report.getId());
 
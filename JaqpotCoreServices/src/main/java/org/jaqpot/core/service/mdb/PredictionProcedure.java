@@ -37,6 +37,7 @@ package org.jaqpot.core.service.mdb;
 import org.jaqpot.core.annotations.Jackson;
 import org.jaqpot.core.data.AlgorithmHandler;
 import org.jaqpot.core.data.DatasetHandler;
+import org.jaqpot.core.data.ModelChain;
 import org.jaqpot.core.data.ModelHandler;
 import org.jaqpot.core.data.TaskHandler;
 import org.jaqpot.core.data.serialize.JSONSerializer;
@@ -56,6 +57,7 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.core.MediaType;
 import java.util.Arrays;
@@ -135,11 +137,12 @@ public class PredictionProcedure extends AbstractJaqpotProcedure implements Mess
 
             progress(5f, "Prediction Task is now running.");
 
-            Model model = modelHandler.find(modelId);
-            if (model == null) {
+            ModelChain chain = modelHandler.findChain(modelId);
+            if (chain == null) {
                 errNotFound("Model with id:" + modelId + " was not found.");
                 return;
             }
+            Model model = chain.getModel();
             progress(10f, "Model retrieved successfully.");
             checkCancelled();
 
@@ -159,15 +162,10 @@ public class PredictionProcedure extends AbstractJaqpotProcedure implements Mess
             progress(20f);
             checkCancelled();
 
-            if (model.getTransformationModels() != null && !model.getTransformationModels().isEmpty()) {
+            if (!chain.getTransformationModels().isEmpty()) {
                 progress("--", "Processing transformations...");
-                for (String transModelURI : model.getTransformationModels()) {
+                for (Model transModel : chain.getTransformationModels()) {
                     checkCancelled();
-                    Model transModel = modelHandler.find(transModelURI.split("model/")[1]);
-                    if (transModel == null) {
-                        errNotFound("Transformation model with id:" + transModelURI + " was not found.");
-                        return;
-                    }
                     dataset = jpdiClient.predict(dataset, transModel, dataset != null ? dataset.getMeta() : null, taskId).get();
                     addProgress(5f, "Transformed successfull by model:" + transModel.getId());
                 }
@@ -187,16 +185,11 @@ public class PredictionProcedure extends AbstractJaqpotProcedure implements Mess
             progress(80f, "Dataset was built successfully.");
             checkCancelled();
 
-            if (model.getLinkedModels() != null & !model.getLinkedModels().isEmpty()) {
+            if (!chain.getLinkedModels().isEmpty()) {
                 progress("--", "Processing linked models...");
                 Dataset copyDataset = DatasetFactory.copy(dataset);
-                for (String linkedModelURI : model.getLinkedModels()) {
+                for (Model linkedModel : chain.getLinkedModels()) {
                     checkCancelled();
-                    Model linkedModel = modelHandler.find(linkedModelURI.split("model/")[1]);
-                    if (linkedModel == null) {
-                        errNotFound("Transformation model with id:" + linkedModelURI + " was not found.");
-                        return;
-                    }
                     Dataset linkedDataset = jpdiClient.predict(copyDataset, linkedModel, dataset != null ? dataset.getMeta() : null, taskId).get();
                     dataset = DatasetFactory.mergeColumns(dataset, linkedDataset);
                     addProgress(5f, "Prediction successfull by model:" + linkedModel.getId());
@@ -220,6 +213,8 @@ public class PredictionProcedure extends AbstractJaqpotProcedure implements Mess
         } catch (CancellationException ex) {
             LOG.log(Level.INFO, "Task with id:{0} was cancelled", taskId);
             cancel();
+        } catch (NotFoundException ex) {
+            errNotFound(ex);
         } catch (BadRequestException | IllegalArgumentException ex) {
             errBadRequest(ex, null);
         } catch (Exception ex) {
@@ -0,0 +1,234 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.mdb;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.EJB;
+import javax.ejb.MessageDriven;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.MediaType;
+import org.jaqpot.core.annotations.Jackson;
+import org.jaqpot.core.data.AlgorithmHandler;
+import org.jaqpot.core.data.ModelHandler;
+import org.jaqpot.core.data.ReportHandler;
+import org.jaqpot.core.data.TaskHandler;
+import org.jaqpot.core.data.serialize.JSONSerializer;
+import org.jaqpot.core.model.Algorithm;
+import org.jaqpot.core.model.MetaInfo;
+import org.jaqpot.core.model.Model;
+import org.jaqpot.core.model.Report;
+import org.jaqpot.core.model.Task;
+import org.jaqpot.core.model.builder.MetaInfoBuilder;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.util.ROG;
+import org.jaqpot.core.service.annotations.Secure;
+import org.jaqpot.core.service.client.jpdi.JPDIClient;
+import org.jaqpot.core.service.client.jpdi.SearchResult;
+
+/**
+ * Runs a parameter search on an algorithm service. The dataset is downloaded
+ * once and all candidates are evaluated by the algorithm service on shared
+ * folds; the best candidate is stored as a model and the ranking of all
+ * candidates as a report.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "destinationLookup",
+            propertyValue = "java:jboss/exported/jms/topic/search"),
+    @ActivationConfigProperty(propertyName = "destinationType",
+            propertyValue = "javax.jms.Topic")
+})
+public class SearchProcedure extends AbstractJaqpotProcedure implements MessageListener {
+
+    private static final Logger LOG = Logger.getLogger(SearchProcedure.class.getName());
+
+    @EJB
+    AlgorithmHandler algorithmHandler;
+
+    @EJB
+    ModelHandler modelHandler;
+
+    @EJB
+    ReportHandler reportHandler;
+
+    @Inject
+    @Jackson
+    JSONSerializer serializer;
+
+    @Inject
+    JPDIClient jpdiClient;
+
+    @Inject
+    @Secure
+    Client client;
+
+    public SearchProcedure() {
+        super(null);
+    }
+
+    @Inject
+    public SearchProcedure(TaskHandler taskHandler) {
+        super(taskHandler);
+    }
+
+    @Override
+    public void onMessage(Message msg) {
+        Map<String, Object> messageBody;
+        try {
+            messageBody = msg.getBody(Map.class);
+        } catch (JMSException ex) {
+            LOG.log(Level.SEVERE, "JMS message could not be read", ex);
+            return;
+        }
+
+        String taskId = (String) messageBody.get("taskId");
+        String dataset_uri = (String) messageBody.get("dataset_uri");
+        String predictionFeature = (String) messageBody.get("prediction_feature");
+        String parameters = (String) messageBody.get("parameters");
+        String algorithmId = (String) messageBody.get("algorithmId");
+        String modelTitle = (String) messageBody.get("title");
+        String modelDescription = (String) messageBody.get("description");
+        String subjectId = (String) messageBody.get("subjectid");
+        String creator = (String) messageBody.get("creator");
+        try {
+            init(taskId);
+            checkCancelled();
+            start(Task.Type.TRAINING);
+
+            progress(5f, "Parameter search task is now running.");
+
+            Algorithm algorithm = algorithmHandler.find(algorithmId);
+            if (algorithm == null) {
+                errNotFound("Algorithm with id:" + algorithmId + " was not found.");
+                return;
+            }
+            progress(10f, "Algorithm retrieved successfully.");
+            checkCancelled();
+
+            progress("Training dataset URI is:" + dataset_uri,
+                    "Attempting to download dataset...");
+            Dataset dataset = client.target(dataset_uri)
+                    .request()
+                    .header("subjectid", subjectId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .get(Dataset.class);
+            dataset.setDatasetURI(dataset_uri);
+            progress(20f, "Dataset has been retrieved.");
+            checkCancelled();
+
+            Map<String, Object> parameterMap = new HashMap<>();
+            if (parameters != null && !parameters.isEmpty()) {
+                parameterMap = serializer.parse(parameters, new HashMap<String, Object>().getClass());
+            }
+
+            MetaInfo modelMeta = MetaInfoBuilder
+                    .builder()
+                    .addTitles(modelTitle)
+                    .addCreators(creator)
+                    .addSources(dataset.getDatasetURI())
+                    .addComments("Created by parameter search task " + taskId)
+                    .addDescriptions(modelDescription)
+                    .build();
+
+            progress("Starting JPDI parameter search...");
+            SearchResult result = jpdiClient.search(dataset, algorithm, parameterMap, predictionFeature, modelMeta, taskId).get();
+            progress(80f, "JPDI parameter search completed successfully.");
+            checkCancelled();
+
+            Model model = result.getModel();
+            model.setVisible(Boolean.TRUE);
+            modelHandler.create(model);
+            progress(90f, "Best model saved:" + model.getId());
+
+            Report report = result.getReport() != null ? result.getReport() : new Report();
+            report.setId(new ROG(true).nextString(15));
+            report.setMeta(MetaInfoBuilder
+                    .builder()
+                    .addTitles("Parameter search report")
+                    .addCreators(creator)
+                    .addSources(dataset_uri, "algorithm/" + algorithmId)
+                    .addSeeAlso("model/" + model.getId())
+                    .addDescriptions("Parameter search on algorithm:" + algorithmId + " with dataset:" + dataset_uri)
+                    .build());
+            LinkedHashMap<String, Object> singleCalculations = new LinkedHashMap<>();
+            singleCalculations.put("Best model", "model/" + model.getId());
+            if (report.getSingleCalculations() != null) {
+                singleCalculations.putAll(report.getSingleCalculations());
+            }
+            report.setSingleCalculations(singleCalculations);
+            report.setVisible(Boolean.TRUE);
+            reportHandler.create(report);
+            complete("report/" + report.getId());
+
+        } catch (InterruptedException ex) {
+            LOG.log(Level.SEVERE, "JPDI parameter search procedure interupted", ex);
+            errInternalServerError(ex, "JPDI parameter search procedure interupted");
+        } catch (ExecutionException ex) {
+            LOG.log(Level.SEVERE, "Parameter search procedure execution error", ex.getCause());
+            if (ex.getCause() instanceof BadRequestException) {
+                errBadRequest(ex.getCause(), null);
+            } else if (ex.getCause() instanceof NotFoundException) {
+                errNotFound(ex.getCause());
+            } else {
+                errInternalServerError(ex.getCause(), "JPDI parameter search procedure error");
+            }
+        } catch (CancellationException ex) {
+            LOG.log(Level.INFO, "Task with id:{0} was cancelled", taskId);
+            cancel();
+        } catch (BadRequestException | IllegalArgumentException ex) {
+            errBadRequest(ex, null);
+        } catch (NotFoundException ex) {
+            errNotFound(ex);
+        } catch (Exception ex) {
+            LOG.log(Level.SEVERE, "JPDI parameter search procedure unknown error", ex);
+            errInternalServerError(ex, "JPDI parameter search procedure unknown error");
+        }
+    }
+}
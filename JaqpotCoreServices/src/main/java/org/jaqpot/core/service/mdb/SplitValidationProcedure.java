@@ -103,6 +103,7 @@ public class SplitValidationProcedure extends AbstractJaqpotProcedure {
         String algorithmParams = (String) messageBody.get("algorithm_params");
         String trans = (String) messageBody.get("transformations");
         String creator = (String) messageBody.get("creator");
+        String fingerprint = (String) messageBody.get("fingerprint");
 
         String stratify = (String) messageBody.get("stratify");
         Integer seed = (Integer) messageBody.get("seed");
@@ -244,6 +245,7 @@ public class SplitValidationProcedure extends AbstractJaqpotProcedure {
                     .addDescriptions(splitRatio + " Split validation on algorithm:" + algorithmURI + " with dataset:" + datasetURI)
                     .build());
             report.setVisible(Boolean.TRUE);
+            report.setFingerprint(fingerprint);
             reportHandler.create(report);
             complete("report/" + report.getId());
 
@@ -129,6 +129,8 @@ public class TrainingProcedure extends AbstractJaqpotProcedure implements Messag
         String subjectId = (String) messageBody.get("subjectid");
         String baseURI = (String) messageBody.get("base_uri");
         String creator = (String) messageBody.get("creator");
+        String fingerprint = (String) messageBody.get("fingerprint");
+        String modelId = (String) messageBody.get("modelId");
         try {
             init(taskId);
             checkCancelled();
@@ -136,6 +138,11 @@ public class TrainingProcedure extends AbstractJaqpotProcedure implements Messag
 
             progress(5f, "Training Task is now running.");
 
+            if (modelId != null) {
+                update(modelId, dataset_uri, subjectId, modelTitle, modelDescription, creator, taskId);
+                return;
+            }
+
             Algorithm algorithm = algorithmHandler.find(algorithmId);
 
             if (algorithm == null) {
@@ -271,6 +278,7 @@ public class TrainingProcedure extends AbstractJaqpotProcedure implements Messag
                     .map(lm -> baseURI + "model/" + lm.getId())
                     .collect(Collectors.toList())
             );
+            model.setFingerprint(fingerprint);
             modelHandler.create(model);
             complete("model/" + model.getId());
 
@@ -293,4 +301,51 @@ public class TrainingProcedure extends AbstractJaqpotProcedure implements Messag
         }
 
     }
+
+    /**
+     * Updates an incrementally trained model with the rows of a dataset. The
+     * updated model is stored as a new model; the original is left as is.
+     */
+    private void update(String modelId, String datasetURI, String subjectId, String modelTitle, String modelDescription, String creator, String taskId) throws InterruptedException, ExecutionException {
+        Model baseModel = modelHandler.find(modelId);
+        if (baseModel == null) {
+            errNotFound("Model with id:" + modelId + " was not found.");
+            return;
+        }
+        progress(10f, "Model retrieved successfully.");
+        checkCancelled();
+
+        progress("Dataset with new rows is:" + datasetURI,
+                "Attempting to download dataset...");
+        Dataset dataset = client.target(datasetURI)
+                .request()
+                .header("subjectid", subjectId)
+                .accept(MediaType.APPLICATION_JSON)
+                .get(Dataset.class);
+        dataset.setDatasetURI(datasetURI);
+        progress(20f, "Dataset has been retrieved.");
+        checkCancelled();
+
+        MetaInfo modelMeta = MetaInfoBuilder
+                .builder()
+                .addTitles(modelTitle)
+                .addCreators(creator)
+                .addSources(datasetURI)
+                .addSeeAlso("model/" + modelId)
+                .addComments("Created by task " + taskId + " as an update of model " + modelId)
+                .addDescriptions(modelDescription)
+                .build();
+
+        progress("Starting JPDI update...");
+        Model model = jpdiClient.update(dataset, baseModel, modelMeta, taskId).get();
+        progress(80f, "JPDI update completed successfully.");
+        checkCancelled();
+
+        model.setVisible(Boolean.TRUE);
+        model.setDatasetUri(baseModel.getDatasetUri());
+        model.setTransformationModels(new ArrayList<>());
+        model.setLinkedModels(new ArrayList<>());
+        modelHandler.create(model);
+        complete("model/" + model.getId());
+    }
 }
@@ -34,18 +34,26 @@ import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
 import com.wordnik.swagger.annotations.ApiResponse;
 import com.wordnik.swagger.annotations.ApiResponses;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ResourceBundle;
 import javax.ejb.EJB;
+import javax.inject.Inject;
 import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
 import org.jaqpot.core.model.dto.aa.AuthToken;
 import org.jaqpot.core.service.annotations.Authorize;
 import org.jaqpot.core.service.data.AAService;
 import org.jaqpot.core.service.exceptions.JaqpotNotAuthorizedException;
+import org.jaqpot.core.service.security.RateLimiter;
 
 /**
  *
@@ -61,6 +69,12 @@ public class AAResource {
     @EJB
     AAService aaService;
 
+    @Inject
+    RateLimiter rateLimiter;
+
+    @Context
+    SecurityContext securityContext;
+
     @POST
     @Path("/login")
     @Produces({MediaType.APPLICATION_JSON, "text/plain"})
@@ -152,4 +166,54 @@ public class AAResource {
 
     }
 
+    @GET
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Authorize
+    @ApiOperation(
+            value = "Token cache statistics (admins only)",
+            notes = "Returns the size, hits, misses, hit rate and evictions of the cache of authenticated tokens. "
+            + "This operation can only be performed by the system administrators.",
+            produces = "application/json")
+    @ApiResponses(value = {
+        @ApiResponse(code = 401, message = "You are not a system administrator"),
+        @ApiResponse(code = 200, message = "Statistics are in the response body")
+    })
+    public Response stats(
+            @HeaderParam("subjectid") String subjectId
+    ) throws JaqpotNotAuthorizedException {
+        checkAdministrator();
+        return Response.ok(aaService.getTokenCacheStats()).build();
+    }
+
+    @GET
+    @Path("/ratelimit")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Authorize
+    @ApiOperation(
+            value = "Rate limiting statistics (admins only)",
+            notes = "Returns the number of allowed and rejected requests per route class and the number of token buckets kept. "
+            + "This operation can only be performed by the system administrators.",
+            produces = "application/json")
+    @ApiResponses(value = {
+        @ApiResponse(code = 401, message = "You are not a system administrator"),
+        @ApiResponse(code = 200, message = "Statistics are in the response body")
+    })
+    public Response rateLimitStats(
+            @HeaderParam("subjectid") String subjectId
+    ) throws JaqpotNotAuthorizedException {
+        checkAdministrator();
+        return Response.ok(rateLimiter.getStats()).build();
+    }
+
+    private void checkAdministrator() throws JaqpotNotAuthorizedException {
+        String admins = ResourceBundle.getBundle("config").getString("jaqpot.administrators");
+        List<String> adminsList = Arrays.asList(admins.split("\\s*,\\s*"));
+        String currentUserID = securityContext.getUserPrincipal().getName();
+        if (!adminsList.contains(currentUserID)) {
+            throw new JaqpotNotAuthorizedException("User " + currentUserID + " is not a system administrator, "
+                    + "therefore is not authorized to access this resource.", "AdministratorsOnly");
+        }
+    }
+
 }
@@ -63,7 +63,6 @@ import org.jaqpot.core.annotations.Jackson;
 import org.jaqpot.core.data.AlgorithmHandler;
 import org.jaqpot.core.data.DatasetHandler;
 import org.jaqpot.core.data.ModelHandler;
-import org.jaqpot.core.data.UserHandler;
 import org.jaqpot.core.data.serialize.JSONSerializer;
 import org.jaqpot.core.model.Algorithm;
 import org.jaqpot.core.model.MetaInfo;
@@ -75,10 +74,12 @@ import org.jaqpot.core.model.facades.UserFacade;
 import org.jaqpot.core.model.factory.ErrorReportFactory;
 import org.jaqpot.core.model.util.ROG;
 import org.jaqpot.core.service.annotations.Authorize;
+import org.jaqpot.core.service.annotations.RateLimit;
 import org.jaqpot.core.service.data.TrainingService;
 import org.jaqpot.core.service.exceptions.parameter.*;
 import org.jaqpot.core.service.exceptions.QuotaExceededException;
 import org.jaqpot.core.service.validator.ParameterValidator;
+import org.jaqpot.core.service.security.UserPrincipal;
 
 /**
  *
@@ -135,9 +136,6 @@ public class AlgorithmResource {
     @Context
     UriInfo uriInfo;
 
-    @EJB
-    UserHandler userHandler;
-
     @Inject
     @Jackson
     JSONSerializer serializer;
@@ -188,7 +186,7 @@ public class AlgorithmResource {
             @ApiParam(value = "Tags for your algorithm (in a comma separated list) to facilitate look-up") @HeaderParam("tags") String tags
     ) throws QuotaExceededException {
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long algorithmCount = algorithmHandler.countAllOfCreator(user.getId());
         int maxAllowedAlgorithms = new UserFacade(user).getMaxAlgorithms();
 
@@ -250,6 +248,7 @@ public class AlgorithmResource {
     }
 
     @POST
+    @RateLimit("training")
     @Produces({MediaType.APPLICATION_JSON, "text/uri-list"})
     @Path("/{id}")
     @ApiOperation(value = "Creates Model",
@@ -313,7 +312,7 @@ public class AlgorithmResource {
             throw new ParameterIsNullException("description");
         }
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long modelCount = modelHandler.countAllOfCreator(user.getId());
         int maxAllowedModels = new UserFacade(user).getMaxModels();
 
@@ -361,6 +360,107 @@ public class AlgorithmResource {
         return Response.ok(task).build();
     }
 
+    @POST
+    @RateLimit("training")
+    @Produces({MediaType.APPLICATION_JSON, "text/uri-list"})
+    @Path("/{id}/search")
+    @ApiOperation(value = "Searches the parameters of an Algorithm",
+            notes = "Evaluates a grid (or a random sample of a grid) of parameter values on shared cross validation folds "
+            + "and creates a Model with the best candidate along with a Report ranking all candidates.",
+            response = Task.class
+    )
+    @org.jaqpot.core.service.annotations.Task
+    public Response searchParameters(
+            @ApiParam(name = "title", required = true) @FormParam("title") String title,
+            @ApiParam(name = "description", required = true) @FormParam("description") String description,
+            @ApiParam(name = "dataset_uri", defaultValue = DEFAULT_DATASET) @FormParam("dataset_uri") String datasetURI,
+            @ApiParam(name = "prediction_feature", defaultValue = DEFAULT_PRED_FEATURE) @FormParam("prediction_feature") String predictionFeature,
+            @ApiParam(name = "parameters", value = "Parameters shared by all candidates") @FormParam("parameters") String parameters,
+            @ApiParam(name = "space", value = "Values to search for each parameter, e.g. {\"gamma\":[0.1,1.0]}", required = true) @FormParam("space") String space,
+            @ApiParam(name = "folds", defaultValue = "5") @FormParam("folds") Integer folds,
+            @ApiParam(name = "samples", value = "Number of randomly sampled candidates; the full grid is searched when empty") @FormParam("samples") Integer samples,
+            @ApiParam(name = "seed", defaultValue = "1") @FormParam("seed") Long seed,
+            @ApiParam(name = "halving", defaultValue = "false") @FormParam("halving") Boolean halving,
+            @PathParam("id") String algorithmId,
+            @HeaderParam("subjectid") String subjectId) throws QuotaExceededException, ParameterIsNullException, ParameterInvalidURIException {
+        UrlValidator urlValidator = new UrlValidator();
+
+        Algorithm algorithm = algorithmHandler.find(algorithmId);
+        if (algorithm == null) {
+            throw new NotFoundException("Could not find Algorithm with id:" + algorithmId);
+        }
+        if (datasetURI == null) {
+            throw new ParameterIsNullException("datasetURI");
+        }
+        if (!urlValidator.isValid(datasetURI)) {
+            throw new ParameterInvalidURIException("Not valid Dataset URI.");
+        }
+        if (predictionFeature == null) {
+            throw new ParameterIsNullException("predictionFeature");
+        }
+        if (space == null || space.isEmpty()) {
+            throw new ParameterIsNullException("space");
+        }
+        if (title == null) {
+            throw new ParameterIsNullException("title");
+        }
+        if (description == null) {
+            throw new ParameterIsNullException("description");
+        }
+        if (folds != null && folds < 2) {
+            throw new BadRequestException("At least 2 folds are needed for a parameter search.");
+        }
+
+        User user = UserPrincipal.userOf(securityContext);
+        long modelCount = modelHandler.countAllOfCreator(user.getId());
+        int maxAllowedModels = new UserFacade(user).getMaxModels();
+
+        if (modelCount > maxAllowedModels) {
+            LOG.info(String.format("User %s has %d models while maximum is %d",
+                    user.getId(), modelCount, maxAllowedModels));
+            throw new QuotaExceededException("Dear " + user.getId()
+                    + ", your quota has been exceeded; you already have " + modelCount + " models. "
+                    + "No more than " + maxAllowedModels + " are allowed with your subscription.");
+        }
+
+        Map<String, Object> searchParameters = new HashMap<>();
+        try {
+            if (parameters != null && !parameters.isEmpty()) {
+                searchParameters.putAll(serializer.parse(parameters, HashMap.class));
+            }
+            searchParameters.put("space", serializer.parse(space, HashMap.class));
+        } catch (Exception ex) {
+            throw new BadRequestException("Parameters and space must be JSON objects.");
+        }
+        if (folds != null) {
+            searchParameters.put("folds", folds);
+        }
+        if (samples != null) {
+            searchParameters.put("samples", samples);
+        }
+        if (seed != null) {
+            searchParameters.put("shuffleSeed", seed);
+        }
+        if (halving != null) {
+            searchParameters.put("halving", halving);
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("title", title);
+        options.put("description", description);
+        options.put("dataset_uri", datasetURI);
+        options.put("prediction_feature", predictionFeature);
+        options.put("subjectid", subjectId);
+        options.put("algorithmId", algorithmId);
+        options.put("parameters", serializer.write(searchParameters));
+        options.put("base_uri", uriInfo.getBaseUri().toString());
+        options.put("creator", securityContext.getUserPrincipal().getName());
+
+        Task task = trainingService.initiateSearch(options, securityContext.getUserPrincipal().getName());
+
+        return Response.ok(task).build();
+    }
+
     @DELETE
     @Produces(MediaType.APPLICATION_JSON)
     @Path("/{id}")
@@ -76,7 +76,6 @@ import org.jaqpot.core.data.AlgorithmHandler;
 import org.jaqpot.core.data.DatasetHandler;
 import org.jaqpot.core.data.ModelHandler;
 import org.jaqpot.core.data.ReportHandler;
-import org.jaqpot.core.data.UserHandler;
 import org.jaqpot.core.model.MetaInfo;
 import org.jaqpot.core.model.Model;
 import org.jaqpot.core.model.Report;
@@ -89,9 +88,11 @@ import org.jaqpot.core.model.facades.UserFacade;
 import org.jaqpot.core.model.factory.DatasetFactory;
 import org.jaqpot.core.model.util.ROG;
 import org.jaqpot.core.service.annotations.Authorize;
+import org.jaqpot.core.service.annotations.RateLimit;
 import org.jaqpot.core.service.annotations.UnSecure;
 import org.jaqpot.core.service.client.jpdi.JPDIClient;
 import org.jaqpot.core.service.exceptions.QuotaExceededException;
+import org.jaqpot.core.service.security.UserPrincipal;
 
 /**
  *
@@ -109,9 +110,6 @@ public class DatasetResource {
     @EJB
     DatasetHandler datasetHandler;
 
-    @EJB
-    UserHandler userHandler;
-
     @EJB
     ModelHandler modelHandler;
 
@@ -263,6 +261,7 @@ public class DatasetResource {
     }
 
     @POST
+    @RateLimit("datasets")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces({"text/uri-list", MediaType.APPLICATION_JSON})
     @ApiOperation(value = "Creates a new Dataset",
@@ -272,7 +271,7 @@ public class DatasetResource {
             @ApiParam(value = "Authorization token") @HeaderParam("subjectid") String subjectId,
             Dataset dataset) throws URISyntaxException, QuotaExceededException {
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long datasetCount = datasetHandler.countAllOfCreator(user.getId());
         int maxAllowedDatasets = new UserFacade(user).getMaxDatasets();
 
@@ -299,6 +298,7 @@ public class DatasetResource {
     }
 
     @POST
+    @RateLimit("datasets")
     @Path("/empty")
     @Produces({"text/uri-list", MediaType.APPLICATION_JSON})
     @ApiOperation(value = "Creates a new empty Dataset",
@@ -309,7 +309,7 @@ public class DatasetResource {
             @FormParam("title") String title,
             @FormParam("description") String description) throws URISyntaxException, QuotaExceededException {
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long datasetCount = datasetHandler.countAllOfCreator(user.getId());
         int maxAllowedDatasets = new UserFacade(user).getMaxDatasets();
 
@@ -339,13 +339,14 @@ public class DatasetResource {
     }
 
     @POST
+    @RateLimit("datasets")
     @Path("/merge")
     @ApiOperation(value = "Merges Datasets")
     public Response mergeDatasets(
             @FormParam("dataset_uris") String datasetURIs,
             @HeaderParam("subjectid") String subjectId) throws URISyntaxException, QuotaExceededException {
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long datasetCount = datasetHandler.countAllOfCreator(user.getId());
         int maxAllowedDatasets = new UserFacade(user).getMaxDatasets();
 
@@ -413,7 +414,7 @@ public class DatasetResource {
             @FormParam("description") String description
     ) throws QuotaExceededException {
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long reportCount = reportHandler.countAllOfCreator(user.getId());
         int maxAllowedReports = new UserFacade(user).getMaxReports();
 
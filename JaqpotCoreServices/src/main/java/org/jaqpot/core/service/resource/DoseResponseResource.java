@@ -49,7 +49,6 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import org.jaqpot.core.annotations.Jackson;
 import org.jaqpot.core.data.ReportHandler;
-import org.jaqpot.core.data.UserHandler;
 import org.jaqpot.core.data.serialize.JSONSerializer;
 import org.jaqpot.core.model.Report;
 import org.jaqpot.core.model.User;
@@ -61,6 +60,7 @@ import org.jaqpot.core.model.util.ROG;
 import org.jaqpot.core.service.annotations.Authorize;
 import org.jaqpot.core.service.annotations.UnSecure;
 import org.jaqpot.core.service.exceptions.QuotaExceededException;
+import org.jaqpot.core.service.security.UserPrincipal;
 
 /**
  *
@@ -86,9 +86,6 @@ public class DoseResponseResource {
     @EJB
     ReportHandler reportHandler;
 
-    @EJB
-    UserHandler userHandler;
-
     @Context
     SecurityContext securityContext;
 
@@ -108,7 +105,7 @@ public class DoseResponseResource {
             @HeaderParam("subjectid") String subjectId
     ) throws QuotaExceededException {
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long reportCount = reportHandler.countAllOfCreator(user.getId());
         int maxAllowedReports = new UserFacade(user).getMaxReports();
 
@@ -32,14 +32,11 @@ package org.jaqpot.core.service.resource;
 import com.wordnik.swagger.annotations.Api;
 import com.wordnik.swagger.annotations.ApiOperation;
 import com.wordnik.swagger.annotations.ApiParam;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import javax.ejb.EJB;
 import javax.inject.Inject;
 import javax.ws.rs.BadRequestException;
@@ -49,35 +46,26 @@ import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.MultivaluedHashMap;
-import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 import org.jaqpot.core.annotations.Jackson;
 import org.jaqpot.core.data.DatasetHandler;
 import org.jaqpot.core.data.ModelHandler;
-import org.jaqpot.core.data.UserHandler;
 import org.jaqpot.core.data.serialize.JSONSerializer;
 import org.jaqpot.core.model.Task;
 import org.jaqpot.core.model.User;
-import org.jaqpot.core.model.dto.ambit.AmbitTask;
-import org.jaqpot.core.model.dto.ambit.AmbitTaskArray;
 import org.jaqpot.core.model.dto.ambit.ProtocolCategory;
-import org.jaqpot.core.model.dto.bundle.BundleSubstances;
 import org.jaqpot.core.model.dto.dataset.Dataset;
 import org.jaqpot.core.model.facades.UserFacade;
-import org.jaqpot.core.model.factory.ErrorReportFactory;
 import org.jaqpot.core.service.data.ConjoinerService;
 import org.jaqpot.core.service.data.TrainingService;
 import org.jaqpot.core.service.annotations.Authorize;
-import org.jaqpot.core.service.annotations.UnSecure;
 import org.jaqpot.core.service.data.PredictionService;
 import org.jaqpot.core.service.exceptions.QuotaExceededException;
+import org.jaqpot.core.service.security.UserPrincipal;
 
 /**
  *
@@ -92,6 +80,7 @@ public class EnanomapperResource {
 
     private static final Logger LOG = Logger.getLogger(EnanomapperResource.class.getName());
 
+
     @EJB
     ConjoinerService conjoinerService;
 
@@ -107,19 +96,12 @@ public class EnanomapperResource {
     @EJB
     DatasetHandler datasetHandler;
 
-    @EJB
-    UserHandler userHandler;
-
     @Context
     UriInfo uriInfo;
 
     @Context
     SecurityContext securityContext;
 
-    @Inject
-    @UnSecure
-    Client client;
-
     @Inject
     @Jackson
     JSONSerializer serializer;
@@ -216,7 +198,7 @@ public class EnanomapperResource {
             @ApiParam(name = "data", defaultValue = DEFAULT_DATASET_DATA) DatasetData datasetData,
             @HeaderParam("subjectid") String subjectId) throws QuotaExceededException {
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long datasetCount = datasetHandler.countAllOfCreator(user.getId());
         int maxAllowedDatasets = new UserFacade(user).getMaxDatasets();
 
@@ -256,13 +238,15 @@ public class EnanomapperResource {
     }
 
     @POST
-    @Produces("text/uri-list")
+    @Produces({MediaType.APPLICATION_JSON, "text/uri-list"})
     @Consumes(MediaType.APPLICATION_JSON)
     @Path("/bundle")
     @ApiOperation(value = "Creates Bundle",
-            notes = "Reads Substances from SubstanceOwner and creates Bundle.",
-            response = String.class
+            notes = "Reads Substances from SubstanceOwner and creates Bundle. "
+            + "Returns a Task whose result is the URI of the Bundle.",
+            response = Task.class
     )
+    @org.jaqpot.core.service.annotations.Task
     public Response createBundle(
             @ApiParam(value = "Data for bundle creation", defaultValue = DEFAULT_BUNDLE_DATA, required = true) BundleData bundleData,
             @HeaderParam("subjectid") String subjectId) {
@@ -276,121 +260,18 @@ public class EnanomapperResource {
             throw new BadRequestException("Field substanceOwner cannot be empty.");
         }
 
-        String userName = securityContext.getUserPrincipal().getName();
-
-        MultivaluedMap<String, String> formParameters = new MultivaluedHashMap<>();
-        formParameters.add("title", "owner-bundle");
-        formParameters.add("description", bundleData.getDescription());
-        formParameters.add("source", userName);
-        formParameters.add("seeAlso", substanceOwner);
-        formParameters.add("license", "Copyright of " + userName);
-        formParameters.add("rightsHolder", userName);
-        formParameters.add("maintainer", userName);
-        formParameters.add("stars", "1");
-
-        String[] parts = substanceOwner.split("substanceowner");
-        String bundleBaseUri = parts[0] + "bundle";
-        AmbitTaskArray ambitTaskArray = client.target(bundleBaseUri)
-                .request()
-                .accept(MediaType.APPLICATION_JSON)
-                .header("subjectid", subjectId)
-                .post(Entity.form(formParameters), AmbitTaskArray.class);
-
-        AmbitTask ambitTask = ambitTaskArray.getTask().get(0);
-        String ambitTaskUri = ambitTask.getUri();
-        while (ambitTask.getStatus().equals("Running")) {
-            ambitTaskArray = client.target(ambitTaskUri)
-                    .request()
-                    .accept(MediaType.APPLICATION_JSON)
-                    .header("subjectid", subjectId)
-                    .get(AmbitTaskArray.class);
-            ambitTask = ambitTaskArray.getTask().get(0);
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException ex) {
-                continue;
-            }
-        }
-        String bundleUri;
-        if (ambitTask.getStatus().equals("Completed")) {
-            bundleUri = ambitTask.getResult();
-        } else {
-            return Response
-                    .status(Response.Status.BAD_GATEWAY)
-                    .entity(ErrorReportFactory.remoteError(ambitTaskUri, ErrorReportFactory.internalServerError(), null))
-                    .build();
-        }
-        List<String> substances = bundleData.getSubstances();
-
-        if (substances == null || substances.isEmpty()) {
-            BundleSubstances ownerSubstances = client.target(substanceOwner + "/substance")
-                    .request()
-                    .accept(MediaType.APPLICATION_JSON)
-                    .header("subjectid", subjectId)
-                    .get(BundleSubstances.class);
-            substances = ownerSubstances.getSubstance()
-                    .stream()
-                    .map((s) -> {
-                        return s.getURI();
-                    })
-                    .collect(Collectors.toList());
-        }
-
-        for (String substance : substances) {
-            formParameters.clear();
-            formParameters.putSingle("substance_uri", substance);
-            formParameters.putSingle("command", "add");
-            client.target(bundleUri + "/substance")
-                    .request()
-                    .accept(MediaType.APPLICATION_JSON)
-                    .header("subjectid", subjectId)
-                    .put(Entity.form(formParameters))
-                    .close();
-        }
-
-        Map<String, List<String>> properties = bundleData.getProperties();
-
-        if (properties == null || properties.isEmpty()) {
-            properties = new HashMap<>();
-            for (ProtocolCategory category : ProtocolCategory.values()) {
-                String topCategoryName = category.getTopCategory();
-                String categoryName = category.name();
-
-                if (properties.containsKey(topCategoryName)) {
-                    List<String> categoryValues = properties.get(topCategoryName);
-                    categoryValues.add(categoryName);
-                    properties.put(topCategoryName, categoryValues);
-                } else {
-                    List<String> categoryValues = new ArrayList<>();
-                    categoryValues.add(categoryName);
-                    properties.put(topCategoryName, categoryValues);
-                }
-            }
-        }
-
-        for (String topCategory : properties.keySet()) {
-            List<String> subCategories = properties.get(topCategory);
-            for (String subCategory : subCategories) {
-                formParameters.clear();
-                formParameters.putSingle("topcategory", topCategory);
-                formParameters.putSingle("endpointcategory", subCategory);
-                formParameters.putSingle("command", "add");
-                client.target(bundleUri + "/property")
-                        .request()
-                        .accept(MediaType.APPLICATION_JSON)
-                        .header("subjectid", subjectId)
-                        .put(Entity.form(formParameters))
-                        .close();
-            }
+        Map<String, Object> options = new HashMap<>();
+        options.put("substance_owner", substanceOwner);
+        options.put("description", bundleData.getDescription());
+        if (bundleData.getSubstances() != null) {
+            options.put("substances", serializer.write(bundleData.getSubstances()));
         }
-
-        try {
-            return Response.created(new URI(bundleUri)).entity(bundleUri).build();
-        } catch (URISyntaxException ex) {
-            return Response.status(Response.Status.BAD_GATEWAY)
-                    .entity(ErrorReportFactory.remoteError(bundleUri, ErrorReportFactory.internalServerError(), ex))
-                    .build();
+        if (bundleData.getProperties() != null) {
+            options.put("properties", serializer.write(bundleData.getProperties()));
         }
+        options.put("subjectid", subjectId);
+        Task task = conjoinerService.initiateBundleCreation(options, securityContext.getUserPrincipal().getName());
+        return Response.ok(task).build();
     }
 
     @GET
@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -52,9 +53,11 @@ import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.commons.validator.routines.UrlValidator;
+import org.jaqpot.core.annotations.Jackson;
 import org.jaqpot.core.data.DatasetHandler;
+import org.jaqpot.core.data.ModelChain;
 import org.jaqpot.core.data.ModelHandler;
-import org.jaqpot.core.data.UserHandler;
+import org.jaqpot.core.data.serialize.JSONSerializer;
 import org.jaqpot.core.model.Model;
 import org.jaqpot.core.model.Task;
 import org.jaqpot.core.model.User;
@@ -63,12 +66,15 @@ import org.jaqpot.core.model.dto.dataset.FeatureInfo;
 import org.jaqpot.core.model.facades.UserFacade;
 import org.jaqpot.core.model.factory.ErrorReportFactory;
 import org.jaqpot.core.service.annotations.Authorize;
+import org.jaqpot.core.service.annotations.RateLimit;
 import org.jaqpot.core.service.annotations.UnSecure;
 import org.jaqpot.core.service.data.PredictionService;
+import org.jaqpot.core.service.data.TrainingService;
 import org.jaqpot.core.service.exceptions.parameter.ParameterInvalidURIException;
 import org.jaqpot.core.service.exceptions.parameter.ParameterIsNullException;
 import org.jaqpot.core.service.exceptions.QuotaExceededException;
 import org.jaqpot.core.service.validator.ParameterValidator;
+import org.jaqpot.core.service.security.UserPrincipal;
 
 /**
  *
@@ -85,6 +91,11 @@ public class ModelResource {
 
     private static final String DEFAULT_DATASET = "http://app.jaqpot.org:8080/jaqpot/services/dataset/corona";
 
+    private static final int MAX_BATCH_PREDICTIONS = 1000;
+
+    private static final int MAX_SYNC_PREDICTION_ROWS = Integer.parseInt(
+            ResourceBundle.getBundle("config").getString("jaqpot.prediction.sync.maxrows"));
+
     @Context
     UriInfo uriInfo;
 
@@ -95,10 +106,10 @@ public class ModelResource {
     DatasetHandler datasetHandler;
 
     @EJB
-    UserHandler userHandler;
+    PredictionService predictionService;
 
     @EJB
-    PredictionService predictionService;
+    TrainingService trainingService;
 
     @Context
     SecurityContext securityContext;
@@ -110,6 +121,10 @@ public class ModelResource {
     @Inject
     ParameterValidator parameterValidator;
 
+    @Inject
+    @Jackson
+    JSONSerializer serializer;
+
     @GET
     @Produces({MediaType.APPLICATION_JSON, "text/uri-list"})
     @ApiOperation(value = "Finds all Models",
@@ -301,20 +316,13 @@ public class ModelResource {
             @PathParam("id") String id,
             @ApiParam(value = "Clients need to authenticate in order to access models") @HeaderParam("subjectid") String subjectId) {
 
-        Model foundModel = modelHandler.findModel(id);
-        if (foundModel == null) {
+        ModelChain chain = modelHandler.findChain(id);
+        if (chain == null) {
             throw new NotFoundException("The requested model was not found on the server.");
         }
         List<String> predictedFeatures = new ArrayList<>();
-        predictedFeatures.addAll(foundModel.getPredictedFeatures());
-        if (foundModel.getLinkedModels() != null) {
-            foundModel.getLinkedModels().stream()
-                    .map(m -> m.split("model/")[1])
-                    .forEach(mid -> {
-                        Model linkedModel = modelHandler.findModel(mid);
-                        predictedFeatures.addAll(linkedModel.getPredictedFeatures());
-                    });
-        }
+        predictedFeatures.addAll(chain.getModel().getPredictedFeatures());
+        chain.getLinkedModels().forEach(linkedModel -> predictedFeatures.addAll(linkedModel.getPredictedFeatures()));
         return Response.ok(predictedFeatures).build();
     }
 
@@ -328,19 +336,16 @@ public class ModelResource {
     public Response listModelRequiredFeatures(
             @PathParam("id") String id,
             @HeaderParam("subjectId") String subjectId) {
-        Model model = modelHandler.find(id);
-        if (model == null) {
+        ModelChain chain = modelHandler.findChain(id);
+        if (chain == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
+        Model model = chain.getModel();
         List<String> requiredFeatures;
         String datasetURI;
 
-        if (model.getTransformationModels() != null && !model.getTransformationModels().isEmpty()) {
-            Model firstTransformation = client.target(model.getTransformationModels().get(0))
-                    .request()
-                    .accept(MediaType.APPLICATION_JSON)
-                    .header("subjectId", subjectId)
-                    .get(Model.class);
+        if (!chain.getTransformationModels().isEmpty()) {
+            Model firstTransformation = chain.getTransformationModels().get(0);
             requiredFeatures = firstTransformation.getIndependentFeatures();
             datasetURI = firstTransformation.getDatasetUri();
         } else {
@@ -367,6 +372,7 @@ public class ModelResource {
     }
 
     @POST
+    @RateLimit("predictions")
     @Produces({MediaType.APPLICATION_JSON})
     @Path("/{id}")
     @ApiOperation(value = "Creates Prediction",
@@ -393,7 +399,7 @@ public class ModelResource {
             throw new ParameterInvalidURIException("Not valid dataset URI.");
         }
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long datasetCount = datasetHandler.countAllOfCreator(user.getId());
         int maxAllowedDatasets = new UserFacade(user).getMaxDatasets();
 
@@ -405,13 +411,13 @@ public class ModelResource {
                     + "No more than " + maxAllowedDatasets + " are allowed with your subscription.");
         }
 
-        Model model = modelHandler.find(id);
-        if (model == null) {
+        ModelChain chain = modelHandler.findChain(id);
+        if (chain == null) {
             throw new NotFoundException("Model not found.");
         }
         String datasetId = datasetURI.split("dataset/")[1];
         Dataset datasetMeta = datasetHandler.findMeta(datasetId);
-        List<String> requiredFeatures = retrieveRequiredFeatures(model);
+        List<String> requiredFeatures = retrieveRequiredFeatures(chain);
         
         parameterValidator.validateDataset(datasetMeta, requiredFeatures);
 
@@ -425,6 +431,196 @@ public class ModelResource {
         return Response.ok(task).build();
     }
 
+    @POST
+    @RateLimit("training")
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{id}/update")
+    @ApiOperation(value = "Updates a Model with new rows",
+            notes = "Creates a new Model from an incrementally trained Model and a dataset that holds only the new rows. "
+            + "Only models that were trained with the incremental parameter and without transformations can be updated.",
+            response = Task.class
+    )
+    @org.jaqpot.core.service.annotations.Task
+    public Response updateModel(
+            @ApiParam(name = "dataset_uri", required = true) @FormParam("dataset_uri") String datasetURI,
+            @FormParam("title") String title,
+            @FormParam("description") String description,
+            @PathParam("id") String id,
+            @HeaderParam("subjectid") String subjectId) throws QuotaExceededException, ParameterIsNullException, ParameterInvalidURIException {
+
+        if (datasetURI == null) {
+            throw new ParameterIsNullException("datasetURI");
+        }
+        UrlValidator urlValidator = new UrlValidator();
+        if (!urlValidator.isValid(datasetURI)) {
+            throw new ParameterInvalidURIException("Not valid dataset URI.");
+        }
+
+        Model model = modelHandler.findModel(id);
+        if (model == null) {
+            throw new NotFoundException("Model not found.");
+        }
+        if ((model.getTransformationModels() != null && !model.getTransformationModels().isEmpty())
+                || (model.getLinkedModels() != null && !model.getLinkedModels().isEmpty())) {
+            throw new BadRequestException("Models with transformations or linked models cannot be updated.");
+        }
+
+        User user = UserPrincipal.userOf(securityContext);
+        long modelCount = modelHandler.countAllOfCreator(user.getId());
+        int maxAllowedModels = new UserFacade(user).getMaxModels();
+
+        if (modelCount > maxAllowedModels) {
+            LOG.info(String.format("User %s has %d models while maximum is %d",
+                    user.getId(), modelCount, maxAllowedModels));
+            throw new QuotaExceededException("Dear " + user.getId()
+                    + ", your quota has been exceeded; you already have " + modelCount + " models. "
+                    + "No more than " + maxAllowedModels + " are allowed with your subscription.");
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("dataset_uri", datasetURI);
+        options.put("subjectid", subjectId);
+        options.put("modelId", model.getId());
+        if (title == null) {
+            title = model.getMeta() != null && model.getMeta().getTitles() != null
+                    ? model.getMeta().getTitles().stream().findFirst().orElse(model.getId())
+                    : model.getId();
+        }
+        options.put("title", title);
+        options.put("description", description != null ? description : "Update of model " + model.getId());
+        options.put("creator", securityContext.getUserPrincipal().getName());
+        options.put("base_uri", uriInfo.getBaseUri().toString());
+        Task task = trainingService.initiateUpdate(options, securityContext.getUserPrincipal().getName());
+        return Response.ok(task).build();
+    }
+
+    @POST
+    @RateLimit("predictions")
+    @Consumes({MediaType.APPLICATION_JSON})
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/{id}/predict")
+    @ApiOperation(value = "Creates a synchronous Prediction",
+            notes = "Applies the model, together with its transformation and linked models, on the dataset "
+            + "in the request body and returns the predicted dataset in the response. "
+            + "Neither a task nor a dataset are created. Only small datasets are accepted; "
+            + "use POST /model/{id} for larger ones.",
+            response = Dataset.class
+    )
+    @ApiResponses(value = {
+        @ApiResponse(code = 200, message = "The predicted dataset is returned in the response body"),
+        @ApiResponse(code = 400, message = "The dataset is too large or not compatible with the model"),
+        @ApiResponse(code = 404, message = "The model or one of its transformation or linked models was not found"),
+        @ApiResponse(code = 503, message = "The prediction did not complete in time"),
+        @ApiResponse(code = 500, message = "Internal server error - this request cannot be served.")
+    })
+    public Response predict(
+            @ApiParam(value = "Dataset to apply the model on", required = true) Dataset dataset,
+            @PathParam("id") String id,
+            @HeaderParam("subjectid") String subjectId) throws ParameterIsNullException {
+
+        if (dataset == null) {
+            throw new ParameterIsNullException("dataset");
+        }
+        if (dataset.getDataEntry() == null || dataset.getDataEntry().isEmpty()) {
+            throw new BadRequestException("The dataset has no data entries.");
+        }
+        if (dataset.getDataEntry().size() > MAX_SYNC_PREDICTION_ROWS) {
+            throw new BadRequestException("Synchronous predictions accept at most " + MAX_SYNC_PREDICTION_ROWS
+                    + " rows; " + dataset.getDataEntry().size() + " were given. Use POST /model/" + id + " instead.");
+        }
+
+        ModelChain chain = modelHandler.findChain(id);
+        if (chain == null) {
+            throw new NotFoundException("Model not found.");
+        }
+        List<String> requiredFeatures = retrieveRequiredFeatures(chain);
+        parameterValidator.validateDataset(dataset, requiredFeatures);
+
+        Dataset predicted = predictionService.predict(chain, dataset, securityContext.getUserPrincipal().getName());
+        return Response.ok(predicted).build();
+    }
+
+    @POST
+    @RateLimit("predictions")
+    @Produces({MediaType.APPLICATION_JSON})
+    @Path("/batch")
+    @ApiOperation(value = "Creates a batch of Predictions",
+            notes = "Applies every given model on every given dataset under a single task. "
+            + "Each model and its transformations are resolved once and the predictions run concurrently. "
+            + "The status and the resulting dataset of every (model, dataset) pair are reported "
+            + "in the subTasks of the returned task.",
+            response = Task.class
+    )
+    @org.jaqpot.core.service.annotations.Task
+    public Response makeBatchPrediction(
+            @ApiParam(name = "model_id", required = true, allowMultiple = true) @FormParam("model_id") List<String> modelIds,
+            @ApiParam(name = "dataset_uri", required = true, allowMultiple = true) @FormParam("dataset_uri") List<String> datasetURIs,
+            @HeaderParam("subjectid") String subjectId) throws QuotaExceededException, ParameterIsNullException, ParameterInvalidURIException {
+
+        if (modelIds == null || modelIds.isEmpty()) {
+            throw new ParameterIsNullException("model_id");
+        }
+        if (datasetURIs == null || datasetURIs.isEmpty()) {
+            throw new ParameterIsNullException("dataset_uri");
+        }
+        int predictions = modelIds.size() * datasetURIs.size();
+        if (predictions > MAX_BATCH_PREDICTIONS) {
+            throw new BadRequestException("A batch may contain at most " + MAX_BATCH_PREDICTIONS
+                    + " predictions; " + predictions + " were requested.");
+        }
+
+        UrlValidator urlValidator = new UrlValidator();
+        Map<String, String> datasetIds = new HashMap<>();
+        for (String datasetURI : datasetURIs) {
+            String[] parts = datasetURI.split("dataset/");
+            if (!urlValidator.isValid(datasetURI) || parts.length < 2 || parts[1].isEmpty()) {
+                throw new ParameterInvalidURIException("Not valid dataset URI: " + datasetURI);
+            }
+            datasetIds.put(datasetURI, parts[1]);
+        }
+
+        User user = UserPrincipal.userOf(securityContext);
+        long datasetCount = datasetHandler.countAllOfCreator(user.getId());
+        int maxAllowedDatasets = new UserFacade(user).getMaxDatasets();
+
+        if (datasetCount + predictions > maxAllowedDatasets) {
+            LOG.info(String.format("User %s has %d datasets while maximum is %d",
+                    user.getId(), datasetCount, maxAllowedDatasets));
+            throw new QuotaExceededException("Dear " + user.getId()
+                    + ", your quota would be exceeded; you already have " + datasetCount + " datasets "
+                    + "and this batch would create " + predictions + " more. "
+                    + "No more than " + maxAllowedDatasets + " are allowed with your subscription.");
+        }
+
+        Map<String, Dataset> datasetMetas = new HashMap<>();
+        for (String datasetURI : datasetURIs) {
+            Dataset datasetMeta = datasetHandler.findMeta(datasetIds.get(datasetURI));
+            if (datasetMeta == null) {
+                throw new NotFoundException("Dataset with URI:" + datasetURI + " was not found.");
+            }
+            datasetMetas.put(datasetURI, datasetMeta);
+        }
+        for (String modelId : modelIds) {
+            ModelChain chain = modelHandler.findChain(modelId);
+            if (chain == null) {
+                throw new NotFoundException("Model with id:" + modelId + " was not found.");
+            }
+            List<String> requiredFeatures = retrieveRequiredFeatures(chain);
+            for (Dataset datasetMeta : datasetMetas.values()) {
+                parameterValidator.validateDataset(datasetMeta, requiredFeatures);
+            }
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put("model_ids", serializer.write(modelIds));
+        options.put("dataset_uris", serializer.write(datasetURIs));
+        options.put("subjectid", subjectId);
+        options.put("creator", securityContext.getUserPrincipal().getName());
+        options.put("base_uri", uriInfo.getBaseUri().toString());
+        Task task = predictionService.initiateBatchPrediction(options);
+        return Response.ok(task).build();
+    }
+
     @DELETE
     @Path("/{id}")
     @Produces({MediaType.APPLICATION_JSON, "text/uri-list"})
@@ -465,14 +661,11 @@ public class ModelResource {
         return Response.ok().build();
     }
 
-    private List<String> retrieveRequiredFeatures(Model model) {
-        if (model.getTransformationModels() != null && !model.getTransformationModels().isEmpty()) {
-            String transModelId = model.getTransformationModels().get(0).split("model/")[1];
-            Model transformationModel = modelHandler.findModelIndependentFeatures(transModelId);
-            if (transformationModel != null && transformationModel.getIndependentFeatures() != null) {
-                return transformationModel.getIndependentFeatures();
-            }
+    private List<String> retrieveRequiredFeatures(ModelChain chain) {
+        if (!chain.getTransformationModels().isEmpty()
+                && chain.getTransformationModels().get(0).getIndependentFeatures() != null) {
+            return chain.getTransformationModels().get(0).getIndependentFeatures();
         }
-        return model.getIndependentFeatures();
+        return chain.getModel().getIndependentFeatures();
     }
 }
@@ -52,8 +52,10 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
@@ -78,6 +80,7 @@ import org.jaqpot.core.model.MetaInfo;
 import org.jaqpot.core.model.Pmml;
 import org.jaqpot.core.model.builder.MetaInfoBuilder;
 import org.jaqpot.core.model.factory.ErrorReportFactory;
+import org.jaqpot.core.model.util.Fingerprint;
 import org.jaqpot.core.model.util.ROG;
 import org.jaqpot.core.service.annotations.Authorize;
 import org.jaqpot.core.service.data.AAService;
@@ -106,6 +109,9 @@ public class PmmlResource {
     
     @Context
     HttpHeaders httpHeaders;
+
+    @Context
+    Request request;
     
     @POST
     @Produces({MediaType.APPLICATION_JSON, "text/uri-list"})
@@ -265,7 +271,14 @@ public class PmmlResource {
         // get the Accept header to judge how to format the PMML (JSON or XML)
         String accept = httpHeaders.getRequestHeader("Accept").stream().findFirst().orElse(null);
         if (accept != null && ("application/xml".equals(accept) || "text/xml".equals(accept))) {
-            return Response.ok(retrievedPmml.getPmml(), accept).build();
+            // PMML documents are immutable, so clients may revalidate cached
+            // copies with If-None-Match and skip the download
+            EntityTag etag = new EntityTag(Fingerprint.builder().add("pmml", retrievedPmml.getPmml()).build());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+            if (notModified != null) {
+                return notModified.tag(etag).build();
+            }
+            return Response.ok(retrievedPmml.getPmml(), accept).tag(etag).build();
         } else {
             return Response.ok(retrievedPmml).build();
         }
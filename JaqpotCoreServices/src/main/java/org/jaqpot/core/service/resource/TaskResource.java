@@ -206,6 +206,12 @@ public class TaskResource {
 
         if (task.getStatus().equals(Task.Status.RUNNING)) {
             boolean cancelled = jpdiClient.cancel(id);
+            // the JPDI calls of batch tasks are keyed by their sub-tasks
+            if (task.getSubTasks() != null) {
+                for (Task subTask : task.getSubTasks()) {
+                    cancelled |= jpdiClient.cancel(subTask.getId());
+                }
+            }
             if (!cancelled) {
                 task.setStatus(Task.Status.CANCELLED);
                 task.getMeta().getComments().add("Task was cancelled by the user.");
@@ -141,13 +141,13 @@ public class UserResource {
             throw new JaqpotNotAuthorizedException("User " + currentUserID + "is not authorized access "
                     + "this resource (/user/" + id + ")", "Unauthorized");
         }
-        User user = userHandler.find(id);
-        if (user == null) {
+        User cachedUser = userHandler.find(id);
+        if (cachedUser == null) {
             return Response.status(Response.Status.NOT_FOUND).entity("Could not find User with id:" + id).build();
-        } else {
-            // Hide the hashed password!
-            user.setHashedPass(null);
         }
+        // Hide the hashed password (of a copy - cached users are shared)!
+        User user = new User(cachedUser);
+        user.setHashedPass(null);
         return Response.ok(user).build();
     }
 
@@ -58,7 +58,6 @@ import org.apache.commons.validator.routines.UrlValidator;
 import org.jaqpot.core.annotations.Jackson;
 import org.jaqpot.core.data.ReportHandler;
 import org.jaqpot.core.data.TaskHandler;
-import org.jaqpot.core.data.UserHandler;
 import org.jaqpot.core.data.serialize.JSONSerializer;
 import org.jaqpot.core.model.Task;
 import org.jaqpot.core.model.User;
@@ -66,9 +65,11 @@ import org.jaqpot.core.model.builder.MetaInfoBuilder;
 import org.jaqpot.core.model.facades.UserFacade;
 import org.jaqpot.core.model.util.ROG;
 import org.jaqpot.core.service.annotations.Authorize;
+import org.jaqpot.core.service.data.ValidationService;
 import org.jaqpot.core.service.exceptions.parameter.ParameterInvalidURIException;
 import org.jaqpot.core.service.exceptions.parameter.ParameterIsNullException;
 import org.jaqpot.core.service.exceptions.QuotaExceededException;
+import org.jaqpot.core.service.security.UserPrincipal;
 
 /**
  * @author Angelos Valsamis
@@ -110,9 +111,6 @@ public class ValidationResource {
     @EJB
     TaskHandler taskHandler;
 
-    @EJB
-    UserHandler userHandler;
-
     @EJB
     ReportHandler reportHandler;
 
@@ -126,11 +124,8 @@ public class ValidationResource {
     @Context
     UriInfo uriInfo;
 
-    @Resource(lookup = "java:jboss/exported/jms/topic/validationCross")
-    private Topic crossValidationQueue;
-
-    @Resource(lookup = "java:jboss/exported/jms/topic/validationSplit")
-    private Topic splitValidationQueue;
+    @EJB
+    ValidationService validationService;
 
     @Resource(lookup = "java:jboss/exported/jms/topic/validationExternal")
     private Topic externalValidationQueue;
@@ -165,7 +160,7 @@ public class ValidationResource {
         if (folds==null)
             throw new ParameterIsNullException("folds");
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long reportCount = reportHandler.countAllOfCreator(user.getId());
         int maxAllowedReports = new UserFacade(user).getMaxReports();
 
@@ -221,6 +216,7 @@ public class ValidationResource {
         options.put("seed", seed);
         options.put("creator", user.getId());
         options.put("subjectId", subjectId);
+        options.put("base_uri", uriInfo.getBaseUri().toString());
 
         Map<String, String> transformationAlgorithms = new LinkedHashMap<>();
         if (transformations != null && !transformations.isEmpty()) {
@@ -236,9 +232,7 @@ public class ValidationResource {
             options.put("transformations", transformationAlgorithmsString);
         }
 
-
-        taskHandler.create(task);
-        jmsContext.createProducer().setDeliveryDelay(1000).send(crossValidationQueue, options);
+        validationService.initiateCrossValidation(task, options, user.getId());
 
         return Response.ok(task).build();
     }
@@ -269,7 +263,7 @@ public class ValidationResource {
         if (splitRatio==null)
             throw new ParameterIsNullException("splitRatio");
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long reportCount = reportHandler.countAllOfCreator(user.getId());
         int maxAllowedReports = new UserFacade(user).getMaxReports();
 
@@ -325,7 +319,9 @@ public class ValidationResource {
         options.put("stratify", stratify);
         options.put("seed", seed);
         options.put("type", "SPLIT");
+        options.put("creator", user.getId());
         options.put("subjectId", subjectId);
+        options.put("base_uri", uriInfo.getBaseUri().toString());
 
         Map<String, String> transformationAlgorithms = new LinkedHashMap<>();
         if (transformations != null && !transformations.isEmpty()) {
@@ -341,9 +337,7 @@ public class ValidationResource {
             options.put("transformations", transformationAlgorithmsString);
         }
 
-        taskHandler.create(task);
-        System.out.println(splitValidationQueue.getTopicName());
-        jmsContext.createProducer().setDeliveryDelay(1000).send(splitValidationQueue, options);
+        validationService.initiateSplitValidation(task, options, user.getId());
         return Response.ok(task).build();
     }
 
@@ -364,7 +358,7 @@ public class ValidationResource {
         if (datasetURI==null)
             throw new ParameterIsNullException("datasetURI");
 
-        User user = userHandler.find(securityContext.getUserPrincipal().getName());
+        User user = UserPrincipal.userOf(securityContext);
         long reportCount = reportHandler.countAllOfCreator(user.getId());
         int maxAllowedReports = new UserFacade(user).getMaxReports();
 
@@ -0,0 +1,152 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Token buckets per user and route class. A bucket of a route class allowing
+ * N requests per minute holds up to N tokens and gains one every 1/N minutes;
+ * every request takes a token. Buckets are lock-free: each one is a single
+ * atomic "theoretical arrival time" (GCRA), which is equivalent to a token
+ * bucket without a refill thread.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ */
+@ApplicationScoped
+public class RateLimiter {
+
+    private static final int MAX_BUCKETS = 10000;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> allowed = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> rejected = new ConcurrentHashMap<>();
+
+    private static final class TokenBucket {
+
+        private final long interval;
+        private final long tolerance;
+        private final AtomicLong arrival;
+
+        private TokenBucket(int perMinute, long now) {
+            this.interval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.tolerance = interval * (perMinute - 1);
+            this.arrival = new AtomicLong(now);
+        }
+
+        private long acquire(long now) {
+            while (true) {
+                long current = arrival.get();
+                long start = current - now > 0 ? current : now;
+                long wait = start - tolerance - now;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (arrival.compareAndSet(current, start + interval)) {
+                    return 0;
+                }
+            }
+        }
+
+        private boolean isFull(long now) {
+            return arrival.get() - now <= 0;
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of a user for a route class.
+     *
+     * @param user the user
+     * @param route the route class
+     * @param perMinute requests per minute allowed, which is also the largest
+     * burst; zero or less means no limit
+     * @return zero if the request is allowed, otherwise the nanoseconds until
+     * it would be
+     */
+    public long acquire(String user, String route, int perMinute) {
+        return acquire(user, route, perMinute, System.nanoTime());
+    }
+
+    long acquire(String user, String route, int perMinute, long now) {
+        long wait = perMinute > 0 ? bucket(user + ":" + route, perMinute, now).acquire(now) : 0;
+        (wait == 0 ? allowed : rejected).computeIfAbsent(route, r -> new LongAdder()).increment();
+        return wait;
+    }
+
+    private TokenBucket bucket(String key, int perMinute, long now) {
+        long interval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        while (true) {
+            TokenBucket bucket = buckets.get(key);
+            if (bucket != null && bucket.interval == interval) {
+                return bucket;
+            }
+            // a new bucket, or the allowed rate of the user has changed
+            TokenBucket created = new TokenBucket(perMinute, now);
+            boolean owner = bucket == null
+                    ? buckets.putIfAbsent(key, created) == null
+                    : buckets.replace(key, bucket, created);
+            if (owner) {
+                if (buckets.size() > MAX_BUCKETS) {
+                    buckets.values().removeIf(b -> b != created && b.isFull(now));
+                }
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Allowed and rejected requests per route class since startup, and the
+     * number of buckets currently kept.
+     *
+     * @return the statistics
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Map<String, Long>> routes = new HashMap<>();
+        allowed.forEach((route, count) -> routes.computeIfAbsent(route, r -> new HashMap<>()).put("allowed", count.sum()));
+        rejected.forEach((route, count) -> routes.computeIfAbsent(route, r -> new HashMap<>()).put("rejected", count.sum()));
+        stats.put("routes", routes);
+        stats.put("buckets", buckets.size());
+        return stats;
+    }
+
+}
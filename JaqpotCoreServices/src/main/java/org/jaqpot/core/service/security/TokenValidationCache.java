@@ -0,0 +1,149 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.security;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Caches the outcome of SSO token validations. Valid tokens are remembered
+ * for a short time and invalid ones for an even shorter time; concurrent
+ * validations of the same token share a single call to the SSO server.
+ * Tokens are forgotten immediately when {@link #invalidate(String)} is called,
+ * e.g. on logout.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ */
+public class TokenValidationCache {
+
+    private static final int MAX_ENTRIES = 10000;
+
+    private final long validTtl;
+    private final long invalidTtl;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static class Entry {
+
+        private final CompletableFuture<Boolean> valid = new CompletableFuture<>();
+        private volatile long expires;
+
+        private boolean isLive(long now) {
+            return !valid.isDone() || expires - now > 0;
+        }
+    }
+
+    /**
+     * @param validTtl time to remember a valid token
+     * @param invalidTtl time to remember an invalid token
+     * @param unit unit of both times
+     */
+    public TokenValidationCache(long validTtl, long invalidTtl, TimeUnit unit) {
+        this.validTtl = unit.toNanos(validTtl);
+        this.invalidTtl = unit.toNanos(invalidTtl);
+    }
+
+    /**
+     * Returns whether a token is valid, asking the validator only if there is
+     * no live cached answer and no validation of the token in progress.
+     *
+     * @param token the token to validate
+     * @param validator the remote validation
+     * @return whether the token is valid
+     */
+    public boolean validate(String token, Predicate<String> validator) {
+        while (true) {
+            long now = System.nanoTime();
+            Entry entry = entries.get(token);
+            if (entry != null && entry.isLive(now)) {
+                return await(entry);
+            }
+            Entry mine = new Entry();
+            boolean owner = entry == null
+                    ? entries.putIfAbsent(token, mine) == null
+                    : entries.replace(token, entry, mine);
+            if (!owner) {
+                continue;
+            }
+            if (entries.size() > MAX_ENTRIES) {
+                entries.values().removeIf(e -> !e.isLive(now));
+            }
+            boolean valid;
+            try {
+                valid = validator.test(token);
+            } catch (RuntimeException ex) {
+                entries.remove(token, mine);
+                mine.valid.completeExceptionally(ex);
+                throw ex;
+            }
+            mine.expires = System.nanoTime() + (valid ? validTtl : invalidTtl);
+            mine.valid.complete(valid);
+            return valid;
+        }
+    }
+
+    /**
+     * Forgets a token, so that its next use is validated again.
+     *
+     * @param token the token
+     */
+    public void invalidate(String token) {
+        entries.remove(token);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static boolean await(Entry entry) {
+        try {
+            return entry.valid.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
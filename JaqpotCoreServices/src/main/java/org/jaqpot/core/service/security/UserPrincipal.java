@@ -35,8 +35,12 @@
 package org.jaqpot.core.service.security;
 
 import java.security.Principal;
+import javax.ws.rs.core.SecurityContext;
+import org.jaqpot.core.model.User;
 
 /**
+ * Principal of an authenticated request. It carries the user resolved by the
+ * authorization filter, so that resources need not look the user up again.
  *
  * @author Charalampos Chomenidis
  * @author Pantelis Sopasakis
@@ -45,13 +49,41 @@ public class UserPrincipal implements Principal {
 
     String name;
 
+    User user;
+
     public UserPrincipal(String name) {
         this.name = name;
     }
 
+    public UserPrincipal(User user) {
+        this.name = user.getId();
+        this.user = user;
+    }
+
     @Override
     public String getName() {
         return name;
     }
 
+    /**
+     * The user that issued the request. The instance is shared and must not
+     * be modified.
+     *
+     * @return the user or null if the principal was created by name only
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Returns the user resolved for the request of a security context.
+     *
+     * @param securityContext the security context of the request
+     * @return the user or null if the request carries no resolved user
+     */
+    public static User userOf(SecurityContext securityContext) {
+        Principal principal = securityContext.getUserPrincipal();
+        return principal instanceof UserPrincipal ? ((UserPrincipal) principal).getUser() : null;
+    }
+
 }
@@ -0,0 +1,130 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import org.jaqpot.core.model.Algorithm;
+import org.jaqpot.core.model.MetaInfo;
+import org.jaqpot.core.model.Model;
+import org.jaqpot.core.model.Report;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.service.client.jpdi.JPDIClient;
+import org.jaqpot.core.service.client.jpdi.SearchResult;
+
+/**
+ * JPDI client for tests. Predictions are answered by the given function,
+ * which by default returns the input dataset; the models applied and the
+ * calls cancelled are recorded. Other calls are not supported.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class FakeJPDIClient implements JPDIClient {
+
+    private final List<String> predicted = new ArrayList<>();
+    private final List<String> cancelled = new ArrayList<>();
+    private final BiFunction<Dataset, Model, Future<Dataset>> predictions;
+
+    public FakeJPDIClient() {
+        this((dataset, model) -> CompletableFuture.completedFuture(dataset));
+    }
+
+    public FakeJPDIClient(BiFunction<Dataset, Model, Future<Dataset>> predictions) {
+        this.predictions = predictions;
+    }
+
+    /**
+     * @return ids of the models applied, in order
+     */
+    public synchronized List<String> getPredicted() {
+        return new ArrayList<>(predicted);
+    }
+
+    /**
+     * @return ids of the calls cancelled, in order
+     */
+    public synchronized List<String> getCancelled() {
+        return new ArrayList<>(cancelled);
+    }
+
+    @Override
+    public Future<Dataset> predict(Dataset dataset, Model model, MetaInfo datasetMeta, String taskId) {
+        synchronized (this) {
+            predicted.add(model.getId());
+        }
+        return predictions.apply(dataset, model);
+    }
+
+    @Override
+    public synchronized boolean cancel(String taskId) {
+        cancelled.add(taskId);
+        return true;
+    }
+
+    @Override
+    public Future<Model> train(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo modelMeta, String taskId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<SearchResult> search(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo modelMeta, String taskId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<Model> update(Dataset dataset, Model model, MetaInfo modelMeta, String taskId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<Dataset> transform(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, String predictionFeature, MetaInfo datasetMeta, String taskId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Future<Report> report(Dataset dataset, Algorithm algorithm, Map<String, Object> parameters, MetaInfo reportMeta, String taskId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
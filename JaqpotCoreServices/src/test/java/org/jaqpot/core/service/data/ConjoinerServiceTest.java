@@ -5,10 +5,24 @@
  */
 package org.jaqpot.core.service.data;
 
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 import javax.ejb.embeddable.EJBContainer;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import org.jaqpot.core.model.dto.bundle.BundleProperties;
+import org.jaqpot.core.model.dto.bundle.BundleSubstances;
 import org.jaqpot.core.model.dto.dataset.DataEntry;
 import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
 import org.jaqpot.core.model.dto.study.Effect;
 import org.jaqpot.core.model.dto.study.Result;
 import org.jaqpot.core.model.dto.study.Studies;
@@ -51,21 +65,150 @@ public class ConjoinerServiceTest {
     }
 
     /**
-     * Test of prepareDataset method, of class ConjoinerService.
+     * Test of prepareDataset method, of class ConjoinerService, on a bundle
+     * without substances.
      */
-    //@Test
-    public void testPrepareDataset() throws Exception {
-//        System.out.println("prepareDataset");
-//        String bundleURI = "";
-//        String subjectId = "";
-//        EJBContainer container = javax.ejb.embeddable.EJBContainer.createEJBContainer();
-//        ConjoinerService instance = (ConjoinerService)container.getContext().lookup("java:global/classes/ConjoinerService");
-//        Dataset expResult = null;
-//        Dataset result = instance.prepareDataset(bundleURI, subjectId);
-//        assertEquals(expResult, result);
-//        container.close();
-//        // TODO review the generated test code and remove the default call to fail.
-//        fail("The test case is a prototype.");
+    @Test
+    public void testPrepareDatasetOfEmptyBundle() throws Exception {
+        BundleSubstances substances = new BundleSubstances();
+        substances.setSubstance(new ArrayList<>());
+        BundleProperties properties = new BundleProperties();
+        properties.setFeature(new HashMap<>());
+        service.client = client(substances, properties);
+
+        for (boolean intersectColumns : new boolean[]{true, false}) {
+            Dataset dataset = service.prepareDataset("http://server/bundle/1", "token",
+                    new HashSet<>(Arrays.asList(Dataset.DescriptorCategory.EXPERIMENTAL.name())), intersectColumns, false);
+            assertTrue(dataset.getDataEntry().isEmpty());
+            assertTrue(dataset.getFeatures().isEmpty());
+        }
+    }
+
+    @Test
+    public void testIntersectOverlappingColumns() {
+        Dataset dataset = dataset(entry("a", "b", "c"), entry("b", "c", "d"), entry("c", "b"));
+
+        ConjoinerService.reshapeColumns(dataset, true);
+
+        for (DataEntry dataEntry : dataset.getDataEntry()) {
+            assertEquals(new HashSet<>(Arrays.asList("b", "c")), dataEntry.getValues().keySet());
+            assertEquals("b", dataEntry.getValues().get("b"));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), uris(dataset));
+    }
+
+    @Test
+    public void testIntersectDisjointColumns() {
+        Dataset dataset = dataset(entry("a", "b"), entry("c"), entry("d"));
+
+        ConjoinerService.reshapeColumns(dataset, true);
+
+        dataset.getDataEntry().forEach(dataEntry -> assertTrue(dataEntry.getValues().isEmpty()));
+        assertTrue(dataset.getFeatures().isEmpty());
+    }
+
+    @Test
+    public void testUniteOverlappingColumns() {
+        Dataset dataset = dataset(entry("a", "b", "c"), entry("b", "c", "d"), entry("c", "b"));
+
+        ConjoinerService.reshapeColumns(dataset, false);
+
+        Set<String> all = new HashSet<>(Arrays.asList("a", "b", "c", "d"));
+        for (DataEntry dataEntry : dataset.getDataEntry()) {
+            assertEquals(all, dataEntry.getValues().keySet());
+        }
+        assertEquals("a", dataset.getDataEntry().get(0).getValues().get("a"));
+        assertNull(dataset.getDataEntry().get(0).getValues().get("d"));
+        assertNull(dataset.getDataEntry().get(2).getValues().get("a"));
+        assertEquals("c", dataset.getDataEntry().get(2).getValues().get("c"));
+        assertEquals(all, uris(dataset));
+    }
+
+    @Test
+    public void testUniteDisjointColumns() {
+        Dataset dataset = dataset(entry("a"), entry("b"), entry());
+
+        ConjoinerService.reshapeColumns(dataset, false);
+
+        for (DataEntry dataEntry : dataset.getDataEntry()) {
+            assertEquals(new HashSet<>(Arrays.asList("a", "b")), dataEntry.getValues().keySet());
+        }
+        assertEquals("b", dataset.getDataEntry().get(1).getValues().get("b"));
+        assertNull(dataset.getDataEntry().get(1).getValues().get("a"));
+        assertNull(dataset.getDataEntry().get(2).getValues().get("b"));
+    }
+
+    @Test
+    public void testReshapeWithoutEntries() {
+        for (boolean intersectColumns : new boolean[]{true, false}) {
+            Dataset dataset = dataset();
+            dataset.getFeatures().add(new FeatureInfo("a", "a"));
+
+            ConjoinerService.reshapeColumns(dataset, intersectColumns);
+
+            assertTrue(dataset.getDataEntry().isEmpty());
+            assertEquals(Collections.singleton("a"), uris(dataset));
+        }
+    }
+
+    @Test
+    public void testReshapeSingleEntry() {
+        for (boolean intersectColumns : new boolean[]{true, false}) {
+            Dataset dataset = dataset(entry("a", "b"));
+
+            ConjoinerService.reshapeColumns(dataset, intersectColumns);
+
+            assertEquals(new HashSet<>(Arrays.asList("a", "b")), dataset.getDataEntry().get(0).getValues().keySet());
+            assertEquals(new HashSet<>(Arrays.asList("a", "b")), uris(dataset));
+        }
+    }
+
+    /**
+     * A data entry whose properties hold their own keys as values.
+     */
+    private static DataEntry entry(String... keys) {
+        TreeMap<String, Object> values = new TreeMap<>();
+        for (String key : keys) {
+            values.put(key, key);
+        }
+        DataEntry dataEntry = new DataEntry();
+        dataEntry.setValues(values);
+        return dataEntry;
+    }
+
+    /**
+     * A dataset with the given entries and a feature for every property.
+     */
+    private static Dataset dataset(DataEntry... dataEntries) {
+        Dataset dataset = new Dataset();
+        dataset.setDataEntry(new ArrayList<>(Arrays.asList(dataEntries)));
+        dataset.setFeatures(new HashSet<>());
+        for (DataEntry dataEntry : dataEntries) {
+            dataEntry.getValues().keySet().forEach(key -> dataset.getFeatures().add(new FeatureInfo(key, key)));
+        }
+        return dataset;
+    }
+
+    private static Set<String> uris(Dataset dataset) {
+        return dataset.getFeatures().stream().map(FeatureInfo::getURI).collect(Collectors.toSet());
+    }
+
+    /**
+     * A client that answers every request with the substances or the
+     * properties of a bundle.
+     */
+    private static Client client(BundleSubstances substances, BundleProperties properties) {
+        Invocation.Builder builder = (Invocation.Builder) Proxy.newProxyInstance(Invocation.Builder.class.getClassLoader(),
+                new Class<?>[]{Invocation.Builder.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("get")) {
+                        return args[0].equals(BundleSubstances.class) ? substances : properties;
+                    }
+                    return proxy;
+                });
+        WebTarget target = (WebTarget) Proxy.newProxyInstance(WebTarget.class.getClassLoader(),
+                new Class<?>[]{WebTarget.class}, (proxy, method, args) -> builder);
+        return (Client) Proxy.newProxyInstance(Client.class.getClassLoader(),
+                new Class<?>[]{Client.class}, (proxy, method, args) -> target);
     }
 
     /**
@@ -0,0 +1,101 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import org.jaqpot.core.service.DirectExecutor;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ */
+public class DescriptorCacheTest {
+
+    @Test
+    public void testResultIsShared() {
+        DescriptorCache cache = cache(new DirectExecutor());
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals(Integer.valueOf(1), cache.await(cache.get("MOPAC", "pdb", calls::incrementAndGet)));
+        assertEquals(Integer.valueOf(1), cache.await(cache.get("MOPAC", "pdb", calls::incrementAndGet)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        DescriptorCache cache = cache(new DirectExecutor());
+        CompletableFuture<Integer> failed = cache.get("MOPAC", "pdb", () -> {
+            throw new IllegalStateException("failed");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(Integer.valueOf(2), cache.await(cache.get("MOPAC", "pdb", () -> 2)));
+    }
+
+    @Test
+    public void testRejectedCalculationIsNotCached() {
+        DirectExecutor executor = new DirectExecutor();
+        executor.shutdown();
+        DescriptorCache cache = cache(executor);
+        CompletableFuture<Integer> rejected = cache.get("MOPAC", "pdb", () -> 1);
+        assertTrue(rejected.isCompletedExceptionally());
+
+        cache.executor = new DirectExecutor();
+        assertEquals(Integer.valueOf(2), cache.await(cache.get("MOPAC", "pdb", () -> 2)));
+    }
+
+    @Test
+    public void testErrorCompletesTheResult() {
+        DescriptorCache cache = cache(new DirectExecutor());
+        try {
+            cache.get("MOPAC", "pdb", () -> {
+                throw new StackOverflowError();
+            });
+            fail("The error should reach the executor");
+        } catch (StackOverflowError expected) {
+        }
+        assertEquals(Integer.valueOf(2), cache.await(cache.get("MOPAC", "pdb", () -> 2)));
+    }
+
+    private static DescriptorCache cache(ManagedExecutorService executor) {
+        DescriptorCache cache = new DescriptorCache();
+        cache.executor = executor;
+        return cache;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.ws.rs.ServiceUnavailableException;
+import org.jaqpot.core.data.ModelChain;
+import org.jaqpot.core.model.Model;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.service.FakeJPDIClient;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class PredictionServiceTest {
+
+    @Test
+    public void testChainIsAppliedInOrder() {
+        FakeJPDIClient client = new FakeJPDIClient();
+        PredictionService predictionService = new PredictionService();
+        predictionService.jpdiClient = client;
+
+        Dataset predicted = predictionService.predict(
+                new ModelChain(new Model("main"), Arrays.asList(new Model("trans")), Collections.emptyList()),
+                dataset(), "john");
+
+        assertEquals(Arrays.asList("trans", "main"), client.getPredicted());
+        assertEquals("main", predicted.getByModel());
+        assertTrue(predicted.getMeta().getCreators().contains("john"));
+        assertTrue(client.getCancelled().isEmpty());
+    }
+
+    @Test
+    public void testTimeoutCancelsThePrediction() {
+        FakeJPDIClient client = new FakeJPDIClient((dataset, model) -> new FutureTask<Dataset>(() -> dataset) {
+            @Override
+            public Dataset get(long time, TimeUnit unit) throws TimeoutException {
+                throw new TimeoutException();
+            }
+        });
+        PredictionService predictionService = new PredictionService();
+        predictionService.jpdiClient = client;
+
+        try {
+            predictionService.predict(new ModelChain(new Model("main"), Collections.emptyList(), Collections.emptyList()),
+                    dataset(), "john");
+            fail("The prediction should time out");
+        } catch (ServiceUnavailableException ex) {
+            assertEquals(503, ex.getResponse().getStatus());
+        }
+        assertEquals(1, client.getCancelled().size());
+        assertTrue(client.getCancelled().get(0).startsWith("sync-"));
+    }
+
+    private static Dataset dataset() {
+        TreeMap<String, Object> values = new TreeMap<>();
+        values.put("x", 1.0);
+        DataEntry dataEntry = new DataEntry();
+        dataEntry.setValues(values);
+        Dataset dataset = new Dataset();
+        dataset.setDataEntry(new ArrayList<>(Arrays.asList(dataEntry)));
+        return dataset;
+    }
+
+}
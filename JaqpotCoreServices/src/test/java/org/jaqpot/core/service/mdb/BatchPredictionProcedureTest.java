@@ -0,0 +1,240 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.mdb;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import javax.jms.Message;
+import org.jaqpot.core.data.DatasetHandler;
+import org.jaqpot.core.data.ModelChain;
+import org.jaqpot.core.data.ModelHandler;
+import org.jaqpot.core.data.TaskHandler;
+import org.jaqpot.core.data.serialize.JacksonJSONSerializer;
+import org.jaqpot.core.model.Model;
+import org.jaqpot.core.model.Task;
+import org.jaqpot.core.model.builder.MetaInfoBuilder;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
+import org.jaqpot.core.model.factory.DatasetFactory;
+import org.jaqpot.core.service.DirectExecutor;
+import org.jaqpot.core.service.FakeJPDIClient;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class BatchPredictionProcedureTest {
+
+    private static final String DATASET = "http://localhost:8080/jaqpot/services/dataset/";
+
+    private Task task;
+
+    private List<Dataset> stored;
+
+    private RuntimeException storeFailure;
+
+    private FakeJPDIClient jpdiClient;
+
+    private BatchPredictionProcedure procedure;
+
+    @Before
+    public void setUp() {
+        task = new Task("batch-1");
+        task.setMeta(MetaInfoBuilder.builder().addComments("Batch prediction task created").build());
+        task.setStatus(Task.Status.QUEUED);
+        stored = new ArrayList<>();
+
+        // datasets named "failing", "invalid" or "cancelled" make their
+        // predictions fail, return an invalid dataset or be cancelled
+        jpdiClient = new FakeJPDIClient((dataset, model) -> {
+            CompletableFuture<Dataset> result = new CompletableFuture<>();
+            if (dataset.getDatasetURI().endsWith("failing")) {
+                result.completeExceptionally(new IllegalStateException("Prediction failed"));
+            } else if (dataset.getDatasetURI().endsWith("cancelled")) {
+                result.completeExceptionally(new CancellationException());
+            } else if (dataset.getDatasetURI().endsWith("invalid")) {
+                Dataset invalid = DatasetFactory.copy(dataset);
+                invalid.getDataEntry().forEach(dataEntry -> dataEntry.getValues().put("unknown", 1.0));
+                result.complete(invalid);
+            } else {
+                result.complete(dataset);
+            }
+            return result;
+        });
+
+        procedure = new BatchPredictionProcedure(new TaskHandler() {
+            @Override
+            public void cache(Object id) {
+            }
+
+            @Override
+            public Task find(Object id) {
+                return task;
+            }
+
+            @Override
+            public void edit(Task entity) {
+            }
+
+            @Override
+            public void clear(Object id) {
+            }
+        }) {
+            @Override
+            Dataset fetch(String datasetURI, String subjectId) {
+                TreeMap<String, Object> values = new TreeMap<>();
+                values.put("x", 1.0);
+                DataEntry dataEntry = new DataEntry();
+                dataEntry.setValues(values);
+                Dataset dataset = new Dataset();
+                dataset.setDatasetURI(datasetURI);
+                dataset.setFeatures(new HashSet<>(Arrays.asList(new FeatureInfo("x", "x"))));
+                dataset.setDataEntry(new ArrayList<>(Arrays.asList(dataEntry)));
+                return dataset;
+            }
+        };
+        procedure.modelHandler = new ModelHandler() {
+            @Override
+            public ModelChain findChain(String id) {
+                return new ModelChain(new Model(id), Collections.emptyList(), Collections.emptyList());
+            }
+        };
+        procedure.datasetHandler = new DatasetHandler() {
+            @Override
+            public void createAll(List<Dataset> datasets) {
+                if (storeFailure != null) {
+                    throw storeFailure;
+                }
+                // validated as the real bulk write does
+                datasets.forEach(this::validate);
+                for (Dataset dataset : datasets) {
+                    dataset.setId("result-" + stored.size());
+                    stored.add(dataset);
+                }
+            }
+        };
+        procedure.serializer = new JacksonJSONSerializer();
+        procedure.jpdiClient = jpdiClient;
+        procedure.executor = new DirectExecutor();
+    }
+
+    private void run(String... datasets) {
+        List<String> datasetURIs = Arrays.stream(datasets).map(dataset -> DATASET + dataset).collect(Collectors.toList());
+        Map<String, Object> body = new HashMap<>();
+        body.put("taskId", task.getId());
+        body.put("creator", "john");
+        body.put("model_ids", "[\"model-1\"]");
+        body.put("dataset_uris", new JacksonJSONSerializer().write(datasetURIs));
+        Message message = (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getBody")) {
+                        return body;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        procedure.onMessage(message);
+    }
+
+    private List<Task.Status> statuses() {
+        return task.getSubTasks().stream().map(Task::getStatus).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testMixedWindow() {
+        run("ok", "failing", "invalid");
+
+        assertEquals(Task.Status.COMPLETED, task.getStatus());
+        assertEquals(Arrays.asList(Task.Status.COMPLETED, Task.Status.ERROR, Task.Status.ERROR), statuses());
+        assertEquals(1, stored.size());
+        assertEquals(DATASET + "ok", stored.get(0).getDatasetURI());
+        assertEquals("dataset/result-0", task.getSubTasks().get(0).getResult());
+        assertEquals(Integer.valueOf(500), task.getSubTasks().get(1).getHttpStatus());
+        assertEquals(Integer.valueOf(400), task.getSubTasks().get(2).getHttpStatus());
+        assertTrue(jpdiClient.getCancelled().isEmpty());
+    }
+
+    @Test
+    public void testAllFailed() {
+        run("failing", "invalid");
+
+        assertEquals(Task.Status.ERROR, task.getStatus());
+        assertEquals(Arrays.asList(Task.Status.ERROR, Task.Status.ERROR), statuses());
+        assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    public void testAbortFailsQueuedSubTasks() {
+        storeFailure = new IllegalStateException("Datasets could not be stored");
+        String[] datasets = new String[10];
+        Arrays.fill(datasets, "ok");
+
+        run(datasets);
+
+        assertEquals(Task.Status.ERROR, task.getStatus());
+        assertEquals(Integer.valueOf(500), task.getHttpStatus());
+        assertEquals(Collections.nCopies(10, Task.Status.ERROR), statuses());
+        // only the sub-tasks of the first window were running
+        assertEquals(8, jpdiClient.getCancelled().size());
+    }
+
+    @Test
+    public void testCancellationCancelsAllSubTasks() {
+        String[] datasets = new String[10];
+        Arrays.fill(datasets, "ok");
+        datasets[1] = "cancelled";
+
+        run(datasets);
+
+        assertEquals(Task.Status.CANCELLED, task.getStatus());
+        assertEquals(Collections.nCopies(10, Task.Status.CANCELLED), statuses());
+        assertTrue(stored.isEmpty());
+    }
+
+}
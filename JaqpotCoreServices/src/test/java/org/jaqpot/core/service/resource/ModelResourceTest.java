@@ -0,0 +1,103 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.NotFoundException;
+import org.jaqpot.core.data.ModelChain;
+import org.jaqpot.core.data.ModelHandler;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ModelResourceTest {
+
+    private static final int MAX_ROWS = Integer.parseInt(
+            ResourceBundle.getBundle("config").getString("jaqpot.prediction.sync.maxrows"));
+
+    private ModelResource modelResource;
+
+    @Before
+    public void setUp() {
+        modelResource = new ModelResource();
+        modelResource.modelHandler = new ModelHandler() {
+            @Override
+            public ModelChain findChain(String id) {
+                return null;
+            }
+        };
+    }
+
+    private static Dataset dataset(int rows) {
+        List<DataEntry> dataEntries = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            TreeMap<String, Object> values = new TreeMap<>();
+            values.put("x", (double) i);
+            DataEntry dataEntry = new DataEntry();
+            dataEntry.setValues(values);
+            dataEntries.add(dataEntry);
+        }
+        Dataset dataset = new Dataset();
+        dataset.setDataEntry(dataEntries);
+        return dataset;
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testLargeDatasetIsRejected() throws Exception {
+        modelResource.predict(dataset(MAX_ROWS + 1), "model-1", null);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testEmptyDatasetIsRejected() throws Exception {
+        modelResource.predict(dataset(0), "model-1", null);
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void testDatasetAtTheLimitIsAccepted() throws Exception {
+        // passes the size check and fails on the missing model
+        modelResource.predict(dataset(MAX_ROWS), "model-1", null);
+    }
+
+}
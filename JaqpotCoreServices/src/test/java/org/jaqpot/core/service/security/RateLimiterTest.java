@@ -0,0 +1,123 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ */
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstThenRetryAfter() {
+        RateLimiter limiter = new RateLimiter();
+        long now = 1000 * SECOND;
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.acquire("john", "predictions", 60, now));
+        }
+        assertEquals(SECOND, limiter.acquire("john", "predictions", 60, now));
+        assertEquals(SECOND / 2, limiter.acquire("john", "predictions", 60, now + SECOND / 2));
+        assertEquals(0, limiter.acquire("john", "predictions", 60, now + SECOND));
+    }
+
+    @Test
+    public void testBucketsPerUserAndRoute() {
+        RateLimiter limiter = new RateLimiter();
+        assertEquals(0, limiter.acquire("john", "predictions", 1, 0));
+        assertTrue(limiter.acquire("john", "predictions", 1, 0) > 0);
+        assertEquals(0, limiter.acquire("john", "datasets", 1, 0));
+        assertEquals(0, limiter.acquire("jane", "predictions", 1, 0));
+    }
+
+    @Test
+    public void testNoLimit() {
+        RateLimiter limiter = new RateLimiter();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.acquire("john", "predictions", 0, 0));
+        }
+    }
+
+    @Test
+    public void testStats() {
+        RateLimiter limiter = new RateLimiter();
+        limiter.acquire("john", "predictions", 1, 0);
+        limiter.acquire("john", "predictions", 1, 0);
+        Map<String, Map<String, Long>> routes = (Map<String, Map<String, Long>>) limiter.getStats().get("routes");
+        assertEquals(Long.valueOf(1), routes.get("predictions").get("allowed"));
+        assertEquals(Long.valueOf(1), routes.get("predictions").get("rejected"));
+        assertEquals(1, limiter.getStats().get("buckets"));
+    }
+
+    @Test
+    public void testConcurrentRequestsTakeExactlyTheBurst() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    int allowed = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.acquire("john", "predictions", 100, 0) == 0) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            int allowed = 0;
+            for (Future<Integer> result : results) {
+                allowed += result.get();
+            }
+            assertEquals(100, allowed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it, in particular:
+ * (i)   JaqpotCoreServices
+ * (ii)  JaqpotAlgorithmServices
+ * (iii) JaqpotDB
+ * (iv)  JaqpotDomain
+ * (v)   JaqpotEAR
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.service.security;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ */
+public class TokenValidationCacheTest {
+
+    @Test
+    public void testValidTokenIsCached() {
+        AtomicInteger calls = new AtomicInteger();
+        TokenValidationCache cache = new TokenValidationCache(1, 1, TimeUnit.MINUTES);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.validate("token", t -> calls.incrementAndGet() > 0));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testInvalidTokenExpires() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        TokenValidationCache cache = new TokenValidationCache(1, 500, TimeUnit.MILLISECONDS);
+        assertFalse(cache.validate("token", t -> calls.incrementAndGet() < 0));
+        assertFalse(cache.validate("token", t -> calls.incrementAndGet() < 0));
+        assertEquals(1, calls.get());
+        Thread.sleep(1000);
+        assertFalse(cache.validate("token", t -> calls.incrementAndGet() < 0));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testValidationInProgressIsNotCachedAfterInvalidate() {
+        AtomicInteger calls = new AtomicInteger();
+        TokenValidationCache cache = new TokenValidationCache(1, 1, TimeUnit.MINUTES);
+        // the token is revoked while its validation is in progress
+        assertTrue(cache.validate("token", t -> {
+            calls.incrementAndGet();
+            cache.invalidate(t);
+            return true;
+        }));
+        assertFalse(cache.validate("token", t -> calls.incrementAndGet() < 0));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        TokenValidationCache cache = new TokenValidationCache(1, 1, TimeUnit.MINUTES);
+        assertTrue(cache.validate("token", t -> true));
+        cache.invalidate("token");
+        assertFalse(cache.validate("token", t -> false));
+    }
+
+    @Test
+    public void testConcurrentValidationsShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        TokenValidationCache cache = new TokenValidationCache(1, 1, TimeUnit.MINUTES);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Boolean> first = executor.submit(() -> cache.validate("token", t -> {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    return false;
+                }
+                return true;
+            }));
+            while (calls.get() == 0) {
+                Thread.sleep(1);
+            }
+            Future<Boolean> second = executor.submit(() -> cache.validate("token", t -> calls.incrementAndGet() > 0));
+            Future<Boolean> third = executor.submit(() -> cache.validate("token", t -> calls.incrementAndGet() > 0));
+            release.countDown();
+            assertTrue(first.get());
+            assertTrue(second.get());
+            assertTrue(third.get());
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedValidationIsNotCached() {
+        TokenValidationCache cache = new TokenValidationCache(1, 1, TimeUnit.MINUTES);
+        try {
+            cache.validate("token", t -> {
+                throw new IllegalStateException("SSO is down");
+            });
+            fail("Validation should have failed");
+        } catch (IllegalStateException ex) {
+        }
+        assertTrue(cache.validate("token", t -> true));
+    }
+
+}
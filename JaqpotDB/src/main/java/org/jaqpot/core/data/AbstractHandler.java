@@ -31,16 +31,22 @@ package org.jaqpot.core.data;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.jaqpot.core.db.entitymanager.JaqpotEntityManager;
 import org.jaqpot.core.model.JaqpotEntity;
 
 
 /**
+ * Handlers that declare a usage counter keep the number of visible entities
+ * of each creator in a single counter document per user, updated on create,
+ * edit and remove, so that quota checks need not count the entities
+ * themselves.
  *
  * @author Pantelis Sopasakis
  * @author Charalampos Chomenidis
@@ -49,6 +55,13 @@ import org.jaqpot.core.model.JaqpotEntity;
  */
 public abstract class AbstractHandler<T extends JaqpotEntity>  {
 
+    /**
+     * Collection of the usage counter documents, one per user.
+     */
+    static final String USAGE = "usage";
+
+    private static final List<String> USAGE_FIELDS = Arrays.asList("meta.creators", "visible", "status");
+
     private final Class<T> entityClass;
 
     public AbstractHandler(Class<T> entityClass) {
@@ -62,14 +75,18 @@ public abstract class AbstractHandler<T extends JaqpotEntity>  {
             entity.getMeta().setDate(new Date());
         }
         getEntityManager().persist(entity);
+        updateUsage(Collections.emptyList(), Collections.singletonList(entity));
     }
 
     public void edit(T entity) {
-        getEntityManager().merge(entity);
+        T old = getEntityManager().merge(entity);
+        updateUsage(Collections.singletonList(old), Collections.singletonList(entity));
     }
 
     public void remove(T entity) {
+        T old = getUsageCounter() != null ? getEntityManager().find(entityClass, entity.getId(), USAGE_FIELDS) : null;
         getEntityManager().remove(entity);
+        updateUsage(Collections.singletonList(old), Collections.emptyList());
     }
 
     public T find(Object id) {
@@ -146,6 +163,11 @@ public abstract class AbstractHandler<T extends JaqpotEntity>  {
     }
 
     public Long countAllOfCreator(String createdBy) {
+        String counter = getUsageCounter();
+        return counter != null ? countUsage(createdBy, counter) : queryAllOfCreator(createdBy);
+    }
+
+    protected Long queryAllOfCreator(String createdBy) {
         Map<String, Object> properties = new HashMap<>();
         properties.put("meta.creators", Arrays.asList(createdBy));
         properties.put("visible", true);
@@ -153,4 +175,94 @@ public abstract class AbstractHandler<T extends JaqpotEntity>  {
         return getEntityManager().count(entityClass, properties);
     }
 
+    /**
+     * Name of the usage counter of the entities of this handler.
+     *
+     * @return the name of the counter or null if the entities are not counted
+     */
+    protected String getUsageCounter() {
+        return null;
+    }
+
+    /**
+     * Counters a visible entity with a single creator adds to.
+     *
+     * @param entity the entity
+     * @return the amount added to each counter
+     */
+    protected Map<String, Long> usage(T entity) {
+        return Collections.singletonMap(getUsageCounter(), 1L);
+    }
+
+    /**
+     * Counts the usage of a creator from the entities themselves.
+     *
+     * @param createdBy the creator
+     * @return the value of each counter
+     */
+    protected Map<String, Long> recountUsage(String createdBy) {
+        return Collections.singletonMap(getUsageCounter(), queryAllOfCreator(createdBy));
+    }
+
+    /**
+     * Reads a usage counter of a creator. Counters that do not exist yet are
+     * seeded from the entities themselves.
+     *
+     * @param createdBy the creator
+     * @param counter name of the counter
+     * @return the value of the counter
+     */
+    protected Long countUsage(String createdBy, String counter) {
+        Long count = getEntityManager().findCounters(USAGE, createdBy).get(counter);
+        if (count == null) {
+            Map<String, Long> counts = recountUsage(createdBy);
+            getEntityManager().setCounters(USAGE, createdBy, counts);
+            count = counts.get(counter);
+        }
+        return count;
+    }
+
+    /**
+     * Recounts the usage counters of a creator, repairing any drift.
+     *
+     * @param createdBy the creator
+     */
+    public void reconcileUsage(String createdBy) {
+        if (getUsageCounter() != null) {
+            getEntityManager().setCounters(USAGE, createdBy, recountUsage(createdBy));
+        }
+    }
+
+    /**
+     * Moves the usage counters from the old to the new state of entities.
+     *
+     * @param before entities before the change, null elements for entities
+     * that did not exist
+     * @param after entities after the change
+     */
+    protected void updateUsage(List<T> before, List<T> after) {
+        if (getUsageCounter() == null) {
+            return;
+        }
+        Map<String, Map<String, Long>> amounts = new HashMap<>();
+        before.forEach(entity -> addUsage(amounts, entity, -1));
+        after.forEach(entity -> addUsage(amounts, entity, 1));
+        amounts.forEach((creator, counters) -> {
+            counters.values().removeIf(amount -> amount == 0);
+            getEntityManager().increment(USAGE, creator, counters);
+        });
+    }
+
+    private void addUsage(Map<String, Map<String, Long>> amounts, T entity, long sign) {
+        if (entity == null || !Boolean.TRUE.equals(entity.getVisible()) || entity.getMeta() == null) {
+            return;
+        }
+        Set<String> creators = entity.getMeta().getCreators();
+        if (creators == null || creators.size() != 1) {
+            return;
+        }
+        Map<String, Long> counters = amounts.computeIfAbsent(creators.iterator().next(), creator -> new HashMap<>());
+        usage(entity).forEach((counter, amount) -> counters.merge(counter, sign * amount, Long::sum));
+    }
+
 }
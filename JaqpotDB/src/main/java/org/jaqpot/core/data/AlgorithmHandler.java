@@ -65,6 +65,11 @@ public class AlgorithmHandler extends AbstractHandler<Algorithm> {
         return em;
     }
 
+    @Override
+    protected String getUsageCounter() {
+        return "algorithms";
+    }
+
     public List<Algorithm> findByOntologicalClass(String className, Integer start, Integer max) {
         Map<String, Object> properties = new HashMap<>();
         List<String> classes = new ArrayList<>();
@@ -59,6 +59,11 @@ public class BibTeXHandler extends AbstractHandler<BibTeX> {
         return em;
     }
 
+    @Override
+    protected String getUsageCounter() {
+        return "bibtex";
+    }
+
     @Override
     public List<BibTeX> listMeta(Integer start, Integer max) {
         List<String> fields = new ArrayList<>();
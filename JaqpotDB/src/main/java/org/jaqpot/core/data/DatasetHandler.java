@@ -41,6 +41,7 @@ import org.jaqpot.core.model.dto.dataset.DataEntry;
 import org.jaqpot.core.model.dto.dataset.Dataset;
 import org.jaqpot.core.model.dto.dataset.FeatureInfo;
 import org.jaqpot.core.model.factory.DatasetFactory;
+import org.jaqpot.core.model.util.Fingerprint;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 
@@ -67,9 +68,45 @@ public class DatasetHandler extends AbstractHandler<Dataset> {
     protected JaqpotEntityManager getEntityManager() {
         return em;
     }
+
+    @Override
+    protected String getUsageCounter() {
+        return "datasets";
+    }
     
     @Override
     public void create(Dataset dataset) throws IllegalArgumentException {
+        prepare(dataset);
+        super.create(dataset);
+    }
+
+    /**
+     * Validates and stores a list of datasets with a single bulk write.
+     *
+     * @param datasets datasets to be stored
+     * @throws IllegalArgumentException if any of the datasets is invalid, in
+     * which case none of them is stored
+     */
+    public void createAll(List<Dataset> datasets) throws IllegalArgumentException {
+        Date now = new Date();
+        for (Dataset dataset : datasets) {
+            prepare(dataset);
+            if (dataset.getMeta() != null) {
+                dataset.getMeta().setDate(now);
+            }
+        }
+        em.persistAll(datasets);
+        updateUsage(Collections.emptyList(), datasets);
+    }
+
+    /**
+     * Checks that every data entry of a dataset has values for exactly the
+     * features of the dataset.
+     *
+     * @param dataset dataset to be stored
+     * @throws IllegalArgumentException if the dataset is invalid
+     */
+    public void validate(Dataset dataset) throws IllegalArgumentException {
 //        if (dataset.getDataEntry() == null || dataset.getDataEntry().isEmpty()) {
 //            throw new IllegalArgumentException("Resulting dataset is empty");
 //        }
@@ -81,6 +118,10 @@ public class DatasetHandler extends AbstractHandler<Dataset> {
                         + " Problem was found when parsing " + dataEntry.getCompound());
             }
         }
+    }
+
+    private void prepare(Dataset dataset) throws IllegalArgumentException {
+        validate(dataset);
         dataset.setTotalRows(dataset.getDataEntry().size());
         dataset.setTotalColumns(dataset.getDataEntry()
                 .stream()
@@ -92,23 +133,14 @@ public class DatasetHandler extends AbstractHandler<Dataset> {
                 })
                 .getValues().size());
         dataset.setVisible(Boolean.TRUE);
-        super.create(dataset);
+        dataset.setFingerprint(Fingerprint.ofDataset(dataset));
     }
     
     @Override
     public void edit(Dataset dataset) throws IllegalArgumentException {
-//        if (dataset.getDataEntry().isEmpty()) {
-//            throw new IllegalArgumentException("Resulting dataset is empty");
-//        }
-        HashSet<String> features = dataset.getFeatures().stream().map(FeatureInfo::getURI).collect(Collectors.toCollection(HashSet::new));
-        for (DataEntry dataEntry : dataset.getDataEntry()) {
-            HashSet<String> entryFeatures = new HashSet<>(dataEntry.getValues().keySet());
-            if (!entryFeatures.equals(features)) {
-                throw new IllegalArgumentException("Invalid Dataset - DataEntry URIs do not match with Feature URIs. "
-                        + " Problem was found when parsing " + dataEntry.getCompound());
-            }
-        }
-        getEntityManager().merge(dataset);
+        validate(dataset);
+        dataset.setFingerprint(Fingerprint.ofDataset(dataset));
+        super.edit(dataset);
     }
     
     public Dataset find(Object id, Integer rowStart, Integer rowMax, Integer colStart, Integer colMax, String stratify, Long seed, Integer folds, String targetFeature) {
@@ -185,4 +217,31 @@ public class DatasetHandler extends AbstractHandler<Dataset> {
 //        dataset.getFeatures().keySet().retainAll(firstEntry.getValues().keySet());                
         return dataset;
     }
+
+    /**
+     * Content hash of a stored dataset. The hash is stored with the dataset
+     * when it is created or edited, so only that field is read; datasets
+     * stored before that are hashed once and updated.
+     *
+     * @param id id of the dataset
+     * @return the fingerprint of the dataset contents or null if the dataset
+     * does not exist
+     * @see Fingerprint#ofDataset(Dataset)
+     */
+    public String fingerprint(String id) {
+        Dataset stored = em.find(Dataset.class, id, Arrays.asList("fingerprint"));
+        if (stored == null) {
+            return null;
+        }
+        if (stored.getFingerprint() != null) {
+            return stored.getFingerprint();
+        }
+        Dataset dataset = em.find(Dataset.class, id);
+        if (dataset == null) {
+            return null;
+        }
+        dataset.setFingerprint(Fingerprint.ofDataset(dataset));
+        em.merge(dataset);
+        return dataset.getFingerprint();
+    }
 }
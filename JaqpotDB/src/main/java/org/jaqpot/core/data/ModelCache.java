@@ -0,0 +1,221 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.NotFoundException;
+import org.jaqpot.core.annotations.MongoDB;
+import org.jaqpot.core.db.entitymanager.JaqpotEntityManager;
+import org.jaqpot.core.model.Model;
+
+/**
+ * In-process LRU cache of resolved model chains. The cache is bounded both in
+ * entries and in weight, an estimate of the heap taken by the actual and PMML
+ * models of the chains, since actual models restored by
+ * {@link RawModelStorage} may be several megabytes each. Chains heavier than
+ * the whole bound are not cached. Entries are invalidated by
+ * {@link ModelHandler} whenever a model that takes part in a chain is edited
+ * or removed.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@ApplicationScoped
+public class ModelCache {
+
+    private static final Logger LOG = Logger.getLogger(ModelCache.class.getName());
+
+    private static final int MAX_ENTRIES = 200;
+
+    /**
+     * Default bound of the total weight of the cached chains, in bytes.
+     */
+    private static final long MAX_WEIGHT = 128L << 20;
+
+    /**
+     * Weight of a model besides its actual and PMML models, in bytes.
+     */
+    static final long MODEL_WEIGHT = 4096;
+
+    @Inject
+    @MongoDB
+    JaqpotEntityManager em;
+
+    private final long maxWeight;
+
+    private final Map<String, Entry> chains = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight = 0;
+
+    /**
+     * Incremented on every invalidation, so that chains loaded concurrently
+     * with an invalidation are not cached.
+     */
+    private long generation = 0;
+
+    public ModelCache() {
+        this(MAX_WEIGHT);
+    }
+
+    ModelCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the resolved chain of a model, reading it from the database on
+     * a cache miss.
+     *
+     * @param id id of the main model
+     * @return the resolved chain or null if the model does not exist
+     * @throws NotFoundException if a transformation or linked model of the
+     * chain does not exist
+     */
+    public ModelChain getChain(String id) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = chains.get(id);
+            if (entry != null) {
+                return entry.chain;
+            }
+            loadGeneration = generation;
+        }
+        Model model = RawModelStorage.load(em, em.find(Model.class, id));
+        if (model == null) {
+            return null;
+        }
+        ModelChain chain = new ModelChain(model,
+                resolve(model.getTransformationModels(), "Transformation"),
+                resolve(model.getLinkedModels(), "Linked"));
+        long chainWeight = weight(chain);
+        synchronized (this) {
+            if (generation == loadGeneration && chainWeight <= maxWeight) {
+                Entry old = chains.put(id, new Entry(chain, chainWeight));
+                weight += chainWeight - (old != null ? old.weight : 0);
+                Iterator<Entry> eldest = chains.values().iterator();
+                while (chains.size() > MAX_ENTRIES || weight > maxWeight) {
+                    weight -= eldest.next().weight;
+                    eldest.remove();
+                }
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Evicts every chain that contains the model with the given id.
+     *
+     * @param id model id or model URI
+     */
+    public synchronized void invalidate(String id) {
+        String modelId = id.contains("model/") ? id.split("model/")[1] : id;
+        generation++;
+        Iterator<Entry> entries = chains.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.chain.contains(modelId)) {
+                weight -= entry.weight;
+                entries.remove();
+            }
+        }
+        LOG.log(Level.FINE, "Model {0} evicted from cache", modelId);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        chains.clear();
+        weight = 0;
+    }
+
+    /**
+     * Estimated heap taken by a chain: a fixed weight per model plus its
+     * actual and PMML models when these are strings, as they are when read
+     * from the database.
+     *
+     * @param chain resolved chain
+     * @return the weight of the chain in bytes
+     */
+    static long weight(ModelChain chain) {
+        long chainWeight = weight(chain.getModel());
+        for (Model model : chain.getTransformationModels()) {
+            chainWeight += weight(model);
+        }
+        for (Model model : chain.getLinkedModels()) {
+            chainWeight += weight(model);
+        }
+        return chainWeight;
+    }
+
+    private static long weight(Model model) {
+        long modelWeight = MODEL_WEIGHT;
+        if (model.getActualModel() instanceof String) {
+            modelWeight += 2L * ((String) model.getActualModel()).length();
+        }
+        if (model.getPmmlModel() instanceof String) {
+            modelWeight += 2L * ((String) model.getPmmlModel()).length();
+        }
+        return modelWeight;
+    }
+
+    private List<Model> resolve(List<String> modelURIs, String kind) {
+        List<Model> models = new ArrayList<>();
+        if (modelURIs == null) {
+            return models;
+        }
+        for (String modelURI : modelURIs) {
+            Model model = RawModelStorage.load(em, em.find(Model.class, modelURI.split("model/")[1]));
+            if (model == null) {
+                throw new NotFoundException(kind + " model with id:" + modelURI + " was not found.");
+            }
+            models.add(model);
+        }
+        return models;
+    }
+
+    private static class Entry {
+
+        private final ModelChain chain;
+        private final long weight;
+
+        private Entry(ModelChain chain, long weight) {
+            this.chain = chain;
+            this.weight = weight;
+        }
+
+    }
+
+}
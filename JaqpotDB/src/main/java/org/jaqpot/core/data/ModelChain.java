@@ -0,0 +1,84 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.Collections;
+import java.util.List;
+import org.jaqpot.core.model.Model;
+
+/**
+ * A model together with its resolved transformation and linked models, i.e.
+ * everything needed to apply the model on a dataset.
+ *
+ * Instances are shared between threads through the {@link ModelCache} and
+ * must not be modified.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ModelChain {
+
+    private final Model model;
+    private final List<Model> transformationModels;
+    private final List<Model> linkedModels;
+
+    public ModelChain(Model model, List<Model> transformationModels, List<Model> linkedModels) {
+        this.model = model;
+        this.transformationModels = Collections.unmodifiableList(transformationModels);
+        this.linkedModels = Collections.unmodifiableList(linkedModels);
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public List<Model> getTransformationModels() {
+        return transformationModels;
+    }
+
+    public List<Model> getLinkedModels() {
+        return linkedModels;
+    }
+
+    /**
+     * Whether the model with the given id takes part in this chain.
+     *
+     * @param id model id
+     * @return true if the id is the main, a transformation or a linked model
+     */
+    public boolean contains(String id) {
+        if (model.getId().equals(id)) {
+            return true;
+        }
+        return transformationModels.stream().anyMatch(m -> m.getId().equals(id))
+                || linkedModels.stream().anyMatch(m -> m.getId().equals(id));
+    }
+
+}
@@ -30,6 +30,7 @@
 package org.jaqpot.core.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +52,9 @@ public class ModelHandler extends AbstractHandler<Model> {
     @MongoDB
     JaqpotEntityManager em;
 
+    @Inject
+    ModelCache modelCache;
+
     public ModelHandler() {
         super(Model.class);
     }
@@ -60,6 +64,58 @@ public class ModelHandler extends AbstractHandler<Model> {
         return em;
     }
 
+    @Override
+    protected String getUsageCounter() {
+        return "models";
+    }
+
+    @Override
+    public void create(Model entity) {
+        Object actualModel = entity.getActualModel();
+        RawModelStorage.store(em, entity);
+        try {
+            super.create(entity);
+        } finally {
+            entity.setActualModel(actualModel);
+        }
+    }
+
+    @Override
+    public void edit(Model entity) {
+        Object actualModel = entity.getActualModel();
+        RawModelStorage.store(em, entity);
+        try {
+            super.edit(entity);
+        } finally {
+            entity.setActualModel(actualModel);
+        }
+        modelCache.invalidate(entity.getId());
+    }
+
+    @Override
+    public void remove(Model entity) {
+        super.remove(entity);
+        RawModelStorage.remove(em, entity.getId());
+        modelCache.invalidate(entity.getId());
+    }
+
+    @Override
+    public Model find(Object id) {
+        return RawModelStorage.load(em, super.find(id));
+    }
+
+    /**
+     * Finds a model together with its transformation and linked models.
+     * Chains are served from the in-process {@link ModelCache} and must not be
+     * modified by the caller.
+     *
+     * @param id id of the main model
+     * @return the resolved chain or null if the model does not exist
+     */
+    public ModelChain findChain(String id) {
+        return modelCache.getChain(id);
+    }
+
     public Model findModelPmml(String id) {
         List<String> keys = new ArrayList<>();
         keys.add(id);
@@ -136,4 +192,24 @@ public class ModelHandler extends AbstractHandler<Model> {
         return em.find(Model.class, keys, fields).stream().findFirst().orElse(null);
     }
 
+    /**
+     * Finds a visible model of the given creator that was trained from inputs
+     * with the given fingerprint.
+     *
+     * @param fingerprint fingerprint of the training inputs
+     * @param createdBy creator of the model
+     * @return the id and meta of the matching model or null
+     */
+    public Model findByFingerprint(String fingerprint, String createdBy) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("fingerprint", fingerprint);
+        properties.put("meta.creators", Arrays.asList(createdBy));
+        properties.put("visible", true);
+
+        List<String> fields = new ArrayList<>();
+        fields.add("_id");
+        fields.add("meta");
+        return em.find(Model.class, properties, fields, 0, 1).stream().findFirst().orElse(null);
+    }
+
 }
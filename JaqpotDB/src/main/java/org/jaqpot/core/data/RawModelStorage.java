@@ -0,0 +1,128 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.jaqpot.core.db.entitymanager.JaqpotEntityManager;
+import org.jaqpot.core.model.Model;
+
+/**
+ * Moves large actual models out of model entities. MongoDB documents are
+ * limited in size and every read of a model entity would otherwise carry the
+ * whole actual model as a string; large actual models are stored as files
+ * instead and read back only when a model is loaded in full.
+ *
+ * Base64 actual models (as produced by the algorithm services) are stored
+ * decoded, the rest as UTF-8 text.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+class RawModelStorage {
+
+    static final String BUCKET = "models";
+
+    /**
+     * Actual models up to this many characters are kept inline.
+     */
+    static final int INLINE_LIMIT = 1 << 20;
+
+    private static final String BINARY_SUFFIX = ".bin";
+    private static final String TEXT_SUFFIX = ".txt";
+
+    private RawModelStorage() {
+    }
+
+    /**
+     * Moves the actual model of a model that is about to be persisted to a
+     * file if it is too large to be kept inline.
+     *
+     * @param em entity manager
+     * @param model model about to be persisted
+     */
+    static void store(JaqpotEntityManager em, Model model) {
+        if (!(model.getActualModel() instanceof String)) {
+            return;
+        }
+        String actualModel = (String) model.getActualModel();
+        if (actualModel.length() <= INLINE_LIMIT) {
+            return;
+        }
+        byte[] content;
+        String name;
+        try {
+            content = Base64.getDecoder().decode(actualModel);
+            name = model.getId() + BINARY_SUFFIX;
+        } catch (IllegalArgumentException ex) {
+            content = actualModel.getBytes(StandardCharsets.UTF_8);
+            name = model.getId() + TEXT_SUFFIX;
+        }
+        em.persistFile(BUCKET, name, content);
+        model.setActualModel(null);
+        model.setActualModelFile(name);
+    }
+
+    /**
+     * Restores the actual model of a loaded model from its file, if it has
+     * one.
+     *
+     * @param em entity manager
+     * @param model loaded model or null
+     * @return the same model
+     */
+    static Model load(JaqpotEntityManager em, Model model) {
+        if (model == null || model.getActualModelFile() == null || model.getActualModel() != null) {
+            return model;
+        }
+        String name = model.getActualModelFile();
+        byte[] content = em.findFile(BUCKET, name);
+        if (content != null) {
+            model.setActualModel(name.endsWith(BINARY_SUFFIX)
+                    ? Base64.getEncoder().encodeToString(content)
+                    : new String(content, StandardCharsets.UTF_8));
+        }
+        return model;
+    }
+
+    /**
+     * Removes the file of the actual model of a model, if it has one. Models
+     * are usually removed by id only, so both possible file names are
+     * removed.
+     *
+     * @param em entity manager
+     * @param id id of the model being removed
+     */
+    static void remove(JaqpotEntityManager em, String id) {
+        em.removeFile(BUCKET, id + BINARY_SUFFIX);
+        em.removeFile(BUCKET, id + TEXT_SUFFIX);
+    }
+
+}
@@ -29,6 +29,11 @@
  */
 package org.jaqpot.core.data;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import org.jaqpot.core.annotations.MongoDB;
@@ -55,4 +60,29 @@ public class ReportHandler extends AbstractHandler<Report> {
     protected JaqpotEntityManager getEntityManager() {
         return em;
     }
+
+    @Override
+    protected String getUsageCounter() {
+        return "reports";
+    }
+
+    /**
+     * Finds a visible report of the given creator that was produced from
+     * inputs with the given fingerprint.
+     *
+     * @param fingerprint fingerprint of the validation inputs
+     * @param createdBy creator of the report
+     * @return the id and meta of the matching report or null
+     */
+    public Report findByFingerprint(String fingerprint, String createdBy) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("fingerprint", fingerprint);
+        properties.put("meta.creators", Arrays.asList(createdBy));
+        properties.put("visible", true);
+
+        List<String> fields = new ArrayList<>();
+        fields.add("_id");
+        fields.add("meta");
+        return em.find(Report.class, properties, fields, 0, 1).stream().findFirst().orElse(null);
+    }
 }
@@ -53,6 +53,8 @@ public class TaskHandler extends AbstractHandler<Task> {
     private static final Map<Object, Task> taskCache = new HashMap<>();
     private static final Map<Object, CountDownLatch> taskLatches = new ConcurrentHashMap<>();
 
+    private static final String RUNNING_COUNTER = "tasksRunning";
+
     @Inject
     @MongoDB
     JaqpotEntityManager em;
@@ -66,6 +68,26 @@ public class TaskHandler extends AbstractHandler<Task> {
         return em;
     }
 
+    @Override
+    protected String getUsageCounter() {
+        return "tasks";
+    }
+
+    @Override
+    protected Map<String, Long> usage(Task entity) {
+        Map<String, Long> usage = new HashMap<>();
+        usage.put(getUsageCounter(), 1L);
+        usage.put(RUNNING_COUNTER, Task.Status.RUNNING.equals(entity.getStatus()) ? 1L : 0L);
+        return usage;
+    }
+
+    @Override
+    protected Map<String, Long> recountUsage(String createdBy) {
+        Map<String, Long> usage = new HashMap<>(super.recountUsage(createdBy));
+        usage.put(RUNNING_COUNTER, queryByUserAndStatus(createdBy, Task.Status.RUNNING));
+        return usage;
+    }
+
     @Override
     public Task find(Object id) {
         Task result = taskCache.get(id);
@@ -115,11 +137,7 @@ public class TaskHandler extends AbstractHandler<Task> {
     }
 
     public Long countByUser(String userName) {
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("meta.creators", Arrays.asList(userName));
-        properties.put("visible", true);
-
-        return em.count(Task.class, properties);
+        return countAllOfCreator(userName);
     }
 
     public List<Task> findByStatus(Task.Status status, Integer start, Integer max) {
@@ -148,6 +166,13 @@ public class TaskHandler extends AbstractHandler<Task> {
     }
 
     public Long countByUserAndStatus(String userName, Task.Status status) {
+        if (Task.Status.RUNNING.equals(status)) {
+            return countUsage(userName, RUNNING_COUNTER);
+        }
+        return queryByUserAndStatus(userName, status);
+    }
+
+    private Long queryByUserAndStatus(String userName, Task.Status status) {
         Map<String, Object> properties = new HashMap<>();
         properties.put("meta.creators", Arrays.asList(userName));
         properties.put("status", status.name());
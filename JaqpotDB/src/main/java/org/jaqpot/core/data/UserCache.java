@@ -0,0 +1,114 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.jaqpot.core.annotations.MongoDB;
+import org.jaqpot.core.db.entitymanager.JaqpotEntityManager;
+import org.jaqpot.core.model.User;
+
+/**
+ * In-process, size bounded (LRU) cache of users. Almost every authenticated
+ * request needs the user that issued it together with its capabilities;
+ * entries are invalidated by {@link UserHandler} whenever a user is created,
+ * edited or removed.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+@ApplicationScoped
+public class UserCache {
+
+    private static final Logger LOG = Logger.getLogger(UserCache.class.getName());
+
+    private static final int MAX_ENTRIES = 1000;
+
+    @Inject
+    @MongoDB
+    JaqpotEntityManager em;
+
+    private final Map<String, User> users = new LinkedHashMap<String, User>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Incremented on every invalidation, so that users loaded concurrently
+     * with an invalidation are not cached.
+     */
+    private long generation = 0;
+
+    /**
+     * Returns a user, reading it from the database on a cache miss. The
+     * returned instance is shared and must not be modified.
+     *
+     * @param id id of the user
+     * @return the user or null if the user does not exist
+     */
+    public User get(String id) {
+        long loadGeneration;
+        synchronized (this) {
+            User user = users.get(id);
+            if (user != null) {
+                return user;
+            }
+            loadGeneration = generation;
+        }
+        User user = em.find(User.class, id);
+        if (user == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                users.put(id, user);
+            }
+        }
+        return user;
+    }
+
+    public synchronized void invalidate(String id) {
+        generation++;
+        users.remove(id);
+        LOG.log(Level.FINE, "User {0} evicted from cache", id);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        users.clear();
+    }
+
+}
@@ -48,6 +48,9 @@ public class UserHandler extends AbstractHandler<User> {
     @MongoDB
     JaqpotEntityManager em;
 
+    @Inject
+    UserCache userCache;
+
     public UserHandler() {
         super(User.class);
     }
@@ -57,4 +60,34 @@ public class UserHandler extends AbstractHandler<User> {
         return em;
     }
 
+    @Override
+    public void create(User entity) {
+        super.create(entity);
+        userCache.invalidate(entity.getId());
+    }
+
+    @Override
+    public void edit(User entity) {
+        super.edit(entity);
+        userCache.invalidate(entity.getId());
+    }
+
+    @Override
+    public void remove(User entity) {
+        super.remove(entity);
+        userCache.invalidate(entity.getId());
+    }
+
+    /**
+     * Finds a user through the {@link UserCache}. The returned instance is
+     * shared and must be copied before it is modified.
+     *
+     * @param id id of the user
+     * @return the user or null if the user does not exist
+     */
+    @Override
+    public User find(Object id) {
+        return userCache.get(id.toString());
+    }
+
 }
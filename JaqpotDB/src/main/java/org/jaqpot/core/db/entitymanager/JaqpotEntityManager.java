@@ -58,6 +58,14 @@ public interface JaqpotEntityManager extends Closeable {
      */
     public void persist(JaqpotEntity entity);
 
+    /**
+     * Makes a list of entity instances of the same class persistent in a
+     * single bulk write.
+     *
+     * @param entities entity instances
+     */
+    public void persistAll(List<? extends JaqpotEntity> entities);
+
     /**
      * Merges the state of the entity instance to the database context. If the
      * entity already existed in the database context, the old state is
@@ -207,4 +215,60 @@ public interface JaqpotEntityManager extends Closeable {
     public <T extends JaqpotEntity> List<T> findSortedAsc(Class<T> entityClass, Map<String, Object> properties, Integer start, Integer max, List<String> ascendingFields);
     
     public <T extends JaqpotEntity> List<T> findSortedDesc(Class<T> entityClass, Map<String, Object> properties, Integer start, Integer max, List<String> descendingFields);
+
+    /**
+     * Stores binary content that is too large for an entity, replacing any
+     * content previously stored under the same name.
+     *
+     * @param bucket group of files the content belongs to
+     * @param name name of the file
+     * @param content the content
+     */
+    public void persistFile(String bucket, String name, byte[] content);
+
+    /**
+     * Finds binary content stored with {@link #persistFile}.
+     *
+     * @param bucket group of files the content belongs to
+     * @param name name of the file
+     * @return the content or null if there is no such file
+     */
+    public byte[] findFile(String bucket, String name);
+
+    /**
+     * Removes binary content stored with {@link #persistFile}.
+     *
+     * @param bucket group of files the content belongs to
+     * @param name name of the file
+     */
+    public void removeFile(String bucket, String name);
+
+    /**
+     * Increments counters of a counter document. Counters that are not
+     * present are not created; nothing is incremented unless all of them are
+     * present.
+     *
+     * @param collection collection of counter documents
+     * @param primaryKey primary key of the counter document
+     * @param amounts amounts to add to each counter
+     */
+    public void increment(String collection, Object primaryKey, Map<String, Long> amounts);
+
+    /**
+     * Finds the counters of a counter document.
+     *
+     * @param collection collection of counter documents
+     * @param primaryKey primary key of the counter document
+     * @return the counters, empty if there is no such document
+     */
+    public Map<String, Long> findCounters(String collection, Object primaryKey);
+
+    /**
+     * Sets counters of a counter document, creating the document if needed.
+     *
+     * @param collection collection of counter documents
+     * @param primaryKey primary key of the counter document
+     * @param values values of the counters
+     */
+    public void setCounters(String collection, Object primaryKey, Map<String, Long> values);
 }
@@ -30,10 +30,13 @@
 package org.jaqpot.core.db.entitymanager;
 
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
 import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.util.JSON;
 import java.io.IOException;
 import java.io.InputStream;
@@ -43,10 +46,14 @@ import com.mongodb.client.model.Sorts;
 import org.bson.BsonDocument;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
 import org.jaqpot.core.annotations.MongoDB;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -77,6 +84,11 @@ public class MongoDBEntityManager implements JaqpotEntityManager {
     private static final Logger LOG = Logger.getLogger(MongoDBEntityManager.class.getName());
     private static final Integer DEFAULT_PAGE_SIZE = 10;
 
+    /**
+     * Chunk size of stored files, the GridFS default.
+     */
+    private static final int CHUNK_SIZE = 255 * 1024;
+
     @Inject
     @MongoDB
     JSONSerializer serializer;
@@ -151,6 +163,25 @@ public class MongoDBEntityManager implements JaqpotEntityManager {
         }
     }
 
+    @Override
+    public void persistAll(List<? extends JaqpotEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        MongoDatabase db = mongoClient.getDatabase(database);
+        MongoCollection<Document> collection = db.getCollection(collectionNames.get(entities.get(0).getClass()));
+        List<Document> entityBSONs = new ArrayList<>(entities.size());
+        for (JaqpotEntity entity : entities) {
+            entityBSONs.add(Document.parse(serializer.write(entity)));
+        }
+        try {
+            collection.insertMany(entityBSONs);
+        } catch (final MongoWriteException ex) {
+            LOG.log(Level.FINE, "Bulk insert of " + entities.size() + " entities failed", ex);
+            throw ex;
+        }
+    }
+
     @Override
     public <T extends JaqpotEntity> T merge(T entity) {
         MongoDatabase db = mongoClient.getDatabase(database);
@@ -462,6 +493,117 @@ public class MongoDBEntityManager implements JaqpotEntityManager {
         return collection.count();
     }
 
+    /**
+     * Stores a file in the GridFS layout (a {@code <bucket>.files} document
+     * and {@code <bucket>.chunks} of {@link #CHUNK_SIZE} bytes) through the
+     * MongoDatabase API, replacing any file of the same name. The chunks are
+     * written first, so a file document is never seen without its content.
+     */
+    @Override
+    public void persistFile(String bucket, String name, byte[] content) {
+        MongoDatabase db = mongoClient.getDatabase(database);
+        MongoCollection<Document> files = db.getCollection(bucket + ".files");
+        MongoCollection<Document> chunks = db.getCollection(bucket + ".chunks");
+        files.createIndex(new Document("filename", 1).append("uploadDate", 1));
+        chunks.createIndex(new Document("files_id", 1).append("n", 1), new IndexOptions().unique(true));
+        removeFile(bucket, name);
+
+        ObjectId id = new ObjectId();
+        List<Document> fileChunks = new ArrayList<>(content.length / CHUNK_SIZE + 1);
+        for (int n = 0, offset = 0; offset < content.length; n++, offset += CHUNK_SIZE) {
+            byte[] data = Arrays.copyOfRange(content, offset, Math.min(offset + CHUNK_SIZE, content.length));
+            fileChunks.add(new Document("files_id", id).append("n", n).append("data", new Binary(data)));
+        }
+        if (!fileChunks.isEmpty()) {
+            chunks.insertMany(fileChunks);
+        }
+        files.insertOne(new Document("_id", id)
+                .append("length", (long) content.length)
+                .append("chunkSize", CHUNK_SIZE)
+                .append("uploadDate", new Date())
+                .append("filename", name));
+    }
+
+    @Override
+    public byte[] findFile(String bucket, String name) {
+        MongoDatabase db = mongoClient.getDatabase(database);
+        Document file = db.getCollection(bucket + ".files")
+                .find(new Document("filename", name))
+                .sort(Sorts.descending("uploadDate"))
+                .first();
+        if (file == null) {
+            return null;
+        }
+        byte[] content = new byte[((Number) file.get("length")).intValue()];
+        int offset = 0;
+        for (Document chunk : db.getCollection(bucket + ".chunks")
+                .find(new Document("files_id", file.get("_id")))
+                .sort(Sorts.ascending("n"))) {
+            byte[] data = ((Binary) chunk.get("data")).getData();
+            if (offset + data.length > content.length) {
+                throw new MongoException("File " + name + " in bucket " + bucket + " is longer than its length");
+            }
+            System.arraycopy(data, 0, content, offset, data.length);
+            offset += data.length;
+        }
+        if (offset != content.length) {
+            throw new MongoException("File " + name + " in bucket " + bucket + " is missing chunks");
+        }
+        return content;
+    }
+
+    @Override
+    public void removeFile(String bucket, String name) {
+        MongoDatabase db = mongoClient.getDatabase(database);
+        MongoCollection<Document> files = db.getCollection(bucket + ".files");
+        for (Document file : files.find(new Document("filename", name)).projection(include("_id"))) {
+            db.getCollection(bucket + ".chunks").deleteMany(new Document("files_id", file.get("_id")));
+            files.deleteOne(new Document("_id", file.get("_id")));
+        }
+    }
+
+    @Override
+    public void increment(String collection, Object primaryKey, Map<String, Long> amounts) {
+        if (amounts.isEmpty()) {
+            return;
+        }
+        Document filter = new Document("_id", primaryKey);
+        Document increments = new Document();
+        amounts.forEach((counter, amount) -> {
+            filter.append(counter, new Document("$exists", true));
+            increments.append(counter, amount);
+        });
+        MongoDatabase db = mongoClient.getDatabase(database);
+        db.getCollection(collection).updateOne(filter, new Document("$inc", increments));
+    }
+
+    @Override
+    public Map<String, Long> findCounters(String collection, Object primaryKey) {
+        MongoDatabase db = mongoClient.getDatabase(database);
+        Document retrieved = db.getCollection(collection).find(new Document("_id", primaryKey)).first();
+        Map<String, Long> counters = new HashMap<>();
+        if (retrieved != null) {
+            retrieved.forEach((key, value) -> {
+                if (value instanceof Number) {
+                    counters.put(key, ((Number) value).longValue());
+                }
+            });
+        }
+        return counters;
+    }
+
+    @Override
+    public void setCounters(String collection, Object primaryKey, Map<String, Long> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        Document counters = new Document();
+        values.forEach(counters::append);
+        MongoDatabase db = mongoClient.getDatabase(database);
+        db.getCollection(collection).updateOne(new Document("_id", primaryKey),
+                new Document("$set", counters), new UpdateOptions().upsert(true));
+    }
+
     public String getDatabase() {
         return database;
     }
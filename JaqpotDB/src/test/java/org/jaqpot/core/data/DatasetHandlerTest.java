@@ -0,0 +1,110 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeMap;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
+import org.jaqpot.core.model.dto.dataset.Substance;
+import org.jaqpot.core.model.util.Fingerprint;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class DatasetHandlerTest {
+
+    private InMemoryEntityManager em;
+
+    private DatasetHandler datasetHandler;
+
+    @Before
+    public void setUp() {
+        em = new InMemoryEntityManager();
+        datasetHandler = new DatasetHandler();
+        datasetHandler.em = em;
+    }
+
+    private static Dataset dataset(String id, double value) {
+        Substance compound = new Substance();
+        compound.setURI("http://localhost:8080/jaqpot/services/substance/1");
+        TreeMap<String, Object> values = new TreeMap<>();
+        values.put("http://localhost:8080/jaqpot/services/feature/1", value);
+        DataEntry dataEntry = new DataEntry();
+        dataEntry.setCompound(compound);
+        dataEntry.setValues(values);
+        Dataset dataset = new Dataset();
+        dataset.setId(id);
+        dataset.setFeatures(new HashSet<>(Arrays.asList(new FeatureInfo("http://localhost:8080/jaqpot/services/feature/1", "x"))));
+        dataset.setDataEntry(Arrays.asList(dataEntry));
+        return dataset;
+    }
+
+    @Test
+    public void testFingerprintIsStoredOnCreate() {
+        datasetHandler.create(dataset("ds-1", 1.0));
+
+        assertEquals(Fingerprint.ofDataset(dataset("ds-1", 1.0)), datasetHandler.fingerprint("ds-1"));
+        assertEquals(0, em.reads("ds-1"));
+    }
+
+    @Test
+    public void testFingerprintIsUpdatedOnEdit() {
+        datasetHandler.create(dataset("ds-1", 1.0));
+        String created = datasetHandler.fingerprint("ds-1");
+
+        datasetHandler.edit(dataset("ds-1", 2.0));
+
+        assertFalse(created.equals(datasetHandler.fingerprint("ds-1")));
+        assertEquals(Fingerprint.ofDataset(dataset("ds-1", 2.0)), datasetHandler.fingerprint("ds-1"));
+    }
+
+    @Test
+    public void testLegacyDatasetIsFingerprintedOnce() {
+        em.put(dataset("ds-1", 1.0));
+
+        assertEquals(Fingerprint.ofDataset(dataset("ds-1", 1.0)), datasetHandler.fingerprint("ds-1"));
+        assertEquals(Fingerprint.ofDataset(dataset("ds-1", 1.0)), datasetHandler.fingerprint("ds-1"));
+        assertEquals(1, em.reads("ds-1"));
+    }
+
+    @Test
+    public void testMissingDataset() {
+        assertNull(datasetHandler.fingerprint("ds-1"));
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jaqpot.core.db.entitymanager.JaqpotEntityManager;
+import org.jaqpot.core.model.JaqpotEntity;
+
+/**
+ * In-memory entity manager for handler and cache tests. Entities are kept by
+ * id, files by bucket and name and counter documents by collection and
+ * primary key. Full reads of entities (not projections) and count queries
+ * are recorded, so tests can check what was served from a cache. Operations
+ * the tests do not need throw {@link UnsupportedOperationException}.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+class InMemoryEntityManager implements JaqpotEntityManager {
+
+    private final Map<Object, JaqpotEntity> entities = new LinkedHashMap<>();
+    private final Map<Object, Integer> reads = new HashMap<>();
+    private final Map<String, Map<String, byte[]>> buckets = new HashMap<>();
+    private final Map<String, Map<Object, Map<String, Long>>> collections = new HashMap<>();
+    private int countQueries = 0;
+
+    /**
+     * Stores an entity without going through a handler.
+     */
+    void put(JaqpotEntity entity) {
+        entities.put(entity.getId(), entity);
+    }
+
+    int reads(Object primaryKey) {
+        return reads.getOrDefault(primaryKey, 0);
+    }
+
+    int countQueries() {
+        return countQueries;
+    }
+
+    Map<String, byte[]> files(String bucket) {
+        return buckets.computeIfAbsent(bucket, b -> new HashMap<>());
+    }
+
+    Map<String, Long> counters(String collection, Object primaryKey) {
+        return collections.computeIfAbsent(collection, c -> new HashMap<>())
+                .computeIfAbsent(primaryKey, k -> new HashMap<>());
+    }
+
+    @Override
+    public void persist(JaqpotEntity entity) {
+        put(entity);
+    }
+
+    @Override
+    public void persistAll(List<? extends JaqpotEntity> entities) {
+        entities.forEach(this::put);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JaqpotEntity> T merge(T entity) {
+        return (T) entities.put(entity.getId(), entity);
+    }
+
+    @Override
+    public void remove(JaqpotEntity entity) {
+        entities.remove(entity.getId());
+    }
+
+    @Override
+    public <T extends JaqpotEntity> T find(Class<T> entityClass, Object primaryKey) {
+        reads.merge(primaryKey, 1, Integer::sum);
+        JaqpotEntity entity = entities.get(primaryKey);
+        return entityClass.isInstance(entity) ? entityClass.cast(entity) : null;
+    }
+
+    @Override
+    public <T extends JaqpotEntity> T find(Class<T> entityClass, Object primaryKey, List<String> fields) {
+        JaqpotEntity entity = entities.get(primaryKey);
+        return entityClass.isInstance(entity) ? entityClass.cast(entity) : null;
+    }
+
+    /**
+     * Counts the entities of the class whose properties match. A list value
+     * matches a collection property that contains all of its elements and
+     * enums match by name.
+     */
+    @Override
+    public <T extends JaqpotEntity> Long count(Class<T> entityClass, Map<String, Object> properties) {
+        countQueries++;
+        return entities.values().stream()
+                .filter(entityClass::isInstance)
+                .filter(entity -> properties.entrySet().stream()
+                        .allMatch(property -> matches(property(entity, property.getKey()), property.getValue())))
+                .count();
+    }
+
+    private static boolean matches(Object actual, Object expected) {
+        if (expected instanceof List) {
+            return actual instanceof Collection && ((Collection<?>) actual).containsAll((List<?>) expected);
+        }
+        if (actual instanceof Enum) {
+            actual = ((Enum<?>) actual).name();
+        }
+        return expected.equals(actual);
+    }
+
+    private static Object property(Object bean, String path) {
+        Object value = bean;
+        for (String name : path.split("\\.")) {
+            if (value == null) {
+                return null;
+            }
+            String getter = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            try {
+                value = value.getClass().getMethod("get" + getter).invoke(value);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalArgumentException("No property " + path + " in " + bean.getClass().getSimpleName(), ex);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void persistFile(String bucket, String name, byte[] content) {
+        files(bucket).put(name, content);
+    }
+
+    @Override
+    public byte[] findFile(String bucket, String name) {
+        return files(bucket).get(name);
+    }
+
+    @Override
+    public void removeFile(String bucket, String name) {
+        files(bucket).remove(name);
+    }
+
+    /**
+     * Like the Mongo implementation, only documents that already have all
+     * the counters are incremented.
+     */
+    @Override
+    public void increment(String collection, Object primaryKey, Map<String, Long> amounts) {
+        Map<String, Long> counters = counters(collection, primaryKey);
+        if (counters.keySet().containsAll(amounts.keySet())) {
+            amounts.forEach((counter, amount) -> counters.merge(counter, amount, Long::sum));
+        }
+    }
+
+    @Override
+    public Map<String, Long> findCounters(String collection, Object primaryKey) {
+        return new HashMap<>(counters(collection, primaryKey));
+    }
+
+    @Override
+    public void setCounters(String collection, Object primaryKey, Map<String, Long> values) {
+        counters(collection, primaryKey).putAll(values);
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> find(Class<T> entityClass, Map<String, Object> properties, Integer start, Integer max) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> find(Class<T> entityClass, List<String> keys, List<String> fields) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> find(Class<T> entityClass, Map<String, Object> properties, List<String> fields, Integer start, Integer max) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findAll(Class<T> entityClass, Integer start, Integer max) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findAll(Class<T> entityClass, List<String> fields, Integer start, Integer max) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> Long countAll(Class<T> entityClass) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findSorted(Class<T> entityClass, Map<String, Object> properties, List<String> fields, Integer start, Integer max, List<String> ascendingFields, List<String> descendingFields) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findSortedAsc(Class<T> entityClass, Map<String, Object> properties, List<String> fields, Integer start, Integer max, List<String> ascendingFields) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findSortedDesc(Class<T> entityClass, Map<String, Object> properties, List<String> fields, Integer start, Integer max, List<String> descendingFields) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findSorted(Class<T> entityClass, Map<String, Object> properties, Integer start, Integer max, List<String> ascendingFields, List<String> descendingFields) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findSortedAsc(Class<T> entityClass, Map<String, Object> properties, Integer start, Integer max, List<String> ascendingFields) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends JaqpotEntity> List<T> findSortedDesc(Class<T> entityClass, Map<String, Object> properties, Integer start, Integer max, List<String> descendingFields) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
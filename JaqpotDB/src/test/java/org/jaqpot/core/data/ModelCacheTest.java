@@ -0,0 +1,152 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.Arrays;
+import org.jaqpot.core.model.Model;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class ModelCacheTest {
+
+    private final InMemoryEntityManager em = new InMemoryEntityManager();
+
+    private ModelCache modelCache;
+
+    private Model model, transformation, linked;
+
+    @Before
+    public void setUp() {
+        transformation = new Model("trans-1");
+        linked = new Model("linked-1");
+        model = new Model("model-1");
+        model.setTransformationModels(Arrays.asList("http://localhost:8080/jaqpot/services/model/trans-1"));
+        model.setLinkedModels(Arrays.asList("http://localhost:8080/jaqpot/services/model/linked-1"));
+        em.put(model);
+        em.put(transformation);
+        em.put(linked);
+
+        modelCache = new ModelCache();
+        modelCache.em = em;
+    }
+
+    @Test
+    public void testGetChain() {
+        ModelChain chain = modelCache.getChain("model-1");
+
+        assertSame(model, chain.getModel());
+        assertEquals(Arrays.asList(transformation), chain.getTransformationModels());
+        assertEquals(Arrays.asList(linked), chain.getLinkedModels());
+    }
+
+    @Test
+    public void testGetChainIsCached() {
+        ModelChain chain = modelCache.getChain("model-1");
+
+        assertSame(chain, modelCache.getChain("model-1"));
+        assertEquals(1, em.reads("model-1"));
+        assertEquals(1, em.reads("trans-1"));
+    }
+
+    @Test
+    public void testGetChainOfMissingModel() {
+        assertNull(modelCache.getChain("missing"));
+    }
+
+    @Test
+    public void testInvalidateByMemberURI() {
+        ModelChain chain = modelCache.getChain("model-1");
+
+        modelCache.invalidate("http://localhost:8080/jaqpot/services/model/linked-1");
+
+        assertNotSame(chain, modelCache.getChain("model-1"));
+        assertEquals(2, em.reads("model-1"));
+    }
+
+    @Test
+    public void testInvalidateUnrelatedModel() {
+        ModelChain chain = modelCache.getChain("model-1");
+
+        modelCache.invalidate("model-2");
+
+        assertSame(chain, modelCache.getChain("model-1"));
+    }
+
+    private Model heavyModel(String id, int length) {
+        char[] actualModel = new char[length];
+        Arrays.fill(actualModel, 'A');
+        Model heavy = new Model(id);
+        heavy.setActualModel(new String(actualModel));
+        em.put(heavy);
+        return heavy;
+    }
+
+    @Test
+    public void testWeight() {
+        ModelChain chain = new ModelChain(heavyModel("heavy-1", 1000),
+                Arrays.asList(transformation), Arrays.asList(linked));
+
+        assertEquals(3 * ModelCache.MODEL_WEIGHT + 2000, ModelCache.weight(chain));
+    }
+
+    @Test
+    public void testEldestChainIsEvictedByWeight() {
+        heavyModel("heavy-1", 1000);
+        heavyModel("heavy-2", 1000);
+        ModelCache lightCache = new ModelCache(2 * ModelCache.MODEL_WEIGHT + 3000);
+        lightCache.em = em;
+
+        ModelChain chain = lightCache.getChain("heavy-1");
+        assertSame(chain, lightCache.getChain("heavy-1"));
+        lightCache.getChain("heavy-2");
+
+        assertNotSame(chain, lightCache.getChain("heavy-1"));
+        assertEquals(2, em.reads("heavy-1"));
+    }
+
+    @Test
+    public void testChainOverTheBoundIsNotCached() {
+        heavyModel("heavy-1", 1000);
+        ModelCache lightCache = new ModelCache(ModelCache.MODEL_WEIGHT + 1000);
+        lightCache.em = em;
+
+        lightCache.getChain("heavy-1");
+        lightCache.getChain("heavy-1");
+
+        assertEquals(2, em.reads("heavy-1"));
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import org.jaqpot.core.model.Model;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class RawModelStorageTest {
+
+    private InMemoryEntityManager em;
+
+    private Map<String, byte[]> files;
+
+    @Before
+    public void setUp() {
+        em = new InMemoryEntityManager();
+        files = em.files(RawModelStorage.BUCKET);
+    }
+
+    @Test
+    public void testSmallModelStaysInline() {
+        Model model = new Model("model-1");
+        model.setActualModel("c21hbGw=");
+
+        RawModelStorage.store(em, model);
+
+        assertEquals("c21hbGw=", model.getActualModel());
+        assertNull(model.getActualModelFile());
+        assertTrue(files.isEmpty());
+    }
+
+    @Test
+    public void testLargeBase64ModelIsStoredDecoded() {
+        byte[] content = new byte[RawModelStorage.INLINE_LIMIT];
+        Arrays.fill(content, (byte) 7);
+        String actualModel = Base64.getEncoder().encodeToString(content);
+        Model model = new Model("model-1");
+        model.setActualModel(actualModel);
+
+        RawModelStorage.store(em, model);
+
+        assertNull(model.getActualModel());
+        assertEquals("model-1.bin", model.getActualModelFile());
+        assertArrayEquals(content, files.get("model-1.bin"));
+
+        RawModelStorage.load(em, model);
+        assertEquals(actualModel, model.getActualModel());
+    }
+
+    @Test
+    public void testLargeTextModelIsStoredAsText() {
+        char[] chars = new char[RawModelStorage.INLINE_LIMIT + 1];
+        Arrays.fill(chars, '{');
+        String actualModel = new String(chars);
+        Model model = new Model("model-1");
+        model.setActualModel(actualModel);
+
+        RawModelStorage.store(em, model);
+        assertEquals("model-1.txt", model.getActualModelFile());
+
+        RawModelStorage.load(em, model);
+        assertEquals(actualModel, model.getActualModel());
+    }
+
+    @Test
+    public void testLegacyInlineModelIsLoadedUnchanged() {
+        byte[] content = new byte[RawModelStorage.INLINE_LIMIT * 2];
+        Arrays.fill(content, (byte) 3);
+        String actualModel = Base64.getEncoder().encodeToString(content);
+        files.put("model-1.bin", new byte[1]);
+        Model model = new Model("model-1");
+        model.setActualModel(actualModel);
+
+        RawModelStorage.load(em, model);
+
+        assertEquals(actualModel, model.getActualModel());
+        assertNull(model.getActualModelFile());
+    }
+
+    @Test
+    public void testRemove() {
+        files.put("model-1.bin", new byte[1]);
+
+        RawModelStorage.remove(em, "model-1");
+
+        assertTrue(files.isEmpty());
+    }
+
+}
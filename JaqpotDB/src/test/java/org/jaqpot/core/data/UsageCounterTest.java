@@ -0,0 +1,131 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import java.util.Map;
+import org.jaqpot.core.model.Task;
+import org.jaqpot.core.model.builder.MetaInfoBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class UsageCounterTest {
+
+    private static final String USER = "random-user@jaqpot.org";
+
+    private InMemoryEntityManager em;
+
+    private TaskHandler taskHandler;
+
+    @Before
+    public void setUp() {
+        em = new InMemoryEntityManager();
+        taskHandler = new TaskHandler();
+        taskHandler.em = em;
+    }
+
+    private Map<String, Long> counters() {
+        return em.counters(AbstractHandler.USAGE, USER);
+    }
+
+    private static Task task(String id, Task.Status status) {
+        Task task = new Task(id);
+        task.setMeta(MetaInfoBuilder.builder().addCreators(USER).build());
+        task.setVisible(Boolean.TRUE);
+        task.setStatus(status);
+        return task;
+    }
+
+    @Test
+    public void testCountersAreSeededOnFirstRead() {
+        em.put(task("t1", Task.Status.RUNNING));
+        em.put(task("t2", Task.Status.COMPLETED));
+
+        assertEquals(Long.valueOf(2), taskHandler.countByUser(USER));
+        assertEquals(Long.valueOf(1), taskHandler.countByUserAndStatus(USER, Task.Status.RUNNING));
+        assertEquals(Long.valueOf(2), taskHandler.countByUser(USER));
+        assertEquals(2, em.countQueries());
+    }
+
+    @Test
+    public void testCreateIsCountedOnceSeeded() {
+        taskHandler.create(task("t1", Task.Status.RUNNING));
+        assertTrue(counters().isEmpty());
+
+        assertEquals(Long.valueOf(1), taskHandler.countByUser(USER));
+        taskHandler.create(task("t2", Task.Status.RUNNING));
+
+        assertEquals(Long.valueOf(2), taskHandler.countByUser(USER));
+        assertEquals(Long.valueOf(2), taskHandler.countByUserAndStatus(USER, Task.Status.RUNNING));
+    }
+
+    @Test
+    public void testEditMovesCounters() {
+        taskHandler.create(task("t1", Task.Status.RUNNING));
+        assertEquals(Long.valueOf(1), taskHandler.countByUserAndStatus(USER, Task.Status.RUNNING));
+
+        taskHandler.edit(task("t1", Task.Status.COMPLETED));
+        assertEquals(Long.valueOf(1), taskHandler.countByUser(USER));
+        assertEquals(Long.valueOf(0), taskHandler.countByUserAndStatus(USER, Task.Status.RUNNING));
+
+        Task hidden = task("t1", Task.Status.COMPLETED);
+        hidden.setVisible(Boolean.FALSE);
+        taskHandler.edit(hidden);
+        assertEquals(Long.valueOf(0), taskHandler.countByUser(USER));
+    }
+
+    @Test
+    public void testRemove() {
+        taskHandler.create(task("t1", Task.Status.RUNNING));
+        assertEquals(Long.valueOf(1), taskHandler.countByUser(USER));
+
+        taskHandler.remove(new Task("t1"));
+
+        assertEquals(Long.valueOf(0), taskHandler.countByUser(USER));
+        assertEquals(Long.valueOf(0), taskHandler.countByUserAndStatus(USER, Task.Status.RUNNING));
+    }
+
+    @Test
+    public void testReconcileRepairsDrift() {
+        taskHandler.create(task("t1", Task.Status.RUNNING));
+        assertEquals(Long.valueOf(1), taskHandler.countByUser(USER));
+        counters().put("tasks", 7L);
+
+        taskHandler.reconcileUsage(USER);
+
+        assertEquals(Long.valueOf(1), taskHandler.countByUser(USER));
+    }
+
+}
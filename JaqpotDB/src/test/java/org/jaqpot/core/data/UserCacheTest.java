@@ -0,0 +1,88 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.data;
+
+import org.jaqpot.core.model.User;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class UserCacheTest {
+
+    private final InMemoryEntityManager em = new InMemoryEntityManager();
+
+    private final User john = new User("john");
+
+    private UserCache userCache;
+
+    @Before
+    public void setUp() {
+        em.put(john);
+
+        userCache = new UserCache();
+        userCache.em = em;
+    }
+
+    @Test
+    public void testGetIsCached() {
+        User user = userCache.get("john");
+
+        assertSame(john, user);
+        assertSame(user, userCache.get("john"));
+        assertEquals(1, em.reads("john"));
+    }
+
+    @Test
+    public void testMissingUserIsNotCached() {
+        assertNull(userCache.get("jane"));
+
+        em.put(new User("jane"));
+
+        assertNotNull(userCache.get("jane"));
+        assertEquals(2, em.reads("jane"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        User user = userCache.get("john");
+        em.put(new User("john"));
+
+        userCache.invalidate("john");
+
+        assertNotSame(user, userCache.get("john"));
+        assertEquals(2, em.reads("john"));
+    }
+
+}
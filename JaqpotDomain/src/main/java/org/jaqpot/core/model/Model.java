@@ -104,6 +104,18 @@ public class Model extends JaqpotEntity {
 
     private List<String> linkedModels;
 
+    /**
+     * Fingerprint of the training inputs (algorithm, dataset contents,
+     * parameters and transformations) this model was built from.
+     */
+    private String fingerprint;
+
+    /**
+     * Name of the file that holds the actual model when it is too large to be
+     * stored inline; the actual model is then absent from the stored entity.
+     */
+    private String actualModelFile;
+
     public Model() {
     }
 
@@ -137,6 +149,8 @@ public class Model extends JaqpotEntity {
         this.actualModel = other.actualModel;
         this.pmmlModel = other.pmmlModel;
         this.pmmlTransformations = other.pmmlTransformations;
+        this.fingerprint = other.fingerprint;
+        this.actualModelFile = other.actualModelFile;
     }
 
     public List<String> getDependentFeatures() {
@@ -259,4 +273,20 @@ public class Model extends JaqpotEntity {
         this.linkedModels = linkedModels;
     }
 
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getActualModelFile() {
+        return actualModelFile;
+    }
+
+    public void setActualModelFile(String actualModelFile) {
+        this.actualModelFile = actualModelFile;
+    }
+
 }
@@ -53,6 +53,11 @@ public class Report extends JaqpotEntity {
 
     private Map<String, String> figures;
 
+    /**
+     * Fingerprint of the validation inputs this report was produced from.
+     */
+    private String fingerprint;
+
     public Map<String, Object> getSingleCalculations() {
         return singleCalculations;
     }
@@ -76,6 +81,14 @@ public class Report extends JaqpotEntity {
     public void setFigures(LinkedHashMap<String, String> figures) {
         this.figures = figures;
     }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
     
     public static void main(String[] args) throws JsonProcessingException{
         
@@ -32,6 +32,8 @@ package org.jaqpot.core.model;
 import javax.xml.bind.annotation.XmlRootElement;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -125,6 +127,11 @@ public class Task extends JaqpotEntity {
     private Long duration;
 
     private Type type;
+    /**
+     * Status of the individual items of a batch task (e.g. one prediction
+     * per model and dataset pair), or null for simple tasks.
+     */
+    private List<Task> subTasks;
 
     public Task() {
         super();
@@ -139,6 +146,12 @@ public class Task extends JaqpotEntity {
         this.percentageCompleted = other.percentageCompleted;
         this.result = other.result;
         this.type = other.type;
+        if (other.subTasks != null) {
+            this.subTasks = new ArrayList<>(other.subTasks.size());
+            for (Task subTask : other.subTasks) {
+                this.subTasks.add(new Task(subTask));
+            }
+        }
     }
 
     public Task(String id) {
@@ -211,4 +224,12 @@ public class Task extends JaqpotEntity {
         this.type = type;
     }
 
+    public List<Task> getSubTasks() {
+        return subTasks;
+    }
+
+    public void setSubTasks(List<Task> subTasks) {
+        this.subTasks = subTasks;
+    }
+
 }
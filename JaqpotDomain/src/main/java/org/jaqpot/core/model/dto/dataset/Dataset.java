@@ -86,6 +86,12 @@ public class Dataset extends JaqpotEntity {
 
     private Set<DescriptorCategory> descriptors;
 
+    /**
+     * Fingerprint of the dataset contents, computed when the dataset is
+     * stored.
+     */
+    private String fingerprint;
+
     public String getDatasetURI() {
         return datasetURI;
     }
@@ -142,6 +148,14 @@ public class Dataset extends JaqpotEntity {
         this.descriptors = descriptors;
     }
 
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     @Override
     public String toString() {
         return "Dataset{" + "datasetURI=" + datasetURI + ", dataEntry=" + dataEntry + '}';
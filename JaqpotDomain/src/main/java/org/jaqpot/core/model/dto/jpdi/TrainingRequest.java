@@ -43,6 +43,7 @@ public class TrainingRequest {
     private Dataset dataset;
     private String predictionFeature;
     private Map<String, Object> parameters;
+    private Object rawModel;
 
     public Dataset getDataset() {
         return dataset;
@@ -68,4 +69,18 @@ public class TrainingRequest {
         this.parameters = parameters;
     }
 
+    /**
+     * Raw model of a previous training, sent when a model is updated with
+     * new rows instead of being trained from scratch.
+     *
+     * @return the raw model or null for a training from scratch
+     */
+    public Object getRawModel() {
+        return rawModel;
+    }
+
+    public void setRawModel(Object rawModel) {
+        this.rawModel = rawModel;
+    }
+
 }
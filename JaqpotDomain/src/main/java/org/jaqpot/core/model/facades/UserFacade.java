@@ -128,4 +128,8 @@ public class UserFacade {
         return getMaxWeeklyPublicationRate("algorithms");
     }
 
+    public int getMaxRequestsPerMinute(String routeClass) {
+        return getMaxCapability(routeClass + "PerMinute");
+    }
+
 }
@@ -161,6 +161,16 @@ public class ErrorReportFactory {
                 build();
     }
 
+    public static ErrorReport tooManyRequests(
+            String message) {
+        return ErrorReportBuilder.builderRandomId().
+                setActor("client").
+                setCode("tooManyRequests").
+                setMessage(message).
+                setHttpStatus(429).
+                build();
+    }
+
     /**
      * Generates an ISE error report.
      *
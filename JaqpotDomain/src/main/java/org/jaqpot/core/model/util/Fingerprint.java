@@ -0,0 +1,164 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.model.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
+
+/**
+ * Content fingerprints (SHA-256) used to recognize requests that are
+ * equivalent to ones already served, e.g. a training with the same
+ * algorithm, dataset contents and parameters.
+ *
+ * @author Charalampos Chomenidis
+ * @author Pantelis Sopasakis
+ */
+public class Fingerprint {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final MessageDigest digest;
+
+    private Fingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", ex);
+        }
+    }
+
+    public static Fingerprint builder() {
+        return new Fingerprint();
+    }
+
+    /**
+     * Adds a named component to the fingerprint. Null values are recorded as
+     * such, so that a missing and an empty component do not collide.
+     *
+     * @param name name of the component
+     * @param value value of the component
+     * @return this fingerprint
+     */
+    public Fingerprint add(String name, Object value) {
+        update(name);
+        update(value == null ? "\u0000" : value.toString());
+        return this;
+    }
+
+    /**
+     * Adds a JSON document (e.g. algorithm parameters) in canonical form, so
+     * that key order and whitespace do not affect the fingerprint.
+     *
+     * @param name name of the component
+     * @param json JSON document; may be null or empty
+     * @return this fingerprint
+     */
+    public Fingerprint addJson(String name, String json) {
+        return add(name, canonicalJson(json));
+    }
+
+    public String build() {
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private void update(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    /**
+     * Canonical form of a JSON document: objects with sorted keys and no
+     * insignificant whitespace. Empty input is treated as null.
+     *
+     * @param json JSON document
+     * @return canonical JSON or null
+     * @throws IllegalArgumentException if the document cannot be parsed
+     */
+    public static String canonicalJson(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            Object tree = MAPPER.readValue(json, Object.class);
+            return MAPPER.writeValueAsString(tree);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Invalid JSON document: " + json, ex);
+        }
+    }
+
+    /**
+     * Hash of the contents of a dataset, i.e. its features and data entries.
+     * Row order is significant, feature order is not.
+     *
+     * @param dataset dataset to be hashed
+     * @return hex encoded SHA-256 of the dataset contents
+     */
+    public static String ofDataset(Dataset dataset) {
+        Fingerprint fingerprint = builder();
+        TreeMap<String, String> features = new TreeMap<>();
+        if (dataset.getFeatures() != null) {
+            for (FeatureInfo featureInfo : dataset.getFeatures()) {
+                features.put(featureInfo.getURI(), featureInfo.getName());
+            }
+        }
+        for (Map.Entry<String, String> feature : features.entrySet()) {
+            fingerprint.add("feature", feature.getKey()).add("name", feature.getValue());
+        }
+        if (dataset.getDataEntry() != null) {
+            for (DataEntry dataEntry : dataset.getDataEntry()) {
+                fingerprint.add("compound", dataEntry.getCompound() != null ? dataEntry.getCompound().getURI() : null);
+                try {
+                    fingerprint.add("values", MAPPER.writeValueAsString(dataEntry.getValues()));
+                } catch (JsonProcessingException ex) {
+                    throw new IllegalArgumentException("Dataset values cannot be serialized", ex);
+                }
+            }
+        }
+        return fingerprint.build();
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ *
+ * JAQPOT Quattro
+ *
+ * JAQPOT Quattro and the components shipped with it (web applications and beans)
+ * are licensed by GPL v3 as specified hereafter. Additional components may ship
+ * with some other licence as will be specified therein.
+ *
+ * Copyright (C) 2014-2015 KinkyDesign (Charalampos Chomenidis, Pantelis Sopasakis)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Source code:
+ * The source code of JAQPOT Quattro is available on github at:
+ * https://github.com/KinkyDesign/JaqpotQuattro
+ * All source files of JAQPOT Quattro that are stored on github are licensed
+ * with the aforementioned licence. 
+ */
+package org.jaqpot.core.model.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Polls tasks running on remote servers (e.g. ambit tasks) without parking a
+ * thread between polls. Each poll is scheduled on the given scheduler with an
+ * exponentially growing delay; the returned future completes with the first
+ * task that is no longer running, completes exceptionally with a
+ * {@link TimeoutException} once the deadline passes or with the exception of
+ * a failed refresh. Cancelling the returned future stops polling.
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ */
+public class RemoteTaskPoller {
+
+    private final ScheduledExecutorService scheduler;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final double multiplier;
+
+    /**
+     * Creates a poller that starts at 250ms and backs off by a factor of two
+     * up to 10s between polls.
+     *
+     * @param scheduler the scheduler on which polls are run
+     */
+    public RemoteTaskPoller(ScheduledExecutorService scheduler) {
+        this(scheduler, 250, 10000, 2.0, TimeUnit.MILLISECONDS);
+    }
+
+    public RemoteTaskPoller(ScheduledExecutorService scheduler, long initialDelay, long maxDelay, double multiplier, TimeUnit unit) {
+        if (initialDelay <= 0 || maxDelay < initialDelay || multiplier < 1.0) {
+            throw new IllegalArgumentException("Invalid backoff: " + initialDelay + ", " + maxDelay + ", " + multiplier);
+        }
+        this.scheduler = scheduler;
+        this.initialDelay = unit.toNanos(initialDelay);
+        this.maxDelay = unit.toNanos(maxDelay);
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * Polls a remote task until it stops running.
+     *
+     * @param <T> type of the remote task
+     * @param task the task as returned when it was created
+     * @param running tells whether a task is still running
+     * @param refresh fetches the current state of a task; it is called on a
+     * scheduler thread and should only block for the remote call
+     * @param timeout maximum time to wait for the task
+     * @param unit unit of the timeout
+     * @return the finished task
+     */
+    public <T> CompletableFuture<T> poll(T task, Predicate<T> running, Function<T, T> refresh, long timeout, TimeUnit unit) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Future<?>> next = new AtomicReference<>();
+        result.whenComplete((t, ex) -> {
+            Future<?> pending = next.get();
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        });
+        step(result, next, task, running, refresh, initialDelay, System.nanoTime() + unit.toNanos(timeout));
+        return result;
+    }
+
+    private <T> void step(CompletableFuture<T> result, AtomicReference<Future<?>> next, T task,
+            Predicate<T> running, Function<T, T> refresh, long delay, long deadline) {
+        if (result.isDone()) {
+            return;
+        }
+        if (!running.test(task)) {
+            result.complete(task);
+            return;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            result.completeExceptionally(new TimeoutException("Remote task did not finish in time"));
+            return;
+        }
+        next.set(scheduler.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            T current;
+            try {
+                current = refresh.apply(task);
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+                return;
+            }
+            if (current == null) {
+                result.completeExceptionally(new IllegalStateException("Remote task could not be refreshed"));
+                return;
+            }
+            step(result, next, current, running, refresh, Math.min((long) (delay * multiplier), maxDelay), deadline);
+        }, Math.min(delay, remaining), TimeUnit.NANOSECONDS));
+        if (result.isDone()) {
+            next.get().cancel(false);
+        }
+    }
+
+}
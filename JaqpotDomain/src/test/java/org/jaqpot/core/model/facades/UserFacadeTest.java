@@ -275,4 +275,14 @@ public class UserFacadeTest {
         assertEquals(expectedMaxCapability, maxCapability);
     }
 
+    @Test
+    public void testMaxRequestsPerMinute() {
+        User u = new User();
+        u.setCapabilities(new HashMap<>());
+        u.getCapabilities().put("predictionsPerMinute", 30);
+        UserFacade userFacade = new UserFacade(u);
+        assertEquals(30, userFacade.getMaxRequestsPerMinute("predictions"));
+        assertEquals(-1, userFacade.getMaxRequestsPerMinute("datasets"));
+    }
+
 }
@@ -0,0 +1,75 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.jaqpot.core.model.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.TreeMap;
+import org.jaqpot.core.model.dto.dataset.DataEntry;
+import org.jaqpot.core.model.dto.dataset.Dataset;
+import org.jaqpot.core.model.dto.dataset.FeatureInfo;
+import org.jaqpot.core.model.dto.dataset.Substance;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Charalampos Chomenidis
+ */
+public class FingerprintTest {
+
+    public FingerprintTest() {
+    }
+
+    @Test
+    public void testCanonicalJson() {
+        String a = Fingerprint.canonicalJson("{\"gamma\": 1.5, \"cost\": 10}");
+        String b = Fingerprint.canonicalJson("{\"cost\":10,\"gamma\":1.5}");
+        assertEquals(a, b);
+        assertNull(Fingerprint.canonicalJson(" "));
+    }
+
+    @Test
+    public void testComponentsAreDistinguished() {
+        String a = Fingerprint.builder().add("a", "bc").add("d", null).build();
+        String b = Fingerprint.builder().add("ab", "c").add("d", null).build();
+        String c = Fingerprint.builder().add("a", "bc").add("d", "").build();
+        assertEquals(64, a.length());
+        assertFalse(a.equals(b));
+        assertFalse(a.equals(c));
+        assertEquals(a, Fingerprint.builder().add("a", "bc").add("d", null).build());
+    }
+
+    @Test
+    public void testOfDataset() {
+        Dataset first = dataset(1.0, 2.0);
+        Dataset second = dataset(1.0, 2.0);
+        Dataset third = dataset(1.0, 3.0);
+        assertEquals(Fingerprint.ofDataset(first), Fingerprint.ofDataset(second));
+        assertFalse(Fingerprint.ofDataset(first).equals(Fingerprint.ofDataset(third)));
+    }
+
+    private static Dataset dataset(double... values) {
+        Dataset dataset = new Dataset();
+        dataset.setFeatures(new HashSet<>());
+        dataset.getFeatures().add(new FeatureInfo("http://host/feature/b", "b"));
+        dataset.getFeatures().add(new FeatureInfo("http://host/feature/a", "a"));
+        dataset.setDataEntry(new ArrayList<>());
+        for (int i = 0; i < values.length; i++) {
+            DataEntry dataEntry = new DataEntry();
+            Substance substance = new Substance();
+            substance.setURI("http://host/substance/" + i);
+            dataEntry.setCompound(substance);
+            TreeMap<String, Object> row = new TreeMap<>();
+            row.put("http://host/feature/a", values[i]);
+            row.put("http://host/feature/b", i);
+            dataEntry.setValues(row);
+            dataset.getDataEntry().add(dataEntry);
+        }
+        return dataset;
+    }
+
+}
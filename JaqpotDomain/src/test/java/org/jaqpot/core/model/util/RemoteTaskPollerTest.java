@@ -0,0 +1,109 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.jaqpot.core.model.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Pantelis Sopasakis
+ * @author Charalampos Chomenidis
+ */
+public class RemoteTaskPollerTest {
+
+    private ScheduledExecutorService scheduler;
+    private RemoteTaskPoller poller;
+
+    public RemoteTaskPollerTest() {
+    }
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        poller = new RemoteTaskPoller(scheduler, 1, 4, 2.0, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testPollUntilFinished() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+        CompletableFuture<Integer> result = poller.poll(0, t -> t < 5, t -> {
+            polls.incrementAndGet();
+            return t + 1;
+        }, 10, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(5), result.get(5, TimeUnit.SECONDS));
+        assertEquals(5, polls.get());
+    }
+
+    @Test
+    public void testFinishedTaskIsNotPolled() throws Exception {
+        CompletableFuture<String> result = poller.poll("Completed", "Running"::equals, t -> {
+            throw new AssertionError("Finished task was polled");
+        }, 10, TimeUnit.SECONDS);
+        assertTrue(result.isDone());
+        assertEquals("Completed", result.get());
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        CompletableFuture<String> result = poller.poll("Running", "Running"::equals, t -> t, 20, TimeUnit.MILLISECONDS);
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Poll should have timed out");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testRefreshFailure() throws Exception {
+        CompletableFuture<String> result = poller.poll("Running", "Running"::equals, t -> {
+            throw new IllegalStateException("remote error");
+        }, 10, TimeUnit.SECONDS);
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Poll should have failed");
+        } catch (ExecutionException ex) {
+            assertEquals("remote error", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+        CompletableFuture<String> result = poller.poll("Running", "Running"::equals, t -> {
+            polls.incrementAndGet();
+            return t;
+        }, 10, TimeUnit.SECONDS);
+        Thread.sleep(30);
+        result.cancel(true);
+        try {
+            result.get();
+            fail("Poll should have been cancelled");
+        } catch (CancellationException ex) {
+        }
+        Thread.sleep(10);
+        int count = polls.get();
+        Thread.sleep(30);
+        assertEquals(count, polls.get());
+    }
+
+}